@@ -29,23 +29,31 @@ import com.graphhopper.reader.osm.RestrictionTagParser;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.ch.CHPreparationHandler;
+import com.graphhopper.routing.ch.CoreEdgeFilter;
+import com.graphhopper.routing.ch.CustomizableCH;
+import com.graphhopper.routing.ch.NestedDissection;
+import com.graphhopper.routing.ch.PHAST;
+import com.graphhopper.routing.ch.PHASTData;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMConfig;
 import com.graphhopper.routing.lm.LMPreparationHandler;
 import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.lm.PrepareLandmarks;
+import com.graphhopper.routing.matrix.DistanceMatrix;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks.PrepareJob;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.*;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.*;
+import com.graphhopper.util.Parameters.CCH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
@@ -60,6 +68,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -106,6 +119,14 @@ public class GraphHopper {
     // subnetworks
     private int minNetworkSize = 200;
     private int subnetworksThreads = 1;
+    // node and edge order
+    private String graphSort = "none";
+    private boolean frozenAdjacency = false;
+    private boolean compressedGeometry = false;
+    private boolean keyValueDeduplication = false;
+    private boolean turnCostIndex = false;
+    private int mmapPreloadThreads = 1;
+    private boolean mmapPreloadInBackground = false;
     // residential areas
     private double residentialAreaRadius = 400;
     private double residentialAreaSensitivity = 6000;
@@ -118,6 +139,17 @@ public class GraphHopper {
     private final CHPreparationHandler chPreparationHandler = new CHPreparationHandler();
     private Map<String, RoutingCHGraph> chGraphs = Collections.emptyMap();
     private Map<String, LandmarkStorage> landmarks = Collections.emptyMap();
+    private final Map<String, PHASTData> phastData = new ConcurrentHashMap<>();
+    private boolean cchEnabled = false;
+    private int cchCacheSizeMB = 512;
+    private CustomizableCH customizableCH;
+    private final TrafficOverlay trafficOverlay = new TrafficOverlay();
+    private RouteCache routeCache;
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+    private int batchMaxRequests = 1000;
+    private ExecutorService batchExecutor;
+    private int legThreads = 0;
+    private ExecutorService legExecutor;
 
     // for data reader
     private String osmFile;
@@ -195,6 +227,68 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Sets the order of the nodes and edges after the import, either 'none' to keep the import order or 'hilbert'
+     * to sort them along a Hilbert curve for better cache locality.
+     */
+    public GraphHopper setGraphSort(String graphSort) {
+        ensureNotLoaded();
+        if (!"none".equals(graphSort) && !"hilbert".equals(graphSort))
+            throw new IllegalArgumentException("graph.sort must be either 'none' or 'hilbert', but was: " + graphSort);
+        this.graphSort = graphSort;
+        return this;
+    }
+
+    /**
+     * Enables the adjacency lists in compressed sparse row format that are built when the graph is frozen and used
+     * for all graph explorations afterwards.
+     */
+    public GraphHopper setFrozenAdjacency(boolean frozenAdjacency) {
+        ensureNotLoaded();
+        this.frozenAdjacency = frozenAdjacency;
+        return this;
+    }
+
+    /**
+     * Stores the pillar nodes of a new graph delta and varint encoded, which roughly halves the size of the geometry.
+     */
+    public GraphHopper setCompressedGeometry(boolean compressedGeometry) {
+        ensureNotLoaded();
+        this.compressedGeometry = compressedGeometry;
+        return this;
+    }
+
+    /**
+     * Stores equal key-value lists of the edges (street names, refs, destinations etc.) only once during the import.
+     */
+    public GraphHopper setKeyValueDeduplication(boolean keyValueDeduplication) {
+        ensureNotLoaded();
+        this.keyValueDeduplication = keyValueDeduplication;
+        return this;
+    }
+
+    /**
+     * Looks up the turn costs in a hashed index that is built once the graph is frozen, which speeds up edge-based
+     * routing and the edge-based CH preparation.
+     */
+    public GraphHopper setTurnCostIndex(boolean turnCostIndex) {
+        ensureNotLoaded();
+        this.turnCostIndex = turnCostIndex;
+        return this;
+    }
+
+    /**
+     * Configures how the memory mapped files are preloaded, see graph.dataaccess.mmap.preload.* and
+     * {@link GHDirectory#loadMMap(int, boolean)}. When preloading in the background the progress is available via
+     * {@link GHDirectory#getPreloadProgress()} of the graph directory.
+     */
+    public GraphHopper setMMapPreload(int threads, boolean inBackground) {
+        ensureNotLoaded();
+        this.mmapPreloadThreads = threads;
+        this.mmapPreloadInBackground = inBackground;
+        return this;
+    }
+
     public GraphHopper setMinNetworkSize(int minNetworkSize) {
         ensureNotLoaded();
         this.minNetworkSize = minNetworkSize;
@@ -380,6 +474,52 @@ public class GraphHopper {
         return chGraphs;
     }
 
+    /**
+     * @return the data of the node-based CH preparation of the given profile as needed for {@link PHAST}, or null if
+     * there is no such preparation or it has a core. It is created on first use and then cached.
+     */
+    public PHASTData getPHASTData(String profileName) {
+        RoutingCHGraph chGraph = chGraphs.get(profileName);
+        if (chGraph == null || chGraph.isEdgeBased() || chGraph.getCoreNodes() > 0)
+            return null;
+        return phastData.computeIfAbsent(profileName, p -> PHASTData.create(chGraph, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @return the speed factors that are applied to routing requests with a custom profile in the flexible, hybrid and
+     * CCH mode. They are not applied to CH, because the CH preparations cannot be updated.
+     */
+    public TrafficOverlay getTrafficOverlay() {
+        return trafficOverlay;
+    }
+
+    /**
+     * @return the cache for the responses of route requests or null if it is disabled, see routing.route_cache.size
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * @return the CCH preparation that is used for requests with a custom model, or null if CCH is not enabled
+     */
+    public CustomizableCH getCustomizableCH() {
+        return customizableCH;
+    }
+
+    /**
+     * Enables the metric-independent CCH preparation, which is used to speed up requests with a custom model.
+     */
+    public GraphHopper setCCHEnabled(boolean cchEnabled) {
+        ensureNotLoaded();
+        this.cchEnabled = cchEnabled;
+        return this;
+    }
+
+    public boolean isCCHEnabled() {
+        return cchEnabled;
+    }
+
     /**
      * @return a mapping between profile names and according landmark preparations. The map will be empty before loading
      * or import.
@@ -520,7 +660,13 @@ public class GraphHopper {
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.type.".length()), entry.getValue().toString());
             if (entry.getKey().startsWith("graph.dataaccess.mmap.preload."))
                 dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.mmap.".length()), entry.getValue().toString());
+            if (entry.getKey().startsWith("graph.dataaccess.ram.compress."))
+                dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.ram.".length()), entry.getValue().toString());
+            if (entry.getKey().equals("graph.dataaccess.lazy.max_memory"))
+                dataAccessConfig.put(entry.getKey().substring("graph.dataaccess.".length()), entry.getValue().toString());
         }
+        mmapPreloadThreads = ghConfig.getInt("graph.dataaccess.mmap.preload_threads", mmapPreloadThreads);
+        mmapPreloadInBackground = ghConfig.getBool("graph.dataaccess.mmap.preload_in_background", mmapPreloadInBackground);
 
         if (ghConfig.getBool("max_speed_calculator.enabled", false))
             maxSpeedCalculator = new MaxSpeedCalculator(MaxSpeedCalculator.createLegalDefaultSpeeds());
@@ -572,10 +718,17 @@ public class GraphHopper {
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
         subnetworksThreads = ghConfig.getInt("prepare.subnetworks.threads", subnetworksThreads);
+        setGraphSort(ghConfig.getString("graph.sort", graphSort));
+        frozenAdjacency = ghConfig.getBool("graph.frozen_adjacency", frozenAdjacency);
+        compressedGeometry = ghConfig.getBool("graph.compressed_geometry", compressedGeometry);
+        keyValueDeduplication = ghConfig.getBool("graph.deduplicate_key_values", keyValueDeduplication);
+        turnCostIndex = ghConfig.getBool("graph.turn_cost_index", turnCostIndex);
 
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
         lmPreparationHandler.init(ghConfig);
+        cchEnabled = ghConfig.getBool(CCH.ENABLED, cchEnabled);
+        cchCacheSizeMB = ghConfig.getInt(CCH.CACHE_SIZE_MB, cchCacheSizeMB);
 
         // osm import
         // We do a few checks for import.osm.ignored_highways to prevent configuration errors when migrating from an older
@@ -612,6 +765,13 @@ public class GraphHopper {
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setPrimitiveSearch(ghConfig.getBool(Routing.INIT_PRIMITIVE_SEARCH, routerConfig.isPrimitiveSearch()));
+        int routeCacheSize = ghConfig.getInt(Routing.INIT_ROUTE_CACHE_SIZE, 0);
+        batchThreads = ghConfig.getInt(Routing.INIT_BATCH_THREADS, batchThreads);
+        batchMaxRequests = ghConfig.getInt(Routing.INIT_BATCH_MAX_REQUESTS, batchMaxRequests);
+        legThreads = ghConfig.getInt(Routing.INIT_PARALLEL_LEGS_THREADS, legThreads);
+        routerConfig.setParallelLegsMinLegs(ghConfig.getInt(Routing.INIT_PARALLEL_LEGS_MIN_LEGS, routerConfig.getParallelLegsMinLegs()));
+        routeCache = routeCacheSize > 0 ? new RouteCache(routeCacheSize, ghConfig.getLong(Routing.INIT_ROUTE_CACHE_TTL_MS, 10 * 60_000)) : null;
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
@@ -876,6 +1036,10 @@ public class GraphHopper {
                 .setDir(directory)
                 .set3D(hasElevation())
                 .withTurnCosts(encodingManager.needsTurnCostsSupport())
+                .withFrozenAdjacency(frozenAdjacency)
+                .withCompressedGeometry(compressedGeometry)
+                .withKeyValueDeduplication(keyValueDeduplication)
+                .withTurnCostIndex(turnCostIndex)
                 .setSegmentSize(defaultSegmentSize)
                 .build();
         properties = new StorableProperties(directory);
@@ -894,6 +1058,7 @@ public class GraphHopper {
             importOSM();
             postImportOSM();
             cleanUp();
+            sortGraph();
 
             properties.put("profiles", getProfilesString());
             writeEncodingManagerToProperties();
@@ -1072,6 +1237,9 @@ public class GraphHopper {
                     .setDir(directory)
                     .set3D(hasElevation())
                     .withTurnCosts(encodingManager.needsTurnCostsSupport())
+                    .withFrozenAdjacency(frozenAdjacency)
+                    .withCompressedGeometry(compressedGeometry)
+                    .withTurnCostIndex(turnCostIndex)
                     .setSegmentSize(defaultSegmentSize)
                     .build();
             baseGraph.loadExisting();
@@ -1085,7 +1253,7 @@ public class GraphHopper {
             checkProfilesConsistency();
 
             postProcessing(false);
-            directory.loadMMap();
+            directory.loadMMap(mmapPreloadThreads, mmapPreloadInBackground);
             setFullyLoaded();
             return true;
         } finally {
@@ -1160,6 +1328,19 @@ public class GraphHopper {
                 throw new IllegalArgumentException("Cannot use '" + lmProfile.getPreparationProfile() + "' as preparation_profile for LM profile '" + lmProfile.getProfile() + "', because it uses another profile for preparation itself.");
             }
         }
+        for (CHProfile chProfile : chPreparationHandler.getCHProfiles()) {
+            if (!chProfile.hasCore())
+                continue;
+            if (profilesByName.get(chProfile.getProfile()).isTurnCosts())
+                throw new IllegalArgumentException("CH profile '" + chProfile.getProfile() + "' uses core_encoded_values, but a core is not supported for profiles with turn costs");
+            if (!lmProfileMap.containsKey(chProfile.getProfile()))
+                throw new IllegalArgumentException("CH profile '" + chProfile.getProfile() + "' uses core_encoded_values and therefore requires an LM profile for the same profile");
+            try {
+                new CoreEdgeFilter(encodingManager, chProfile.getCoreEncodedValues());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid core_encoded_values for CH profile '" + chProfile.getProfile() + "': " + e.getMessage());
+            }
+        }
     }
 
     public final CHPreparationHandler getCHPreparationHandler() {
@@ -1172,6 +1353,9 @@ public class GraphHopper {
             Profile profile = profilesByName.get(chProfile.getProfile());
             if (profile.isTurnCosts()) {
                 chConfigs.add(CHConfig.edgeBased(profile.getName(), createWeighting(profile, new PMap())));
+            } else if (chProfile.hasCore()) {
+                chConfigs.add(CHConfig.nodeBasedCore(profile.getName(), createWeighting(profile, new PMap()),
+                        new CoreEdgeFilter(getEncodingManager(), chProfile.getCoreEncodedValues())));
             } else {
                 chConfigs.add(CHConfig.nodeBased(profile.getName(), createWeighting(profile, new PMap())));
             }
@@ -1209,6 +1393,11 @@ public class GraphHopper {
         initLocationIndex();
         importPublicTransit();
 
+        if (frozenAdjacency && !baseGraph.isFrozen() && allowWrites)
+            // no more edges are added from here on, so we build the frozen adjacency lists already before the
+            // preparations to speed them up as well
+            baseGraph.freeze();
+
         if (closeEarly) {
             boolean includesCustomProfiles = profilesByName.values().stream().anyMatch(p -> CustomWeighting.NAME.equals(p.getWeighting()));
             if (!includesCustomProfiles)
@@ -1226,6 +1415,9 @@ public class GraphHopper {
 
         if (chPreparationHandler.isEnabled())
             loadOrPrepareCH(closeEarly);
+
+        if (cchEnabled)
+            loadOrPrepareCCH();
     }
 
     protected void importPublicTransit() {
@@ -1264,6 +1456,81 @@ public class GraphHopper {
         return createRouter().route(request);
     }
 
+    /**
+     * @see Router#route(GHRequest, BooleanSupplier)
+     */
+    public GHResponse route(GHRequest request, BooleanSupplier cancelCheck) {
+        return createRouter().route(request, cancelCheck);
+    }
+
+    /**
+     * Calculates the routes of the given requests, see {@link #routeBatch(List, BooleanSupplier, Consumer)}.
+     */
+    public List<GHResponse> routeBatch(List<GHRequest> requests) {
+        return routeBatch(requests, null);
+    }
+
+    /**
+     * Calculates the routes of the given requests, see {@link #routeBatch(List, BooleanSupplier, Consumer)}.
+     */
+    public List<GHResponse> routeBatch(List<GHRequest> requests, BooleanSupplier cancelCheck) {
+        List<GHResponse> responses = new ArrayList<>(requests.size());
+        routeBatch(requests, cancelCheck, responses::add);
+        return responses;
+    }
+
+    /**
+     * Calculates the routes of the given requests in parallel, with routing.batch.threads threads for all batches,
+     * and passes the responses to the consumer in the order of the requests.
+     *
+     * @param cancelCheck cancels all requests once it returns true, can be null
+     * @see Router#routeBatch(List, ExecutorService, BooleanSupplier, Consumer)
+     */
+    public void routeBatch(List<GHRequest> requests, BooleanSupplier cancelCheck, Consumer<GHResponse> consumer) {
+        if (requests.size() > batchMaxRequests)
+            throw new IllegalArgumentException("Too many requests in the batch: " + requests.size() + ", the maximum is " + batchMaxRequests);
+        createRouter().routeBatch(requests, getBatchExecutor(), cancelCheck, consumer);
+    }
+
+    /**
+     * @return the maximum number of requests of a batch, see routing.batch.max_requests
+     */
+    public int getBatchMaxRequests() {
+        return batchMaxRequests;
+    }
+
+    private synchronized ExecutorService getBatchExecutor() {
+        if (batchExecutor == null)
+            batchExecutor = Executors.newFixedThreadPool(batchThreads, r -> {
+                Thread thread = new Thread(r, "route-batch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return batchExecutor;
+    }
+
+    private synchronized ExecutorService getLegExecutor() {
+        if (legThreads <= 1)
+            return null;
+        // the calling thread calculates legs as well, so we need one thread less
+        if (legExecutor == null)
+            legExecutor = Executors.newFixedThreadPool(legThreads - 1, r -> {
+                Thread thread = new Thread(r, "route-legs");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return legExecutor;
+    }
+
+    /**
+     * Calculates the weights, times and distances between all from and all to points of the given request.
+     *
+     * @see Router#matrix(GHMatrixRequest)
+     */
+    public DistanceMatrix matrix(GHMatrixRequest request) {
+        return createRouter().matrix(request);
+    }
+
     private Router createRouter() {
         if (baseGraph == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -1273,14 +1540,23 @@ public class GraphHopper {
             throw new IllegalStateException("Location index not initialized");
 
         return doCreateRouter(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks).setRouteCache(routeCache).
+                setLegExecutor(getLegExecutor(), legThreads).setCoreEncodedValues(getCoreEncodedValues());
+    }
+
+    private Map<String, List<String>> getCoreEncodedValues() {
+        Map<String, List<String>> coreEncodedValues = new HashMap<>();
+        for (CHProfile chProfile : chPreparationHandler.getCHProfiles())
+            if (chProfile.hasCore())
+                coreEncodedValues.put(chProfile.getProfile(), chProfile.getCoreEncodedValues());
+        return coreEncodedValues;
     }
 
     protected Router doCreateRouter(BaseGraph baseGraph, EncodingManager encodingManager, LocationIndex locationIndex, Map<String, Profile> profilesByName,
                                     PathDetailsBuilderFactory pathBuilderFactory, TranslationMap trMap, RouterConfig routerConfig,
                                     WeightingFactory weightingFactory, Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
         return new Router(baseGraph, encodingManager, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, weightingFactory, chGraphs, landmarks
+                trMap, routerConfig, weightingFactory, chGraphs, landmarks, customizableCH, trafficOverlay
         );
     }
 
@@ -1314,6 +1590,14 @@ public class GraphHopper {
         properties.put("graph.profiles.ch." + profile + ".version", version);
     }
 
+    private String getCHProfileCore(String profile) {
+        return properties.get("graph.profiles.ch." + profile + ".core_encoded_values");
+    }
+
+    private void setCHProfileCore(String profile, List<String> coreEncodedValues) {
+        properties.put("graph.profiles.ch." + profile + ".core_encoded_values", String.join(",", coreEncodedValues));
+    }
+
     private String getLMProfileVersion(String profile) {
         return properties.get("graph.profiles.lm." + profile + ".version");
     }
@@ -1327,6 +1611,9 @@ public class GraphHopper {
             if (!getCHProfileVersion(profile.getProfile()).isEmpty()
                     && !getCHProfileVersion(profile.getProfile()).equals("" + profilesByName.get(profile.getProfile()).getVersion()))
                 throw new IllegalArgumentException("CH preparation of " + profile.getProfile() + " already exists in storage and doesn't match configuration");
+            else if (!getCHProfileVersion(profile.getProfile()).isEmpty()
+                    && !getCHProfileCore(profile.getProfile()).equals(String.join(",", profile.getCoreEncodedValues())))
+                throw new IllegalArgumentException("CH preparation of " + profile.getProfile() + " already exists in storage and doesn't match configuration: core_encoded_values changed");
 
         // we load ch graphs that already exist and prepare the other ones
         List<CHConfig> chConfigs = createCHConfigs(chPreparationHandler.getCHProfiles());
@@ -1341,6 +1628,7 @@ public class GraphHopper {
                 throw new IllegalStateException("CH graph should be either loaded or prepared, but not both: " + profile.getProfile());
             else if (prepared.containsKey(profile.getProfile())) {
                 setCHProfileVersion(profile.getProfile(), profilesByName.get(profile.getProfile()).getVersion());
+                setCHProfileCore(profile.getProfile(), profile.getCoreEncodedValues());
                 PrepareContractionHierarchies.Result res = prepared.get(profile.getProfile());
                 chGraphs.put(profile.getProfile(), RoutingCHGraphImpl.fromGraph(baseGraph.getBaseGraph(), res.getCHStorage(), res.getCHConfig()));
             } else if (loaded.containsKey(profile.getProfile())) {
@@ -1358,6 +1646,19 @@ public class GraphHopper {
         return chPreparationHandler.prepare(baseGraph, properties, configsToPrepare, closeEarly);
     }
 
+    protected void loadOrPrepareCCH() {
+        customizableCH = new CustomizableCH(baseGraph.getBaseGraph(), baseGraph.getDirectory()).setMaxCacheBytes((long) cchCacheSizeMB * Helper.MB);
+        if (customizableCH.loadExisting())
+            return;
+        ensureWriteAccess();
+        if (!baseGraph.isFrozen())
+            baseGraph.freeze();
+        StopWatch sw = new StopWatch().start();
+        customizableCH.create(new NestedDissection(baseGraph.getBaseGraph()).calcOrder());
+        customizableCH.flush();
+        logger.info("Finished CCH preparation, edges: " + customizableCH.getEdges() + ", took: " + sw.stop().getSeconds() + "s, " + getMemInfo());
+    }
+
     /**
      * For landmarks it is required to always call this method: either it creates the landmark data or it loads it.
      */
@@ -1410,6 +1711,19 @@ public class GraphHopper {
         logger.info("nodes: " + Helper.nf(baseGraph.getNodes()) + ", edges: " + Helper.nf(baseGraph.getEdges()));
     }
 
+    /**
+     * Renumbers the nodes and edges for better cache locality, see {@link GraphSorter}. This must run before the
+     * location index and the CH and LM preparations are created.
+     */
+    protected void sortGraph() {
+        if (!"hilbert".equals(graphSort))
+            return;
+        StopWatch sw = StopWatch.started();
+        GraphSorter.sortAlongHilbertCurve(baseGraph.getBaseGraph());
+        properties.put("graph.sort", graphSort);
+        logger.info("sorted nodes and edges along a hilbert curve, took: " + sw.stop().getSeconds() + "s");
+    }
+
     private List<PrepareJob> buildSubnetworkRemovalJobs() {
         List<PrepareJob> jobs = new ArrayList<>();
         for (Profile profile : profilesByName.values()) {
@@ -1441,9 +1755,21 @@ public class GraphHopper {
 
         chGraphs.values().forEach(RoutingCHGraph::close);
         landmarks.values().forEach(LandmarkStorage::close);
+        if (customizableCH != null)
+            customizableCH.close();
 
         if (locationIndex != null)
             locationIndex.close();
+        if (routeCache != null)
+            routeCache.invalidate();
+        synchronized (this) {
+            if (batchExecutor != null)
+                batchExecutor.shutdownNow();
+            batchExecutor = null;
+            if (legExecutor != null)
+                legExecutor.shutdownNow();
+            legExecutor = null;
+        }
 
         try {
             lockFactory.forceRemove(fileLockName, true);
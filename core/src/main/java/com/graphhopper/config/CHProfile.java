@@ -18,6 +18,11 @@
 
 package com.graphhopper.config;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 import static com.graphhopper.config.Profile.validateProfileName;
@@ -30,6 +35,7 @@ import static com.graphhopper.config.Profile.validateProfileName;
  */
 public class CHProfile {
     private String profile = "";
+    private List<String> coreEncodedValues = Collections.emptyList();
 
     private CHProfile() {
         // default constructor needed for jackson
@@ -37,6 +43,7 @@ public class CHProfile {
 
     public CHProfile(CHProfile profile) {
         this.profile = profile.profile;
+        this.coreEncodedValues = profile.coreEncodedValues;
     }
 
     public CHProfile(String profile) {
@@ -52,6 +59,26 @@ public class CHProfile {
         this.profile = profile;
     }
 
+    public List<String> getCoreEncodedValues() {
+        return coreEncodedValues;
+    }
+
+    /**
+     * Edges that have a non-default value for one of these encoded values are not contracted, but remain in the
+     * core of the CH graph. Requests with a custom model that only changes the weights of such edges can then be
+     * routed with CH up to the core and with landmarks inside it. This requires an LM preparation for the same
+     * profile and is not supported for profiles with turn costs.
+     */
+    @JsonProperty("core_encoded_values")
+    public CHProfile setCoreEncodedValues(List<String> coreEncodedValues) {
+        this.coreEncodedValues = new ArrayList<>(coreEncodedValues);
+        return this;
+    }
+
+    public boolean hasCore() {
+        return !coreEncodedValues.isEmpty();
+    }
+
     @Override
     public String toString() {
         return profile;
@@ -0,0 +1,166 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.ch.PHAST;
+import com.graphhopper.routing.ch.PHASTData;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.DISTANCE;
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.TIME;
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * A {@link ShortestPathTree} that uses {@link PHAST} on a node-based CH graph instead of a Dijkstra search on the
+ * base graph. The labels are the same as the ones of the Dijkstra search, i.e. they refer to the original edges, because
+ * the shortcuts of the shortest path tree are unpacked. Only the shortcuts leading to nodes within the limit are
+ * unpacked. Unlike for {@link ShortestPathTree} the labels are not passed to the consumer in the order of increasing
+ * weight, but every label is passed after its parent.
+ * <p>
+ * The sweep of PHAST scans all nodes of the graph, so this is only faster than the Dijkstra search if the limit
+ * covers a large part of the graph.
+ */
+public class PHASTShortestPathTree extends ShortestPathTree {
+    private final RoutingCHGraph chGraph;
+    private final PHASTData phastData;
+    private final ShortcutUnpacker shortcutUnpacker;
+    private IsoLabel currentLabel;
+    // the labels of the nodes within the limit
+    private IntObjectHashMap<IsoLabel> labels;
+    private int visitedNodes;
+
+    /**
+     * @param chGraph    the node-based CH graph, usually a {@link com.graphhopper.routing.querygraph.QueryRoutingCHGraph}
+     *                   with a single snap
+     * @param phastData  the data of the CH preparation, see {@link PHASTData#create}
+     */
+    public PHASTShortestPathTree(RoutingCHGraph chGraph, PHASTData phastData, boolean reverseFlow) {
+        super(chGraph.getBaseGraph(), chGraph.getWeighting(), reverseFlow, TraversalMode.NODE_BASED);
+        this.chGraph = chGraph;
+        this.phastData = phastData;
+        this.shortcutUnpacker = new ShortcutUnpacker(chGraph, (edge, reverse, prevOrNextEdgeId) ->
+                currentLabel = new IsoLabel(edge.getAdjNode(), edge.getEdge(),
+                        currentLabel.weight + weighting.calcEdgeWeight(edge, reverse),
+                        currentLabel.time + weighting.calcEdgeMillis(edge, reverse),
+                        currentLabel.distance + edge.getDistance(), currentLabel), false);
+    }
+
+    @Override
+    public void search(int from, Consumer<IsoLabel> consumer) {
+        checkAlreadyRun();
+        PHAST.Workspace workspace = phastData.acquire();
+        try {
+            PHAST phast = new PHAST(chGraph, phastData.getSweepOrder(), workspace);
+            // nodes beyond the weight limit cannot be within the limit, so PHAST does not need to reach them
+            phast.setWeightLimit(exploreType == TIME ? phastData.getWeightLimitForTime(limit)
+                    : exploreType == DISTANCE ? phastData.getWeightLimitForDistance(limit) : limit);
+            phast.search(from, reverseFlow);
+            visitedNodes = phast.getVisitedNodes();
+            deadline.check();
+            labels = new GHIntObjectHashMap<>();
+            addLabels(phast, consumer);
+        } finally {
+            phastData.release(workspace);
+        }
+    }
+
+    private void addLabels(PHAST phast, Consumer<IsoLabel> consumer) {
+        phast.forEachReachedNode(node -> {
+            deadline.check();
+            int parentEdge = phast.getParentEdge(node);
+            if (parentEdge == NO_EDGE) {
+                currentLabel = new IsoLabel(node, -1, 0, 0, 0, null);
+            } else {
+                // the time and distance never decrease along the tree, so if the parent is not within the limit
+                // the node is not either
+                currentLabel = labels.get(chGraph.getEdgeIteratorState(parentEdge, node).getBaseNode());
+                if (currentLabel == null)
+                    return;
+                // the original edges are visited starting at the parent, every one of them adds a new label
+                if (reverseFlow)
+                    shortcutUnpacker.visitOriginalEdgesBwd(parentEdge, node, false, NO_EDGE);
+                else
+                    shortcutUnpacker.visitOriginalEdgesFwd(parentEdge, node, false, NO_EDGE);
+            }
+            if (getExploreValue(currentLabel) > limit)
+                return;
+            labels.put(node, currentLabel);
+            consumer.accept(currentLabel);
+        });
+    }
+
+    /**
+     * Like for {@link ShortestPathTree} the labels of the tree are returned that cross z, i.e. for which the explore
+     * value of either the label or its parent is larger than z. Besides the labels within the limit the tree
+     * contains the best label of every node beyond the limit that is adjacent to a node within the limit. These
+     * labels are calculated here from the original edges, because PHAST does not provide them.
+     */
+    @Override
+    public ArrayList<IsoLabel> getIsochroneEdges(double z) {
+        if (labels == null)
+            throw new IllegalStateException("Call search before getIsochroneEdges");
+        ArrayList<IsoLabel> result = new ArrayList<>();
+        IntObjectHashMap<IsoLabel> frontier = new GHIntObjectHashMap<>();
+        for (ObjectCursor<IsoLabel> labelCursor : labels.values()) {
+            IsoLabel label = labelCursor.value;
+            if (label.parent != null && (getExploreValue(label) > z ^ getExploreValue(label.parent) > z))
+                result.add(label);
+            // the Dijkstra search stops before it explores a label with the limit as explore value
+            if (getExploreValue(label) >= limit)
+                continue;
+            EdgeIterator iter = edgeExplorer.setBaseNode(label.node);
+            while (iter.next()) {
+                if (labels.containsKey(iter.getAdjNode()) || !accept(iter, label.edge))
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, reverseFlow, label.edge) + label.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+                IsoLabel frontierLabel = frontier.get(iter.getAdjNode());
+                if (frontierLabel == null || frontierLabel.weight > weight)
+                    frontier.put(iter.getAdjNode(), new IsoLabel(iter.getAdjNode(), iter.getEdge(), weight,
+                            GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, label.edge) + label.time,
+                            label.distance + iter.getDistance(), label));
+            }
+        }
+        for (ObjectCursor<IsoLabel> cursor : frontier.values()) {
+            if (getExploreValue(cursor.value) > z ^ getExploreValue(cursor.value.parent) > z)
+                result.add(cursor.value);
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "phast";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
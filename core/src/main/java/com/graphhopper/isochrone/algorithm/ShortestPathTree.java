@@ -90,9 +90,9 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     private final PriorityQueue<IsoLabel> queueByWeighting; // a.k.a. the Dijkstra queue
     private PriorityQueue<IsoLabel> queueByZ; // so we know when we are finished
     private int visitedNodes;
-    private double limit = -1;
-    private ExploreType exploreType = TIME;
-    private final boolean reverseFlow;
+    protected double limit = -1;
+    protected ExploreType exploreType = TIME;
+    protected final boolean reverseFlow;
 
     public ShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
         super(g, weighting, traversalMode);
@@ -140,6 +140,8 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
             fromMap.put(from, currentLabel);
         }
         while (!finished()) {
+            // a partial tree would be wrong, so we fail instead of returning it
+            deadline.check();
             currentLabel = queueByWeighting.poll();
             if (currentLabel.deleted)
                 continue;
@@ -195,7 +197,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         return result;
     }
 
-    private double getExploreValue(IsoLabel label) {
+    protected double getExploreValue(IsoLabel label) {
         if (exploreType == TIME)
             return label.time;
         if (exploreType == WEIGHT)
@@ -0,0 +1,69 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.CHEdgeFilter;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+/**
+ * A* for CH graphs with a core, see {@link com.graphhopper.storage.CHConfig#nodeBasedCore}. Outside the core only
+ * edges leading to higher level nodes are explored like for {@link AStarBidirectionCH}, but inside the core all edges
+ * are explored. Using landmarks as approximation this is the core-ALT algorithm.
+ */
+public class AStarBidirectionCoreCH extends AStarBidirectionCH {
+
+    public AStarBidirectionCoreCH(RoutingCHGraph graph) {
+        super(graph);
+        levelEdgeFilter = new CoreLevelEdgeFilter(graph);
+    }
+
+    @Override
+    public String getName() {
+        return "astarbi|core_ch";
+    }
+
+    private static class CoreLevelEdgeFilter implements CHEdgeFilter {
+        private final RoutingCHGraph graph;
+        private final int maxNodes;
+        private final int coreLevel;
+
+        CoreLevelEdgeFilter(RoutingCHGraph graph) {
+            this.graph = graph;
+            maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+            coreLevel = maxNodes - graph.getCoreNodes();
+        }
+
+        @Override
+        public boolean accept(RoutingCHEdgeIteratorState edgeState) {
+            int base = edgeState.getBaseNode();
+            int adj = edgeState.getAdjNode();
+            // always accept virtual edges, see #288
+            if (base >= maxNodes || adj >= maxNodes)
+                return true;
+
+            // shortcuts are only stored for the lower level node, except inside the core where they are stored for
+            // both nodes
+            if (edgeState.isShortcut())
+                return true;
+
+            int adjLevel = graph.getLevel(adj);
+            return adjLevel >= coreLevel || graph.getLevel(base) <= adjLevel;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package com.graphhopper.routing;
 
 import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.util.Deadline;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.Parameters;
 
@@ -30,6 +31,7 @@ public class AlgorithmOptions {
     private TraversalMode traversalMode = TraversalMode.NODE_BASED;
     private int maxVisitedNodes = Integer.MAX_VALUE;
     private long timeoutMillis = Long.MAX_VALUE;
+    private Deadline deadline = Deadline.NONE;
 
     public AlgorithmOptions() {
     }
@@ -38,6 +40,7 @@ public class AlgorithmOptions {
         setAlgorithm(b.getAlgorithm());
         setTraversalMode(b.getTraversalMode());
         setMaxVisitedNodes(b.getMaxVisitedNodes());
+        setDeadline(b.getDeadline());
         setHints(b.getHints());
     }
 
@@ -61,6 +64,11 @@ public class AlgorithmOptions {
         return this;
     }
 
+    public AlgorithmOptions setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
     public AlgorithmOptions setHints(PMap pMap) {
         this.hints = new PMap(pMap);
         return this;
@@ -82,6 +90,10 @@ public class AlgorithmOptions {
         return timeoutMillis;
     }
 
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
     public PMap getHints() {
         return hints;
     }
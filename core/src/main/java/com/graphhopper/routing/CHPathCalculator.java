@@ -19,6 +19,7 @@
 package com.graphhopper.routing;
 
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.util.Deadline;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.exceptions.MaximumNodesExceededException;
@@ -32,12 +33,18 @@ import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
 public class CHPathCalculator implements PathCalculator {
     private final CHRoutingAlgorithmFactory algoFactory;
     private final PMap algoOpts;
+    private final Deadline deadline;
     private String debug;
     private int visitedNodes;
 
     public CHPathCalculator(CHRoutingAlgorithmFactory algoFactory, PMap algoOpts) {
+        this(algoFactory, algoOpts, Deadline.NONE);
+    }
+
+    public CHPathCalculator(CHRoutingAlgorithmFactory algoFactory, PMap algoOpts, Deadline deadline) {
         this.algoFactory = algoFactory;
         this.algoOpts = algoOpts;
+        this.deadline = deadline;
     }
 
     @Override
@@ -51,6 +58,7 @@ public class CHPathCalculator implements PathCalculator {
     private EdgeToEdgeRoutingAlgorithm createAlgo() {
         StopWatch sw = new StopWatch().start();
         EdgeToEdgeRoutingAlgorithm algo = algoFactory.createAlgo(algoOpts);
+        algo.setDeadline(deadline);
         debug = ", algoInit:" + (sw.stop().getNanos() / 1000) + " μs";
         return algo;
     }
@@ -65,6 +73,8 @@ public class CHPathCalculator implements PathCalculator {
         } else {
             paths = algo.calcPaths(from, to);
         }
+        // the search stops without a path when the deadline is exceeded, so we report this instead of a missing connection
+        deadline.check();
         if (paths.isEmpty())
             throw new IllegalStateException("Path list was empty for " + from + " -> " + to);
         int maxVisitedNodes = algoOpts.getInt(MAX_VISITED_NODES, Integer.MAX_VALUE);
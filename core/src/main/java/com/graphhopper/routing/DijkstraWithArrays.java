@@ -0,0 +1,166 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.*;
+
+import static com.graphhopper.routing.SPTArrays.NO_ENTRY;
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * An allocation-free variant of {@link Dijkstra} and {@link AStar}. Instead of creating {@link SPTEntry} objects
+ * that are stored in a hash map and a {@link java.util.PriorityQueue} the shortest path tree and the queue are kept
+ * in {@link SPTArrays} which are reused between the queries of the same thread. If a {@link WeightApproximator} is set
+ * the search is an A* search, otherwise it is a plain Dijkstra.
+ * <p>
+ * The search visits the nodes in the same order as {@link Dijkstra} and {@link AStar}, so it returns the same paths,
+ * even if there are multiple shortest paths.
+ */
+public class DijkstraWithArrays extends AbstractRoutingAlgorithm implements EdgeToEdgeRoutingAlgorithm {
+    private SPTArrays sptArrays;
+    private WeightApproximator weightApprox;
+    private int visitedNodes;
+    private int to = -1;
+    private int fromOutEdge;
+    private int toInEdge;
+    // the entry that was polled last
+    private int currEntry = NO_ENTRY;
+
+    public DijkstraWithArrays(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+    }
+
+    /**
+     * @param approx defines how the distance to the goal node is approximated. null (default) means Dijkstra.
+     */
+    public DijkstraWithArrays setApproximation(WeightApproximator approx) {
+        weightApprox = approx;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, ANY_EDGE, ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if ((fromOutEdge != ANY_EDGE || toInEdge != ANY_EDGE) && !traversalMode.isEdgeBased()) {
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        }
+        this.fromOutEdge = fromOutEdge;
+        this.toInEdge = toInEdge;
+        checkAlreadyRun();
+        setupFinishTime();
+        this.to = to;
+        if (fromOutEdge == NO_EDGE || toInEdge == NO_EDGE)
+            return createEmptyPath();
+        double weightToGoal = 0;
+        if (weightApprox != null) {
+            weightApprox.setTo(to);
+            weightToGoal = weightApprox.approximate(from);
+            if (Double.isInfinite(weightToGoal))
+                return createEmptyPath();
+        }
+
+        sptArrays = SPTArrays.forCurrentThread(traversalMode.isEdgeBased() ? 2 * graph.getEdges() : graph.getNodes());
+        // like Dijkstra and AStar we do not map the start entry to a traversal id
+        sptArrays.push(sptArrays.addEntry(0, NO_EDGE, from, NO_ENTRY), weightToGoal);
+        runAlgo();
+        return extractPath();
+    }
+
+    private void runAlgo() {
+        while (!sptArrays.isQueueEmpty()) {
+            currEntry = sptArrays.poll();
+            if (sptArrays.isDeleted(currEntry))
+                continue;
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished() || isTimeoutExceeded())
+                break;
+
+            int currEdge = sptArrays.getEdge(currEntry);
+            double currWeight = sptArrays.getWeight(currEntry);
+            EdgeIterator iter = edgeExplorer.setBaseNode(sptArrays.getAdjNode(currEntry));
+            while (iter.next()) {
+                if (!accept(iter, currEdge) || (currEdge == NO_EDGE && fromOutEdge != ANY_EDGE && iter.getEdge() != fromOutEdge))
+                    continue;
+
+                double tmpWeight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                int entry = sptArrays.getEntry(traversalId);
+                if (entry != NO_ENTRY && sptArrays.getWeight(entry) <= tmpWeight)
+                    continue;
+
+                double weightForHeap = tmpWeight;
+                if (weightApprox != null) {
+                    double weightToGoal = weightApprox.approximate(iter.getAdjNode());
+                    if (Double.isInfinite(weightToGoal))
+                        continue;
+                    weightForHeap = tmpWeight + weightToGoal;
+                }
+                if (entry != NO_ENTRY)
+                    sptArrays.setDeleted(entry);
+                entry = sptArrays.addEntry(tmpWeight, iter.getEdge(), iter.getAdjNode(), currEntry);
+                sptArrays.setEntry(traversalId, entry);
+                sptArrays.push(entry, weightForHeap);
+            }
+        }
+    }
+
+    private boolean finished() {
+        int currEdge = sptArrays.getEdge(currEntry);
+        return sptArrays.getAdjNode(currEntry) == to && (toInEdge == ANY_EDGE || currEdge == toInEdge) && (fromOutEdge == ANY_EDGE || currEdge != NO_EDGE);
+    }
+
+    private Path extractPath() {
+        if (currEntry == NO_ENTRY || !finished())
+            return createEmptyPath();
+
+        Path path = createEmptyPath();
+        int entry = currEntry;
+        while (EdgeIterator.Edge.isValid(sptArrays.getEdge(entry))) {
+            int parent = sptArrays.getParent(entry);
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(sptArrays.getEdge(entry), sptArrays.getAdjNode(entry));
+            path.addDistance(edgeState.getDistance());
+            path.addTime(GHUtility.calcMillisWithTurnMillis(weighting, edgeState, false, sptArrays.getEdge(parent)));
+            path.addEdge(sptArrays.getEdge(entry));
+            entry = parent;
+        }
+        ArrayUtil.reverse(path.getEdges());
+        return path.setFromNode(sptArrays.getAdjNode(entry)).setEndNode(sptArrays.getAdjNode(currEntry))
+                .setFound(true).setWeight(sptArrays.getWeight(currEntry));
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return weightApprox == null ? Parameters.Algorithms.DIJKSTRA : Parameters.Algorithms.ASTAR + "|" + weightApprox;
+    }
+}
@@ -82,6 +82,8 @@ public class FlexiblePathCalculator implements PathCalculator {
         // edges so the edge weight calculated then will be different to the one we used when calculating the route
         queryGraph.clearUnfavoredStatus();
 
+        // the search stops without a path when the deadline is exceeded, so we report this instead of a missing connection
+        algoOpts.getDeadline().check();
         if (paths.isEmpty())
             throw new IllegalStateException("Path list was empty for " + from + " -> " + to);
         if (algo.getVisitedNodes() >= algoOpts.getMaxVisitedNodes())
@@ -0,0 +1,173 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.util.Deadline;
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import com.graphhopper.util.exceptions.RequestTimeoutException;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the responses of the most recently used routes, see {@link Router#setRouteCache(RouteCache)}. Entries are
+ * evicted if there are more than the maximum number of entries or if they are older than the time to live.
+ * Concurrent requests for the same key are coalesced: only the first one calculates the route and the others wait
+ * for its result until their own deadline is exceeded. If the request that calculates the route is cancelled or times
+ * out first, the waiting requests calculate it again. The cached responses are shared and must not be modified.
+ */
+public class RouteCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<GHResponse>> pending = new HashMap<>();
+    // incremented by invalidate, so routes that were calculated before are not cached
+    private long generation;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param maxSize   the maximum number of cached responses
+     * @param ttlMillis the time after which a cached response is no longer used
+     */
+    public RouteCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    RouteCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("The size of the route cache must be positive, but was: " + maxSize);
+        if (ttlMillis <= 0)
+            throw new IllegalArgumentException("The time to live of the route cache must be positive, but was: " + ttlMillis);
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > RouteCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached response for the given key or calculates it. Responses with errors are not cached. If the
+     * calculation throws an exception it is thrown for all coalesced requests as well.
+     *
+     * @param deadline the deadline of the calling request, it limits the time this request waits for the same route
+     *                 calculated by another request
+     */
+    public GHResponse get(String key, Deadline deadline, Supplier<GHResponse> calculation) {
+        CompletableFuture<GHResponse> future;
+        boolean calculate;
+        long calculationGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.created < ttlMillis) {
+                    hits.increment();
+                    return entry.response;
+                }
+                entries.remove(key);
+            }
+            future = pending.get(key);
+            calculate = future == null;
+            if (!calculate) {
+                coalesced.increment();
+            } else {
+                misses.increment();
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+            }
+            calculationGeneration = generation;
+        }
+        if (!calculate) {
+            try {
+                return deadline.await(future);
+            } catch (RequestCancelledException | RequestTimeoutException ex) {
+                // the calculating request was cancelled or took too long, which is only relevant if this one has no
+                // time left either
+                deadline.check();
+                return get(key, deadline, calculation);
+            }
+        }
+
+        try {
+            GHResponse response = calculation.get();
+            synchronized (this) {
+                pending.remove(key, future);
+                if (calculationGeneration == generation && !response.hasErrors())
+                    entries.put(key, new Entry(response, clock.getAsLong()));
+            }
+            future.complete(response);
+            return response;
+        } catch (RuntimeException | Error ex) {
+            synchronized (this) {
+                pending.remove(key, future);
+            }
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Removes all cached responses. Routes that are currently calculated are not cached.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        pending.clear();
+        generation++;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of requests that waited for the same route calculated by another request
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private static class Entry {
+        final GHResponse response;
+        final long created;
+
+        Entry(GHResponse response, long created) {
+            this.response = response;
+            this.created = created;
+        }
+    }
+}
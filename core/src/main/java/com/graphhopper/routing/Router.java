@@ -18,36 +18,58 @@
 
 package com.graphhopper.routing;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.graphhopper.GHMatrixRequest;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
-import com.graphhopper.routing.ev.BooleanEncodedValue;
-import com.graphhopper.routing.ev.EncodedValueLookup;
-import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.ch.CustomizableCH;
+import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.lm.LMRoutingAlgorithmFactory;
 import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.matrix.CHMatrixCalculator;
+import com.graphhopper.routing.matrix.DistanceMatrix;
+import com.graphhopper.routing.matrix.MatrixCalculator;
+import com.graphhopper.routing.matrix.OneToManyMatrixCalculator;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.routing.weighting.custom.FindMinMax;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
 import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
@@ -56,6 +78,8 @@ import static com.graphhopper.util.Parameters.Algorithms.ROUND_TRIP;
 import static com.graphhopper.util.Parameters.Routing.*;
 
 public class Router {
+    private static final ObjectMapper CUSTOM_MODEL_MAPPER = Jackson.newObjectMapper().
+            configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
     protected final BaseGraph graph;
     protected final EncodingManager encodingManager;
     protected final LocationIndex locationIndex;
@@ -64,15 +88,37 @@ public class Router {
     protected final TranslationMap translationMap;
     protected final RouterConfig routerConfig;
     protected final WeightingFactory weightingFactory;
+    // applies the speed factors of the traffic overlay on top of the weighting factory
+    protected final WeightingFactory trafficWeightingFactory;
     protected final Map<String, RoutingCHGraph> chGraphs;
     protected final Map<String, LandmarkStorage> landmarks;
+    protected final CustomizableCH customizableCH;
+    protected final TrafficOverlay trafficOverlay;
     protected final boolean chEnabled;
     protected final boolean lmEnabled;
+    protected RouteCache routeCache;
+    protected ExecutorService legExecutor;
+    protected int legThreads;
+    protected Map<String, List<String>> coreEncodedValues = Collections.emptyMap();
 
     public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
                   Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+        this(graph, encodingManager, locationIndex, profilesByName, pathDetailsBuilderFactory, translationMap, routerConfig,
+                weightingFactory, chGraphs, landmarks, null, null);
+    }
+
+    /**
+     * @param customizableCH the CCH preparation that is used for requests with a custom model, can be null
+     * @param trafficOverlay the speed factors that are applied on top of the weighting factory for the requests in the
+     *                       flexible, hybrid and CCH mode, can be null
+     */
+    public Router(BaseGraph graph, EncodingManager encodingManager, LocationIndex locationIndex,
+                  Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
+                  TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                  Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks, CustomizableCH customizableCH,
+                  TrafficOverlay trafficOverlay) {
         this.graph = graph;
         this.encodingManager = encodingManager;
         this.locationIndex = locationIndex;
@@ -81,8 +127,11 @@ public class Router {
         this.translationMap = translationMap;
         this.routerConfig = routerConfig;
         this.weightingFactory = weightingFactory;
+        this.trafficWeightingFactory = trafficOverlay == null ? weightingFactory : trafficOverlay.withSpeedFactors(weightingFactory);
         this.chGraphs = chGraphs;
         this.landmarks = landmarks;
+        this.customizableCH = customizableCH;
+        this.trafficOverlay = trafficOverlay;
         // note that his is not the same as !ghStorage.getCHConfigs().isEmpty(), because the GHStorage might have some
         // CHGraphs that were not built yet (and possibly no CH profiles were configured).
         this.chEnabled = !chGraphs.isEmpty();
@@ -94,20 +143,50 @@ public class Router {
         }
     }
 
+    /**
+     * @param routeCache caches the responses of the via routes, can be null
+     */
+    public Router setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    /**
+     * @param legExecutor calculates the legs of long via routes concurrently, see {@link RouterConfig#setParallelLegsMinLegs}.
+     *                    Can be null.
+     * @param legThreads  the maximum number of threads that calculate the legs of a single route, including the thread
+     *                    that calls {@link #route(GHRequest)}
+     */
+    public Router setLegExecutor(ExecutorService legExecutor, int legThreads) {
+        this.legExecutor = legExecutor;
+        this.legThreads = legThreads;
+        return this;
+    }
+
+    /**
+     * @param coreEncodedValues the encoded values that define the core of the CH preparation per profile, see
+     *                          {@link com.graphhopper.config.CHProfile#setCoreEncodedValues(List)}
+     */
+    public Router setCoreEncodedValues(Map<String, List<String>> coreEncodedValues) {
+        this.coreEncodedValues = coreEncodedValues;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
-        try {
-            checkNoLegacyParameters(request);
-            checkAtLeastOnePoint(request);
-            checkIfPointsAreInBounds(request.getPoints());
-            checkHeadings(request);
-            checkPointHints(request);
-            checkCurbsides(request);
-            checkNoBlockArea(request);
-
-            Solver solver = createSolver(request);
-            solver.checkRequest();
-            solver.init();
+        return route(request, null);
+    }
 
+    /**
+     * Calculates the route with a deadline that covers all phases of the request, from the snapping to the
+     * instructions. It uses the timeout_ms hint or the server-side timeout and fails with a
+     * {@link com.graphhopper.util.exceptions.RequestTimeoutException} or a
+     * {@link com.graphhopper.util.exceptions.RequestCancelledException}.
+     *
+     * @param cancelCheck cancels the request once it returns true, e.g. if the client disconnected. Can be null.
+     */
+    public GHResponse route(GHRequest request, BooleanSupplier cancelCheck) {
+        try {
+            Solver solver = createAndInitSolver(request, cancelCheck);
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
                 if (!(solver instanceof FlexSolver))
                     throw new IllegalArgumentException("algorithm=round_trip only works with a flexible algorithm");
@@ -118,11 +197,7 @@ public class Router {
                 return routeVia(request, solver);
             }
         } catch (MultiplePointsNotFoundException ex) {
-            GHResponse ghRsp = new GHResponse();
-            for (IntCursor p : ex.getPointsNotFound()) {
-                ghRsp.addError(new PointNotFoundException("Cannot find point " + p.value + ": " + request.getPoints().get(p.value), p.value));
-            }
-            return ghRsp;
+            return createErrorResponse(request, ex);
         } catch (IllegalArgumentException ex) {
             GHResponse ghRsp = new GHResponse();
             ghRsp.addError(ex);
@@ -130,14 +205,267 @@ public class Router {
         }
     }
 
-    private void checkNoLegacyParameters(GHRequest request) {
-        if (request.getHints().has("vehicle"))
+    private Solver createAndInitSolver(GHRequest request, BooleanSupplier cancelCheck) {
+        Deadline deadline = new Deadline(routerConfig.getTimeoutMillis(request.getHints()), cancelCheck);
+        checkNoLegacyParameters(request.getHints());
+        checkAtLeastOnePoint(request);
+        checkIfPointsAreInBounds(request.getPoints());
+        checkHeadings(request);
+        checkPointHints(request);
+        checkCurbsides(request);
+        checkNoBlockArea(request);
+
+        Solver solver = createSolver(request);
+        solver.setDeadline(deadline);
+        solver.checkRequest();
+        solver.init();
+        return solver;
+    }
+
+    private static GHResponse createErrorResponse(GHRequest request, MultiplePointsNotFoundException ex) {
+        GHResponse ghRsp = new GHResponse();
+        for (IntCursor p : ex.getPointsNotFound()) {
+            ghRsp.addError(new PointNotFoundException("Cannot find point " + p.value + ": " + request.getPoints().get(p.value), p.value));
+        }
+        return ghRsp;
+    }
+
+    /**
+     * Calculates the routes of many requests at once and passes the responses to the consumer in the order of the
+     * requests, as soon as they are available. Via routes share the snapping: every distinct point is snapped only
+     * once and a single query graph is created for all of them. The paths are then calculated in parallel by the
+     * given executor. Requests for alternative routes and round trips and requests with headings or pass_through
+     * modify or need their own query graph, so they are routed separately, but also by the executor.
+     *
+     * @param cancelCheck cancels all requests once it returns true, see {@link #route(GHRequest, BooleanSupplier)}.
+     *                    Can be null.
+     */
+    public void routeBatch(List<GHRequest> requests, ExecutorService executor, BooleanSupplier cancelCheck,
+                           Consumer<GHResponse> consumer) {
+        StopWatch sw = new StopWatch().start();
+        List<Future<GHResponse>> futures = new ArrayList<>(requests.size());
+        BatchEntry[] entries = new BatchEntry[requests.size()];
+        Map<String, Snap> snapsByKey = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            GHRequest request = requests.get(i);
+            futures.add(null);
+            if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()) || ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())
+                    || !request.getHeadings().isEmpty() || getPassThrough(request.getHints()))
+                continue;
+            try {
+                Solver solver = createAndInitSolver(request, cancelCheck);
+                entries[i] = new BatchEntry(request, solver, lookupBatch(request, solver, snapsByKey));
+            } catch (MultiplePointsNotFoundException ex) {
+                futures.set(i, CompletableFuture.completedFuture(createErrorResponse(request, ex)));
+            } catch (IllegalArgumentException ex) {
+                futures.set(i, CompletableFuture.completedFuture(new GHResponse().addError(ex)));
+            }
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, new ArrayList<>(snapsByKey.values()));
+        String lookupDebug = "idLookup:" + sw.stop().getSeconds() + "s, batch of " + requests.size() + " requests with " + snapsByKey.size() + " points";
+
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                GHRequest request = requests.get(i);
+                BatchEntry entry = entries[i];
+                if (entry != null)
+                    futures.set(i, executor.submit(() -> calcBatchEntry(entry, queryGraph, lookupDebug)));
+                else if (futures.get(i) == null)
+                    futures.set(i, executor.submit(() -> route(request, cancelCheck)));
+            }
+            for (Future<GHResponse> future : futures)
+                consumer.accept(future.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while routing a batch of " + requests.size() + " requests", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            for (Future<GHResponse> future : futures)
+                if (future != null)
+                    future.cancel(true);
+        }
+    }
+
+    private GHResponse calcBatchEntry(BatchEntry entry, QueryGraph queryGraph, String lookupDebug) {
+        try {
+            DirectedEdgeFilter directedEdgeFilter = entry.solver.createDirectedEdgeFilter();
+            if (routeCache == null)
+                return calcVia(entry.request, entry.solver, directedEdgeFilter, queryGraph, entry.snaps, lookupDebug);
+            return routeCache.get(createRouteCacheKey(entry.request, entry.snaps), entry.solver.deadline,
+                    () -> calcVia(entry.request, entry.solver, directedEdgeFilter, queryGraph, entry.snaps, lookupDebug));
+        } catch (IllegalArgumentException ex) {
+            return new GHResponse().addError(ex);
+        }
+    }
+
+    /**
+     * Snaps the points of the given request, points that were already snapped for another request of the batch with
+     * the same profile, custom model and snap restrictions are reused.
+     */
+    private List<Snap> lookupBatch(GHRequest request, Solver solver, Map<String, Snap> snapsByKey) {
+        List<GHPoint> points = request.getPoints();
+        if (points.size() < 2)
+            throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
+        // the snap filter depends on the weighting
+        String filterKey = solver.getClass().getSimpleName() + "|" + request.getProfile() + "|" + hashCustomModel(request.getCustomModel())
+                + "|" + request.getSnapPreventions();
+        EdgeFilter snapFilter = null;
+        EdgeFilter strictEdgeFilter = null;
+        List<Snap> snaps = new ArrayList<>(points.size());
+        IntArrayList pointsNotFound = new IntArrayList();
+        for (int i = 0; i < points.size(); i++) {
+            solver.deadline.check();
+            GHPoint point = points.get(i);
+            String pointHint = request.getPointHints().isEmpty() ? null : request.getPointHints().get(i);
+            String key = filterKey + "|" + pointHint + "|" + point.lat + "," + point.lon;
+            Snap snap = snapsByKey.get(key);
+            if (snap == null) {
+                if (snapFilter == null) {
+                    snapFilter = solver.createSnapFilter();
+                    strictEdgeFilter = ViaRouting.createStrictEdgeFilter(encodingManager, snapFilter, request.getSnapPreventions());
+                }
+                snap = ViaRouting.lookup(point, Double.NaN, pointHint, snapFilter, strictEdgeFilter, locationIndex, null);
+                if (snap.isValid())
+                    snapsByKey.put(key, snap);
+            }
+            if (!snap.isValid())
+                pointsNotFound.add(i);
+            snaps.add(snap);
+        }
+        if (!pointsNotFound.isEmpty())
+            throw new MultiplePointsNotFoundException(pointsNotFound);
+        return snaps;
+    }
+
+    private static class BatchEntry {
+        final GHRequest request;
+        final Solver solver;
+        final List<Snap> snaps;
+
+        BatchEntry(GHRequest request, Solver solver, List<Snap> snaps) {
+            this.request = request;
+            this.solver = solver;
+            this.snaps = snaps;
+        }
+    }
+
+    /**
+     * Calculates the weights, times and distances between all from and all to points of the given request. Unlike
+     * {@link #route(GHRequest)} this method throws an IllegalArgumentException if the request is invalid. If fail
+     * fast is disabled points that cannot be found or are not connected do not yield an error, instead the
+     * corresponding entries of the matrix stay empty.
+     */
+    public DistanceMatrix matrix(GHMatrixRequest request) {
+        checkNoLegacyParameters(request.getHints());
+        List<GHPoint> fromPoints = request.getFromPoints();
+        List<GHPoint> toPoints = request.getToPoints();
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("You have to pass at least one from and one to point");
+        if (!request.getFromCurbsides().isEmpty() || !request.getToCurbsides().isEmpty())
+            throw new IllegalArgumentException("The " + CURBSIDE + " parameter is currently not supported for matrix requests");
+        if (!request.getFromPointHints().isEmpty() && request.getFromPointHints().size() != fromPoints.size())
+            throw new IllegalArgumentException("If you pass " + POINT_HINT + ", you need to pass exactly one hint for every from point, empty hints will be ignored");
+        if (!request.getToPointHints().isEmpty() && request.getToPointHints().size() != toPoints.size())
+            throw new IllegalArgumentException("If you pass " + POINT_HINT + ", you need to pass exactly one hint for every to point, empty hints will be ignored");
+
+        // the matrix uses the same solvers (and thus the same profile resolution, weighting and CH/LM selection) as route
+        GHRequest routeRequest = new GHRequest(0).setProfile(request.getProfile()).setSnapPreventions(request.getSnapPreventions());
+        routeRequest.getHints().putAll(request.getHints());
+        Solver solver = createSolver(routeRequest);
+        solver.checkRequest();
+        solver.init();
+
+        StopWatch sw = new StopWatch().start();
+        EdgeFilter snapFilter = solver.createSnapFilter();
+        List<Integer> invalidFromPoints = new ArrayList<>();
+        List<Integer> invalidToPoints = new ArrayList<>();
+        List<Snap> fromSnaps = lookupMatrixPoints(fromPoints, request.getFromPointHints(), request.getSnapPreventions(), snapFilter, invalidFromPoints);
+        List<Snap> toSnaps = lookupMatrixPoints(toPoints, request.getToPointHints(), request.getSnapPreventions(), snapFilter, invalidToPoints);
+        if (request.getFailFast() && !invalidFromPoints.isEmpty())
+            throw new PointNotFoundException("Cannot find from_points: " + invalidFromPoints.get(0), invalidFromPoints.get(0));
+        if (request.getFailFast() && !invalidToPoints.isEmpty())
+            throw new PointNotFoundException("Cannot find to_points: " + invalidToPoints.get(0), invalidToPoints.get(0));
+        List<Snap> snaps = new ArrayList<>(fromSnaps.size() + toSnaps.size());
+        for (Snap snap : fromSnaps)
+            if (snap != null) snaps.add(snap);
+        for (Snap snap : toSnaps)
+            if (snap != null) snaps.add(snap);
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        String lookupDebug = "idLookup:" + sw.stop().getSeconds() + "s";
+
+        sw = new StopWatch().start();
+        MatrixCalculator calculator = solver.createMatrixCalculator(queryGraph);
+        DistanceMatrix matrix = calculator.calcMatrix(getClosestNodes(fromSnaps), getClosestNodes(toSnaps));
+        matrix.getInvalidFromPoints().addAll(invalidFromPoints);
+        matrix.getInvalidToPoints().addAll(invalidToPoints);
+        matrix.addDebugInfo(lookupDebug);
+        matrix.addDebugInfo(calculator.getName() + ":" + sw.stop().getSeconds() + "s, visited nodes:" + calculator.getVisitedNodes());
+        if (request.getFailFast()) {
+            for (int from = 0; from < matrix.getFromCount(); from++) {
+                for (int to = 0; to < matrix.getToCount(); to++) {
+                    if (!matrix.isConnected(from, to)) {
+                        Map<String, Object> details = new HashMap<>(2);
+                        details.put("from", from);
+                        details.put("to", to);
+                        throw new ConnectionNotFoundException("Connection between locations not found: from_points " + from + " and to_points " + to, details);
+                    }
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * @return the snaps for the given points, null for every point that could not be found. The indices of these
+     * points are added to invalidPoints.
+     */
+    private List<Snap> lookupMatrixPoints(List<GHPoint> points, List<String> pointHints, List<String> snapPreventions,
+                                          EdgeFilter snapFilter, List<Integer> invalidPoints) {
+        final EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        final EnumEncodedValue<RoadEnvironment> roadEnvEnc = encodingManager.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+        EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
+                ? snapFilter
+                : new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        BBox bounds = graph.getBounds();
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            Snap snap = null;
+            if (bounds.contains(point.getLat(), point.getLon())) {
+                if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(i)))
+                    snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter, pointHints.get(i), point, 170));
+                else if (!snapPreventions.isEmpty())
+                    snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+                if (snap == null || !snap.isValid())
+                    snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+            }
+            if (snap == null || !snap.isValid()) {
+                invalidPoints.add(i);
+                snap = null;
+            }
+            snaps.add(snap);
+        }
+        return snaps;
+    }
+
+    private static int[] getClosestNodes(List<Snap> snaps) {
+        int[] nodes = new int[snaps.size()];
+        for (int i = 0; i < snaps.size(); i++)
+            nodes[i] = snaps.get(i) == null ? -1 : snaps.get(i).getClosestNode();
+        return nodes;
+    }
+
+    private void checkNoLegacyParameters(PMap hints) {
+        if (hints.has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
-        if (request.getHints().has("weighting"))
+        if (hints.has("weighting"))
             throw new IllegalArgumentException("GHRequest may no longer contain a weighting, use the profile parameter instead, see docs/core/profiles.md");
-        if (request.getHints().has(Parameters.Routing.TURN_COSTS))
+        if (hints.has(Parameters.Routing.TURN_COSTS))
             throw new IllegalArgumentException("GHRequest may no longer contain the turn_costs=true/false parameter, use the profile parameter instead, see docs/core/profiles.md");
-        if (request.getHints().has(Parameters.Routing.EDGE_BASED))
+        if (hints.has(Parameters.Routing.EDGE_BASED))
             throw new IllegalArgumentException("GHRequest may no longer contain the edge_based=true/false parameter, use the profile parameter instead, see docs/core/profiles.md");
     }
 
@@ -183,12 +511,17 @@ public class Router {
     protected Solver createSolver(GHRequest request) {
         final boolean disableCH = getDisableCH(request.getHints());
         final boolean disableLM = getDisableLM(request.getHints());
-        if (chEnabled && !disableCH) {
+        if (useCCH(request)) {
+            return createCCHSolver(request, profilesByName, routerConfig, encodingManager, trafficWeightingFactory, customizableCH, trafficOverlay);
+        } else if (chEnabled && !disableCH && coreEncodedValues.containsKey(request.getProfile())) {
+            return createCoreSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory,
+                    chGraphs, landmarks, coreEncodedValues.get(request.getProfile()));
+        } else if (chEnabled && !disableCH) {
             return createCHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
         } else if (lmEnabled && !disableLM) {
-            return createLMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex, landmarks);
+            return createLMSolver(request, profilesByName, routerConfig, encodingManager, trafficWeightingFactory, graph, locationIndex, landmarks);
         } else {
-            return createFlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, graph, locationIndex);
+            return createFlexSolver(request, profilesByName, routerConfig, encodingManager, trafficWeightingFactory, graph, locationIndex);
         }
     }
 
@@ -197,6 +530,32 @@ public class Router {
         return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
     }
 
+    protected Solver createCoreSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
+                                      EncodingManager encodingManager, WeightingFactory weightingFactory,
+                                      Map<String, RoutingCHGraph> chGraphs, Map<String, LandmarkStorage> landmarks,
+                                      List<String> coreEncodedValues) {
+        return new CoreSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, chGraphs,
+                landmarks, coreEncodedValues);
+    }
+
+    protected Solver createCCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
+                                     EncodingManager encodingManager, WeightingFactory weightingFactory, CustomizableCH customizableCH,
+                                     TrafficOverlay trafficOverlay) {
+        return new CCHSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, customizableCH, trafficOverlay);
+    }
+
+    /**
+     * Requests with a custom model are routed with CCH if it is available, unless they use a feature that is not
+     * supported for CH, in which case they fall back to the flexible mode.
+     */
+    private boolean useCCH(GHRequest request) {
+        if (customizableCH == null || request.getCustomModel() == null || getDisableCCH(request.getHints()))
+            return false;
+        Profile profile = profilesByName.get(request.getProfile());
+        return profile != null && !profile.isTurnCosts() && request.getHeadings().isEmpty()
+                && !getPassThrough(request.getHints()) && !ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm());
+    }
+
     protected Solver createLMSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
                                     EncodingManager encodingManager, WeightingFactory weightingFactory, BaseGraph baseGraph,
                                     LocationIndex locationIndex, Map<String, LandmarkStorage> landmarks) {
@@ -218,9 +577,11 @@ public class Router {
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
 
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        solver.deadline.check();
         FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
 
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
+        solver.deadline.check();
         // we merge the different legs of the roundtrip into one response path
         // note that the waypoints are not just the snapped points of the snaps, as usual, because we do some kind of tweak
         // to avoid 'unnecessary tails' in the roundtrip algo
@@ -238,9 +599,10 @@ public class Router {
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
-                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
+                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings(), solver.deadline);
         ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
         QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+        solver.deadline.check();
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
@@ -256,6 +618,7 @@ public class Router {
         // each path represents a different alternative and we do the path merging for each of them
         PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
         for (Path path : result.paths) {
+            solver.deadline.check();
             PointList waypoints = getWaypoints(snaps);
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), encodingManager, translationMap.getWithFallBack(request.getLocale()));
             ghRsp.add(responsePath);
@@ -266,25 +629,45 @@ public class Router {
     }
 
     protected GHResponse routeVia(GHRequest request, Solver solver) {
-        GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.createSnapFilter(), locationIndex,
-                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
-        ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+                request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings(), solver.deadline);
+        String lookupDebug = "idLookup:" + sw.stop().getSeconds() + "s";
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
-        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        if (routeCache == null)
+            return calcVia(request, solver, directedEdgeFilter, QueryGraph.create(graph, snaps), snaps, lookupDebug);
+        return routeCache.get(createRouteCacheKey(request, snaps), solver.deadline,
+                () -> calcVia(request, solver, directedEdgeFilter, QueryGraph.create(graph, snaps), snaps, lookupDebug));
+    }
+
+    private GHResponse calcVia(GHRequest request, Solver solver, DirectedEdgeFilter directedEdgeFilter, QueryGraph queryGraph,
+                               List<Snap> snaps, String lookupDebug) {
+        solver.deadline.check();
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.addDebugInfo(lookupDebug);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
-        ViaRouting.Result result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
-                pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        ViaRouting.Result result;
+        if (isParallelLegs(request, snaps.size() - 1, passThrough)) {
+            // every thread needs its own path calculator, but they share the query graph
+            int threads = Math.min(legThreads, snaps.size() - 1);
+            List<PathCalculator> pathCalculators = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++)
+                pathCalculators.add(solver.createPathCalculator(queryGraph));
+            result = ViaRouting.calcPathsParallel(snaps, pathCalculators, legExecutor);
+        } else {
+            PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+            result = ViaRouting.calcPaths(request.getPoints(), queryGraph, snaps, directedEdgeFilter,
+                    pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        }
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new RuntimeException("There should be exactly one more point than paths. points:" + request.getPoints().size() + ", paths:" + result.paths.size());
 
         // here each path represents one leg of the via-route and we merge them all together into one response path
+        solver.deadline.check();
         ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
         responsePath.addDebugInfo(result.debug);
         ghRsp.add(responsePath);
@@ -293,6 +676,59 @@ public class Router {
         return ghRsp;
     }
 
+    /**
+     * The legs can only be calculated concurrently if they do not depend on each other. Headings, curbsides and
+     * pass_through restrict the start and end edges of the legs and pass_through depends on the previous leg. Headings
+     * and pass_through also mark edges of the shared query graph, so these requests are calculated sequentially.
+     */
+    private boolean isParallelLegs(GHRequest request, int legs, boolean passThrough) {
+        return legExecutor != null && legThreads > 1 && legs >= routerConfig.getParallelLegsMinLegs()
+                && request.getHints().getBool(PARALLEL_LEGS, true)
+                && request.getHeadings().isEmpty() && request.getCurbsides().isEmpty() && !passThrough;
+    }
+
+    /**
+     * The key identifies the route by the snapped points instead of the requested points, so requests for slightly
+     * different points that are snapped to the same location share the same entry. The point hints and snap
+     * preventions only influence the snapping and are therefore not part of the key. The version of the traffic
+     * overlay is included, so routes are calculated again after the speed factors changed.
+     */
+    private String createRouteCacheKey(GHRequest request, List<Snap> snaps) {
+        StringBuilder sb = new StringBuilder(request.getProfile());
+        if (trafficOverlay != null)
+            sb.append("|traffic:").append(trafficOverlay.getSnapshot().getVersion());
+        for (Snap snap : snaps) {
+            sb.append("|").append(snap.getClosestEdge().getEdgeKey()).append(",").append(snap.getWayIndex()).
+                    append(",").append(snap.getSnappedPosition()).append(",").append(snap.getSnappedPoint());
+        }
+        sb.append("|").append(hashCustomModel(request.getCustomModel())).
+                append("|").append(request.getAlgorithm()).
+                append("|").append(request.getLocale()).
+                append("|").append(request.getHeadings()).
+                append("|").append(request.getCurbsides()).
+                append("|").append(request.getPathDetails()).
+                append("|").append(new TreeMap<>(request.getHints().toMap()));
+        return sb.toString();
+    }
+
+    /**
+     * @return a hash of the JSON representation of the given custom model or "null" if there is none. Unlike the
+     * string representation of the custom model it includes the geometries of the areas, so it identifies the weighting
+     * even if two custom models use the same area id for different areas.
+     */
+    static String hashCustomModel(CustomModel customModel) {
+        if (customModel == null)
+            return "null";
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(CUSTOM_MODEL_MAPPER.writeValueAsBytes(customModel));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
         boolean enableInstructions = request.getHints().getBool(Parameters.Routing.INSTRUCTIONS, routerConfig.isInstructionsEnabled());
         boolean calcPoints = request.getHints().getBool(Parameters.Routing.CALC_POINTS, routerConfig.isCalcPoints());
@@ -335,6 +771,10 @@ public class Router {
         return hints.getBool(Parameters.CH.DISABLE, false);
     }
 
+    private static boolean getDisableCCH(PMap hints) {
+        return hints.getBool(Parameters.CCH.DISABLE, false);
+    }
+
     private static boolean getPassThrough(PMap hints) {
         return hints.getBool(PASS_THROUGH, false);
     }
@@ -350,6 +790,7 @@ public class Router {
         protected Profile profile;
         protected Weighting weighting;
         protected final EncodedValueLookup lookup;
+        protected Deadline deadline = Deadline.NONE;
 
         public Solver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup) {
             this.request = request;
@@ -358,6 +799,14 @@ public class Router {
             this.lookup = lookup;
         }
 
+        /**
+         * @param deadline the deadline of the request that is used by the path calculators
+         */
+        public Solver setDeadline(Deadline deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
         protected void checkRequest() {
             checkProfileSpecified();
             checkMaxVisitedNodes();
@@ -413,6 +862,12 @@ public class Router {
 
         protected abstract PathCalculator createPathCalculator(QueryGraph queryGraph);
 
+        protected MatrixCalculator createMatrixCalculator(QueryGraph queryGraph) {
+            return new OneToManyMatrixCalculator(queryGraph, queryGraph.wrapWeighting(weighting),
+                    profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED).
+                    setMaxVisitedNodes(getMaxVisitedNodes(request.getHints()));
+        }
+
         private List<String> getTurnCostProfiles() {
             List<String> turnCostProfiles = new ArrayList<>();
             for (Profile p : profilesByName.values()) {
@@ -428,9 +883,7 @@ public class Router {
         }
 
         long getTimeoutMillis(PMap hints) {
-            // we silently use the minimum between the requested timeout and the server-side limit
-            // see: https://github.com/graphhopper/graphhopper/pull/2795#discussion_r1168371343
-            return Math.min(routerConfig.getTimeoutMillis(), hints.getLong(TIMEOUT_MS, routerConfig.getTimeoutMillis()));
+            return routerConfig.getTimeoutMillis(hints);
         }
     }
 
@@ -475,7 +928,16 @@ public class Router {
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
             opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
-            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts, deadline);
+        }
+
+        @Override
+        protected MatrixCalculator createMatrixCalculator(QueryGraph queryGraph) {
+            RoutingCHGraph chGraph = getRoutingCHGraph(profile.getName());
+            // the bucket algorithm is only implemented for node-based CH so far
+            if (chGraph.isEdgeBased())
+                return super.createMatrixCalculator(queryGraph);
+            return new CHMatrixCalculator(new QueryRoutingCHGraph(chGraph, queryGraph));
         }
 
         private RoutingCHGraph getRoutingCHGraph(String profileName) {
@@ -488,6 +950,121 @@ public class Router {
         }
     }
 
+    /**
+     * Uses a CH preparation with a core: the CH search runs up to the core and an ALT search inside of it. Requests
+     * can use a custom model as long as it only changes the weights of the core edges.
+     */
+    private static class CoreSolver extends Solver {
+        private final RouterConfig routerConfig;
+        private final EncodingManager encodingManager;
+        private final WeightingFactory weightingFactory;
+        private final Map<String, RoutingCHGraph> chGraphs;
+        private final Map<String, LandmarkStorage> landmarks;
+        private final List<String> coreEncodedValues;
+        private RoutingCHGraph chGraph;
+
+        CoreSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodingManager encodingManager,
+                   WeightingFactory weightingFactory, Map<String, RoutingCHGraph> chGraphs,
+                   Map<String, LandmarkStorage> landmarks, List<String> coreEncodedValues) {
+            super(request, profilesByName, routerConfig, encodingManager);
+            this.routerConfig = routerConfig;
+            this.encodingManager = encodingManager;
+            this.weightingFactory = weightingFactory;
+            this.chGraphs = chGraphs;
+            this.landmarks = landmarks;
+            this.coreEncodedValues = coreEncodedValues;
+        }
+
+        @Override
+        protected void checkRequest() {
+            super.checkRequest();
+            if (!request.getHeadings().isEmpty())
+                throw new IllegalArgumentException("The 'heading' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`. See issue #483");
+
+            if (getPassThrough(request.getHints()))
+                throw new IllegalArgumentException("The '" + Parameters.Routing.PASS_THROUGH + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`. See issue #1765");
+
+            if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
+                throw new IllegalArgumentException("algorithm=round_trip cannot be used with CH");
+        }
+
+        @Override
+        protected Weighting createWeighting() {
+            RoutingCHGraph prepared = chGraphs.get(profile.getName());
+            if (prepared == null)
+                throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profile.getName() + "'" +
+                        "\nYou can try disabling CH using " + Parameters.CH.DISABLE + "=true" +
+                        "\navailable CH profiles: " + chGraphs.keySet());
+            if (request.getCustomModel() == null) {
+                chGraph = prepared;
+                return prepared.getWeighting();
+            }
+            FindMinMax.checkCoreConstraints(profile.getCustomModel(), request.getCustomModel(), coreEncodedValues,
+                    encodingManager, encodingManager.getDecimalEncodedValue(VehicleSpeed.key(profile.getVehicle())));
+            // the weights outside of the core must be the same as for the preparation, so we do not apply the
+            // traffic overlay here
+            PMap requestHints = new PMap(request.getHints());
+            requestHints.putObject(CustomModel.KEY, request.getCustomModel());
+            Weighting weighting = weightingFactory.createWeighting(profile, requestHints, false);
+            chGraph = ((RoutingCHGraphImpl) prepared).withWeighting(weighting);
+            return weighting;
+        }
+
+        @Override
+        protected PathCalculator createPathCalculator(QueryGraph queryGraph) {
+            PMap opts = new PMap(request.getHints());
+            opts.putObject(ALGORITHM, request.getAlgorithm());
+            opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
+            opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
+            CHRoutingAlgorithmFactory algorithmFactory = new CHRoutingAlgorithmFactory(chGraph, queryGraph).
+                    setLandmarks(landmarks.get(profile.getName()), routerConfig.getActiveLandmarkCount());
+            return new CHPathCalculator(algorithmFactory, opts, deadline);
+        }
+    }
+
+    private static class CCHSolver extends Solver {
+        private final WeightingFactory weightingFactory;
+        private final CustomizableCH customizableCH;
+        private final TrafficOverlay trafficOverlay;
+        private String customizationKey;
+
+        CCHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                  WeightingFactory weightingFactory, CustomizableCH customizableCH, TrafficOverlay trafficOverlay) {
+            super(request, profilesByName, routerConfig, lookup);
+            this.weightingFactory = weightingFactory;
+            this.customizableCH = customizableCH;
+            this.trafficOverlay = trafficOverlay;
+        }
+
+        @Override
+        protected Weighting createWeighting() {
+            // we read the traffic version before the weighting is created, so the weighting is never older than the key
+            customizationKey = profile.getName() + "|" + hashCustomModel(request.getCustomModel())
+                    + (trafficOverlay == null ? "" : "|" + trafficOverlay.getSnapshot().getVersion());
+            PMap requestHints = new PMap(request.getHints());
+            requestHints.putObject(CustomModel.KEY, request.getCustomModel());
+            return weightingFactory.createWeighting(profile, requestHints, false);
+        }
+
+        @Override
+        protected PathCalculator createPathCalculator(QueryGraph queryGraph) {
+            PMap opts = new PMap(request.getHints());
+            opts.putObject(ALGORITHM, request.getAlgorithm());
+            opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
+            opts.putObject(TIMEOUT_MS, getTimeoutMillis(request.getHints()));
+            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getCustomization(), queryGraph), opts, deadline);
+        }
+
+        @Override
+        protected MatrixCalculator createMatrixCalculator(QueryGraph queryGraph) {
+            return new CHMatrixCalculator(new QueryRoutingCHGraph(getCustomization(), queryGraph));
+        }
+
+        private RoutingCHGraph getCustomization() {
+            return customizableCH.getCustomization(customizationKey, weighting, deadline);
+        }
+    }
+
     public static class FlexSolver extends Solver {
         protected final RouterConfig routerConfig;
         private final WeightingFactory weightingFactory;
@@ -523,12 +1100,16 @@ public class Router {
         }
 
         protected AlgorithmOptions getAlgoOpts() {
+            PMap hints = request.getHints();
+            if (routerConfig.isPrimitiveSearch() && !hints.has(PRIMITIVE_SEARCH))
+                hints = new PMap(hints).putObject(PRIMITIVE_SEARCH, true);
             AlgorithmOptions algoOpts = new AlgorithmOptions().
                     setAlgorithm(request.getAlgorithm()).
                     setTraversalMode(profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED).
                     setMaxVisitedNodes(getMaxVisitedNodes(request.getHints())).
                     setTimeoutMillis(getTimeoutMillis(request.getHints())).
-                    setHints(request.getHints());
+                    setDeadline(deadline).
+                    setHints(hints);
 
             // use A* for round trips
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
@@ -539,7 +1120,7 @@ public class Router {
         }
 
         private void checkNonChMaxWaypointDistance(List<GHPoint> points) {
-            if (routerConfig.getNonChMaxWaypointDistance() == Integer.MAX_VALUE) {
+            if (routerConfig.getNonChMaxWaypointDistance() == Integer.MAX_VALUE || points.isEmpty()) {
                 return;
             }
             GHPoint lastPoint = points.get(0);
@@ -18,6 +18,10 @@
 
 package com.graphhopper.routing;
 
+import com.graphhopper.util.PMap;
+
+import static com.graphhopper.util.Parameters.Routing.TIMEOUT_MS;
+
 /**
  * This class contains various parameters that control the behavior of {@link Router}.
  */
@@ -31,6 +35,8 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private boolean primitiveSearch = false;
+    private int parallelLegsMinLegs = 8;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -57,6 +63,15 @@ public class RouterConfig {
         this.timeoutMillis = timeoutMillis;
     }
 
+    /**
+     * @return the timeout of a request with the given hints
+     */
+    public long getTimeoutMillis(PMap hints) {
+        // we silently use the minimum between the requested timeout and the server-side limit
+        // see: https://github.com/graphhopper/graphhopper/pull/2795#discussion_r1168371343
+        return Math.min(timeoutMillis, hints.getLong(TIMEOUT_MS, timeoutMillis));
+    }
+
     public int getMaxRoundTripRetries() {
         return maxRoundTripRetries;
     }
@@ -112,6 +127,31 @@ public class RouterConfig {
         this.activeLandmarkCount = activeLandmarkCount;
     }
 
+    public boolean isPrimitiveSearch() {
+        return primitiveSearch;
+    }
+
+    /**
+     * This method specifies if Dijkstra and A* should use {@link DijkstraWithArrays} per default, which reuses
+     * primitive arrays between requests instead of creating objects for every visited node. The found paths are the
+     * same. The bidirectional algorithms are not affected.
+     */
+    public void setPrimitiveSearch(boolean primitiveSearch) {
+        this.primitiveSearch = primitiveSearch;
+    }
+
+    public int getParallelLegsMinLegs() {
+        return parallelLegsMinLegs;
+    }
+
+    /**
+     * Via routes with fewer legs are calculated sequentially even if {@link Router#setLegExecutor} was used, because
+     * handing the legs to other threads does not pay off for a few short legs.
+     */
+    public void setParallelLegsMinLegs(int parallelLegsMinLegs) {
+        this.parallelLegsMinLegs = parallelLegsMinLegs;
+    }
+
     public double getElevationWayPointMaxDistance() {
         return elevationWayPointMaxDistance;
     }
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing;
 
+import com.graphhopper.util.Deadline;
+
 import java.util.List;
 
 /**
@@ -50,6 +52,11 @@ public interface RoutingAlgorithm {
      */
     void setTimeoutMillis(long timeoutMillis);
 
+    /**
+     * Stops the search once the deadline of the request is exceeded or the request was cancelled
+     */
+    void setDeadline(Deadline deadline);
+
     /**
      * @return name of this algorithm
      */
@@ -26,6 +26,7 @@ import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.DistancePlaneProjection;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 
@@ -41,10 +42,14 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(w);
+        boolean primitiveSearch = opts.getHints().getBool(Parameters.Routing.PRIMITIVE_SEARCH, false);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
             ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
-            ra = new Dijkstra(g, weighting, opts.getTraversalMode());
+            if (primitiveSearch)
+                ra = new DijkstraWithArrays(g, weighting, opts.getTraversalMode());
+            else
+                ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
@@ -56,9 +61,14 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
             ra = new DijkstraOneToMany(g, weighting, opts.getTraversalMode());
 
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
-            AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
-            aStar.setApproximation(getApproximation(ASTAR, opts.getHints(), w, g.getNodeAccess()));
-            ra = aStar;
+            if (primitiveSearch) {
+                ra = new DijkstraWithArrays(g, weighting, opts.getTraversalMode())
+                        .setApproximation(getApproximation(ASTAR, opts.getHints(), w, g.getNodeAccess()));
+            } else {
+                AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
+                aStar.setApproximation(getApproximation(ASTAR, opts.getHints(), w, g.getNodeAccess()));
+                ra = aStar;
+            }
 
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             ra = new AlternativeRoute(g, weighting, opts.getTraversalMode(), opts.getHints());
@@ -69,6 +79,7 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
 
         ra.setMaxVisitedNodes(opts.getMaxVisitedNodes());
         ra.setTimeoutMillis(opts.getTimeoutMillis());
+        ra.setDeadline(opts.getDeadline());
         return ra;
     }
 
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import java.util.Arrays;
+
+/**
+ * Stores a shortest path tree in primitive arrays instead of {@link SPTEntry} objects. Every entry has an index
+ * (like the identity of an SPTEntry) and the entries are mapped to traversal ids (the node id for node-based and the
+ * edge key for edge-based traversal) like the hash map of {@link Dijkstra}. The queue works like the
+ * {@link java.util.PriorityQueue} of {@link Dijkstra} and {@link AStar}: an entry that is improved is marked as
+ * deleted and a new one is added instead of updating the queue. Entries with the same weight are polled in the same
+ * order as from the PriorityQueue, so a search on these arrays finds the same paths as these algorithms.
+ * <p>
+ * The arrays are meant to be reused between searches: {@link #reset()} invalidates all entries in O(1) by incrementing
+ * a version counter and a traversal id is only considered to be mapped if its version equals the current one. Use
+ * {@link #forCurrentThread(int)} to get an instance that is cached per thread. This class is not thread-safe.
+ */
+public class SPTArrays {
+    public static final int NO_ENTRY = -1;
+    private static final ThreadLocal<SPTArrays> CACHE = new ThreadLocal<>();
+    // per traversal id
+    private final int[] versions;
+    private final int[] entriesByTraversalId;
+    // all versions are initially 0, so we need to start with 1 to mark all entries as unset
+    private int version = 1;
+    // per entry
+    private double[] weights;
+    private int[] edges;
+    private int[] adjNodes;
+    private int[] parents;
+    private boolean[] deleted;
+    private int entryCount;
+    // a binary heap of entries, the same as java.util.PriorityQueue but without the objects
+    private double[] heapKeys;
+    private int[] heapEntries;
+    private int heapSize;
+
+    public SPTArrays(int size) {
+        versions = new int[size];
+        entriesByTraversalId = new int[size];
+        int entryCapacity = Math.max(16, size / 16);
+        weights = new double[entryCapacity];
+        edges = new int[entryCapacity];
+        adjNodes = new int[entryCapacity];
+        parents = new int[entryCapacity];
+        deleted = new boolean[entryCapacity];
+        heapKeys = new double[entryCapacity];
+        heapEntries = new int[entryCapacity];
+    }
+
+    /**
+     * @return the instance cached for the current thread, which is reset and has a capacity of at least the given
+     * number of traversal ids. The instance is grown (and replaced in the cache) if necessary.
+     */
+    public static SPTArrays forCurrentThread(int size) {
+        SPTArrays arrays = CACHE.get();
+        if (arrays == null || arrays.getCapacity() < size) {
+            // grow a bit more than necessary, because e.g. the size of the query graph varies slightly between requests
+            arrays = new SPTArrays(Math.max(size, size + size / 8));
+            CACHE.set(arrays);
+        }
+        arrays.reset();
+        return arrays;
+    }
+
+    /**
+     * Removes all entries and clears the queue. This does not touch the arrays unless the version counter overflows.
+     */
+    public void reset() {
+        entryCount = 0;
+        heapSize = 0;
+        version++;
+        if (version == Integer.MAX_VALUE) {
+            Arrays.fill(versions, 0);
+            version = 1;
+        }
+    }
+
+    /**
+     * @return the number of traversal ids
+     */
+    public int getCapacity() {
+        return versions.length;
+    }
+
+    /**
+     * @return the number of entries that were added since the last reset
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Adds a new entry, it is neither mapped to a traversal id nor added to the queue.
+     *
+     * @param parent the index of the parent entry or {@link #NO_ENTRY} for the start
+     * @return the index of the new entry
+     */
+    public int addEntry(double weight, int edge, int adjNode, int parent) {
+        if (entryCount == weights.length) {
+            int capacity = entryCount + (entryCount >> 1);
+            weights = Arrays.copyOf(weights, capacity);
+            edges = Arrays.copyOf(edges, capacity);
+            adjNodes = Arrays.copyOf(adjNodes, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+        }
+        weights[entryCount] = weight;
+        edges[entryCount] = edge;
+        adjNodes[entryCount] = adjNode;
+        parents[entryCount] = parent;
+        deleted[entryCount] = false;
+        return entryCount++;
+    }
+
+    /**
+     * @return the entry that is mapped to the given traversal id or {@link #NO_ENTRY}
+     */
+    public int getEntry(int traversalId) {
+        return versions[traversalId] == version ? entriesByTraversalId[traversalId] : NO_ENTRY;
+    }
+
+    public void setEntry(int traversalId, int entry) {
+        versions[traversalId] = version;
+        entriesByTraversalId[traversalId] = entry;
+    }
+
+    /**
+     * @return the weight of the visited path of the given entry
+     */
+    public double getWeight(int entry) {
+        return weights[entry];
+    }
+
+    public int getEdge(int entry) {
+        return edges[entry];
+    }
+
+    public int getAdjNode(int entry) {
+        return adjNodes[entry];
+    }
+
+    /**
+     * @return the parent entry or {@link #NO_ENTRY} for the start
+     */
+    public int getParent(int entry) {
+        return parents[entry];
+    }
+
+    /**
+     * Marks the given entry as replaced by a better one, see {@link SPTEntry#setDeleted()}
+     */
+    public void setDeleted(int entry) {
+        deleted[entry] = true;
+    }
+
+    public boolean isDeleted(int entry) {
+        return deleted[entry];
+    }
+
+    /**
+     * Adds the given entry to the queue, see {@link java.util.PriorityQueue#add}
+     */
+    public void push(int entry, double key) {
+        if (heapSize == heapKeys.length) {
+            int capacity = heapSize + (heapSize >> 1);
+            heapKeys = Arrays.copyOf(heapKeys, capacity);
+            heapEntries = Arrays.copyOf(heapEntries, capacity);
+        }
+        int k = heapSize++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (key >= heapKeys[parent])
+                break;
+            heapKeys[k] = heapKeys[parent];
+            heapEntries[k] = heapEntries[parent];
+            k = parent;
+        }
+        heapKeys[k] = key;
+        heapEntries[k] = entry;
+    }
+
+    /**
+     * Removes the entry with the smallest key from the queue, see {@link java.util.PriorityQueue#poll}
+     */
+    public int poll() {
+        if (heapSize == 0)
+            throw new IllegalStateException("Cannot poll an empty queue");
+        int result = heapEntries[0];
+        int n = --heapSize;
+        double key = heapKeys[n];
+        int entry = heapEntries[n];
+        int k = 0;
+        int half = n >>> 1;
+        while (k < half) {
+            int child = (k << 1) + 1;
+            int right = child + 1;
+            if (right < n && heapKeys[child] > heapKeys[right])
+                child = right;
+            if (key <= heapKeys[child])
+                break;
+            heapKeys[k] = heapKeys[child];
+            heapEntries[k] = heapEntries[child];
+            k = child;
+        }
+        if (n > 0) {
+            heapKeys[k] = key;
+            heapEntries[k] = entry;
+        }
+        return result;
+    }
+
+    public boolean isQueueEmpty() {
+        return heapSize == 0;
+    }
+}
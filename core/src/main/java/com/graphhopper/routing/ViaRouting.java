@@ -27,13 +27,21 @@ import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Deadline;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -54,34 +62,21 @@ public class ViaRouting {
      */
     public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter snapFilter,
                                     LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints,
-                                    DirectedEdgeFilter directedSnapFilter, List<Double> headings) {
+                                    DirectedEdgeFilter directedSnapFilter, List<Double> headings, Deadline deadline) {
         if (points.size() < 2)
             throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
 
-        final EnumEncodedValue<RoadClass> roadClassEnc = lookup.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
-        final EnumEncodedValue<RoadEnvironment> roadEnvEnc = lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
-        EdgeFilter strictEdgeFilter = snapPreventions.isEmpty()
-                ? snapFilter
-                : new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+        EdgeFilter strictEdgeFilter = createStrictEdgeFilter(lookup, snapFilter, snapPreventions);
         List<Snap> snaps = new ArrayList<>(points.size());
         IntArrayList pointsNotFound = new IntArrayList();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
-            GHPoint point = points.get(placeIndex);
-            Snap snap = null;
-            if (placeIndex < headings.size() && !Double.isNaN(headings.get(placeIndex))) {
-                if (!pointHints.isEmpty() && !Helper.isEmpty(pointHints.get(placeIndex)))
-                    throw new IllegalArgumentException("Cannot specify heading and point_hint at the same time. " +
-                            "Make sure you specify either an empty point_hint (String) or a NaN heading (double) for point " + placeIndex);
-                snap = locationIndex.findClosest(point.lat, point.lon, new HeadingEdgeFilter(directedSnapFilter, headings.get(placeIndex), point));
-            } else if (!pointHints.isEmpty()) {
-                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
-                        pointHints.get(placeIndex), point, 170));
-            } else if (!snapPreventions.isEmpty()) {
-                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
-            }
-
-            if (snap == null || !snap.isValid())
-                snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+            deadline.check();
+            double heading = placeIndex < headings.size() ? headings.get(placeIndex) : Double.NaN;
+            String pointHint = pointHints.isEmpty() ? null : pointHints.get(placeIndex);
+            if (!Double.isNaN(heading) && !Helper.isEmpty(pointHint))
+                throw new IllegalArgumentException("Cannot specify heading and point_hint at the same time. " +
+                        "Make sure you specify either an empty point_hint (String) or a NaN heading (double) for point " + placeIndex);
+            Snap snap = lookup(points.get(placeIndex), heading, pointHint, snapFilter, strictEdgeFilter, locationIndex, directedSnapFilter);
             if (!snap.isValid())
                 pointsNotFound.add(placeIndex);
 
@@ -94,6 +89,41 @@ public class ViaRouting {
         return snaps;
     }
 
+    /**
+     * @return the filter that additionally applies the snap preventions, or the given snap filter if there are none
+     */
+    static EdgeFilter createStrictEdgeFilter(EncodedValueLookup lookup, EdgeFilter snapFilter, List<String> snapPreventions) {
+        if (snapPreventions.isEmpty())
+            return snapFilter;
+        final EnumEncodedValue<RoadClass> roadClassEnc = lookup.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        final EnumEncodedValue<RoadEnvironment> roadEnvEnc = lookup.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+        return new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+    }
+
+    /**
+     * Snaps a single point, see {@link #lookup(EncodedValueLookup, List, EdgeFilter, LocationIndex, List, List, DirectedEdgeFilter, List, Deadline)}.
+     *
+     * @param heading   the heading for the point or NaN
+     * @param pointHint the point hint or null if there are no point hints
+     * @return the snap, which is invalid if the point could not be found
+     */
+    static Snap lookup(GHPoint point, double heading, String pointHint, EdgeFilter snapFilter, EdgeFilter strictEdgeFilter,
+                       LocationIndex locationIndex, DirectedEdgeFilter directedSnapFilter) {
+        Snap snap = null;
+        if (!Double.isNaN(heading)) {
+            snap = locationIndex.findClosest(point.lat, point.lon, new HeadingEdgeFilter(directedSnapFilter, heading, point));
+        } else if (pointHint != null) {
+            snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
+                    pointHint, point, 170));
+        } else if (strictEdgeFilter != snapFilter) {
+            snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+        }
+
+        if (snap == null || !snap.isValid())
+            snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+        return snap;
+    }
+
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
         if (!curbsides.isEmpty() && curbsides.size() != points.size())
             throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
@@ -157,6 +187,89 @@ public class ViaRouting {
         return result;
     }
 
+    /**
+     * Calculates the legs of a via-route concurrently. Without headings, curbsides and pass_through the legs do not
+     * depend on each other, so every path calculator takes the next leg that was not calculated yet until all legs
+     * are done. The path calculators must not share any state except for the query graph, which is only read. The
+     * calling thread uses the first path calculator, all others run on the given executor. The paths are returned
+     * in the order of the legs, just like for {@link #calcPaths}.
+     */
+    public static Result calcPathsParallel(List<Snap> snaps, List<PathCalculator> pathCalculators, ExecutorService executor) {
+        final int legs = snaps.size() - 1;
+        List<List<Path>> legPaths = new ArrayList<>(Collections.nCopies(legs, null));
+        String[] legDebugs = new String[legs];
+        long[] legVisitedNodes = new long[legs];
+        AtomicInteger nextLeg = new AtomicInteger();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Runnable[] workers = new Runnable[pathCalculators.size()];
+        for (int w = 0; w < workers.length; w++) {
+            PathCalculator pathCalculator = pathCalculators.get(w);
+            workers[w] = () -> {
+                try {
+                    for (int leg = nextLeg.getAndIncrement(); leg < legs; leg = nextLeg.getAndIncrement()) {
+                        List<Path> paths = pathCalculator.calcPaths(snaps.get(leg).getClosestNode(), snaps.get(leg + 1).getClosestNode(), new EdgeRestrictions());
+                        legDebugs[leg] = pathCalculator.getDebugString();
+                        legVisitedNodes[leg] = pathCalculator.getVisitedNodes();
+                        legPaths.set(leg, paths);
+                    }
+                } catch (RuntimeException | Error ex) {
+                    error.compareAndSet(null, ex);
+                    // stop the other path calculators, too
+                    nextLeg.set(legs);
+                }
+            };
+        }
+
+        AtomicBoolean[] started = new AtomicBoolean[workers.length];
+        List<Future<?>> futures = new ArrayList<>(workers.length);
+        futures.add(null);
+        try {
+            for (int w = 1; w < workers.length; w++) {
+                int worker = w;
+                started[w] = new AtomicBoolean();
+                futures.add(executor.submit(() -> {
+                    if (started[worker].compareAndSet(false, true))
+                        workers[worker].run();
+                }));
+            }
+            workers[0].run();
+            // all legs are taken, so the workers that did not start yet have nothing to do. we only have to wait for
+            // the others
+            for (int w = 1; w < workers.length; w++)
+                if (!started[w].compareAndSet(false, true))
+                    futures.get(w).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calculating " + legs + " legs", ex);
+        } catch (ExecutionException ex) {
+            // cannot happen, the workers catch all exceptions
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            nextLeg.set(legs);
+        }
+        if (error.get() instanceof RuntimeException)
+            throw (RuntimeException) error.get();
+        if (error.get() instanceof Error)
+            throw (Error) error.get();
+
+        Result result = new Result(legs);
+        for (int leg = 0; leg < legs; ++leg) {
+            result.debug += legDebugs[leg];
+            List<Path> paths = legPaths.get(leg);
+            for (int i = 0; i < paths.size(); i++) {
+                Path path = paths.get(i);
+                if (path.getTime() < 0)
+                    throw new RuntimeException("Time was negative " + path.getTime() + " for index " + i);
+
+                result.paths.add(path);
+                result.debug += ", " + path.getDebugInfo();
+            }
+            result.visitedNodes += legVisitedNodes[leg];
+            result.debug += ", visited nodes sum: " + result.visitedNodes;
+        }
+        return result;
+    }
+
     public static class Result {
         public List<Path> paths;
         public long visitedNodes;
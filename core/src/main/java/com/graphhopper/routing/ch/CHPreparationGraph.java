@@ -23,6 +23,7 @@ import com.carrotsearch.hppc.sorting.IndirectComparator;
 import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.weighting.AbstractWeighting;
 import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
 import com.graphhopper.routing.weighting.TurnCostProvider;
@@ -92,6 +93,14 @@ public class CHPreparationGraph {
     }
 
     public static void buildFromGraph(CHPreparationGraph prepareGraph, Graph graph, Weighting weighting) {
+        buildFromGraph(prepareGraph, graph, weighting, EdgeFilter.ALL_EDGES);
+    }
+
+    /**
+     * Like {@link #buildFromGraph(CHPreparationGraph, Graph, Weighting)}, but the edges that are not accepted by the
+     * given filter are left out, as if their weights were infinite.
+     */
+    public static void buildFromGraph(CHPreparationGraph prepareGraph, Graph graph, Weighting weighting, EdgeFilter edgeFilter) {
         if (graph.getNodes() != prepareGraph.getNodes())
             throw new IllegalArgumentException("Cannot initialize from given graph. The number of nodes does not match: " +
                     graph.getNodes() + " vs. " + prepareGraph.getNodes());
@@ -100,6 +109,8 @@ public class CHPreparationGraph {
                     graph.getEdges() + " vs. " + prepareGraph.getOriginalEdges());
         AllEdgesIterator iter = graph.getAllEdges();
         while (iter.next()) {
+            if (!edgeFilter.accept(iter))
+                continue;
             double weightFwd = weighting.calcEdgeWeight(iter, false);
             double weightBwd = weighting.calcEdgeWeight(iter, true);
             prepareGraph.addEdge(iter.getBaseNode(), iter.getAdjNode(), iter.getEdge(), weightFwd, weightBwd);
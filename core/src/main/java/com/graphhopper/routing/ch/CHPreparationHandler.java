@@ -108,6 +108,8 @@ public class CHPreparationHandler {
                         // todo: this is ugly, see comments in LMPreparationHandler
                         graph.getDirectory().remove("nodes_ch_" + c.getName());
                         graph.getDirectory().remove("shortcuts_" + c.getName());
+                        if (graph.getDirectory().getDAs().containsKey("shortcuts_skip_" + c.getName()))
+                            graph.getDirectory().remove("shortcuts_skip_" + c.getName());
                     }
                 });
         GHUtility.runConcurrently(runnables, preparationThreads);
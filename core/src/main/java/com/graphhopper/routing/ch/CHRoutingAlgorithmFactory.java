@@ -19,12 +19,15 @@
 package com.graphhopper.routing.ch;
 
 import com.graphhopper.routing.*;
+import com.graphhopper.routing.lm.LMApproximator;
+import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Routing.*;
@@ -35,6 +38,8 @@ import static com.graphhopper.util.Parameters.Routing.*;
  */
 public class CHRoutingAlgorithmFactory {
     private final RoutingCHGraph routingCHGraph;
+    private LandmarkStorage landmarks;
+    private int defaultActiveLandmarks;
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
         this(new QueryRoutingCHGraph(routingCHGraph, queryGraph));
@@ -44,6 +49,16 @@ public class CHRoutingAlgorithmFactory {
         this.routingCHGraph = routingCHGraph;
     }
 
+    /**
+     * Sets the landmarks that are used to search the core of CH graphs with a core, see
+     * {@link com.graphhopper.storage.CHConfig#nodeBasedCore}. They are ignored for CH graphs without a core.
+     */
+    public CHRoutingAlgorithmFactory setLandmarks(LandmarkStorage landmarks, int defaultActiveLandmarks) {
+        this.landmarks = landmarks;
+        this.defaultActiveLandmarks = defaultActiveLandmarks;
+        return this;
+    }
+
     public EdgeToEdgeRoutingAlgorithm createAlgo(PMap opts) {
         EdgeToEdgeRoutingAlgorithm algo = routingCHGraph.isEdgeBased()
                 ? createAlgoEdgeBased(routingCHGraph, opts)
@@ -73,6 +88,8 @@ public class CHRoutingAlgorithmFactory {
     }
 
     private EdgeToEdgeRoutingAlgorithm createAlgoNodeBased(RoutingCHGraph g, PMap opts) {
+        if (g.getCoreNodes() > 0)
+            return createAlgoCore(g, opts);
         // use dijkstra by default for node-based (its faster)
         String defaultAlgo = DIJKSTRA_BI;
         String algo = opts.getString(ALGORITHM, defaultAlgo);
@@ -94,6 +111,22 @@ public class CHRoutingAlgorithmFactory {
         }
     }
 
+    private EdgeToEdgeRoutingAlgorithm createAlgoCore(RoutingCHGraph g, PMap opts) {
+        String algo = opts.getString(ALGORITHM, ASTAR_BI);
+        if (!Helper.isEmpty(algo) && !ASTAR_BI.equals(algo))
+            throw new IllegalArgumentException("Algorithm " + algo + " not supported for Contraction Hierarchies with a core. Try with ch.disable=true");
+        AStarBidirectionCoreCH algorithm = new AStarBidirectionCoreCH(g);
+        if (landmarks == null) {
+            algorithm.setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+        } else {
+            int activeLM = Math.max(1, opts.getInt(Parameters.Landmark.ACTIVE_COUNT, defaultActiveLandmarks));
+            double epsilon = opts.getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
+            algorithm.setApproximation(LMApproximator.forLandmarks(g.getBaseGraph(), g.getBaseGraph().wrapWeighting(getWeighting()), landmarks, activeLM)
+                    .setEpsilon(epsilon));
+        }
+        return algorithm;
+    }
+
     private Weighting getWeighting() {
         return routingCHGraph.getWeighting();
     }
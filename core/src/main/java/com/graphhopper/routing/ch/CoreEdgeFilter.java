@@ -0,0 +1,70 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.ev.ArrayEdgeIntAccess;
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.ev.IntEncodedValueImpl;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.List;
+
+/**
+ * Accepts the edges that belong to the core of a CH preparation, i.e. the edges for which at least one of the given
+ * encoded values is not set to its default value (in either direction). The default value is the one all edges have
+ * before it is set explicitly, e.g. toll=MISSING or hazmat=YES.
+ *
+ * @see com.graphhopper.storage.CHConfig#nodeBasedCore
+ */
+public class CoreEdgeFilter implements EdgeFilter {
+    private final IntEncodedValueImpl[] encodedValues;
+    private final int[] defaultFwd;
+    private final int[] defaultBwd;
+
+    public CoreEdgeFilter(EncodedValueLookup lookup, List<String> encodedValueNames) {
+        if (encodedValueNames.isEmpty())
+            throw new IllegalArgumentException("The core must be defined by at least one encoded value");
+        encodedValues = new IntEncodedValueImpl[encodedValueNames.size()];
+        defaultFwd = new int[encodedValues.length];
+        defaultBwd = new int[encodedValues.length];
+        // all encoded values of an edge that was never set are zero
+        ArrayEdgeIntAccess defaults = new ArrayEdgeIntAccess(1);
+        for (int i = 0; i < encodedValues.length; i++) {
+            String name = encodedValueNames.get(i);
+            if (!lookup.hasEncodedValue(name))
+                throw new IllegalArgumentException("Unknown core encoded value '" + name + "'");
+            EncodedValue encodedValue = lookup.getEncodedValue(name, EncodedValue.class);
+            if (!(encodedValue instanceof IntEncodedValueImpl))
+                throw new IllegalArgumentException("The encoded value '" + name + "' cannot be used for the core, because it is not stored with the edges");
+            encodedValues[i] = (IntEncodedValueImpl) encodedValue;
+            defaultFwd[i] = encodedValues[i].getInt(false, 0, defaults);
+            defaultBwd[i] = encodedValues[i].getInt(true, 0, defaults);
+        }
+    }
+
+    @Override
+    public boolean accept(EdgeIteratorState edgeState) {
+        for (int i = 0; i < encodedValues.length; i++) {
+            if (edgeState.get(encodedValues[i]) != defaultFwd[i] || edgeState.getReverse(encodedValues[i]) != defaultBwd[i])
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.Deadline;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import com.graphhopper.util.exceptions.RequestTimeoutException;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Customizable contraction hierarchies, see "Customizable Contraction Hierarchies" by Dibbelt, Strasser and Wagner.
+ * The preparation is split into two phases: The first phase only depends on the graph topology. It contracts all
+ * nodes in a metric-independent order (see {@link NestedDissection}) and stores the resulting chordal graph, i.e.
+ * all edges and shortcuts that are created in this order regardless of their weights. This is the expensive part
+ * and it is done once per graph and stored on disk. The second phase, the customization, calculates the weights of
+ * all these edges for a given weighting. This is a single pass over the lower triangles of the chordal graph and it is
+ * fast enough to be done per request, e.g. for a custom model. The result is a usual node-based {@link RoutingCHGraph}
+ * such that all the existing CH algorithms can be used for it. Customizations are cached, see
+ * {@link #getCustomization(String, Weighting, Deadline)}.
+ * <p>
+ * Currently only node-based customizations are supported.
+ */
+public class CustomizableCH {
+    // the customization checks the deadline every 1024 nodes or edges
+    private static final int CHECK_DEADLINE_MASK = (1 << 10) - 1;
+    private final BaseGraph graph;
+    private final DataAccess nodesDA;
+    private final DataAccess edgesDA;
+    private int nodes = -1;
+    private int edges;
+    // the nodes sorted by rank (the contraction order) and vice versa
+    private int[] nodeByRank;
+    private int[] rankByNode;
+    // the (upward) edges of the chordal graph, sorted by the ranks of both nodes, stored as an adjacency array
+    private int[] upFirst;
+    private int[] upHeads;
+    private long maxCacheBytes = 512L << 20;
+    private long cacheBytes;
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<RoutingCHGraph>> pending = new HashMap<>();
+
+    public CustomizableCH(BaseGraph graph, Directory dir) {
+        this.graph = graph;
+        nodesDA = dir.create("cch_nodes", dir.getDefaultType("cch_nodes", true));
+        edgesDA = dir.create("cch_edges", dir.getDefaultType("cch_edges", true));
+    }
+
+    /**
+     * The maximum memory of the customizations that are kept by {@link #getCustomization(String, Weighting, Deadline)}.
+     * Every customization takes roughly as much memory as a CH preparation of the same graph.
+     */
+    public CustomizableCH setMaxCacheBytes(long maxCacheBytes) {
+        if (maxCacheBytes < 0)
+            throw new IllegalArgumentException("The cache size must not be negative, but was: " + maxCacheBytes);
+        synchronized (cache) {
+            this.maxCacheBytes = maxCacheBytes;
+            clearCache();
+        }
+        return this;
+    }
+
+    /**
+     * @return the memory of the customizations that are currently cached
+     */
+    public long getCacheBytes() {
+        synchronized (cache) {
+            return cacheBytes;
+        }
+    }
+
+    /**
+     * Calculates the chordal graph for the given node ordering. All nodes need to be contained in the ordering.
+     */
+    public void create(NodeOrderingProvider ordering) {
+        if (nodes >= 0)
+            throw new IllegalStateException("CustomizableCH can only be created once");
+        if (ordering.getNumNodes() != graph.getNodes())
+            throw new IllegalArgumentException("The node ordering does not match the graph, nodes: " + ordering.getNumNodes() + " vs. " + graph.getNodes());
+        nodes = graph.getNodes();
+        nodeByRank = new int[nodes];
+        rankByNode = new int[nodes];
+        Arrays.fill(rankByNode, -1);
+        for (int rank = 0; rank < nodes; rank++) {
+            int node = ordering.getNodeIdForLevel(rank);
+            if (rankByNode[node] >= 0)
+                throw new IllegalArgumentException("The node ordering contains node " + node + " more than once");
+            nodeByRank[rank] = node;
+            rankByNode[node] = rank;
+        }
+
+        IntArrayList[] up = new IntArrayList[nodes];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int rankA = rankByNode[iter.getBaseNode()];
+            int rankB = rankByNode[iter.getAdjNode()];
+            if (rankA == rankB)
+                continue;
+            addUp(up, Math.min(rankA, rankB), Math.max(rankA, rankB));
+        }
+        // contracting a node connects all its upward neighbors. it is sufficient to only connect the lowest of them
+        // to all the others, because the lowest one will be contracted next among them (this is the elimination tree).
+        upFirst = new int[nodes + 1];
+        IntArrayList heads = new IntArrayList();
+        for (int rank = 0; rank < nodes; rank++) {
+            IntArrayList neighbors = up[rank];
+            up[rank] = null;
+            if (neighbors != null) {
+                Arrays.sort(neighbors.buffer, 0, neighbors.size());
+                int prev = -1;
+                for (int i = 0; i < neighbors.size(); i++) {
+                    int neighbor = neighbors.get(i);
+                    if (neighbor == prev)
+                        continue;
+                    if (prev >= 0)
+                        addUp(up, heads.get(upFirst[rank]), neighbor);
+                    heads.add(neighbor);
+                    prev = neighbor;
+                }
+            }
+            upFirst[rank + 1] = heads.size();
+        }
+        upHeads = heads.toArray();
+        edges = upHeads.length;
+
+        nodesDA.create((long) nodes * 8 + 4);
+        for (int rank = 0; rank < nodes; rank++) {
+            nodesDA.setInt((long) rank * 8, nodeByRank[rank]);
+            nodesDA.setInt((long) rank * 8 + 4, upFirst[rank]);
+        }
+        nodesDA.setInt((long) nodes * 8, upFirst[nodes]);
+        edgesDA.create((long) edges * 4);
+        for (int edge = 0; edge < edges; edge++)
+            edgesDA.setInt((long) edge * 4, upHeads[edge]);
+    }
+
+    private static void addUp(IntArrayList[] up, int lower, int higher) {
+        if (up[lower] == null)
+            up[lower] = new IntArrayList(4);
+        up[lower].add(higher);
+    }
+
+    public void flush() {
+        nodesDA.setHeader(0, Constants.VERSION_CCH);
+        nodesDA.setHeader(4, nodes);
+        nodesDA.flush();
+        edgesDA.setHeader(0, Constants.VERSION_CCH);
+        edgesDA.setHeader(4, edges);
+        edgesDA.flush();
+    }
+
+    public boolean loadExisting() {
+        if (!nodesDA.loadExisting() || !edgesDA.loadExisting())
+            return false;
+        GHUtility.checkDAVersion(nodesDA.getName(), Constants.VERSION_CCH, nodesDA.getHeader(0));
+        GHUtility.checkDAVersion(edgesDA.getName(), Constants.VERSION_CCH, edgesDA.getHeader(0));
+        nodes = nodesDA.getHeader(4);
+        edges = edgesDA.getHeader(4);
+        if (nodes != graph.getNodes())
+            throw new IllegalStateException("The CCH preparation does not match the graph, nodes: " + nodes + " vs. " + graph.getNodes());
+        nodeByRank = new int[nodes];
+        rankByNode = new int[nodes];
+        upFirst = new int[nodes + 1];
+        for (int rank = 0; rank < nodes; rank++) {
+            nodeByRank[rank] = nodesDA.getInt((long) rank * 8);
+            rankByNode[nodeByRank[rank]] = rank;
+            upFirst[rank] = nodesDA.getInt((long) rank * 8 + 4);
+        }
+        upFirst[nodes] = nodesDA.getInt((long) nodes * 8);
+        upHeads = new int[edges];
+        for (int edge = 0; edge < edges; edge++)
+            upHeads[edge] = edgesDA.getInt((long) edge * 4);
+        return true;
+    }
+
+    public void close() {
+        nodesDA.close();
+        edgesDA.close();
+        synchronized (cache) {
+            clearCache();
+        }
+    }
+
+    private void clearCache() {
+        cache.clear();
+        cacheBytes = 0;
+    }
+
+    public boolean isClosed() {
+        return nodesDA.isClosed();
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of edges of the chordal graph, i.e. the maximum number of shortcuts per direction
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return the rank of the given node in the contraction order, which is also its level in the customizations
+     */
+    public int getRank(int node) {
+        return rankByNode[node];
+    }
+
+    /**
+     * Returns the customization for the given key, or calculates it using the given weighting and keeps it for later
+     * calls. The key needs to identify the weighting, e.g. the profile name and the custom model. Concurrent calls for
+     * the same key are coalesced: only the first one customizes and the others wait for its result until their own
+     * deadline is exceeded. If the customizing call is cancelled or times out first, the waiting calls customize again.
+     */
+    public RoutingCHGraph getCustomization(String key, Weighting weighting, Deadline deadline) {
+        CompletableFuture<RoutingCHGraph> future;
+        boolean customize;
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null)
+                return entry.chGraph;
+            future = pending.get(key);
+            customize = future == null;
+            if (customize) {
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+            }
+        }
+        if (!customize) {
+            try {
+                return deadline.await(future);
+            } catch (RequestCancelledException | RequestTimeoutException ex) {
+                // the customizing call was cancelled or took too long, which is only relevant if this one has no
+                // time left either
+                deadline.check();
+                return getCustomization(key, weighting, deadline);
+            }
+        }
+
+        try {
+            CHStorage chStorage = customizeStorage(weighting, deadline);
+            RoutingCHGraph chGraph = new RoutingCHGraphImpl(graph, chStorage, weighting);
+            synchronized (cache) {
+                pending.remove(key, future);
+                putCache(key, new CacheEntry(chGraph, chStorage.getCapacity()));
+            }
+            future.complete(chGraph);
+            return chGraph;
+        } catch (RuntimeException | Error ex) {
+            synchronized (cache) {
+                pending.remove(key, future);
+            }
+            future.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    private void putCache(String key, CacheEntry entry) {
+        if (entry.bytes > maxCacheBytes)
+            return;
+        cache.put(key, entry);
+        cacheBytes += entry.bytes;
+        Iterator<CacheEntry> iter = cache.values().iterator();
+        while (cacheBytes > maxCacheBytes) {
+            cacheBytes -= iter.next().bytes;
+            iter.remove();
+        }
+    }
+
+    /**
+     * Calculates the weights of the chordal graph for the given weighting and returns them as a node-based CH graph.
+     */
+    public RoutingCHGraph customize(Weighting weighting) {
+        return new RoutingCHGraphImpl(graph, customizeStorage(weighting, Deadline.NONE), weighting);
+    }
+
+    private CHStorage customizeStorage(Weighting weighting, Deadline deadline) {
+        if (nodes < 0)
+            throw new IllegalStateException("Call create or loadExisting first");
+        if (weighting.hasTurnCosts())
+            throw new IllegalArgumentException("CustomizableCH currently only supports node-based weightings, but the weighting has turn costs: " + weighting);
+        // for every edge of the chordal graph (from the lower to the higher node) we store the weight in both
+        // directions, the original edge (if it is better than any path via a lower node) and the lower node
+        // that is skipped otherwise
+        double[] upWeights = new double[edges];
+        double[] downWeights = new double[edges];
+        Arrays.fill(upWeights, Double.POSITIVE_INFINITY);
+        Arrays.fill(downWeights, Double.POSITIVE_INFINITY);
+        int[] upOrig = new int[edges];
+        int[] downOrig = new int[edges];
+        int[] upVia = new int[edges];
+        int[] downVia = new int[edges];
+        Arrays.fill(upVia, -1);
+        Arrays.fill(downVia, -1);
+
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if ((iter.getEdge() & CHECK_DEADLINE_MASK) == 0)
+                deadline.check();
+            int rankBase = rankByNode[iter.getBaseNode()];
+            int rankAdj = rankByNode[iter.getAdjNode()];
+            if (rankBase == rankAdj)
+                continue;
+            double fwdWeight = weighting.calcEdgeWeight(iter, false);
+            double bwdWeight = weighting.calcEdgeWeight(iter, true);
+            int edge = findEdge(Math.min(rankBase, rankAdj), Math.max(rankBase, rankAdj));
+            double upWeight = rankBase < rankAdj ? fwdWeight : bwdWeight;
+            double downWeight = rankBase < rankAdj ? bwdWeight : fwdWeight;
+            if (upWeight < upWeights[edge]) {
+                upWeights[edge] = upWeight;
+                upOrig[edge] = iter.getEdge();
+            }
+            if (downWeight < downWeights[edge]) {
+                downWeights[edge] = downWeight;
+                downOrig[edge] = iter.getEdge();
+            }
+        }
+
+        // the basic customization: every lower triangle z-x-y with rank(z) < rank(x) < rank(y) might improve x-y
+        for (int z = 0; z < nodes; z++) {
+            if ((z & CHECK_DEADLINE_MASK) == 0)
+                deadline.check();
+            for (int i = upFirst[z]; i < upFirst[z + 1]; i++) {
+                // x->z and z->x
+                double inX = downWeights[i], outX = upWeights[i];
+                if (Double.isInfinite(inX) && Double.isInfinite(outX))
+                    continue;
+                for (int j = i + 1; j < upFirst[z + 1]; j++) {
+                    int edge = findEdge(upHeads[i], upHeads[j]);
+                    double upWeight = inX + upWeights[j];
+                    if (upWeight < upWeights[edge]) {
+                        upWeights[edge] = upWeight;
+                        upVia[edge] = z;
+                    }
+                    double downWeight = downWeights[j] + outX;
+                    if (downWeight < downWeights[edge]) {
+                        downWeights[edge] = downWeight;
+                        downVia[edge] = z;
+                    }
+                }
+            }
+        }
+
+        CHStorage chStorage = new CHStorage(new RAMDirectory(), "cch", -1, false);
+        chStorage.create(nodes, Math.max(10, edges / 4));
+        CHStorageBuilder builder = new CHStorageBuilder(chStorage);
+        for (int rank = 0; rank < nodes; rank++)
+            builder.setLevel(nodeByRank[rank], rank);
+        // the CH edges for every edge of the chordal graph and direction, the shortcuts need to be added in the order
+        // of the lower node and the shortcuts they skip have been added before
+        int baseEdges = graph.getEdges();
+        int[] upEdges = new int[edges];
+        int[] downEdges = new int[edges];
+        for (int z = 0; z < nodes; z++) {
+            if ((z & CHECK_DEADLINE_MASK) == 0)
+                deadline.check();
+            for (int edge = upFirst[z]; edge < upFirst[z + 1]; edge++) {
+                int x = upHeads[edge];
+                if (Double.isInfinite(upWeights[edge]))
+                    upEdges[edge] = -1;
+                else if (upVia[edge] < 0)
+                    upEdges[edge] = upOrig[edge];
+                else {
+                    // z->via->x
+                    int via = upVia[edge];
+                    upEdges[edge] = baseEdges + builder.addShortcutNodeBased(nodeByRank[z], nodeByRank[x], PrepareEncoder.getScFwdDir(),
+                            upWeights[edge], downEdges[findEdge(via, z)], upEdges[findEdge(via, x)]);
+                }
+
+                if (Double.isInfinite(downWeights[edge]))
+                    downEdges[edge] = -1;
+                else if (downVia[edge] < 0)
+                    downEdges[edge] = downOrig[edge];
+                else {
+                    // x->via->z
+                    int via = downVia[edge];
+                    downEdges[edge] = baseEdges + builder.addShortcutNodeBased(nodeByRank[z], nodeByRank[x], PrepareEncoder.getScBwdDir(),
+                            downWeights[edge], downEdges[findEdge(via, x)], upEdges[findEdge(via, z)]);
+                }
+            }
+        }
+        return chStorage;
+    }
+
+    private int findEdge(int lowerRank, int higherRank) {
+        int edge = Arrays.binarySearch(upHeads, upFirst[lowerRank], upFirst[lowerRank + 1], higherRank);
+        if (edge < 0)
+            throw new IllegalStateException("The chordal graph has no edge " + lowerRank + "-" + higherRank);
+        return edge;
+    }
+
+    private static class CacheEntry {
+        final RoutingCHGraph chGraph;
+        final long bytes;
+
+        CacheEntry(RoutingCHGraph chGraph, long bytes) {
+            this.chGraph = chGraph;
+            this.bytes = bytes;
+        }
+    }
+}
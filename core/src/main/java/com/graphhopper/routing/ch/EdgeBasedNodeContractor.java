@@ -28,6 +28,8 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
@@ -54,7 +56,9 @@ class EdgeBasedNodeContractor implements NodeContractor {
     private PrepareGraphEdgeExplorer existingShortcutExplorer;
     private PrepareGraphOrigEdgeExplorer sourceNodeOrigInEdgeExplorer;
     private CHStorageBuilder chBuilder;
-    private final Params params = new Params();
+    private final Params params;
+    // the contractor that created this worker or null if this is not a worker
+    private final EdgeBasedNodeContractor parent;
     private final StopWatch dijkstraSW = new StopWatch();
     // temporary data used during node contraction
     private final IntSet sourceNodes = new IntHashSet(10);
@@ -85,9 +89,18 @@ class EdgeBasedNodeContractor implements NodeContractor {
     public EdgeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
         this.chBuilder = chBuilder;
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
     }
 
+    private EdgeBasedNodeContractor(EdgeBasedNodeContractor parent) {
+        this.prepareGraph = parent.prepareGraph;
+        this.params = parent.params;
+        this.parent = parent;
+        initFromGraph();
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeQuotientWeight = pMap.getFloat(EDGE_QUOTIENT_WEIGHT, params.edgeQuotientWeight);
         params.originalEdgeQuotientWeight = pMap.getFloat(ORIGINAL_EDGE_QUOTIENT_WEIGHT, params.originalEdgeQuotientWeight);
@@ -102,7 +115,8 @@ class EdgeBasedNodeContractor implements NodeContractor {
         outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
         existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
         sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
-        hierarchyDepths = new int[prepareGraph.getNodes()];
+        // workers use the hierarchy depths of their parent, which are only changed when a node is contracted
+        hierarchyDepths = parent == null ? new int[prepareGraph.getNodes()] : parent.hierarchyDepths;
         witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph);
         bridgePathFinder = new BridgePathFinder(prepareGraph);
         meanDegree = prepareGraph.getOriginalEdges() * 1.0 / prepareGraph.getNodes();
@@ -118,7 +132,7 @@ class EdgeBasedNodeContractor implements NodeContractor {
             // no shortcuts will be introduced
             return Float.NEGATIVE_INFINITY;
         stats().stopWatch.start();
-        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic), wpsStatsHeur);
+        findAndHandlePrepareShortcuts(node, this::countShortcuts, (int) (getMeanDegree() * params.maxPollFactorHeuristic), wpsStatsHeur);
         stats().stopWatch.stop();
         // the higher the priority the later (!) this node will be contracted
         float edgeQuotient = numShortcuts / (float) (prepareGraph.getDegree(node));
@@ -138,19 +152,70 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public IntContainer contractNode(int node) {
+        checkNotWorker();
         activeStats = addingStats;
         stats().stopWatch.start();
         findAndHandlePrepareShortcuts(node, this::addShortcutsToPrepareGraph, (int) (meanDegree * params.maxPollFactorContraction), wpsStatsContr);
+        IntContainer neighbors = insertShortcutsAndDisconnect(node);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    @Override
+    public NodeContractor createWorker() {
+        checkNotWorker();
+        return new EdgeBasedNodeContractor(this);
+    }
+
+    @Override
+    public Shortcuts findShortcuts(int node) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        FoundShortcuts shortcuts = new FoundShortcuts();
+        findAndHandlePrepareShortcuts(node, shortcuts::add, (int) (getMeanDegree() * params.maxPollFactorContraction), wpsStatsContr);
+        stats().stopWatch.stop();
+        return shortcuts;
+    }
+
+    @Override
+    public IntContainer contractNode(int node, Shortcuts shortcuts) {
+        checkNotWorker();
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        stats().nodes++;
+        FoundShortcuts found = (FoundShortcuts) shortcuts;
+        for (int i = 0; i < found.edgesFrom.size(); i++)
+            addShortcutsToPrepareGraph(found.edgesFrom.get(i), found.edgesTo.get(i), found.origEdgeCounts.get(i));
+        IntContainer neighbors = insertShortcutsAndDisconnect(node);
+        stats().stopWatch.stop();
+        return neighbors;
+    }
+
+    private IntContainer insertShortcutsAndDisconnect(int node) {
         insertShortcuts(node);
         IntContainer neighbors = prepareGraph.disconnect(node);
         // We maintain an approximation of the mean degree which we update after every contracted node.
         // We do it the same way as for node-based CH for now.
         meanDegree = (meanDegree * 2 + neighbors.size()) / 3;
         updateHierarchyDepthsOfNeighbors(node, neighbors);
-        stats().stopWatch.stop();
         return neighbors;
     }
 
+    private double getMeanDegree() {
+        return parent == null ? meanDegree : parent.meanDegree;
+    }
+
+    private void checkNotWorker() {
+        if (parent != null)
+            throw new IllegalStateException("Workers cannot contract nodes");
+    }
+
+    @Override
+    public void insertCoreShortcuts(int node) {
+        // PrepareContractionHierarchies rejects a core for edge-based CH
+        throw new IllegalStateException("A core is only supported for node-based CH");
+    }
+
     @Override
     public void finishContraction() {
         chBuilder.replaceSkippedEdges(prepareGraph::getShortcutForPrepareEdge);
@@ -367,7 +432,8 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
-        prepareGraph.close();
+        if (parent == null)
+            prepareGraph.close();
         inEdgeExplorer = null;
         outEdgeExplorer = null;
         existingShortcutExplorer = null;
@@ -417,6 +483,18 @@ class EdgeBasedNodeContractor implements NodeContractor {
         return wpsStatsContr.numPolls + wpsStatsHeur.numPolls;
     }
 
+    private static class FoundShortcuts implements Shortcuts {
+        final List<PrepareCHEntry> edgesFrom = new ArrayList<>();
+        final List<PrepareCHEntry> edgesTo = new ArrayList<>();
+        final IntArrayList origEdgeCounts = new IntArrayList();
+
+        void add(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
+            edgesFrom.add(edgeFrom);
+            edgesTo.add(edgeTo);
+            origEdgeCounts.add(origEdgeCount);
+        }
+    }
+
     public static class Params {
         private float edgeQuotientWeight = 100;
         private float originalEdgeQuotientWeight = 100;
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayDeque;
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.NodeAccess;
+
+import java.util.Arrays;
+
+/**
+ * Calculates a metric-independent node ordering by recursive geometric bisection. Every cell is split at the median
+ * of its longer side and the nodes that are adjacent to the other half (on the side where there are fewer of them)
+ * form the separator. The separator nodes are ordered after the nodes of both halves, which are ordered recursively.
+ * This is a simple form of nested dissection, and it works reasonably well for road networks because they are
+ * almost planar. The ordering does not depend on any weighting, so it can be used for all customizations of a
+ * {@link CustomizableCH}.
+ */
+public class NestedDissection {
+    private final BaseGraph graph;
+    private int maxCellSize = 16;
+
+    public NestedDissection(BaseGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Cells with at most this many nodes are not split any further
+     */
+    public NestedDissection setMaxCellSize(int maxCellSize) {
+        if (maxCellSize < 1)
+            throw new IllegalArgumentException("The max cell size must be positive, but was: " + maxCellSize);
+        this.maxCellSize = maxCellSize;
+        return this;
+    }
+
+    public NodeOrderingProvider calcOrder() {
+        int nodes = graph.getNodes();
+        // an adjacency array of the undirected graph without loops
+        int[] adjFirst = new int[nodes + 1];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == iter.getAdjNode())
+                continue;
+            adjFirst[iter.getBaseNode() + 1]++;
+            adjFirst[iter.getAdjNode() + 1]++;
+        }
+        for (int node = 0; node < nodes; node++)
+            adjFirst[node + 1] += adjFirst[node];
+        int[] adjNodes = new int[adjFirst[nodes]];
+        int[] next = Arrays.copyOf(adjFirst, nodes);
+        iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == iter.getAdjNode())
+                continue;
+            adjNodes[next[iter.getBaseNode()]++] = iter.getAdjNode();
+            adjNodes[next[iter.getAdjNode()]++] = iter.getBaseNode();
+        }
+
+        // the cells are ranges of the order array, every separator is moved to the end of its cell
+        int[] order = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            order[node] = node;
+        int[] cellOf = new int[nodes];
+        long[] keys = new long[nodes];
+        NodeAccess na = graph.getNodeAccess();
+        int cellCount = 0;
+        IntArrayDeque stack = new IntArrayDeque();
+        stack.addLast(0, nodes);
+        while (!stack.isEmpty()) {
+            int to = stack.removeLast();
+            int from = stack.removeLast();
+            if (to - from <= maxCellSize)
+                continue;
+
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                minLat = Math.min(minLat, na.getLat(order[i]));
+                maxLat = Math.max(maxLat, na.getLat(order[i]));
+                minLon = Math.min(minLon, na.getLon(order[i]));
+                maxLon = Math.max(maxLon, na.getLon(order[i]));
+            }
+            boolean splitByLat = maxLat - minLat > (maxLon - minLon) * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+            for (int i = from; i < to; i++) {
+                float coordinate = (float) (splitByLat ? na.getLat(order[i]) : na.getLon(order[i]));
+                keys[i] = ((long) sortableInt(coordinate) << 32) | order[i];
+            }
+            Arrays.sort(keys, from, to);
+            int mid = (from + to) >>> 1;
+            int leftCell = ++cellCount, rightCell = ++cellCount;
+            for (int i = from; i < to; i++) {
+                order[i] = (int) keys[i];
+                cellOf[order[i]] = i < mid ? leftCell : rightCell;
+            }
+
+            // the separator is the boundary of the left or the right half, whichever is smaller
+            int leftBoundary = 0, rightBoundary = 0;
+            for (int i = from; i < to; i++) {
+                if (isBoundary(order[i], cellOf, adjFirst, adjNodes, i < mid ? rightCell : leftCell)) {
+                    if (i < mid) leftBoundary++;
+                    else rightBoundary++;
+                }
+            }
+            int separatorCell = leftBoundary <= rightBoundary ? leftCell : rightCell;
+            int otherCell = separatorCell == leftCell ? rightCell : leftCell;
+            IntArrayList left = new IntArrayList(), right = new IntArrayList(), separator = new IntArrayList();
+            for (int i = from; i < to; i++) {
+                int node = order[i];
+                if (cellOf[node] == separatorCell && isBoundary(node, cellOf, adjFirst, adjNodes, otherCell))
+                    separator.add(node);
+                else if (i < mid)
+                    left.add(node);
+                else
+                    right.add(node);
+            }
+            System.arraycopy(left.buffer, 0, order, from, left.size());
+            System.arraycopy(right.buffer, 0, order, from + left.size(), right.size());
+            System.arraycopy(separator.buffer, 0, order, from + left.size() + right.size(), separator.size());
+            stack.addLast(from, from + left.size());
+            stack.addLast(from + left.size(), from + left.size() + right.size());
+        }
+        return NodeOrderingProvider.fromArray(order);
+    }
+
+    private static boolean isBoundary(int node, int[] cellOf, int[] adjFirst, int[] adjNodes, int otherCell) {
+        for (int i = adjFirst[node]; i < adjFirst[node + 1]; i++)
+            if (cellOf[adjNodes[i]] == otherCell)
+                return true;
+        return false;
+    }
+
+    /**
+     * @return an int that has the same order as the given float, also for negative values
+     */
+    private static int sortableInt(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+    }
+}
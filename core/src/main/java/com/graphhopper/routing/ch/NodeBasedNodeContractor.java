@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.graphhopper.storage.CHStorageBuilder;
 import com.graphhopper.util.PMap;
@@ -31,7 +33,9 @@ import static com.graphhopper.util.Helper.nf;
 
 class NodeBasedNodeContractor implements NodeContractor {
     private final CHPreparationGraph prepareGraph;
-    private final Params params = new Params();
+    private final Params params;
+    // the contractor that created this worker or null if this is not a worker
+    private final NodeBasedNodeContractor parent;
     // todo: maybe use a set to prevent duplicates instead?
     private List<Shortcut> shortcuts = new ArrayList<>();
     private CHStorageBuilder chBuilder;
@@ -51,10 +55,19 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, CHStorageBuilder chBuilder, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
         this.chBuilder = chBuilder;
     }
 
+    private NodeBasedNodeContractor(NodeBasedNodeContractor parent) {
+        this.prepareGraph = parent.prepareGraph;
+        this.params = parent.params;
+        this.parent = parent;
+        initFromGraph();
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
@@ -73,7 +86,8 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
-        prepareGraph.close();
+        if (parent == null)
+            prepareGraph.close();
         shortcuts = null;
         chBuilder = null;
         inEdgeExplorer = null;
@@ -97,7 +111,7 @@ class NodeBasedNodeContractor implements NodeContractor {
         // originalEdgesCount = σ(v) := sum_{ (u,w) ∈ shortcuts(v) } of r(u, w)
         shortcutsCount = 0;
         originalEdgesCount = 0;
-        findAndHandleShortcuts(node, this::countShortcuts, (int) (meanDegree * params.maxPollFactorHeuristic));
+        findAndHandleShortcuts(node, this::countShortcuts, (int) (getMeanDegree() * params.maxPollFactorHeuristic));
 
         // from shortcuts we can compute the edgeDifference
         // # low influence: with it the shortcut creation is slightly faster
@@ -116,25 +130,70 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     @Override
     public IntContainer contractNode(int node) {
+        checkNotWorker();
         long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut, (int) (meanDegree * params.maxPollFactorContraction));
-        insertShortcuts(node);
+        insertShortcuts(node, false);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
         return prepareGraph.disconnect(node);
     }
 
+    @Override
+    public NodeContractor createWorker() {
+        checkNotWorker();
+        return new NodeBasedNodeContractor(this);
+    }
+
+    @Override
+    public Shortcuts findShortcuts(int node) {
+        FoundShortcuts shortcuts = new FoundShortcuts();
+        shortcuts.degree = findAndHandleShortcuts(node, shortcuts::add, (int) (getMeanDegree() * params.maxPollFactorContraction));
+        return shortcuts;
+    }
+
+    @Override
+    public IntContainer contractNode(int node, Shortcuts shortcuts) {
+        checkNotWorker();
+        FoundShortcuts found = (FoundShortcuts) shortcuts;
+        for (int i = 0; i < found.weights.size(); i++) {
+            int[] e = found.edges.buffer;
+            int j = 6 * i;
+            addOrUpdateShortcut(e[j], e[j + 1], found.weights.get(i), e[j + 2], e[j + 3], e[j + 4], e[j + 5]);
+        }
+        insertShortcuts(node, false);
+        meanDegree = (meanDegree * 2 + found.degree) / 3;
+        return prepareGraph.disconnect(node);
+    }
+
+    @Override
+    public void insertCoreShortcuts(int node) {
+        checkNotWorker();
+        insertShortcuts(node, true);
+    }
+
+    private double getMeanDegree() {
+        return parent == null ? meanDegree : parent.meanDegree;
+    }
+
+    private void checkNotWorker() {
+        if (parent != null)
+            throw new IllegalStateException("Workers cannot contract nodes");
+    }
+
     /**
      * Calls the shortcut handler for all edges and shortcuts adjacent to the given node. After this method is called
      * these edges and shortcuts will be removed from the prepare graph, so this method offers the last chance to deal
      * with them.
      */
-    private void insertShortcuts(int node) {
+    private void insertShortcuts(int node, boolean core) {
         shortcuts.clear();
         insertOutShortcuts(node);
         insertInShortcuts(node);
         int origEdges = prepareGraph.getOriginalEdges();
         for (Shortcut sc : shortcuts) {
-            int shortcut = chBuilder.addShortcutNodeBased(sc.from, sc.to, sc.flags, sc.weight, sc.skippedEdge1, sc.skippedEdge2);
+            int shortcut = core
+                    ? chBuilder.addCoreShortcutNodeBased(sc.from, sc.to, sc.flags, sc.weight, sc.skippedEdge1, sc.skippedEdge2)
+                    : chBuilder.addShortcutNodeBased(sc.from, sc.to, sc.flags, sc.weight, sc.skippedEdge1, sc.skippedEdge2);
             if (sc.flags == PrepareEncoder.getScFwdDir()) {
                 prepareGraph.setShortcutForPrepareEdge(sc.prepareEdgeFwd, origEdges + shortcut);
             } else if (sc.flags == PrepareEncoder.getScBwdDir()) {
@@ -310,6 +369,18 @@ class NodeBasedNodeContractor implements NodeContractor {
         private double maxPollFactorContraction = 200;
     }
 
+    private static class FoundShortcuts implements Shortcuts {
+        // fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount for every shortcut
+        final IntArrayList edges = new IntArrayList();
+        final DoubleArrayList weights = new DoubleArrayList();
+        long degree;
+
+        void add(int fromNode, int toNode, double weight, int outgoingEdge, int outOrigEdgeCount, int incomingEdge, int inOrigEdgeCount) {
+            edges.add(fromNode, toNode, outgoingEdge, outOrigEdgeCount, incomingEdge, inOrigEdgeCount);
+            weights.add(weight);
+        }
+    }
+
     private static class Shortcut {
         int prepareEdgeFwd;
         int prepareEdgeBwd;
@@ -37,6 +37,35 @@ public interface NodeContractor {
      */
     IntContainer contractNode(int node);
 
+    /**
+     * Creates another contractor for the same graph that uses its own explorers, witness path searchers and temporary
+     * data. Workers can run {@link #calculatePriority} and {@link #findShortcuts} on different threads, as long as the
+     * graph is not changed at the same time. They use the current state of this contractor, like the mean degree,
+     * and must never contract nodes themselves.
+     */
+    NodeContractor createWorker();
+
+    /**
+     * Searches the shortcuts that are required to contract the given node without changing the graph.
+     *
+     * @see #contractNode(int, Shortcuts)
+     */
+    Shortcuts findShortcuts(int node);
+
+    /**
+     * Contracts the given node like {@link #contractNode(int)}, but uses the shortcuts that were found using
+     * {@link #findShortcuts} (of this contractor or one of its workers). The shortcuts are still valid if only
+     * nodes that are not adjacent to the given node were contracted in the meantime.
+     */
+    IntContainer contractNode(int node, Shortcuts shortcuts);
+
+    /**
+     * Adds the remaining shortcuts of the given node, which is not contracted, because it belongs to the core. Unlike
+     * {@link #contractNode(int)} this does not remove the node from the graph, so the shortcuts between two core
+     * nodes are added for both of them.
+     */
+    void insertCoreShortcuts(int node);
+
     void finishContraction();
 
     long getAddedShortcutsCount();
@@ -45,4 +74,10 @@ public interface NodeContractor {
 
     float getDijkstraSeconds();
 
+    /**
+     * The shortcuts found by {@link #findShortcuts}, their representation depends on the contractor.
+     */
+    interface Shortcuts {
+    }
+
 }
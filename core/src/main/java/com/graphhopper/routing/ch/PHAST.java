@@ -0,0 +1,264 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates the weights from (or to) one node to (or from) all other nodes of a node-based {@link RoutingCHGraph},
+ * see "PHAST: Hardware-Accelerated Shortest Path Trees" by Delling et al. First a Dijkstra search that only goes
+ * upwards in the hierarchy is run from the source node. Then all nodes are scanned once in descending level order
+ * and every node pulls its weight from its incoming edges that come from higher level nodes. Since there is no
+ * priority queue involved in the second phase this is much faster than a plain Dijkstra search over the whole graph,
+ * which makes it useful for isochrones, shortest path trees and large one-to-many reachability queries.
+ * <p>
+ * The sweep order only depends on the CH preparation, so it should be created once via
+ * {@link #createSweepOrder(RoutingCHGraph)} and then be reused for all searches. The graph can also be a
+ * {@link com.graphhopper.routing.querygraph.QueryRoutingCHGraph}, but only the source node may be a virtual node.
+ * An instance can be used for a single search only, but the arrays of the search can be reused via a
+ * {@link Workspace}, see {@link PHASTData}.
+ */
+public class PHAST {
+    private final RoutingCHGraph graph;
+    private final int[] sweepOrder;
+    private final int maxNodes;
+    private final double[] weights;
+    private final int[] parentEdges;
+    // the nodes whose weight was found by the downward sweep rather than by the upward search
+    private final BitSet sweepNodes;
+    // the nodes settled by the upward search in the order they were settled
+    private final IntArrayList upwardNodes = new IntArrayList();
+    private double weightLimit = Double.MAX_VALUE;
+    private int visitedNodes;
+    private boolean alreadyRun;
+    private boolean reverse;
+
+    public PHAST(RoutingCHGraph graph, int[] sweepOrder) {
+        this(graph, sweepOrder, new Workspace());
+    }
+
+    /**
+     * @param workspace the arrays of the search, which must not be used by another search at the same time
+     */
+    public PHAST(RoutingCHGraph graph, int[] sweepOrder, Workspace workspace) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("PHAST only works for node-based CH graphs");
+        this.graph = graph;
+        this.sweepOrder = sweepOrder;
+        this.maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        if (sweepOrder.length != maxNodes)
+            throw new IllegalArgumentException("The sweep order does not match the graph, nodes: " + sweepOrder.length + " vs. " + maxNodes);
+        workspace.init(graph.getNodes());
+        weights = workspace.weights;
+        parentEdges = workspace.parentEdges;
+        sweepNodes = workspace.sweepNodes;
+    }
+
+    /**
+     * @return all nodes of the given CH graph sorted by descending level
+     */
+    public static int[] createSweepOrder(RoutingCHGraph chGraph) {
+        int nodes = chGraph.getNodes();
+        // the levels are the contraction order, except for the nodes that were not contracted which all have the
+        // maximum level. so a counting sort is sufficient.
+        int[] counts = new int[nodes + 1];
+        for (int node = 0; node < nodes; node++)
+            counts[Math.min(chGraph.getLevel(node), nodes)]++;
+        int start = 0;
+        for (int level = nodes; level >= 0; level--) {
+            int count = counts[level];
+            counts[level] = start;
+            start += count;
+        }
+        int[] sweepOrder = new int[nodes];
+        for (int node = 0; node < nodes; node++)
+            sweepOrder[counts[Math.min(chGraph.getLevel(node), nodes)]++] = node;
+        return sweepOrder;
+    }
+
+    /**
+     * Nodes with a weight larger than the given limit are not reached by the search. This makes the upward search and
+     * the sweep cheaper, but all nodes are scanned nevertheless.
+     */
+    public PHAST setWeightLimit(double weightLimit) {
+        this.weightLimit = weightLimit;
+        return this;
+    }
+
+    /**
+     * @param reverse if true the weights from all nodes to the given source are calculated
+     */
+    public void search(int source, boolean reverse) {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per search");
+        alreadyRun = true;
+        this.reverse = reverse;
+        runUpwardSearch(source);
+        runDownwardSweep();
+    }
+
+    private void runUpwardSearch(int source) {
+        RoutingCHEdgeExplorer explorer = reverse ? graph.createInEdgeExplorer() : graph.createOutEdgeExplorer();
+        IntFloatBinaryHeap heap = new IntFloatBinaryHeap(1000);
+        BitSet settled = new BitSet();
+        weights[source] = 0;
+        heap.insert(0, source);
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            // the heap might contain outdated entries of already settled nodes
+            if (settled.get(node))
+                continue;
+            settled.set(node);
+            upwardNodes.add(node);
+            visitedNodes++;
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (iter.getEdge() == parentEdges[node] || !isUpward(iter))
+                    continue;
+                double weight = weights[node] + iter.getWeight(reverse);
+                int adjNode = iter.getAdjNode();
+                if (weight > weightLimit || weight >= weights[adjNode] || settled.get(adjNode))
+                    continue;
+                weights[adjNode] = weight;
+                parentEdges[adjNode] = iter.getEdge();
+                heap.insert(weight, adjNode);
+            }
+        }
+    }
+
+    private void runDownwardSweep() {
+        // for the forward search we need the edges pointing to every node, for the backward search the other way round
+        RoutingCHEdgeExplorer explorer = reverse ? graph.createOutEdgeExplorer() : graph.createInEdgeExplorer();
+        for (int node : sweepOrder) {
+            int level = graph.getLevel(node);
+            double weight = weights[node];
+            int parentEdge = NO_EDGE;
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                // we only pull from nodes with a higher level, which all have been finished already. virtual
+                // nodes are ignored here, see the class comment.
+                if (adjNode >= maxNodes || graph.getLevel(adjNode) <= level || Double.isInfinite(weights[adjNode]))
+                    continue;
+                double adjWeight = weights[adjNode] + iter.getWeight(!reverse);
+                if (adjWeight < weight && adjWeight <= weightLimit) {
+                    weight = adjWeight;
+                    parentEdge = iter.getEdge();
+                }
+            }
+            if (parentEdge != NO_EDGE) {
+                weights[node] = weight;
+                parentEdges[node] = parentEdge;
+                sweepNodes.set(node);
+            }
+            visitedNodes++;
+        }
+    }
+
+    private boolean isUpward(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in the wrong direction are disconnected anyway
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    public boolean isReached(int node) {
+        return !Double.isInfinite(weights[node]);
+    }
+
+    /**
+     * @return the weight from the source to the given node (or from the given node to the source for the reverse
+     * search), or infinity if the node cannot be reached
+     */
+    public double getWeight(int node) {
+        return weights[node];
+    }
+
+    /**
+     * @return the CH edge that was used to reach the given node, or {@link com.graphhopper.util.EdgeIterator#NO_EDGE}
+     * for the source node and nodes that cannot be reached. The other node of this edge, i.e.
+     * {@code graph.getEdgeIteratorState(edge, node).getBaseNode()}, is the parent of the node in the shortest path tree.
+     */
+    public int getParentEdge(int node) {
+        return parentEdges[node];
+    }
+
+    /**
+     * Calls the given consumer for every reached node such that the parent of every node is visited before the
+     * node itself.
+     */
+    public void forEachReachedNode(IntConsumer consumer) {
+        if (!alreadyRun)
+            throw new IllegalStateException("Call search first");
+        // the parents of the nodes that were settled by the upward search were settled before them, and the parents
+        // of the nodes that were reached by the sweep have a higher level
+        for (int i = 0; i < upwardNodes.size(); i++) {
+            int node = upwardNodes.get(i);
+            if (!sweepNodes.get(node))
+                consumer.accept(node);
+        }
+        for (int node : sweepOrder) {
+            if (sweepNodes.get(node))
+                consumer.accept(node);
+        }
+    }
+
+    public String getName() {
+        return "phast";
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * The arrays of a search. They are allocated for the whole graph, so reusing them avoids allocating them again
+     * for every search.
+     */
+    public static final class Workspace {
+        private double[] weights = new double[0];
+        private int[] parentEdges = new int[0];
+        private final BitSet sweepNodes = new BitSet();
+
+        private void init(int nodes) {
+            if (weights.length < nodes) {
+                weights = new double[nodes];
+                parentEdges = new int[nodes];
+            }
+            Arrays.fill(weights, Double.POSITIVE_INFINITY);
+            Arrays.fill(parentEdges, NO_EDGE);
+            sweepNodes.clear();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.ArrayDeque;
+
+/**
+ * The data that all {@link PHAST} searches on one node-based CH preparation share: the sweep order, the maximum
+ * weight per time and distance of the edges, which turn a time or distance limit into a weight limit, and the arrays
+ * of finished searches, which are reused by the next searches.
+ */
+public class PHASTData {
+    // the shortcut weights are rounded, so we add some slack to the weight limits
+    private static final double WEIGHT_LIMIT_FACTOR = 1.01;
+    private final int[] sweepOrder;
+    private final double maxWeightPerMillis;
+    private final double maxWeightPerMeter;
+    private final int maxIdleWorkspaces;
+    private final ArrayDeque<PHAST.Workspace> idleWorkspaces = new ArrayDeque<>();
+
+    private PHASTData(int[] sweepOrder, double maxWeightPerMillis, double maxWeightPerMeter, int maxIdleWorkspaces) {
+        this.sweepOrder = sweepOrder;
+        this.maxWeightPerMillis = maxWeightPerMillis;
+        this.maxWeightPerMeter = maxWeightPerMeter;
+        this.maxIdleWorkspaces = maxIdleWorkspaces;
+    }
+
+    /**
+     * Creates the sweep order and scans all edges of the base graph once.
+     *
+     * @param maxIdleWorkspaces the maximum number of arrays kept for the next searches, every one of them takes
+     *                          about 12 bytes per node
+     */
+    public static PHASTData create(RoutingCHGraph chGraph, int maxIdleWorkspaces) {
+        Weighting weighting = chGraph.getWeighting();
+        double maxWeightPerMillis = 0;
+        double maxWeightPerMeter = 0;
+        AllEdgesIterator iter = chGraph.getBaseGraph().getAllEdges();
+        while (iter.next()) {
+            for (boolean reverse : new boolean[]{false, true}) {
+                double weight = weighting.calcEdgeWeight(iter, reverse);
+                if (Double.isInfinite(weight) || weight <= 0)
+                    continue;
+                long millis = weighting.calcEdgeMillis(iter, reverse);
+                maxWeightPerMillis = Math.max(maxWeightPerMillis, millis > 0 ? weight / millis : Double.POSITIVE_INFINITY);
+                maxWeightPerMeter = Math.max(maxWeightPerMeter, iter.getDistance() > 0 ? weight / iter.getDistance() : Double.POSITIVE_INFINITY);
+            }
+        }
+        return new PHASTData(PHAST.createSweepOrder(chGraph), maxWeightPerMillis, maxWeightPerMeter, maxIdleWorkspaces);
+    }
+
+    public int[] getSweepOrder() {
+        return sweepOrder;
+    }
+
+    /**
+     * @return a weight limit such that all nodes that can be reached within the given time are within the weight
+     * limit as well, or infinity if there is no such limit
+     */
+    public double getWeightLimitForTime(double millis) {
+        return maxWeightPerMillis * millis * WEIGHT_LIMIT_FACTOR;
+    }
+
+    /**
+     * @see #getWeightLimitForTime(double)
+     */
+    public double getWeightLimitForDistance(double meters) {
+        return maxWeightPerMeter * meters * WEIGHT_LIMIT_FACTOR;
+    }
+
+    /**
+     * @return the arrays of a finished search or new ones. Return them via {@link #release} when the search is done.
+     */
+    public synchronized PHAST.Workspace acquire() {
+        PHAST.Workspace workspace = idleWorkspaces.poll();
+        return workspace == null ? new PHAST.Workspace() : workspace;
+    }
+
+    public synchronized void release(PHAST.Workspace workspace) {
+        if (idleWorkspaces.size() < maxIdleWorkspaces)
+            idleWorkspaces.push(workspace);
+    }
+}
@@ -17,9 +17,13 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.Helper;
@@ -28,8 +32,12 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.*;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -62,11 +70,17 @@ public class PrepareContractionHierarchies {
     private final Params params;
     private final BaseGraph graph;
     private NodeContractor nodeContractor;
+    private CHPreparationGraph prepareGraph;
+    // only used for parallel contraction
+    private BlockingQueue<NodeContractor> workers;
+    private ExecutorService executor;
     private final int nodes;
     private NodeOrderingProvider nodeOrderingProvider;
     private int maxLevel;
     // nodes with highest priority come last
     private MinHeapWithUpdate sortedNodes;
+    // the nodes adjacent to core edges, they are never contracted. null if there is no core
+    private BitSet coreNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
     private boolean prepared = false;
@@ -89,6 +103,8 @@ public class PrepareContractionHierarchies {
             if (turnCostStorage == null) {
                 throw new IllegalArgumentException("For edge-based CH you need a turn cost storage");
             }
+            if (chConfig.hasCore())
+                throw new IllegalArgumentException("A core is only supported for node-based CH");
         }
     }
 
@@ -100,6 +116,8 @@ public class PrepareContractionHierarchies {
         params.setMaxNeighborUpdates(pMap.getInt(NEIGHBOR_UPDATES_MAX, params.getMaxNeighborUpdates()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setContractionThreads(pMap.getInt(CONTRACTION_THREADS, params.getContractionThreads()));
+        chStore.setSplitLayout(pMap.getBool(SPLIT_SHORTCUTS, chStore.isSplitLayout()));
         return this;
     }
 
@@ -159,6 +177,8 @@ public class PrepareContractionHierarchies {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (params.getContractionThreads() > 1) {
+            contractNodesInParallel();
         } else {
             contractNodesUsingHeuristicNodeOrdering();
         }
@@ -173,7 +193,6 @@ public class PrepareContractionHierarchies {
         // not simply prepare contraction hierarchies, but instead it also serves as some kind of 'container' to give
         // access to the preparations in the GraphHopper class. If this was not so we could make this a lot cleaner here,
         // declare variables final and would not need all these close() methods...
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = graph.getTurnCostStorage();
             if (turnCostStorage == null) {
@@ -195,11 +214,36 @@ public class PrepareContractionHierarchies {
         sortedNodes = new MinHeapWithUpdate(prepareGraph.getNodes());
         logger.info("Building CH prepare graph, {}", getMemInfo());
         StopWatch sw = new StopWatch().start();
-        CHPreparationGraph.buildFromGraph(prepareGraph, graph, chConfig.getWeighting());
+        if (chConfig.hasCore()) {
+            findCoreNodes();
+            // the core edges are not needed for the contraction, and they must not be used for witness paths, because
+            // their weights can change per request
+            EdgeFilter coreEdgeFilter = chConfig.getCoreEdgeFilter();
+            CHPreparationGraph.buildFromGraph(prepareGraph, graph, chConfig.getWeighting(), edge -> !coreEdgeFilter.accept(edge));
+        } else {
+            CHPreparationGraph.buildFromGraph(prepareGraph, graph, chConfig.getWeighting());
+        }
         logger.info("Finished building CH prepare graph, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
         nodeContractor.initFromGraph();
     }
 
+    private void findCoreNodes() {
+        coreNodes = new BitSet(nodes);
+        EdgeFilter coreEdgeFilter = chConfig.getCoreEdgeFilter();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (coreEdgeFilter.accept(iter)) {
+                coreNodes.set(iter.getBaseNode());
+                coreNodes.set(iter.getAdjNode());
+            }
+        }
+        logger.info("Found {} core nodes", nf(coreNodes.cardinality()));
+    }
+
+    private boolean isCore(int node) {
+        return coreNodes != null && coreNodes.get(node);
+    }
+
     private void setMaxLevelOnAllNodes() {
         chBuilder.setLevelForAllNodes(maxLevel);
     }
@@ -208,7 +252,7 @@ public class PrepareContractionHierarchies {
         periodicUpdateSW.start();
         sortedNodes.clear();
         for (int node = 0; node < nodes; node++) {
-            if (isContracted(node))
+            if (isContracted(node) || isCore(node))
                 continue;
             float priority = calculatePriority(node);
             sortedNodes.push(node, priority);
@@ -263,7 +307,7 @@ public class PrepareContractionHierarchies {
             }
 
             if (checkCounter % logSize == 0) {
-                logHeuristicStats(updateCounter);
+                logHeuristicStats(sortedNodes.size(), updateCounter);
             }
 
             checkCounter++;
@@ -292,7 +336,7 @@ public class PrepareContractionHierarchies {
             int neighborCount = 0;
             // there might be multiple edges going to the same neighbor nodes -> only calculate priority once per node
             for (IntCursor neighbor : neighbors) {
-                if (neighborUpdate && (params.getMaxNeighborUpdates() < 0 || neighborCount < params.getMaxNeighborUpdates()) && rand.nextInt(100) < params.getNeighborUpdatePercentage()) {
+                if (!isCore(neighbor.value) && neighborUpdate && (params.getMaxNeighborUpdates() < 0 || neighborCount < params.getMaxNeighborUpdates()) && rand.nextInt(100) < params.getNeighborUpdatePercentage()) {
                     neighborCount++;
                     neighborUpdateSW.start();
                     float priority = calculatePriority(neighbor.value);
@@ -302,9 +346,11 @@ public class PrepareContractionHierarchies {
             }
         }
 
+        if (chConfig.hasCore())
+            prepareCore();
         nodeContractor.finishContraction();
 
-        logHeuristicStats(updateCounter);
+        logHeuristicStats(sortedNodes.size(), updateCounter);
 
         logger.info(
                 "new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
@@ -322,24 +368,225 @@ public class PrepareContractionHierarchies {
         _close();
     }
 
+    /**
+     * Contracts the nodes in rounds using multiple threads. In every round we select the nodes that have a lower
+     * priority than all their neighbors. No two of these nodes are adjacent, so the shortcuts required for each of
+     * them can be searched in parallel while the graph does not change. Then the shortcuts are added and the nodes are
+     * disconnected one after the other, and finally the priorities of (some of) their neighbors are updated in
+     * parallel. The work is split into fixed chunks and the results are always applied in the same order, so the
+     * resulting hierarchy does not depend on the thread scheduling or the number of threads. Periodic and lazy
+     * updates are not used in this mode.
+     */
+    private void contractNodesInParallel() {
+        final int threads = params.getContractionThreads();
+        executor = Executors.newFixedThreadPool(threads);
+        workers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++)
+            workers.add(nodeContractor.createWorker());
+        try {
+            StopWatch sw = new StopWatch().start();
+            logger.info("Building initial queue of nodes to be contracted: {} nodes, {} threads, {}", nodes, threads, getMemInfo());
+            final float[] priorities = new float[nodes];
+            IntArrayList remainingNodes = new IntArrayList(nodes);
+            for (int node = 0; node < nodes; node++) {
+                if (isCore(node))
+                    // core nodes are never contracted, so they must not prevent their neighbors from being contracted
+                    priorities[node] = Float.POSITIVE_INFINITY;
+                else
+                    remainingNodes.add(node);
+            }
+            periodicUpdateSW.start();
+            final IntArrayList initialNodes = remainingNodes;
+            runInParallel(initialNodes.size(), (worker, i) -> priorities[initialNodes.get(i)] = worker.calculatePriority(initialNodes.get(i)));
+            periodicUpdateSW.stop();
+            logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, nodes * (params.getLogMessagesPercentage() / 100d)));
+            final long nodesToAvoidContract = Math.round(initialNodes.size() * ((100 - params.getNodesContractedPercentage()) / 100d));
+            final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
+            final boolean[] updateNeighbor = new boolean[nodes];
+            final PrepareGraphEdgeExplorer outExplorer = prepareGraph.createOutEdgeExplorer();
+            final PrepareGraphEdgeExplorer inExplorer = prepareGraph.createInEdgeExplorer();
+            int level = 0;
+            int rounds = 0;
+            long nextLog = 0;
+            checkCounter = 0;
+            while (!remainingNodes.isEmpty() && remainingNodes.size() > nodesToAvoidContract) {
+                stopIfInterrupted();
+                if (checkCounter >= nextLog) {
+                    logHeuristicStats(remainingNodes.size(), rounds);
+                    nextLog += logSize;
+                }
+                contractionSW.start();
+                final IntArrayList independentNodes = findIndependentNodes(remainingNodes, priorities, outExplorer, inExplorer,
+                        (int) (remainingNodes.size() - nodesToAvoidContract));
+                final NodeContractor.Shortcuts[] shortcuts = new NodeContractor.Shortcuts[independentNodes.size()];
+                runInParallel(independentNodes.size(), (worker, i) -> shortcuts[i] = worker.findShortcuts(independentNodes.get(i)));
+                final IntArrayList updates = new IntArrayList();
+                for (int i = 0; i < independentNodes.size(); i++) {
+                    int node = independentNodes.get(i);
+                    chBuilder.setLevel(node, level++);
+                    IntContainer neighbors = nodeContractor.contractNode(node, shortcuts[i]);
+                    shortcuts[i] = null;
+                    int neighborCount = 0;
+                    for (IntCursor neighbor : neighbors) {
+                        if (!isCore(neighbor.value) && neighborUpdate && (params.getMaxNeighborUpdates() < 0 || neighborCount < params.getMaxNeighborUpdates()) && rand.nextInt(100) < params.getNeighborUpdatePercentage()) {
+                            neighborCount++;
+                            if (!updateNeighbor[neighbor.value]) {
+                                updateNeighbor[neighbor.value] = true;
+                                updates.add(neighbor.value);
+                            }
+                        }
+                    }
+                }
+                contractionSW.stop();
+                checkCounter += independentNodes.size();
+                rounds++;
+
+                IntArrayList uncontracted = new IntArrayList(remainingNodes.size() - independentNodes.size());
+                for (IntCursor node : remainingNodes)
+                    if (!isContracted(node.value))
+                        uncontracted.add(node.value);
+                remainingNodes = uncontracted;
+
+                neighborUpdateSW.start();
+                runInParallel(updates.size(), (worker, i) -> priorities[updates.get(i)] = worker.calculatePriority(updates.get(i)));
+                for (IntCursor node : updates)
+                    updateNeighbor[node.value] = false;
+                neighborUpdateSW.stop();
+            }
+            if (chConfig.hasCore())
+                prepareCore();
+            nodeContractor.finishContraction();
+            logHeuristicStats(remainingNodes.size(), rounds);
+            logger.info("new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                    + ", " + chConfig.getWeighting()
+                    + ", threads: " + threads
+                    + ", rounds: " + rounds
+                    + ", neighbor:" + params.getNeighborUpdatePercentage()
+                    + ", " + getTimesAsString()
+                    + ", " + Helper.getMemInfo());
+        } finally {
+            executor.shutdownNow();
+        }
+        _close();
+    }
+
+    /**
+     * @return the nodes whose priority is lower than the priorities of all their neighbors (ties are broken using the
+     * node ids), sorted by priority. At most maxNodes nodes with the lowest priorities are returned.
+     */
+    private IntArrayList findIndependentNodes(IntArrayList remainingNodes, float[] priorities,
+                                              PrepareGraphEdgeExplorer outExplorer, PrepareGraphEdgeExplorer inExplorer, int maxNodes) {
+        IntArrayList result = new IntArrayList();
+        for (IntCursor c : remainingNodes) {
+            if (isLocalMinimum(c.value, priorities, outExplorer) && isLocalMinimum(c.value, priorities, inExplorer))
+                result.add(c.value);
+        }
+        int[] order = IndirectSort.mergesort(0, result.size(), (a, b) -> compareNodes(result.get(a), result.get(b), priorities));
+        IntArrayList sorted = new IntArrayList(Math.min(maxNodes, order.length));
+        for (int i = 0; i < order.length && i < maxNodes; i++)
+            sorted.add(result.get(order[i]));
+        return sorted;
+    }
+
+    private boolean isLocalMinimum(int node, float[] priorities, PrepareGraphEdgeExplorer explorer) {
+        PrepareGraphEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            if (iter.getAdjNode() != node && compareNodes(iter.getAdjNode(), node, priorities) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static int compareNodes(int a, int b, float[] priorities) {
+        int result = Float.compare(priorities[a], priorities[b]);
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    /**
+     * Runs the given task for all indices in [0, size). The indices are split into chunks and each chunk is processed
+     * by a single worker, so the workers do not need to be thread-safe.
+     */
+    private void runInParallel(int size, WorkerTask task) {
+        if (size == 0)
+            return;
+        int chunks = Math.min(size, 8 * params.getContractionThreads());
+        List<Callable<Object>> callables = new ArrayList<>(chunks);
+        for (int c = 0; c < chunks; c++) {
+            final int from = (int) ((long) size * c / chunks);
+            final int to = (int) ((long) size * (c + 1) / chunks);
+            callables.add(() -> {
+                NodeContractor worker = workers.take();
+                try {
+                    for (int i = from; i < to; i++)
+                        task.run(worker, i);
+                } finally {
+                    workers.add(worker);
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Object> future : executor.invokeAll(callables))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    private interface WorkerTask {
+        void run(NodeContractor worker, int index);
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
         final int logSize = Math.max(10, (int) (params.getLogMessagesPercentage() / 100.0 * nodesToContract));
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
+        int level = 0;
         for (int i = 0; i < nodesToContract; ++i) {
             stopIfInterrupted();
             int node = nodeOrderingProvider.getNodeIdForLevel(i);
-            contractNode(node, i);
+            if (isCore(node))
+                continue;
+            contractNode(node, level++);
             if (i % logSize == 0) {
                 stopWatch.stop();
                 logFixedNodeOrderingStats(i, logSize, stopWatch);
                 stopWatch.start();
             }
         }
+        if (chConfig.hasCore())
+            prepareCore();
         nodeContractor.finishContraction();
     }
 
+    /**
+     * Assigns the highest levels to the nodes that were not contracted and adds the shortcuts between them. These
+     * shortcuts are added for both of their nodes, so the core can be searched without the level restriction.
+     */
+    private void prepareCore() {
+        IntArrayList core = new IntArrayList();
+        for (int node = 0; node < nodes; node++)
+            if (!isContracted(node))
+                core.add(node);
+        int level = nodes - core.size();
+        for (IntCursor node : core)
+            chBuilder.setLevel(node.value, level++);
+        long shortcutsBefore = nodeContractor.getAddedShortcutsCount();
+        for (IntCursor node : core)
+            nodeContractor.insertCoreShortcuts(node.value);
+        chStore.setCoreNodes(core.size());
+        logger.info("core nodes: {}, core shortcuts: {}", nf(core.size()), nf(nodeContractor.getAddedShortcutsCount() - shortcutsBefore));
+    }
+
     private void stopIfInterrupted() {
         if (Thread.currentThread().isInterrupted()) {
             throw new RuntimeException("Thread was interrupted");
@@ -360,11 +607,11 @@ public class PrepareContractionHierarchies {
         return chStore.getLevel(chStore.toNodePointer(node)) != maxLevel;
     }
 
-    private void logHeuristicStats(int updateCounter) {
+    private void logHeuristicStats(int remainingNodes, int updateCounter) {
         logger.info(String.format(Locale.ROOT,
                 "%s, nodes: %10s, shortcuts: %10s, updates: %2d, checked-nodes: %10s, %s, %s, %s",
                 (isEdgeBased() ? "edge" : "node"),
-                nf(sortedNodes.size()),
+                nf(remainingNodes),
                 nf(nodeContractor.getAddedShortcutsCount()),
                 updateCounter,
                 nf(checkCounter),
@@ -420,7 +667,13 @@ public class PrepareContractionHierarchies {
     }
 
     private void _close() {
+        if (workers != null) {
+            for (NodeContractor worker : workers)
+                worker.close();
+            workers = null;
+        }
         nodeContractor.close();
+        prepareGraph = null;
         sortedNodes = null;
     }
 
@@ -520,6 +773,12 @@ public class PrepareContractionHierarchies {
          * @see #periodicUpdatesPercentage
          */
         private int logMessagesPercentage;
+        /**
+         * Specifies the number of threads used to contract the nodes of this preparation. With more than one thread
+         * independent sets of nodes are contracted in parallel, which yields a different (but also deterministic)
+         * hierarchy than the sequential contraction. This does not apply to a fixed node ordering.
+         */
+        private int contractionThreads = 1;
 
         static Params forTraversalMode(TraversalMode traversalMode) {
             // Lower values for the neighbor update percentage (and/or max neighbor updates) yield a slower
@@ -594,6 +853,16 @@ public class PrepareContractionHierarchies {
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        int getContractionThreads() {
+            return contractionThreads;
+        }
+
+        void setContractionThreads(int contractionThreads) {
+            if (contractionThreads < 1)
+                throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1");
+            this.contractionThreads = contractionThreads;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
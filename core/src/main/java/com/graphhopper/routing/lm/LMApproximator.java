@@ -41,6 +41,8 @@ public class LMApproximator implements WeightApproximator {
     private final int[] activeLandmarkIndices;
     private final int[] weightsFromActiveLandmarksToT;
     private final int[] weightsFromTToActiveLandmarks;
+    // the packed weights of all landmarks for the node that is currently approximated
+    private final int[] landmarkWeights;
     private double epsilon = 1;
     private int towerNodeNextToT = -1;
     private double weightFromTToTowerNode;
@@ -74,6 +76,7 @@ public class LMApproximator implements WeightApproximator {
         Arrays.fill(activeLandmarkIndices, -1);
         weightsFromActiveLandmarksToT = new int[activeCount];
         weightsFromTToActiveLandmarks = new int[activeCount];
+        landmarkWeights = new int[lms.getLandmarkCount()];
 
         this.graph = graph;
         this.lmWeighting = lmWeighting;
@@ -109,9 +112,10 @@ public class LMApproximator implements WeightApproximator {
         if (recalculateActiveLandmarks) {
             recalculateActiveLandmarks = false;
             if (lms.chooseActiveLandmarks(v, towerNodeNextToT, activeLandmarkIndices, reverse)) {
+                lms.readWeights(towerNodeNextToT, landmarkWeights);
                 for (int i = 0; i < activeLandmarkIndices.length; i++) {
-                    weightsFromActiveLandmarksToT[i] = lms.getFromWeight(activeLandmarkIndices[i], towerNodeNextToT);
-                    weightsFromTToActiveLandmarks[i] = lms.getToWeight(activeLandmarkIndices[i], towerNodeNextToT);
+                    weightsFromActiveLandmarksToT[i] = LandmarkStorage.getFromWeight(landmarkWeights[activeLandmarkIndices[i]]);
+                    weightsFromTToActiveLandmarks[i] = LandmarkStorage.getToWeight(landmarkWeights[activeLandmarkIndices[i]]);
                 }
             } else {
                 // note: fallback==true means forever true!
@@ -128,15 +132,16 @@ public class LMApproximator implements WeightApproximator {
 
     private double getRemainingWeightUnderestimationUpToTowerNode(int v) {
         int maxWeightInt = 0;
+        lms.readWeights(v, landmarkWeights);
         for (int i = 0; i < activeLandmarkIndices.length; i++) {
-            int resultInt = approximateForLandmark(i, v);
+            int resultInt = approximateForLandmark(i, landmarkWeights[activeLandmarkIndices[i]]);
             maxWeightInt = Math.max(maxWeightInt, resultInt);
         }
         // Round down, we need to be an underestimator.
         return (maxWeightInt - 1) * factor;
     }
 
-    private int approximateForLandmark(int i, int v) {
+    private int approximateForLandmark(int i, int weightsOfV) {
         // ---> means shortest path, d means length of shortest path
         // but remember that d(v,t) != d(t,v)
         //
@@ -167,8 +172,8 @@ public class LMApproximator implements WeightApproximator {
         //
         // ...and we can get the right-hand sides of III) and IV) by multiplying those of II) and I) by -1.
 
-        int rhs1Int = lms.getToWeight(activeLandmarkIndices[i], v) - weightsFromTToActiveLandmarks[i];
-        int rhs2Int = weightsFromActiveLandmarksToT[i] - lms.getFromWeight(activeLandmarkIndices[i], v);
+        int rhs1Int = LandmarkStorage.getToWeight(weightsOfV) - weightsFromTToActiveLandmarks[i];
+        int rhs2Int = weightsFromActiveLandmarksToT[i] - LandmarkStorage.getFromWeight(weightsOfV);
 
         if (reverse) {
             rhs1Int *= -1;
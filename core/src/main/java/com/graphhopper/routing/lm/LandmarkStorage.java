@@ -50,6 +50,8 @@ import org.slf4j.LoggerFactory;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * This class stores the landmark nodes and the weights from and to all other nodes in every
@@ -94,6 +96,7 @@ public class LandmarkStorage {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private AreaIndex<SplitArea> areaIndex;
     private boolean logDetails = false;
+    private int explorationThreads = 1;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -169,6 +172,17 @@ public class LandmarkStorage {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Sets the number of threads used to calculate the weights from and to the landmarks of a subnetwork. The
+     * landmarks themselves are still selected sequentially, so they do not depend on the number of threads.
+     */
+    public LandmarkStorage setExplorationThreads(int explorationThreads) {
+        if (explorationThreads < 1)
+            throw new IllegalArgumentException("exploration threads must be at least 1, but was: " + explorationThreads);
+        this.explorationThreads = explorationThreads;
+        return this;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -445,42 +459,47 @@ public class LandmarkStorage {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        if (exploreLandmark(0, tmpLandmarkNodeIds[0], accessFilter, false).setSubnetworks(subnetworks, subnetworkId))
+            return false;
+        if (exploreLandmark(0, tmpLandmarkNodeIds[0], accessFilter, true).setSubnetworks(subnetworks, subnetworkId))
+            return false;
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        // the explorations of the other landmarks are independent, because each of them writes its own column of the
+        // landmark weights, so we can run them in parallel
+        AtomicInteger finishedLandmarks = new AtomicInteger(1);
+        Stream<Runnable> explorations = IntStream.range(2, 2 * tmpLandmarkNodeIds.length).mapToObj(i -> () -> {
+            int lmIdx = i / 2;
+            boolean reverse = i % 2 == 1;
+            exploreLandmark(lmIdx, tmpLandmarkNodeIds[lmIdx], accessFilter, reverse);
+            if (reverse) {
+                int finished = finishedLandmarks.incrementAndGet();
+                if (logDetails && finished % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * finished / tmpLandmarkNodeIds.length) + "%");
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
-        }
+        });
+        if (explorationThreads > 1)
+            GHUtility.runConcurrently(explorations, explorationThreads);
+        else
+            explorations.forEach(Runnable::run);
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
         landmarkIDs.add(tmpLandmarkNodeIds);
         return true;
     }
 
+    private LandmarkExplorer exploreLandmark(int lmIdx, int lmNodeId, EdgeFilter accessFilter, boolean reverse) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        }
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, reverse);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, reverse ? TO_OFFSET : FROM_OFFSET);
+        return explorer;
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -548,6 +567,31 @@ public class LandmarkStorage {
         return res;
     }
 
+    /**
+     * Reads the weights of all landmarks for the specified node with a single call. The weights of the landmark with
+     * index i are packed into weights[i], see {@link #getFromWeight(int)} and {@link #getToWeight(int)}.
+     */
+    void readWeights(int node, int[] weights) {
+        landmarkWeightDA.getInts((long) node * LM_ROW_LENGTH, weights, 0, landmarks);
+    }
+
+    /**
+     * @return the weight from the landmark to the node, extracted from the packed weights read by {@link #readWeights}
+     */
+    static int getFromWeight(int packedWeights) {
+        // the 'from' weight is stored at FROM_OFFSET=0, i.e. in the lower bytes
+        int res = packedWeights & 0x0000FFFF;
+        return res == SHORT_INFINITY ? SHORT_MAX : res;
+    }
+
+    /**
+     * @return the weight from the node to the landmark, extracted from the packed weights read by {@link #readWeights}
+     */
+    static int getToWeight(int packedWeights) {
+        int res = packedWeights >>> 16;
+        return res == SHORT_INFINITY ? SHORT_MAX : res;
+    }
+
     /**
      * @return false if the value capacity was reached and instead of the real value the SHORT_MAX was stored.
      */
@@ -586,9 +630,13 @@ public class LandmarkStorage {
 
         // See the similar formula in LMApproximator.approximateForLandmark
         List<Map.Entry<Integer, Integer>> list = new ArrayList<>(landmarks);
+        int[] fromNodeWeights = new int[landmarks];
+        int[] toNodeWeights = new int[landmarks];
+        readWeights(fromNode, fromNodeWeights);
+        readWeights(toNode, toNodeWeights);
         for (int lmIndex = 0; lmIndex < landmarks; lmIndex++) {
-            int fromWeight = getFromWeight(lmIndex, toNode) - getFromWeight(lmIndex, fromNode);
-            int toWeight = getToWeight(lmIndex, fromNode) - getToWeight(lmIndex, toNode);
+            int fromWeight = getFromWeight(toNodeWeights[lmIndex]) - getFromWeight(fromNodeWeights[lmIndex]);
+            int toWeight = getToWeight(fromNodeWeights[lmIndex]) - getToWeight(toNodeWeights[lmIndex]);
 
             list.add(new MapEntry<>(reverse
                     ? Math.max(-fromWeight, -toWeight)
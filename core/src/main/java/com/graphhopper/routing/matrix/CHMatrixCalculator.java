@@ -0,0 +1,251 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import com.carrotsearch.hppc.*;
+import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.routing.ch.ShortcutUnpacker;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.BitSet;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates a matrix on a node-based {@link RoutingCHGraph} with the bucket algorithm, see "Computing Many-to-Many
+ * Shortest Paths Using Highway Hierarchies" by Knopp et al. First an upward search is run backwards from every to
+ * node and every node of its search space remembers the to node and the weight in its bucket. Then an upward search
+ * is run from every from node and the buckets of all nodes of its search space are scanned for the best meeting node
+ * of every to node. So only |from nodes| + |to nodes| CH searches are needed instead of one per pair.
+ * <p>
+ * The times and distances are accumulated along the search trees, for this the original edges of every CH edge are
+ * unpacked only once per direction and the result is cached.
+ */
+public class CHMatrixCalculator implements MatrixCalculator {
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final ShortcutUnpacker shortcutUnpacker;
+    private final int maxNodes;
+    // the time and distance of the original edges of a CH edge, the key is the CH edge id and the direction
+    private final IntLongHashMap edgeTimes = new IntLongHashMap();
+    private final IntDoubleHashMap edgeDistances = new IntDoubleHashMap();
+    private long unpackedTime;
+    private double unpackedDistance;
+    // the buckets are singly linked lists of entries and bucketHeads points to the first entry of every node
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    private final IntArrayList bucketNext = new IntArrayList();
+    private final IntArrayList bucketTargets = new IntArrayList();
+    private final DoubleArrayList bucketWeights = new DoubleArrayList();
+    private final LongArrayList bucketTimes = new LongArrayList();
+    private final DoubleArrayList bucketDistances = new DoubleArrayList();
+    // the search space of the current upward search, every reached node has exactly one label
+    private final IntIntHashMap labelsByNode = new IntIntHashMap();
+    private final IntArrayList labelNodes = new IntArrayList();
+    private final IntArrayList labelEdges = new IntArrayList();
+    private final IntArrayList labelParents = new IntArrayList();
+    private final DoubleArrayList labelWeights = new DoubleArrayList();
+    private final LongArrayList labelTimes = new LongArrayList();
+    private final DoubleArrayList labelDistances = new DoubleArrayList();
+    private final BitSet settled = new BitSet();
+    private final IntFloatBinaryHeap heap = new IntFloatBinaryHeap(1000);
+    private int visitedNodes;
+
+    public CHMatrixCalculator(RoutingCHGraph graph) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("The bucket algorithm only works for node-based CH graphs");
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        this.inEdgeExplorer = graph.createInEdgeExplorer();
+        this.outEdgeExplorer = graph.createOutEdgeExplorer();
+        this.maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        this.shortcutUnpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            unpackedDistance += edge.getDistance();
+            unpackedTime += weighting.calcEdgeMillis(edge, reverse);
+        }, false);
+    }
+
+    @Override
+    public DistanceMatrix calcMatrix(int[] fromNodes, int[] toNodes) {
+        DistanceMatrix matrix = new DistanceMatrix(fromNodes.length, toNodes.length);
+        clearBuckets();
+        for (int to = 0; to < toNodes.length; to++) {
+            if (toNodes[to] < 0)
+                continue;
+            runUpwardSearch(toNodes[to], inEdgeExplorer, true);
+            for (int label = 0; label < labelNodes.size(); label++) {
+                addBucketEntry(labelNodes.get(label), to, labelWeights.get(label), labelTimes.get(label), labelDistances.get(label));
+            }
+        }
+
+        for (int from = 0; from < fromNodes.length; from++) {
+            if (fromNodes[from] < 0)
+                continue;
+            runUpwardSearch(fromNodes[from], outEdgeExplorer, false);
+            for (int label = 0; label < labelNodes.size(); label++) {
+                int entry = bucketHeads.getOrDefault(labelNodes.get(label), -1);
+                while (entry >= 0) {
+                    int to = bucketTargets.get(entry);
+                    double weight = labelWeights.get(label) + bucketWeights.get(entry);
+                    if (weight < matrix.getWeight(from, to))
+                        matrix.set(from, to, weight,
+                                labelTimes.get(label) + bucketTimes.get(entry),
+                                labelDistances.get(label) + bucketDistances.get(entry));
+                    entry = bucketNext.get(entry);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Runs a full Dijkstra search that only goes upwards in the hierarchy. Afterwards all labels are settled.
+     */
+    private void runUpwardSearch(int start, RoutingCHEdgeExplorer explorer, boolean reverse) {
+        labelsByNode.clear();
+        labelNodes.clear();
+        labelEdges.clear();
+        labelParents.clear();
+        labelWeights.clear();
+        labelTimes.clear();
+        labelDistances.clear();
+        settled.clear();
+        heap.clear();
+
+        heap.insert(0, addLabel(start, NO_EDGE, -1, 0));
+        while (!heap.isEmpty()) {
+            int label = heap.poll();
+            // the heap might contain outdated entries of already settled labels
+            if (settled.get(label))
+                continue;
+            settled.set(label);
+            visitedNodes++;
+            int parent = labelParents.get(label);
+            if (parent >= 0)
+                calcTimeAndDistance(label, parent, reverse);
+
+            int incEdge = labelEdges.get(label);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(labelNodes.get(label));
+            while (iter.next()) {
+                if (iter.getEdge() == incEdge || !isUpward(iter))
+                    continue;
+                double weight = labelWeights.get(label) + iter.getWeight(reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                int adjLabel = labelsByNode.getOrDefault(iter.getAdjNode(), -1);
+                if (adjLabel < 0) {
+                    adjLabel = addLabel(iter.getAdjNode(), iter.getEdge(), label, weight);
+                } else if (weight < labelWeights.get(adjLabel) && !settled.get(adjLabel)) {
+                    labelEdges.set(adjLabel, iter.getEdge());
+                    labelParents.set(adjLabel, label);
+                    labelWeights.set(adjLabel, weight);
+                } else {
+                    continue;
+                }
+                heap.insert(weight, adjLabel);
+            }
+        }
+    }
+
+    private int addLabel(int node, int edge, int parent, double weight) {
+        int label = labelNodes.size();
+        labelsByNode.put(node, label);
+        labelNodes.add(node);
+        labelEdges.add(edge);
+        labelParents.add(parent);
+        labelWeights.add(weight);
+        labelTimes.add(0);
+        labelDistances.add(0);
+        return label;
+    }
+
+    private boolean isUpward(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in the wrong direction are disconnected anyway
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    private void calcTimeAndDistance(int label, int parent, boolean reverse) {
+        int edge = labelEdges.get(label);
+        int node = labelNodes.get(label);
+        int parentNode = labelNodes.get(parent);
+        // for the backward search we travel from node to parentNode, for the forward search the other way round
+        boolean towardsGreaterNode = reverse ? parentNode > node : node > parentNode;
+        int key = edge * 2 + (towardsGreaterNode ? 1 : 0);
+        int index = edgeTimes.indexOf(key);
+        long time;
+        double distance;
+        if (edgeTimes.indexExists(index)) {
+            time = edgeTimes.indexGet(index);
+            distance = edgeDistances.get(key);
+        } else {
+            unpackedTime = 0;
+            unpackedDistance = 0;
+            if (reverse)
+                shortcutUnpacker.visitOriginalEdgesBwd(edge, node, false, NO_EDGE);
+            else
+                shortcutUnpacker.visitOriginalEdgesFwd(edge, node, false, NO_EDGE);
+            time = unpackedTime;
+            distance = unpackedDistance;
+            edgeTimes.indexInsert(index, key, time);
+            edgeDistances.put(key, distance);
+        }
+        labelTimes.set(label, labelTimes.get(parent) + time);
+        labelDistances.set(label, labelDistances.get(parent) + distance);
+    }
+
+    private void addBucketEntry(int node, int to, double weight, long time, double distance) {
+        int entry = bucketTargets.size();
+        bucketNext.add(bucketHeads.getOrDefault(node, -1));
+        bucketTargets.add(to);
+        bucketWeights.add(weight);
+        bucketTimes.add(time);
+        bucketDistances.add(distance);
+        bucketHeads.put(node, entry);
+    }
+
+    private void clearBuckets() {
+        bucketHeads.clear();
+        bucketNext.clear();
+        bucketTargets.clear();
+        bucketWeights.clear();
+        bucketTimes.clear();
+        bucketDistances.clear();
+    }
+
+    @Override
+    public String getName() {
+        return "ch_buckets";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
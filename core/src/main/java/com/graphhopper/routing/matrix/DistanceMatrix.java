@@ -0,0 +1,113 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of a matrix calculation: the weight, time (in milliseconds) and distance (in meters) of the shortest
+ * path for every pair of from and to points. Pairs that are not connected have an infinite weight.
+ */
+public class DistanceMatrix {
+    private final double[][] weights;
+    private final long[][] times;
+    private final double[][] distances;
+    private final List<Integer> invalidFromPoints = new ArrayList<>(0);
+    private final List<Integer> invalidToPoints = new ArrayList<>(0);
+    private String debugInfo = "";
+
+    public DistanceMatrix(int fromCount, int toCount) {
+        weights = new double[fromCount][toCount];
+        times = new long[fromCount][toCount];
+        distances = new double[fromCount][toCount];
+        for (int i = 0; i < fromCount; i++) {
+            Arrays.fill(weights[i], Double.POSITIVE_INFINITY);
+            Arrays.fill(times[i], Long.MAX_VALUE);
+            Arrays.fill(distances[i], Double.POSITIVE_INFINITY);
+        }
+    }
+
+    public int getFromCount() {
+        return weights.length;
+    }
+
+    public int getToCount() {
+        return weights.length == 0 ? 0 : weights[0].length;
+    }
+
+    public void set(int from, int to, double weight, long time, double distance) {
+        weights[from][to] = weight;
+        times[from][to] = time;
+        distances[from][to] = distance;
+    }
+
+    public boolean isConnected(int from, int to) {
+        return Double.isFinite(weights[from][to]);
+    }
+
+    public double getWeight(int from, int to) {
+        return weights[from][to];
+    }
+
+    /**
+     * @return the time in milliseconds or Long.MAX_VALUE if the points are not connected
+     */
+    public long getTime(int from, int to) {
+        return times[from][to];
+    }
+
+    /**
+     * @return the distance in meters or infinity if the points are not connected
+     */
+    public double getDistance(int from, int to) {
+        return distances[from][to];
+    }
+
+    /**
+     * @return the indices of the from points that could not be snapped to the road network
+     */
+    public List<Integer> getInvalidFromPoints() {
+        return invalidFromPoints;
+    }
+
+    /**
+     * @return the indices of the to points that could not be snapped to the road network
+     */
+    public List<Integer> getInvalidToPoints() {
+        return invalidToPoints;
+    }
+
+    public String getDebugInfo() {
+        return debugInfo;
+    }
+
+    public DistanceMatrix addDebugInfo(String debugInfo) {
+        if (!this.debugInfo.isEmpty())
+            this.debugInfo += ", ";
+        this.debugInfo += debugInfo;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return getFromCount() + "x" + getToCount() + ", invalid from points: " + invalidFromPoints
+                + ", invalid to points: " + invalidToPoints;
+    }
+}
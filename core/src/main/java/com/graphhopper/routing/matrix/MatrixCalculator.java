@@ -0,0 +1,34 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+/**
+ * Implementations of this interface calculate the weights, times and distances of the shortest paths between all
+ * pairs of from and to nodes.
+ */
+public interface MatrixCalculator {
+    /**
+     * @param fromNodes the start nodes, negative values are ignored and the corresponding rows stay disconnected
+     * @param toNodes   the target nodes, negative values are ignored and the corresponding columns stay disconnected
+     */
+    DistanceMatrix calcMatrix(int[] fromNodes, int[] toNodes);
+
+    String getName();
+
+    int getVisitedNodes();
+}
@@ -0,0 +1,171 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.SPTArrays;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.Arrays;
+
+import static com.graphhopper.routing.SPTArrays.NO_ENTRY;
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates a matrix with one Dijkstra search per from node. Every search stops as soon as all to nodes are settled.
+ * This works for every weighting and traversal mode and is used when there is no (node-based) CH preparation for
+ * the requested profile.
+ */
+public class OneToManyMatrixCalculator implements MatrixCalculator {
+    private final Graph graph;
+    private final Weighting weighting;
+    private final TraversalMode traversalMode;
+    private final EdgeExplorer edgeExplorer;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int visitedNodes;
+    // the time and distance of the settled entries of the current search, indexed like the entries of the SPTArrays
+    private long[] times = new long[0];
+    private double[] distances = new double[0];
+
+    public OneToManyMatrixCalculator(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+        this.graph = graph;
+        this.weighting = weighting;
+        this.traversalMode = traversalMode;
+        this.edgeExplorer = graph.createEdgeExplorer();
+    }
+
+    /**
+     * Limits the number of nodes that are visited by each of the searches. To nodes that are not found within this
+     * limit are reported as not connected.
+     */
+    public OneToManyMatrixCalculator setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    @Override
+    public DistanceMatrix calcMatrix(int[] fromNodes, int[] toNodes) {
+        DistanceMatrix matrix = new DistanceMatrix(fromNodes.length, toNodes.length);
+        IntObjectHashMap<IntArrayList> toIndicesByNode = new IntObjectHashMap<>();
+        for (int to = 0; to < toNodes.length; to++) {
+            if (toNodes[to] < 0)
+                continue;
+            IntArrayList toIndices = toIndicesByNode.get(toNodes[to]);
+            if (toIndices == null) {
+                toIndices = new IntArrayList(1);
+                toIndicesByNode.put(toNodes[to], toIndices);
+            }
+            toIndices.add(to);
+        }
+        if (toIndicesByNode.isEmpty())
+            return matrix;
+
+        for (int from = 0; from < fromNodes.length; from++) {
+            if (fromNodes[from] >= 0)
+                calcRow(matrix, from, fromNodes[from], toIndicesByNode);
+        }
+        return matrix;
+    }
+
+    private void calcRow(DistanceMatrix matrix, int from, int fromNode, IntObjectHashMap<IntArrayList> toIndicesByNode) {
+        SPTArrays sptArrays = SPTArrays.forCurrentThread(traversalMode.isEdgeBased() ? 2 * graph.getEdges() : graph.getNodes());
+        IntHashSet foundNodes = new IntHashSet(toIndicesByNode.size());
+        int currEntry = sptArrays.addEntry(0, NO_EDGE, fromNode, NO_ENTRY);
+        // for edge-based traversal there is no traversal id for the start node
+        if (!traversalMode.isEdgeBased())
+            sptArrays.setEntry(fromNode, currEntry);
+        setTimeAndDistance(currEntry, 0, 0);
+        int rowVisitedNodes = 0;
+        while (true) {
+            int currNode = sptArrays.getAdjNode(currEntry);
+            int currEdge = sptArrays.getEdge(currEntry);
+            double currWeight = sptArrays.getWeight(currEntry);
+            IntArrayList toIndices = toIndicesByNode.get(currNode);
+            if (toIndices != null && foundNodes.add(currNode)) {
+                for (IntCursor to : toIndices)
+                    matrix.set(from, to.value, currWeight, times[currEntry], distances[currEntry]);
+                if (foundNodes.size() == toIndicesByNode.size())
+                    break;
+            }
+            visitedNodes++;
+            if (++rowVisitedNodes > maxVisitedNodes)
+                break;
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
+            while (iter.next()) {
+                // for node-based traversal we exclude u-turns already here, see AbstractRoutingAlgorithm#accept
+                if (!traversalMode.isEdgeBased() && iter.getEdge() == currEdge)
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeight(weighting, iter, false, currEdge) + currWeight;
+                if (Double.isInfinite(weight))
+                    continue;
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                int entry = sptArrays.getEntry(traversalId);
+                if (entry != NO_ENTRY) {
+                    if (weight >= sptArrays.getWeight(entry))
+                        continue;
+                    sptArrays.setDeleted(entry);
+                }
+                entry = sptArrays.addEntry(weight, iter.getEdge(), iter.getAdjNode(), currEntry);
+                sptArrays.setEntry(traversalId, entry);
+                sptArrays.push(entry, weight);
+            }
+
+            do {
+                if (sptArrays.isQueueEmpty())
+                    return;
+                currEntry = sptArrays.poll();
+            } while (sptArrays.isDeleted(currEntry));
+            // the parent is already settled, so we can accumulate the time and distance of the settled entry
+            int parent = sptArrays.getParent(currEntry);
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(sptArrays.getEdge(currEntry), sptArrays.getAdjNode(currEntry));
+            setTimeAndDistance(currEntry,
+                    times[parent] + GHUtility.calcMillisWithTurnMillis(weighting, edgeState, false, sptArrays.getEdge(parent)),
+                    distances[parent] + edgeState.getDistance());
+        }
+    }
+
+    private void setTimeAndDistance(int entry, long time, double distance) {
+        if (entry >= times.length) {
+            int capacity = Math.max(16, entry + (entry >> 1));
+            times = Arrays.copyOf(times, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+        }
+        times[entry] = time;
+        distances[entry] = distance;
+    }
+
+    @Override
+    public String getName() {
+        return "one_to_many|" + traversalMode;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
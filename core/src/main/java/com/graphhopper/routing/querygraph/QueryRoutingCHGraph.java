@@ -126,6 +126,11 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         return routingCHGraph.getLevel(node);
     }
 
+    @Override
+    public int getCoreNodes() {
+        return routingCHGraph.getCoreNodes();
+    }
+
     @Override
     public double getTurnWeight(int inEdge, int viaNode, int outEdge) {
         if (!routingCHGraph.hasTurnCosts())
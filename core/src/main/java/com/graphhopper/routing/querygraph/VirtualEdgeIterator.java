@@ -290,7 +290,7 @@ class VirtualEdgeIterator implements EdgeIterator {
         return getCurrentEdge().copyPropertiesFrom(edge);
     }
 
-    private EdgeIteratorState getCurrentEdge() {
+    EdgeIteratorState getCurrentEdge() {
         return edges.get(current);
     }
 
@@ -72,6 +72,18 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         return originalEdgeKey;
     }
 
+    /**
+     * Like {@link #getOriginalEdgeKey()}, but the given edge can also be an edge of the base graph or an iterator of
+     * the query graph, which returns the key of the current (virtual or original) edge.
+     */
+    public static int getOriginalEdgeKey(EdgeIteratorState edge) {
+        if (edge instanceof VirtualEdgeIteratorState)
+            return ((VirtualEdgeIteratorState) edge).getOriginalEdgeKey();
+        if (edge instanceof VirtualEdgeIterator)
+            return getOriginalEdgeKey(((VirtualEdgeIterator) edge).getCurrentEdge());
+        return edge.getEdgeKey();
+    }
+
     @Override
     public int getEdge() {
         return GHUtility.getEdgeFromEdgeKey(edgeKey);
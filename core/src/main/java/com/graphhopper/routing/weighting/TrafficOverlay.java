@@ -0,0 +1,179 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.carrotsearch.hppc.IntFloatHashMap;
+import com.carrotsearch.hppc.IntFloatMap;
+import com.carrotsearch.hppc.cursors.IntFloatCursor;
+import com.graphhopper.routing.WeightingFactory;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Speed factors per edge key that are applied at query time, e.g. from a live traffic feed. The factors are kept in
+ * immutable snapshots and every update replaces the current snapshot atomically, so reading the factors never blocks
+ * and a weighting that was created with one snapshot sees the same factors for the whole request, see
+ * {@link #getSnapshot()}.
+ * <p>
+ * The factors must be in the range [0, 1], i.e. they can only slow down traffic. This way the weights can only
+ * increase and the landmark preparations as well as the minimum weight per distance of the weightings stay valid
+ * lower bounds. A factor of 0 closes the edge in the given direction.
+ */
+public class TrafficOverlay {
+    /**
+     * The hint that passes a {@link Snapshot} to the {@link WeightingFactory}, see
+     * {@link #withSpeedFactors(WeightingFactory)}
+     */
+    public static final String KEY = "traffic_speed_factors";
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(new IntFloatHashMap(), 0));
+
+    public Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return a weighting factory that passes the current snapshot of this overlay to the given factory for every
+     * weighting it creates
+     */
+    public WeightingFactory withSpeedFactors(WeightingFactory weightingFactory) {
+        return (profile, hints, disableTurnCosts) ->
+                weightingFactory.createWeighting(profile, new PMap(hints).putObject(KEY, getSnapshot()), disableTurnCosts);
+    }
+
+    /**
+     * Applies the given speed factors. Concurrent updates are serialized, but readers are never blocked.
+     *
+     * @param factors the speed factors per edge key
+     * @param replace if true all existing factors are removed, otherwise the given factors are merged into the
+     *                existing ones and a factor of 1 removes an existing factor
+     */
+    public synchronized Snapshot update(IntFloatMap factors, boolean replace) {
+        Snapshot current = snapshot.get();
+        IntFloatHashMap newFactors = replace ? new IntFloatHashMap(factors.size()) : new IntFloatHashMap(current.factors);
+        for (IntFloatCursor c : factors) {
+            checkFactor(c.key, c.value);
+            if (c.value == 1)
+                newFactors.remove(c.key);
+            else
+                newFactors.put(c.key, c.value);
+        }
+        Snapshot newSnapshot = new Snapshot(newFactors, current.version + 1);
+        snapshot.set(newSnapshot);
+        return newSnapshot;
+    }
+
+    /**
+     * Replaces all factors with the ones of the given snapshot, e.g. of the overlay of another graph. The edge keys
+     * are not translated, so this is only useful if both graphs have the same edges.
+     */
+    public synchronized Snapshot update(Snapshot other) {
+        // snapshots are immutable, so we can share the factors
+        Snapshot newSnapshot = new Snapshot(other.factors, snapshot.get().version + 1);
+        snapshot.set(newSnapshot);
+        return newSnapshot;
+    }
+
+    /**
+     * Reads speed factors in the format 'edge_key,factor' (one per line, lines starting with # are ignored) and
+     * applies them via {@link #update(IntFloatMap, boolean)}.
+     *
+     * @return the new snapshot
+     */
+    public Snapshot load(Reader reader, boolean replace) throws IOException {
+        IntFloatHashMap factors = new IntFloatHashMap();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = bufferedReader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            int index = line.indexOf(',');
+            if (index < 0)
+                throw new IllegalArgumentException("Invalid speed factor in line " + lineNumber + ", expected 'edge_key,factor' but was: " + line);
+            try {
+                int edgeKey = Integer.parseInt(line.substring(0, index).trim());
+                float factor = Float.parseFloat(line.substring(index + 1).trim());
+                checkFactor(edgeKey, factor);
+                factors.put(edgeKey, factor);
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid speed factor in line " + lineNumber + ": " + line, ex);
+            }
+        }
+        return update(factors, replace);
+    }
+
+    public Snapshot clear() {
+        return update(new IntFloatHashMap(), true);
+    }
+
+    private static void checkFactor(int edgeKey, float factor) {
+        if (edgeKey < 0)
+            throw new IllegalArgumentException("Edge key must not be negative: " + edgeKey);
+        if (!(factor >= 0 && factor <= 1))
+            throw new IllegalArgumentException("Speed factor for edge key " + edgeKey + " must be in [0, 1], but was: " + factor);
+    }
+
+    public static final class Snapshot {
+        private final IntFloatHashMap factors;
+        private final long version;
+
+        private Snapshot(IntFloatHashMap factors, long version) {
+            this.factors = factors;
+            this.version = version;
+        }
+
+        /**
+         * @return the version of this snapshot, which is incremented with every update
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return factors.size();
+        }
+
+        public boolean isEmpty() {
+            return factors.isEmpty();
+        }
+
+        public double getSpeedFactor(int edgeKey) {
+            return factors.getOrDefault(edgeKey, 1);
+        }
+
+        /**
+         * @return the speed factor for the given edge in the given direction, virtual edges use the factor of the
+         * original edge
+         */
+        public double getSpeedFactor(EdgeIteratorState edge, boolean reverse) {
+            if (factors.isEmpty())
+                return 1;
+            int edgeKey = VirtualEdgeIteratorState.getOriginalEdgeKey(edge);
+            return getSpeedFactor(reverse ? GHUtility.reverseEdgeKey(edgeKey) : edgeKey);
+        }
+    }
+}
@@ -20,6 +20,7 @@ package com.graphhopper.routing.weighting.custom;
 import com.graphhopper.json.Statement;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
@@ -68,9 +69,20 @@ public class CustomModelParser {
 
     public static CustomWeighting createWeighting(BooleanEncodedValue accessEnc, DecimalEncodedValue speedEnc, DecimalEncodedValue priorityEnc,
                                                   EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
+        return createWeighting(accessEnc, speedEnc, priorityEnc, lookup, turnCostProvider, customModel, null);
+    }
+
+    /**
+     * @param speedFactors the speed factors that are applied on top of the custom model, can be null
+     */
+    public static CustomWeighting createWeighting(BooleanEncodedValue accessEnc, DecimalEncodedValue speedEnc, DecimalEncodedValue priorityEnc,
+                                                  EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel,
+                                                  TrafficOverlay.Snapshot speedFactors) {
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
         CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, speedEnc, priorityEnc);
+        if (speedFactors != null && !speedFactors.isEmpty())
+            parameters = parameters.withSpeedFactors(speedFactors::getSpeedFactor);
         return new CustomWeighting(accessEnc, speedEnc, turnCostProvider, parameters);
     }
 
@@ -173,6 +173,16 @@ public final class CustomWeighting extends AbstractWeighting {
             this.headingPenaltySeconds = headingPenaltySeconds;
         }
 
+        /**
+         * @return a copy of these parameters where the speed of every edge is multiplied with the given factor. The
+         * factors must not be larger than 1 such that the maximum speed is still valid.
+         */
+        public Parameters withSpeedFactors(EdgeToDoubleMapping speedFactors) {
+            EdgeToDoubleMapping speedMapping = edgeToSpeedMapping;
+            return new Parameters((edge, reverse) -> speedMapping.get(edge, reverse) * speedFactors.get(edge, reverse), maxSpeedCalc,
+                    edgeToPriorityMapping, maxPrioCalc, distanceInfluence, headingPenaltySeconds);
+        }
+
         public EdgeToDoubleMapping getEdgeToSpeedMapping() {
             return edgeToSpeedMapping;
         }
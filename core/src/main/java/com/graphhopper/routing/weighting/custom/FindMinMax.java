@@ -2,13 +2,21 @@ package com.graphhopper.routing.weighting.custom;
 
 import com.graphhopper.json.MinMax;
 import com.graphhopper.json.Statement;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PointList;
 
 import java.util.*;
 
+import static com.graphhopper.json.Statement.If;
 import static com.graphhopper.json.Statement.Keyword.ELSE;
 import static com.graphhopper.json.Statement.Keyword.IF;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+import static com.graphhopper.routing.weighting.custom.CustomModelParser.BACKWARD_PREFIX;
 
 public class FindMinMax {
 
@@ -31,6 +39,58 @@ public class FindMinMax {
         checkMultiplyValue(queryModel.getSpeed(), lookup);
     }
 
+    /**
+     * This method throws an exception when this CustomModel could change the weight of an edge outside the core of a
+     * CH preparation with the given core encoded values, because the shortcuts are only valid for the weights of the
+     * baseModel, see CHConfig#nodeBasedCore. The conditions of the statements may only use the core encoded values
+     * and must not match an edge for which all of them have their default value. The constraints of
+     * {@link #checkLMConstraints} must be fulfilled as well, because the core is searched using landmarks.
+     */
+    public static void checkCoreConstraints(CustomModel baseModel, CustomModel queryModel, List<String> coreEncodedValues,
+                                            EncodingManager encodingManager, DecimalEncodedValue avgSpeedEnc) {
+        checkLMConstraints(baseModel, queryModel, encodingManager);
+        double bmDI = baseModel.getDistanceInfluence() == null ? 0 : baseModel.getDistanceInfluence();
+        if (queryModel.getDistanceInfluence() != null && queryModel.getDistanceInfluence() != bmDI)
+            throw new IllegalArgumentException("CustomModel in query cannot change the distance_influence when routing with a CH core, but was: "
+                    + queryModel.getDistanceInfluence());
+
+        NameValidator nameValidator = name -> encodingManager.hasEncodedValue(name)
+                || name.toUpperCase(Locale.ROOT).equals(name)
+                || name.startsWith(BACKWARD_PREFIX) && encodingManager.hasEncodedValue(name.substring(BACKWARD_PREFIX.length()));
+        // for every condition the probe multiplies the priority with zero, so we can find out if any of them matches
+        CustomModel probe = new CustomModel();
+        List<Statement> statements = new ArrayList<>(queryModel.getPriority());
+        statements.addAll(queryModel.getSpeed());
+        for (Statement statement : statements) {
+            if (statement.getKeyword() == ELSE)
+                throw new IllegalArgumentException("CustomModel in query cannot use 'else' when routing with a CH core, because it applies to edges outside the core");
+            // the enum class names are only needed to compile the condition, so we do not need the real ones here
+            ParseResult result = ConditionalExpressionVisitor.parse(statement.getCondition(), nameValidator, key -> key);
+            if (!result.ok)
+                throw new IllegalArgumentException("invalid condition \"" + statement.getCondition() + "\"" +
+                        (result.invalidMessage == null ? "" : ": " + result.invalidMessage));
+            for (String variable : result.guessedVariables) {
+                String name = !coreEncodedValues.contains(variable) && variable.startsWith(BACKWARD_PREFIX)
+                        ? variable.substring(BACKWARD_PREFIX.length()) : variable;
+                if (!coreEncodedValues.contains(name))
+                    throw new IllegalArgumentException("CustomModel in query can only use the core encoded values " + coreEncodedValues
+                            + " in conditions when routing with a CH core, but the condition \"" + statement.getCondition() + "\" uses: " + variable);
+            }
+            probe.addToPriority(If(statement.getCondition(), MULTIPLY, "0"));
+        }
+        if (probe.getPriority().isEmpty())
+            return;
+
+        // the edges outside the core have the default values for all core encoded values, just like this edge
+        EdgeIteratorState defaultEdge = new VirtualEdgeIteratorState(0, 0, 0, 1, 0, encodingManager.createEdgeFlags(),
+                Collections.emptyList(), PointList.EMPTY, false);
+        CustomWeighting.EdgeToDoubleMapping priority = CustomModelParser.createWeightingParameters(probe, encodingManager,
+                avgSpeedEnc, null).getEdgeToPriorityMapping();
+        if (priority.get(defaultEdge, false) == 0 || priority.get(defaultEdge, true) == 0)
+            throw new IllegalArgumentException("CustomModel in query can only change the edges of the CH core when routing with a CH core, " +
+                    "but one of its conditions matches the edges with default values for " + coreEncodedValues);
+    }
+
     private static void checkMultiplyValue(List<Statement> list, EncodedValueLookup lookup) {
         for (Statement statement : list) {
             if (statement.getOperation() == Statement.Op.MULTIPLY) {
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.search;
 
+import com.carrotsearch.hppc.LongLongHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.util.BitUtil;
@@ -82,6 +83,8 @@ public class KVStorage {
     private long bytePointer = START_POINTER;
     private long lastEntryPointer = -1;
     private List<KeyValue> lastEntries;
+    // maps the hash of the serialized key-value pairs to the pointer of their first occurrence, null if disabled
+    private LongLongHashMap dictionary;
 
     /**
      * Specify a larger cacheSize to reduce disk usage. Note that this increases the memory usage of this object.
@@ -97,6 +100,16 @@ public class KVStorage {
         }
     }
 
+    /**
+     * Enables the deduplication of all entries and not only of consecutive ones. The serialized key-value pairs are
+     * interned through a hash index, so that equal entries share the same pointer. This does not change the storage
+     * format, but the index needs some memory during the import, roughly 16 bytes per unique entry.
+     */
+    public KVStorage setDeduplication(boolean deduplication) {
+        dictionary = deduplication ? new LongLongHashMap() : null;
+        return this;
+    }
+
     public KVStorage create(long initBytes) {
         keys.create(initBytes);
         vals.create(initBytes);
@@ -221,13 +234,54 @@ public class KVStorage {
                 getBytesForValue(indexToClass.get(keyToIndex.get(kv.key)), kv.value);
 
         lastEntries = entries;
-        lastEntryPointer = bytePointer;
+        long entryPointer = bytePointer;
         vals.ensureCapacity(bytePointer + 1);
         vals.setByte(bytePointer, (byte) entries.size());
-        bytePointer = setKVList(bytePointer, entries);
-        if (bytePointer < 0)
+        long nextPointer = setKVList(bytePointer, entries);
+        if (nextPointer < 0)
             throw new IllegalStateException("Negative bytePointer in KVStorage");
-        return lastEntryPointer;
+        if (dictionary != null) {
+            long existingPointer = findDuplicate(entryPointer, nextPointer);
+            if (existingPointer >= 0) {
+                // we do not move the bytePointer, so the bytes we just wrote will be overwritten by the next entry
+                lastEntryPointer = existingPointer;
+                return existingPointer;
+            }
+        }
+        bytePointer = nextPointer;
+        lastEntryPointer = entryPointer;
+        return entryPointer;
+    }
+
+    /**
+     * @return the pointer of an existing entry with the same bytes as the entry in [pointer, endPointer[ or -1 if
+     * there is none. In the latter case the entry is added to the dictionary.
+     */
+    private long findDuplicate(long pointer, long endPointer) {
+        byte[] bytes = new byte[(int) (endPointer - pointer)];
+        vals.getBytes(pointer, bytes, bytes.length);
+        long hash = hash(bytes);
+        int index = dictionary.indexOf(hash);
+        if (!dictionary.indexExists(index)) {
+            dictionary.indexInsert(index, hash, pointer);
+            return -1;
+        }
+        // the entries are self-delimiting, so equal bytes mean equal entries
+        long existingPointer = dictionary.indexGet(index);
+        byte[] existingBytes = new byte[bytes.length];
+        vals.getBytes(existingPointer, existingBytes, existingBytes.length);
+        // for a hash collision we simply keep the entry that was added first
+        return Arrays.equals(bytes, existingBytes) ? existingPointer : -1;
+    }
+
+    private static long hash(byte[] bytes) {
+        // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
     }
 
     // compared to entries.equals(lastEntries) this method avoids a NPE if a value is null and throws an IAE instead
@@ -32,6 +32,9 @@ public abstract class AbstractDataAccess implements DataAccess {
     // reserve some space for downstream usage (in classes using/extending this)
     protected static final int HEADER_OFFSET = 20 * 4 + 20;
     protected static final byte[] EMPTY = new byte[1024];
+    protected static final String MARKER = "GH";
+    // marks files with compressed segments, see RAMDataAccess.compress
+    protected static final String COMPRESSED_MARKER = "GHZ";
     private static final int SEGMENT_SIZE_DEFAULT = 1 << 20;
     protected final ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
     protected final BitUtil bitUtil = BitUtil.LITTLE;
@@ -89,8 +92,12 @@ public abstract class AbstractDataAccess implements DataAccess {
      * Writes some internal data into the beginning of the specified file.
      */
     protected void writeHeader(RandomAccessFile file, long length, int segmentSize) throws IOException {
+        writeHeader(file, MARKER, length, segmentSize);
+    }
+
+    protected void writeHeader(RandomAccessFile file, String marker, long length, int segmentSize) throws IOException {
         file.seek(0);
-        file.writeUTF("GH");
+        file.writeUTF(marker);
         file.writeLong(length);
         file.writeInt(segmentSize);
         for (int i = 0; i < header.length; i++) {
@@ -99,13 +106,19 @@ public abstract class AbstractDataAccess implements DataAccess {
     }
 
     protected long readHeader(RandomAccessFile raFile) throws IOException {
+        return readHeader(raFile, MARKER);
+    }
+
+    protected long readHeader(RandomAccessFile raFile, String marker) throws IOException {
         raFile.seek(0);
         if (raFile.length() == 0)
             return -1;
 
         String versionHint = raFile.readUTF();
-        if (!"GH".equals(versionHint))
-            throw new IllegalArgumentException("Not a GraphHopper file " + getFullName() + "! Expected 'GH' as file marker but was " + versionHint);
+        if (COMPRESSED_MARKER.equals(versionHint) && !COMPRESSED_MARKER.equals(marker))
+            throw new IllegalArgumentException("The file " + getFullName() + " has compressed segments and can only be loaded with the DAType RAM_STORE");
+        if (!marker.equals(versionHint))
+            throw new IllegalArgumentException("Not a GraphHopper file " + getFullName() + "! Expected '" + marker + "' as file marker but was " + versionHint);
 
         long bytes = raFile.readLong();
         setSegmentSize(raFile.readInt());
@@ -53,12 +53,23 @@ public class BaseGraph implements Graph, Closeable {
     // length | nodeA | nextNode | ... | nodeB
     // as we use integer index in 'edges' area => 'geometry' area is limited to 4GB (we use pos&neg values!)
     private final DataAccess wayGeometry;
+    // can be null if the frozen adjacency lists are not enabled
+    private final FrozenAdjacency frozenAdjacency;
+    // the frozen adjacency lists used by the edge explorers, only set once they were built or loaded
+    FrozenAdjacency adjacency;
     private final Directory dir;
     private final int segmentSize;
     private boolean initialized = false;
     private long maxGeoRef;
+    // if true the pillar nodes are delta encoded relative to nodeA as zig-zag varints, see setCompressedWayGeometry
+    private boolean compressedGeometry;
 
     public BaseGraph(Directory dir, int intsForFlags, boolean withElevation, boolean withTurnCosts, int segmentSize) {
+        this(dir, intsForFlags, withElevation, withTurnCosts, false, false, segmentSize);
+    }
+
+    public BaseGraph(Directory dir, int intsForFlags, boolean withElevation, boolean withTurnCosts,
+                     boolean withFrozenAdjacency, boolean withCompressedGeometry, int segmentSize) {
         this.dir = dir;
         this.bitUtil = BitUtil.LITTLE;
         this.wayGeometry = dir.create("geometry", segmentSize);
@@ -67,6 +78,8 @@ public class BaseGraph implements Graph, Closeable {
         this.nodeAccess = new GHNodeAccess(store);
         this.segmentSize = segmentSize;
         turnCostStorage = withTurnCosts ? new TurnCostStorage(this, dir.create("turn_costs", dir.getDefaultType("turn_costs", true), segmentSize)) : null;
+        frozenAdjacency = withFrozenAdjacency ? new FrozenAdjacency(dir, segmentSize) : null;
+        compressedGeometry = withCompressedGeometry;
     }
 
     private int getOtherNode(int nodeThis, long edgePointer) {
@@ -105,7 +118,10 @@ public class BaseGraph implements Graph, Closeable {
 
     private void loadWayGeometryHeader() {
         int geometryVersion = wayGeometry.getHeader(0);
-        GHUtility.checkDAVersion(wayGeometry.getName(), Constants.VERSION_GEOMETRY, geometryVersion);
+        // the stored format wins over the configured one
+        compressedGeometry = geometryVersion == Constants.VERSION_GEOMETRY_COMPRESSED;
+        if (!compressedGeometry)
+            GHUtility.checkDAVersion(wayGeometry.getName(), Constants.VERSION_GEOMETRY, geometryVersion);
         maxGeoRef = bitUtil.toLong(
                 wayGeometry.getHeader(4),
                 wayGeometry.getHeader(8)
@@ -113,7 +129,7 @@ public class BaseGraph implements Graph, Closeable {
     }
 
     private void setWayGeometryHeader() {
-        wayGeometry.setHeader(0, Constants.VERSION_GEOMETRY);
+        wayGeometry.setHeader(0, compressedGeometry ? Constants.VERSION_GEOMETRY_COMPRESSED : Constants.VERSION_GEOMETRY);
         wayGeometry.setHeader(4, bitUtil.getIntLow(maxGeoRef));
         wayGeometry.setHeader(8, bitUtil.getIntHigh(maxGeoRef));
     }
@@ -146,16 +162,39 @@ public class BaseGraph implements Graph, Closeable {
         return store.getBounds();
     }
 
+    /**
+     * Freezes the graph, i.e. no more edges can be added. If enabled, this also builds the frozen adjacency lists
+     * that are used by the edge explorers from now on.
+     */
     public synchronized void freeze() {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
         store.setFrozen(true);
+        if (frozenAdjacency != null) {
+            frozenAdjacency.build(store);
+            adjacency = frozenAdjacency;
+        }
+        if (supportsTurnCosts())
+            turnCostStorage.buildIndex();
     }
 
     public synchronized boolean isFrozen() {
         return store.getFrozen();
     }
 
+    /**
+     * Renumbers all nodes and edges, i.e. node n becomes node newNodeIds[n] and edge e becomes edge newEdgeIds[e],
+     * see {@link GraphSorter}. This is only possible before the graph is frozen, because all data structures that
+     * are built on top of the base graph (location index, CH, LM) refer to the node and edge ids.
+     */
+    public synchronized void relabel(int[] newNodeIds, int[] newEdgeIds) {
+        if (isFrozen())
+            throw new IllegalStateException("Cannot renumber the nodes and edges of a frozen graph");
+        store.relabel(newNodeIds, newEdgeIds);
+        if (turnCostStorage != null)
+            turnCostStorage.relabelEdges(newEdgeIds);
+    }
+
     public BaseGraph create(long initSize) {
         checkNotInitialized();
         dir.create();
@@ -209,6 +248,8 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts()) {
             turnCostStorage.flush();
         }
+        if (adjacency != null)
+            adjacency.flush();
     }
 
     @Override
@@ -221,11 +262,14 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts()) {
             turnCostStorage.close();
         }
+        if (frozenAdjacency != null && !frozenAdjacency.isClosed())
+            frozenAdjacency.close();
     }
 
     public long getCapacity() {
         return store.getCapacity() + edgeKVStorage.getCapacity()
-                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
+                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0)
+                + (adjacency != null ? adjacency.getCapacity() : 0);
     }
 
     long getMaxGeoRef() {
@@ -247,6 +291,17 @@ public class BaseGraph implements Graph, Closeable {
         if (supportsTurnCosts() && !turnCostStorage.loadExisting())
             return false;
 
+        if (frozenAdjacency != null && store.getFrozen()) {
+            // graphs that were frozen without the adjacency lists get them now
+            if (frozenAdjacency.loadExisting())
+                frozenAdjacency.checkMatches(store);
+            else
+                frozenAdjacency.build(store);
+            adjacency = frozenAdjacency;
+        }
+        if (supportsTurnCosts() && store.getFrozen())
+            turnCostStorage.loadOrBuildIndex();
+
         setInitialized();
         loadWayGeometryHeader();
         return true;
@@ -352,6 +407,11 @@ public class BaseGraph implements Graph, Closeable {
                 throw new IllegalArgumentException("Cannot use pointlist which is " + pillarNodes.getDimension()
                         + "D for graph which is " + nodeAccess.getDimension() + "D");
 
+            if (compressedGeometry) {
+                setCompressedWayGeometry(pillarNodes, edgePointer, reverse);
+                return;
+            }
+
             long existingGeoRef = Integer.toUnsignedLong(store.getGeoRef(edgePointer));
 
             int len = pillarNodes.size();
@@ -424,6 +484,58 @@ public class BaseGraph implements Graph, Closeable {
         return bytes;
     }
 
+    /**
+     * Stores the pillar nodes as |count|lat|lon|(ele)|... where all values are zig-zag encoded varints. The
+     * coordinates of the first pillar node are relative to nodeA and all following ones are relative to their
+     * predecessor. The elevation of the first pillar node is stored as is, because the elevation of the tower nodes
+     * can still change after the geometry was written, e.g. by the elevation interpolation.
+     */
+    private void setCompressedWayGeometry(PointList pillarNodes, long edgePointer, boolean reverse) {
+        int nodeA = store.getNodeA(edgePointer);
+        int len = pillarNodes.size();
+        boolean is3D = nodeAccess.is3D();
+        byte[] bytes = new byte[5 + len * (is3D ? 15 : 10)];
+        int pos = writeVarInt(bytes, 0, len);
+        int prevLat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+        int prevLon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+        int prevEle = 0;
+        for (int i = 0; i < len; i++) {
+            // the geometry is always stored in the direction from nodeA to nodeB
+            int index = reverse ? len - 1 - i : i;
+            int lat = Helper.degreeToInt(pillarNodes.getLat(index));
+            int lon = Helper.degreeToInt(pillarNodes.getLon(index));
+            pos = writeVarInt(bytes, pos, zigZag(lat - prevLat));
+            pos = writeVarInt(bytes, pos, zigZag(lon - prevLon));
+            prevLat = lat;
+            prevLon = lon;
+            if (is3D) {
+                int ele = Helper.eleToInt(pillarNodes.getEle(index));
+                pos = writeVarInt(bytes, pos, zigZag(ele - prevEle));
+                prevEle = ele;
+            }
+        }
+
+        long geoRef = Integer.toUnsignedLong(store.getGeoRef(edgePointer));
+        if (geoRef == 0 || pos > getCompressedWayGeometryBytes(geoRef * 4))
+            geoRef = nextGeoRef((pos + 3) / 4 - 1);
+        ensureGeometry(geoRef * 4, pos);
+        wayGeometry.setBytes(geoRef * 4, bytes, pos);
+        store.setGeoRef(edgePointer, BitUtil.toSignedInt(geoRef));
+    }
+
+    /**
+     * @return the number of bytes that are reserved for the compressed geometry at the given position
+     */
+    private int getCompressedWayGeometryBytes(long pointer) {
+        int count = readVarInt(pointer);
+        long end = pointer + varIntLength(count);
+        int values = count * nodeAccess.getDimension();
+        for (int i = 0; i < values; i++)
+            end += varIntLength(readVarInt(end));
+        // the entries are aligned to four bytes
+        return (int) ((end - pointer + 3) / 4 * 4);
+    }
+
     private PointList fetchWayGeometry_(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
         if (mode == FetchMode.TOWER_ONLY) {
             // no reverse handling required as adjNode and baseNode is already properly switched
@@ -435,7 +547,11 @@ public class BaseGraph implements Graph, Closeable {
         long geoRef = Integer.toUnsignedLong(store.getGeoRef(edgePointer));
         int count = 0;
         byte[] bytes = null;
-        if (geoRef > 0) {
+        if (geoRef > 0 && compressedGeometry) {
+            geoRef *= 4L;
+            count = readVarInt(geoRef);
+            geoRef += varIntLength(count);
+        } else if (geoRef > 0) {
             geoRef *= 4L;
             count = wayGeometry.getInt(geoRef);
 
@@ -452,8 +568,32 @@ public class BaseGraph implements Graph, Closeable {
         } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
             pillarNodes.add(nodeAccess, baseNode);
 
+        if (compressedGeometry) {
+            // we decode directly from the DataAccess to avoid the temporary byte array
+            int nodeA = store.getNodeA(edgePointer);
+            int lat = Helper.degreeToInt(nodeAccess.getLat(nodeA));
+            int lon = Helper.degreeToInt(nodeAccess.getLon(nodeA));
+            int ele = 0;
+            for (int i = 0; i < count; i++) {
+                int value = readVarInt(geoRef);
+                geoRef += varIntLength(value);
+                lat += unZigZag(value);
+                value = readVarInt(geoRef);
+                geoRef += varIntLength(value);
+                lon += unZigZag(value);
+                if (nodeAccess.is3D()) {
+                    value = readVarInt(geoRef);
+                    geoRef += varIntLength(value);
+                    ele += unZigZag(value);
+                    pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon), Helper.intToEle(ele));
+                } else {
+                    pillarNodes.add(Helper.intToDegree(lat), Helper.intToDegree(lon));
+                }
+            }
+        }
+
         int index = 0;
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; bytes != null && i < count; i++) {
             double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
             index += 4;
             double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
@@ -477,6 +617,41 @@ public class BaseGraph implements Graph, Closeable {
         return pillarNodes;
     }
 
+    private int readVarInt(long pointer) {
+        int b = wayGeometry.getByte(pointer);
+        int value = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = wayGeometry.getByte(++pointer);
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    private static int writeVarInt(byte[] bytes, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     * @return the number of bytes of the given value when written with {@link #writeVarInt}
+     */
+    static int varIntLength(int value) {
+        int bits = 32 - Integer.numberOfLeadingZeros(value);
+        return Math.max(1, (bits + 6) / 7);
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
     static int getPointListLength(int pillarNodes, FetchMode mode) {
         switch (mode) {
             case TOWER_ONLY:
@@ -522,6 +697,10 @@ public class BaseGraph implements Graph, Closeable {
         private Directory directory = new RAMDirectory();
         private boolean withElevation = false;
         private boolean withTurnCosts = false;
+        private boolean withFrozenAdjacency = false;
+        private boolean withCompressedGeometry = false;
+        private boolean withKeyValueDeduplication = false;
+        private boolean withTurnCostIndex = false;
         private long bytes = 100;
         private int segmentSize = -1;
 
@@ -552,6 +731,41 @@ public class BaseGraph implements Graph, Closeable {
             return this;
         }
 
+        /**
+         * Stores the adjacency lists in compressed sparse row format once the graph is frozen, see
+         * {@link #freeze()}. This speeds up the graph explorations, but requires eight more bytes per edge.
+         */
+        public Builder withFrozenAdjacency(boolean withFrozenAdjacency) {
+            this.withFrozenAdjacency = withFrozenAdjacency;
+            return this;
+        }
+
+        /**
+         * Stores the pillar nodes of new graphs delta and varint encoded, which roughly halves the size of the
+         * geometry. Existing graphs are always loaded in the format they were stored with.
+         */
+        public Builder withCompressedGeometry(boolean withCompressedGeometry) {
+            this.withCompressedGeometry = withCompressedGeometry;
+            return this;
+        }
+
+        /**
+         * Stores equal key-value lists of the edges only once, see {@link KVStorage#setDeduplication(boolean)}.
+         */
+        public Builder withKeyValueDeduplication(boolean withKeyValueDeduplication) {
+            this.withKeyValueDeduplication = withKeyValueDeduplication;
+            return this;
+        }
+
+        /**
+         * Looks up the turn costs of the frozen graph in a hashed index instead of the linked lists of the via nodes.
+         * This speeds up edge-based routing and requires 16 to 32 more bytes per turn cost entry.
+         */
+        public Builder withTurnCostIndex(boolean withTurnCostIndex) {
+            this.withTurnCostIndex = withTurnCostIndex;
+            return this;
+        }
+
         public Builder setSegmentSize(int segmentSize) {
             this.segmentSize = segmentSize;
             return this;
@@ -563,7 +777,12 @@ public class BaseGraph implements Graph, Closeable {
         }
 
         public BaseGraph build() {
-            return new BaseGraph(directory, intsForFlags, withElevation, withTurnCosts, segmentSize);
+            BaseGraph baseGraph = new BaseGraph(directory, intsForFlags, withElevation, withTurnCosts, withFrozenAdjacency,
+                    withCompressedGeometry, segmentSize);
+            baseGraph.edgeKVStorage.setDeduplication(withKeyValueDeduplication);
+            if (withTurnCostIndex && baseGraph.supportsTurnCosts())
+                baseGraph.turnCostStorage.setIndex(new TurnCostIndex(baseGraph.dir, baseGraph.segmentSize));
+            return baseGraph;
         }
 
         public BaseGraph create() {
@@ -576,6 +795,12 @@ public class BaseGraph implements Graph, Closeable {
     protected static class EdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
         final EdgeFilter filter;
         int nextEdgeId;
+        // node A, node B, link A and link B of the current edge
+        private final int[] nodesAndLinks = new int[4];
+        // the range of entries of the base node if the frozen adjacency lists are used, otherwise null
+        private FrozenAdjacency adjacency;
+        private long nextEntry;
+        private long endEntry;
 
         public EdgeIteratorImpl(BaseGraph baseGraph, EdgeFilter filter) {
             super(baseGraph);
@@ -586,7 +811,14 @@ public class BaseGraph implements Graph, Closeable {
 
         @Override
         public EdgeIterator setBaseNode(int baseNode) {
-            nextEdgeId = edgeId = store.getEdgeRef(store.toNodePointer(baseNode));
+            adjacency = baseGraph.adjacency;
+            if (adjacency == null) {
+                nextEdgeId = edgeId = store.getEdgeRef(store.toNodePointer(baseNode));
+            } else {
+                nextEntry = adjacency.getFirstEntry(baseNode);
+                endEntry = adjacency.getEndEntry(baseNode);
+                nextEdgeId = edgeId = nextEntry < endEntry ? GHUtility.getEdgeFromEdgeKey(adjacency.getEdgeKey(nextEntry)) : NO_EDGE;
+            }
             this.baseNode = baseNode;
             return this;
         }
@@ -602,19 +834,34 @@ public class BaseGraph implements Graph, Closeable {
         }
 
         void goToNext() {
+            if (adjacency != null) {
+                goToNextEntry();
+                return;
+            }
             edgePointer = store.toEdgePointer(nextEdgeId);
             edgeId = nextEdgeId;
-            int nodeA = store.getNodeA(edgePointer);
+            store.readNodesAndLinks(edgePointer, nodesAndLinks);
+            int nodeA = nodesAndLinks[0];
             boolean baseNodeIsNodeA = baseNode == nodeA;
-            adjNode = baseNodeIsNodeA ? store.getNodeB(edgePointer) : nodeA;
+            adjNode = baseNodeIsNodeA ? nodesAndLinks[1] : nodeA;
             reverse = !baseNodeIsNodeA;
 
             // position to next edge
-            nextEdgeId = baseNodeIsNodeA ? store.getLinkA(edgePointer) : store.getLinkB(edgePointer);
+            nextEdgeId = baseNodeIsNodeA ? nodesAndLinks[2] : nodesAndLinks[3];
             assert nextEdgeId != edgeId : ("endless loop detected for base node: " + baseNode + ", adj node: " + adjNode
                     + ", edge pointer: " + edgePointer + ", edge: " + edgeId);
         }
 
+        private void goToNextEntry() {
+            int edgeKey = adjacency.getEdgeKey(nextEntry);
+            edgeId = nextEdgeId;
+            edgePointer = store.toEdgePointer(edgeId);
+            adjNode = adjacency.getAdjNode(nextEntry);
+            reverse = (edgeKey & 1) == 1;
+            nextEntry++;
+            nextEdgeId = nextEntry < endEntry ? GHUtility.getEdgeFromEdgeKey(adjacency.getEdgeKey(nextEntry)) : NO_EDGE;
+        }
+
         @Override
         public EdgeIteratorState detach(boolean reverseArg) {
             if (edgeId == nextEdgeId)
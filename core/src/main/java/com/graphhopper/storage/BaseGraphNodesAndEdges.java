@@ -18,6 +18,8 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.util.Constants;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.GHUtility;
@@ -230,6 +232,86 @@ class BaseGraphNodesAndEdges {
         }
     }
 
+    /**
+     * Renumbers all nodes and edges such that node n becomes node newNodeIds[n] and edge e becomes edge
+     * newEdgeIds[e]. The references between the nodes and edges are updated accordingly and the node and edge records
+     * are moved in place. Both arrays must be permutations.
+     */
+    public void relabel(int[] newNodeIds, int[] newEdgeIds) {
+        checkPermutation(newNodeIds, nodeCount, "node");
+        checkPermutation(newEdgeIds, edgeCount, "edge");
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toEdgePointer(edge);
+            setNodeA(edgePointer, newNodeIds[getNodeA(edgePointer)]);
+            setNodeB(edgePointer, newNodeIds[getNodeB(edgePointer)]);
+            setLinkA(edgePointer, relabelEdge(getLinkA(edgePointer), newEdgeIds));
+            setLinkB(edgePointer, relabelEdge(getLinkB(edgePointer), newEdgeIds));
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            long nodePointer = toNodePointer(node);
+            setEdgeRef(nodePointer, relabelEdge(getEdgeRef(nodePointer), newEdgeIds));
+        }
+        permute(edges, edgeEntryBytes, newEdgeIds);
+        permute(nodes, nodeEntryBytes, newNodeIds);
+    }
+
+    private static void checkPermutation(int[] newIds, int count, String name) {
+        if (newIds.length != count)
+            throw new IllegalArgumentException("Expected " + count + " new " + name + " ids, got: " + newIds.length);
+        GHBitSet seen = new GHBitSetImpl(count);
+        for (int newId : newIds) {
+            if (newId < 0 || newId >= count || seen.contains(newId))
+                throw new IllegalArgumentException("The new " + name + " ids must be a permutation, invalid id: " + newId);
+            seen.add(newId);
+        }
+    }
+
+    private static int relabelEdge(int edge, int[] newEdgeIds) {
+        return EdgeIterator.Edge.isValid(edge) ? newEdgeIds[edge] : edge;
+    }
+
+    /**
+     * Moves the entry at index i to index newIds[i] by following the cycles of the permutation, so only two entries
+     * need to be buffered.
+     */
+    private static void permute(DataAccess da, int entryBytes, int[] newIds) {
+        if (entryBytes % 4 != 0)
+            throw new IllegalStateException("entry size must be a multiple of four, but was: " + entryBytes);
+        int[] entry = new int[entryBytes / 4];
+        int[] tmp = new int[entryBytes / 4];
+        GHBitSet moved = new GHBitSetImpl(newIds.length);
+        for (int start = 0; start < newIds.length; start++) {
+            if (moved.contains(start))
+                continue;
+            readEntry(da, (long) start * entryBytes, entry);
+            int curr = start;
+            while (true) {
+                int target = newIds[curr];
+                long targetPointer = (long) target * entryBytes;
+                moved.add(target);
+                if (target == start) {
+                    writeEntry(da, targetPointer, entry);
+                    break;
+                }
+                readEntry(da, targetPointer, tmp);
+                writeEntry(da, targetPointer, entry);
+                int[] swap = entry;
+                entry = tmp;
+                tmp = swap;
+                curr = target;
+            }
+        }
+    }
+
+    private static void readEntry(DataAccess da, long pointer, int[] entry) {
+        da.getInts(pointer, entry, 0, entry.length);
+    }
+
+    private static void writeEntry(DataAccess da, long pointer, int[] entry) {
+        for (int i = 0; i < entry.length; i++)
+            da.setInt(pointer + 4L * i, entry[i]);
+    }
+
     public long toNodePointer(int node) {
         if (node < 0 || node >= nodeCount)
             throw new IllegalArgumentException("node: " + node + " out of bounds [0," + nodeCount + "[");
@@ -243,9 +325,14 @@ class BaseGraphNodesAndEdges {
     }
 
     public void readFlags(long edgePointer, IntsRef edgeFlags) {
-        int size = edgeFlags.ints.length;
-        for (int i = 0; i < size; ++i)
-            edgeFlags.ints[i] = getFlagInt(edgePointer, i);
+        edges.getInts(edgePointer + E_FLAGS, edgeFlags.ints, 0, edgeFlags.ints.length);
+    }
+
+    /**
+     * Reads node A, node B, link A and link B of the given edge with a single call, in this order.
+     */
+    public void readNodesAndLinks(long edgePointer, int[] values) {
+        edges.getInts(edgePointer + E_NODEA, values, 0, 4);
     }
 
     public void writeFlags(long edgePointer, IntsRef edgeFlags) {
@@ -1,5 +1,6 @@
 package com.graphhopper.storage;
 
+import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
 
@@ -17,20 +18,38 @@ public class CHConfig {
     private final String chGraphName;
     private final Weighting weighting;
     private final boolean edgeBased;
+    // accepts the edges whose adjacent nodes are not contracted, null if all nodes are contracted
+    private final EdgeFilter coreEdgeFilter;
 
     public static CHConfig nodeBased(String chGraphName, Weighting weighting) {
         return new CHConfig(chGraphName, weighting, false);
     }
 
+    /**
+     * Creates a config for a node-based CH preparation that does not contract the nodes adjacent to the edges accepted
+     * by the given filter. These nodes form the core of the CH graph, which is searched without the level restriction.
+     * The accepted edges are ignored when looking for witness paths, so their weights may change per request.
+     */
+    public static CHConfig nodeBasedCore(String chGraphName, Weighting weighting, EdgeFilter coreEdgeFilter) {
+        if (coreEdgeFilter == null)
+            throw new IllegalArgumentException("The core edge filter must not be null");
+        return new CHConfig(chGraphName, weighting, false, coreEdgeFilter);
+    }
+
     public static CHConfig edgeBased(String chGraphName, Weighting weighting) {
         return new CHConfig(chGraphName, weighting, true);
     }
 
     public CHConfig(String chGraphName, Weighting weighting, boolean edgeBased) {
+        this(chGraphName, weighting, edgeBased, null);
+    }
+
+    private CHConfig(String chGraphName, Weighting weighting, boolean edgeBased, EdgeFilter coreEdgeFilter) {
         validateProfileName(chGraphName);
         this.chGraphName = chGraphName;
         this.weighting = weighting;
         this.edgeBased = edgeBased;
+        this.coreEdgeFilter = coreEdgeFilter;
     }
 
     public Weighting getWeighting() {
@@ -41,6 +60,14 @@ public class CHConfig {
         return edgeBased;
     }
 
+    public boolean hasCore() {
+        return coreEdgeFilter != null;
+    }
+
+    public EdgeFilter getCoreEdgeFilter() {
+        return coreEdgeFilter;
+    }
+
     public TraversalMode getTraversalMode() {
         return edgeBased ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
     }
@@ -26,6 +26,8 @@ import java.util.function.IntUnaryOperator;
  * - level(nodeB) > level(nodeA) for all added shortcuts, unless nodeA == nodeB, then level(nodeA) == level(nodeB)
  * - shortcuts are added such that they are sorted by level(nodeA)
  * - the 'last shortcut' for node n points to the last shortcut for which nodeA == n
+ * Shortcuts between the core nodes are the exception, they are added for both nodes, see
+ * {@link #addCoreShortcutNodeBased}.
  */
 public class CHStorageBuilder {
     private final CHStorage storage;
@@ -50,7 +52,7 @@ public class CHStorageBuilder {
     }
 
     public int addShortcutNodeBased(int a, int b, int accessFlags, double weight, int skippedEdge1, int skippedEdge2) {
-        checkNewShortcut(a, b);
+        checkNewShortcut(a, b, false);
         int shortcut = storage.shortcutNodeBased(a, b, accessFlags, weight, skippedEdge1, skippedEdge2);
         // we keep track of the last shortcut for each node (-1 if there are no shortcuts), but
         // we do not register the shortcut at node b, because b is the higher level node (so no need to 'see' the lower
@@ -59,6 +61,17 @@ public class CHStorageBuilder {
         return shortcut;
     }
 
+    /**
+     * Adds a shortcut between two nodes of the core, i.e. nodes that were not contracted. Such shortcuts must be
+     * added for both nodes, so the level of node b may be smaller than the one of node a.
+     */
+    public int addCoreShortcutNodeBased(int a, int b, int accessFlags, double weight, int skippedEdge1, int skippedEdge2) {
+        checkNewShortcut(a, b, true);
+        int shortcut = storage.shortcutNodeBased(a, b, accessFlags, weight, skippedEdge1, skippedEdge2);
+        setLastShortcut(a, shortcut);
+        return shortcut;
+    }
+
     /**
      * @param origKeyFirst The first original edge key that is skipped by this shortcut *in the direction of the shortcut*.
      *                     This definition assumes that edge-based shortcuts are one-directional, and they are.
@@ -68,7 +81,7 @@ public class CHStorageBuilder {
      */
     public int addShortcutEdgeBased(int a, int b, int accessFlags, double weight, int skippedEdge1, int skippedEdge2,
                                     int origKeyFirst, int origKeyLast) {
-        checkNewShortcut(a, b);
+        checkNewShortcut(a, b, false);
         int shortcut = storage.shortcutEdgeBased(a, b, accessFlags, weight, skippedEdge1, skippedEdge2, origKeyFirst, origKeyLast);
         setLastShortcut(a, shortcut);
         return shortcut;
@@ -83,7 +96,7 @@ public class CHStorageBuilder {
         }
     }
 
-    private void checkNewShortcut(int a, int b) {
+    private void checkNewShortcut(int a, int b, boolean core) {
         checkNodeId(a);
         checkNodeId(b);
         if (getLevel(a) >= storage.getNodes() || getLevel(a) < 0)
@@ -92,7 +105,7 @@ public class CHStorageBuilder {
         if (a != b && getLevel(a) == getLevel(b))
             throw new IllegalArgumentException("Different nodes must not have the same level, got levels " + getLevel(a)
                     + " and " + getLevel(b) + " for nodes " + a + " and " + b);
-        if (a != b && getLevel(a) > getLevel(b))
+        if (!core && a != b && getLevel(a) > getLevel(b))
             throw new IllegalArgumentException("The level of nodeA must be smaller than the level of nodeB, but got: " +
                     getLevel(a) + " and " + getLevel(b) + ". When inserting shortcut: " + a + "-" + b);
         if (storage.getShortcuts() > 0) {
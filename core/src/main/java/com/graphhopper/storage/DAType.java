@@ -53,6 +53,20 @@ public class DAType {
      * embedded data stores.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * The DA object is hold entirely in memory but outside of the JVM heap. Loading and flushing is a no-op.
+     * See OffHeapDataAccess.
+     */
+    public static final DAType OFF_HEAP = new DAType(MemRef.OFF_HEAP, false, false, true);
+    /**
+     * Like OFF_HEAP but it will load from disc and flush to it if the equivalent methods are called.
+     */
+    public static final DAType OFF_HEAP_STORE = new DAType(MemRef.OFF_HEAP, true, false, true);
+    /**
+     * Read-only DA object that loads its segments from disc on their first access and keeps only the recently used
+     * segments in memory. See LazyDataAccess.
+     */
+    public static final DAType LAZY = new DAType(MemRef.LAZY, true, false, false);
     private final MemRef memRef;
     private final boolean storing;
     private final boolean integ;
@@ -78,6 +92,12 @@ public class DAType {
             type = DAType.MMAP_RO;
         else if (dataAccess.contains("MMAP"))
             type = DAType.MMAP;
+        else if (dataAccess.contains("LAZY"))
+            type = DAType.LAZY;
+        else if (dataAccess.contains("OFF_HEAP_STORE"))
+            type = DAType.OFF_HEAP_STORE;
+        else if (dataAccess.contains("OFF_HEAP"))
+            type = DAType.OFF_HEAP;
         else if (dataAccess.contains("UNSAFE"))
             throw new IllegalArgumentException("UNSAFE option is no longer supported, see #1620");
         else if (dataAccess.contains("RAM_STORE"))
@@ -109,6 +129,20 @@ public class DAType {
         return memRef == MemRef.MMAP;
     }
 
+    /**
+     * @return true if data resides in memory but outside of the JVM heap.
+     */
+    public boolean isOffHeap() {
+        return memRef == MemRef.OFF_HEAP;
+    }
+
+    /**
+     * @return true if only the recently used segments are kept in memory
+     */
+    public boolean isLazy() {
+        return memRef == MemRef.LAZY;
+    }
+
     /**
      * Temporary data or store (with loading and storing)? default is false
      */
@@ -128,6 +162,10 @@ public class DAType {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.OFF_HEAP)
+            str = "OFF_HEAP";
+        else if (getMemRef() == MemRef.LAZY)
+            str = "LAZY";
         else
             str = "RAM";
 
@@ -164,6 +202,6 @@ public class DAType {
     }
 
     public enum MemRef {
-        HEAP, MMAP
+        HEAP, MMAP, OFF_HEAP, LAZY
     }
 }
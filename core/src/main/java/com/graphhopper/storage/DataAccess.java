@@ -63,6 +63,24 @@ public interface DataAccess extends Closeable {
      */
     void getBytes(long bytePos, byte[] values, int length);
 
+    /**
+     * Get 'length' consecutive ints starting at position 'bytePos' and store them in 'values' starting at 'offset'.
+     * The range can span multiple segments, but every single int must be stored within one segment. This is faster
+     * than calling getInt for every value because the segment is looked up only once per segment.
+     *
+     * @param values acts as output
+     */
+    void getInts(long bytePos, int[] values, int offset, int length);
+
+    /**
+     * Get 'length' consecutive longs starting at position 'bytePos' and store them in 'values' starting at 'offset'.
+     * Every long consists of 8 bytes in the same byte order as the ints, i.e. the lower int is stored first.
+     *
+     * @param values acts as output
+     * @see #getInts(long, int[], int, int)
+     */
+    void getLongs(long bytePos, long[] values, int offset, int length);
+
     void setByte(long currentPointer, byte value);
 
     byte getByte(long currentPointer);
@@ -0,0 +1,133 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * The adjacency lists of a frozen {@link BaseGraph} in compressed sparse row format: the entries of all nodes are
+ * stored consecutively, ordered by node and in the same order as the linked lists of {@link BaseGraphNodesAndEdges}.
+ * Every entry consists of the edge key and the adjacent node. The edge explorers use it to iterate the edges of a node
+ * with sequential memory access instead of following the links stored in the edge records.
+ * <p>
+ * Memory layout: |first entry of node 0|...|first entry of node n-1|number of entries|, followed by
+ * |edge key|adj node| for every entry.
+ */
+class FrozenAdjacency {
+    private static final int ENTRY_BYTES = 8;
+    private final DataAccess da;
+    private int nodeCount;
+    private int edgeCount;
+    private long entriesPointer;
+
+    FrozenAdjacency(Directory dir, int segmentSize) {
+        da = dir.create("edge_adjacency", segmentSize);
+    }
+
+    /**
+     * Builds the adjacency lists from the linked lists of the given store, which must not change afterwards.
+     */
+    void build(BaseGraphNodesAndEdges store) {
+        nodeCount = store.getNodes();
+        edgeCount = store.getEdges();
+        entriesPointer = 4L * (nodeCount + 1);
+        da.create(entriesPointer + 2L * edgeCount * ENTRY_BYTES);
+        long entry = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            da.setInt(4L * node, (int) entry);
+            int edge = store.getEdgeRef(store.toNodePointer(node));
+            while (EdgeIterator.Edge.isValid(edge)) {
+                long edgePointer = store.toEdgePointer(edge);
+                int nodeA = store.getNodeA(edgePointer);
+                boolean reverse = node != nodeA;
+                long pointer = entriesPointer + entry * ENTRY_BYTES;
+                da.setInt(pointer, GHUtility.createEdgeKey(edge, reverse));
+                da.setInt(pointer + 4, reverse ? nodeA : store.getNodeB(edgePointer));
+                entry++;
+                edge = reverse ? store.getLinkB(edgePointer) : store.getLinkA(edgePointer);
+            }
+        }
+        da.setInt(4L * nodeCount, (int) entry);
+        if (entry != 2L * edgeCount)
+            throw new IllegalStateException("Expected " + 2L * edgeCount + " adjacency entries, but found: " + entry);
+    }
+
+    boolean loadExisting() {
+        if (!da.loadExisting())
+            return false;
+        GHUtility.checkDAVersion(da.getName(), Constants.VERSION_ADJACENCY, da.getHeader(0));
+        nodeCount = da.getHeader(4);
+        edgeCount = da.getHeader(8);
+        entriesPointer = 4L * (nodeCount + 1);
+        return true;
+    }
+
+    /**
+     * @throws IllegalStateException if the adjacency lists were built for a different graph
+     */
+    void checkMatches(BaseGraphNodesAndEdges store) {
+        if (nodeCount != store.getNodes() || edgeCount != store.getEdges())
+            throw new IllegalStateException("The stored adjacency lists do not match the graph, nodes: " + nodeCount
+                    + " vs. " + store.getNodes() + ", edges: " + edgeCount + " vs. " + store.getEdges());
+    }
+
+    void flush() {
+        da.setHeader(0, Constants.VERSION_ADJACENCY);
+        da.setHeader(4, nodeCount);
+        da.setHeader(8, edgeCount);
+        da.flush();
+    }
+
+    void close() {
+        da.close();
+    }
+
+    boolean isClosed() {
+        return da.isClosed();
+    }
+
+    long getCapacity() {
+        return da.getCapacity();
+    }
+
+    /**
+     * @return the index of the first entry of the given node
+     */
+    long getFirstEntry(int node) {
+        if (node < 0 || node >= nodeCount)
+            throw new IllegalArgumentException("node: " + node + " out of bounds [0," + nodeCount + "[");
+        return da.getInt(4L * node) & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * @return the index after the last entry of the given node
+     */
+    long getEndEntry(int node) {
+        return da.getInt(4L * (node + 1)) & 0xFFFF_FFFFL;
+    }
+
+    int getEdgeKey(long entry) {
+        return da.getInt(entriesPointer + entry * ENTRY_BYTES);
+    }
+
+    int getAdjNode(long entry) {
+        return da.getInt(entriesPointer + entry * ENTRY_BYTES + 4);
+    }
+}
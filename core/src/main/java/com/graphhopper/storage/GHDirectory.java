@@ -35,7 +35,11 @@ public class GHDirectory implements Directory {
     // first rule matches => LinkedHashMap
     private final Map<String, DAType> defaultTypes = new LinkedHashMap<>();
     private final Map<String, Integer> mmapPreloads = new LinkedHashMap<>();
+    private final Map<String, Boolean> compressions = new LinkedHashMap<>();
     private final Map<String, DataAccess> map = Collections.synchronizedMap(new HashMap<>());
+    private volatile MMapPreloader preloader;
+    // limits the memory of all LAZY DataAccess objects
+    private final SegmentCache segmentCache = new SegmentCache(1024L * 1024 * 1024);
 
     public GHDirectory(String _location, DAType defaultType) {
         this.typeFallback = defaultType;
@@ -55,6 +59,10 @@ public class GHDirectory implements Directory {
      * Configure the DAType (specified by the value) of a single DataAccess object (specified by the key). For "MMAP" you
      * can prepend "preload." to the name and specify a percentage which preloads the DataAccess into physical memory of
      * the specified percentage (only applied for load, not for import).
+     * For "RAM_STORE" you can prepend "compress." to the name and specify true to store the segments compressed (only
+     * applied for flush, the format is detected on load).
+     * The memory in MB that all "LAZY" DataAccess objects can use together is specified via the key "lazy.max_memory",
+     * the default is 1024.
      * As keys can be patterns the order is important and the LinkedHashMap is forced as type.
      */
     public Directory configure(LinkedHashMap<String, String> config) {
@@ -67,6 +75,14 @@ public class GHDirectory implements Directory {
                 } catch (NumberFormatException ex) {
                     throw new IllegalArgumentException("DataAccess " + kv.getKey() + " has an incorrect preload value: " + value);
                 }
+            else if (kv.getKey().startsWith("compress."))
+                compressions.put(kv.getKey().substring("compress.".length()), Boolean.parseBoolean(value));
+            else if (kv.getKey().equals("lazy.max_memory"))
+                try {
+                    segmentCache.setMaxBytes(Long.parseLong(value) * 1024 * 1024);
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("DataAccess " + kv.getKey() + " has an incorrect value: " + value);
+                }
             else {
                 String pattern = kv.getKey();
                 defaultTypes.put(pattern, DAType.fromString(value));
@@ -85,14 +101,67 @@ public class GHDirectory implements Directory {
         return 0;
     }
 
+    /**
+     * Returns true if the segments of the specified DataAccess should be stored compressed.
+     * See {@link #configure(LinkedHashMap)}
+     */
+    boolean isCompressed(String name) {
+        for (Map.Entry<String, Boolean> entry : compressions.entrySet())
+            if (name.matches(entry.getKey())) return entry.getValue();
+        return false;
+    }
+
     public void loadMMap() {
+        loadMMap(1, false);
+    }
+
+    /**
+     * Loads the configured percentage of the memory mapped files into physical memory, see
+     * {@link #configure(LinkedHashMap)}. The files are loaded in the order of their importance for the queries.
+     *
+     * @param threads    the number of threads used to load the segments of the files
+     * @param background if true this method returns immediately and the progress can be tracked via
+     *                   {@link #getPreloadProgress()}
+     */
+    public synchronized void loadMMap(int threads, boolean background) {
+        if (preloader != null)
+            preloader.stop();
+        Map<MMapDataAccess, Integer> preloads = new HashMap<>();
         for (DataAccess da : map.values()) {
             if (!(da instanceof MMapDataAccess))
                 continue;
             int preload = getPreload(da.getName());
             if (preload > 0)
-                ((MMapDataAccess) da).load(preload);
+                preloads.put((MMapDataAccess) da, preload);
         }
+        preloader = new MMapPreloader(preloads);
+        preloader.start(threads);
+        if (!background)
+            preloader.awaitCompletion();
+    }
+
+    /**
+     * @return the fraction of the memory mapped segments that were preloaded so far, or 1 if nothing is preloaded
+     */
+    public double getPreloadProgress() {
+        MMapPreloader p = preloader;
+        return p == null ? 1 : p.getProgress();
+    }
+
+    /**
+     * @return true if all memory mapped files that should be preloaded are in physical memory (or if there are none)
+     */
+    public boolean isPreloaded() {
+        MMapPreloader p = preloader;
+        return p == null || p.isDone();
+    }
+
+    /**
+     * @return the error that stopped the preloading or null
+     */
+    public Throwable getPreloadError() {
+        MMapPreloader p = preloader;
+        return p == null ? null : p.getError();
     }
 
     @Override
@@ -134,11 +203,15 @@ public class GHDirectory implements Directory {
                 else
                     da = new RAMIntDataAccess(name, location, false, segmentSize);
             } else if (type.isStoring())
-                da = new RAMDataAccess(name, location, true, segmentSize);
+                da = new RAMDataAccess(name, location, true, segmentSize).compress(isCompressed(name));
             else
                 da = new RAMDataAccess(name, location, false, segmentSize);
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, type.isAllowWrites(), segmentSize);
+        } else if (type.isOffHeap()) {
+            da = new OffHeapDataAccess(name, location, type.isStoring(), segmentSize);
+        } else if (type.isLazy()) {
+            da = new LazyDataAccess(name, location, segmentSize, segmentCache);
         } else {
             throw new IllegalArgumentException("DAType not supported " + type);
         }
@@ -149,6 +222,9 @@ public class GHDirectory implements Directory {
 
     @Override
     public void close() {
+        // the preloading threads must not access the segments once they are unmapped
+        if (preloader != null)
+            preloader.stop();
         for (DataAccess da : map.values()) {
             da.close();
         }
@@ -157,6 +233,8 @@ public class GHDirectory implements Directory {
 
     @Override
     public void clear() {
+        if (preloader != null)
+            preloader.stop();
         for (DataAccess da : map.values()) {
             da.close();
             removeBackingFile(da, da.getName());
@@ -0,0 +1,120 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.shapes.BBox;
+
+import java.util.Arrays;
+
+/**
+ * Renumbers the nodes of a {@link BaseGraph} along a Hilbert curve and the edges by their smaller node, so nodes that
+ * are close to each other geographically and their edges are also close to each other in memory. This improves the
+ * cache locality of the graph explorations and reduces the number of pages that need to be touched for memory mapped
+ * graphs. The renumbering has to run after the import and before any data structures that refer to node or edge ids
+ * (location index, CH, LM) are created.
+ */
+public class GraphSorter {
+    /**
+     * The number of bits used for each coordinate. With 16 bits the cells of the Hilbert curve are about 600m wide for
+     * a planet-wide graph. Nodes within the same cell keep their relative order.
+     */
+    private static final int ORDER = 16;
+
+    public static void sortAlongHilbertCurve(BaseGraph graph) {
+        int[] newNodeIds = calcHilbertNodeIds(graph);
+        int[] newEdgeIds = calcEdgeIds(graph, newNodeIds);
+        graph.relabel(newNodeIds, newEdgeIds);
+    }
+
+    /**
+     * @return the new id for every node such that the nodes are ordered along a Hilbert curve
+     */
+    static int[] calcHilbertNodeIds(BaseGraph graph) {
+        NodeAccess na = graph.getNodeAccess();
+        BBox bounds = graph.getBounds();
+        double minLat = bounds.isValid() ? bounds.minLat : -90, minLon = bounds.isValid() ? bounds.minLon : -180;
+        double latRange = bounds.isValid() ? bounds.maxLat - bounds.minLat : 180;
+        double lonRange = bounds.isValid() ? bounds.maxLon - bounds.minLon : 360;
+        int maxCoord = (1 << ORDER) - 1;
+        long[] keys = new long[graph.getNodes()];
+        for (int node = 0; node < keys.length; node++) {
+            int x = toCoord(na.getLon(node), minLon, lonRange, maxCoord);
+            int y = toCoord(na.getLat(node), minLat, latRange, maxCoord);
+            keys[node] = (hilbertIndex(x, y) << 32) | node;
+        }
+        return toNewIds(keys);
+    }
+
+    /**
+     * @return the new id for every edge such that the edges are ordered by the smaller of their new node ids
+     */
+    static int[] calcEdgeIds(BaseGraph graph, int[] newNodeIds) {
+        long[] keys = new long[graph.getEdges()];
+        for (int edge = 0; edge < keys.length; edge++) {
+            long pointer = graph.store.toEdgePointer(edge);
+            int node = Math.min(newNodeIds[graph.store.getNodeA(pointer)], newNodeIds[graph.store.getNodeB(pointer)]);
+            keys[edge] = ((long) node << 32) | edge;
+        }
+        return toNewIds(keys);
+    }
+
+    /**
+     * @param keys the unsigned sort key in the upper 32 bits and the old id in the lower 32 bits
+     */
+    private static int[] toNewIds(long[] keys) {
+        // flipping the sign bit makes the signed order of the keys match their unsigned order
+        for (int i = 0; i < keys.length; i++)
+            keys[i] ^= Long.MIN_VALUE;
+        Arrays.sort(keys);
+        int[] newIds = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            newIds[(int) keys[i]] = i;
+        return newIds;
+    }
+
+    private static int toCoord(double value, double min, double range, int maxCoord) {
+        if (range <= 0)
+            return 0;
+        int coord = (int) ((value - min) / range * maxCoord);
+        return Math.max(0, Math.min(maxCoord, coord));
+    }
+
+    /**
+     * @return the position of the cell (x, y) along a Hilbert curve that covers a 2^ORDER x 2^ORDER grid
+     */
+    static long hilbertIndex(int x, int y) {
+        final int n = 1 << ORDER;
+        long d = 0;
+        for (int s = n / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant such that the curve is continuous
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return d;
+    }
+}
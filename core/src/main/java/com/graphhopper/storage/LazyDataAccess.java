@@ -0,0 +1,360 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A DataAccess that keeps only the segments in the heap that were accessed recently. The segments of an existing
+ * file are read on their first access and evicted by the {@link SegmentCache} of the directory once its memory limit
+ * is exceeded, so a graph can be served with much less memory than its size. If the graph is sorted, see
+ * graph.sort, the segments of the nodes, edges and location index roughly correspond to geographic cells, so regional
+ * queries only need the segments of their region, while long-distance queries load the segments they need on demand.
+ * <p>
+ * After {@link #loadExisting()} the data is read-only, because evicted segments are read from the file again. A newly
+ * created DataAccess of this type keeps all segments in the heap, like {@link RAMDataAccess}, until it is flushed.
+ */
+public final class LazyDataAccess extends AbstractDataAccess {
+    private final SegmentCache cache;
+    private AtomicReferenceArray<byte[]> segments = new AtomicReferenceArray<>(0);
+    // set on every access and cleared by the cache, see SegmentCache
+    private boolean[] referenced = new boolean[0];
+    // null until an existing file was loaded
+    private RandomAccessFile raFile;
+
+    LazyDataAccess(String name, String location, int segmentSize, SegmentCache cache) {
+        super(name, location, segmentSize);
+        this.cache = cache;
+    }
+
+    @Override
+    public LazyDataAccess create(long bytes) {
+        if (segments.length() > 0)
+            throw new IllegalThreadStateException("already created");
+
+        ensureCapacity(Math.max(10 * 4, bytes));
+        return this;
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("new capacity has to be strictly positive");
+        checkWritable();
+
+        long cap = getCapacity();
+        long newBytes = bytes - cap;
+        if (newBytes <= 0)
+            return false;
+
+        int segmentsToCreate = (int) (newBytes / segmentSizeInBytes);
+        if (newBytes % segmentSizeInBytes != 0)
+            segmentsToCreate++;
+
+        AtomicReferenceArray<byte[]> newSegs = new AtomicReferenceArray<>(segments.length() + segmentsToCreate);
+        for (int i = 0; i < newSegs.length(); i++)
+            newSegs.set(i, i < segments.length() ? segments.get(i) : new byte[segmentSizeInBytes]);
+        segments = newSegs;
+        referenced = new boolean[newSegs.length()];
+        return true;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (segments.length() > 0)
+            throw new IllegalStateException("already initialized");
+
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        try {
+            raFile = new RandomAccessFile(getFullName(), "r");
+            long byteCount = readHeader(raFile) - HEADER_OFFSET;
+            if (byteCount < 0) {
+                Helper.close(raFile);
+                raFile = null;
+                return false;
+            }
+            int segmentCount = (int) (byteCount / segmentSizeInBytes);
+            if (byteCount % segmentSizeInBytes != 0)
+                segmentCount++;
+
+            segments = new AtomicReferenceArray<>(segmentCount);
+            referenced = new boolean[segmentCount];
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    private byte[] segment(int bufferIndex) {
+        byte[] seg = segments.get(bufferIndex);
+        if (seg == null)
+            seg = loadSegment(bufferIndex);
+        referenced[bufferIndex] = true;
+        return seg;
+    }
+
+    private synchronized byte[] loadSegment(int bufferIndex) {
+        byte[] seg = segments.get(bufferIndex);
+        if (seg != null)
+            return seg;
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        seg = new byte[segmentSizeInBytes];
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(seg);
+            long position = HEADER_OFFSET + (long) bufferIndex * segmentSizeInBytes;
+            while (buffer.hasRemaining()) {
+                // the last segment can be shorter than the segment size
+                if (raFile.getChannel().read(buffer, position + buffer.position()) < 0)
+                    break;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't load segment " + bufferIndex + " of " + getFullName(), ex);
+        }
+        // the segment must be set before it is added, because adding it can evict other segments
+        segments.set(bufferIndex, seg);
+        referenced[bufferIndex] = true;
+        cache.add(this, bufferIndex);
+        return seg;
+    }
+
+    /**
+     * @return true if the segment was accessed since the last call
+     */
+    boolean clearReferenced(int segment) {
+        boolean result = referenced[segment];
+        referenced[segment] = false;
+        return result;
+    }
+
+    /**
+     * Removes the segment from the heap, it is read again from the file on its next access. Threads that are still
+     * reading the segment are not affected.
+     */
+    void evict(int segment) {
+        segments.set(segment, null);
+    }
+
+    boolean isLoaded(int segment) {
+        return segments.get(segment) != null;
+    }
+
+    /**
+     * @return the number of segments that are currently in the heap
+     */
+    public int getLoadedSegments() {
+        int loaded = 0;
+        AtomicReferenceArray<byte[]> segs = segments;
+        for (int i = 0; i < segs.length(); i++)
+            if (segs.get(i) != null)
+                loaded++;
+        return loaded;
+    }
+
+    private void checkWritable() {
+        if (raFile != null)
+            throw new IllegalStateException("Cannot write to " + getName() + ", a lazily loaded DataAccess is read-only");
+    }
+
+    @Override
+    public void flush() {
+        if (closed)
+            throw new IllegalStateException("already closed");
+
+        // the loaded data cannot change
+        if (raFile != null)
+            return;
+
+        try {
+            try (RandomAccessFile file = new RandomAccessFile(getFullName(), "rw")) {
+                long len = getCapacity();
+                writeHeader(file, len, segmentSizeInBytes);
+                file.seek(HEADER_OFFSET);
+                for (int s = 0; s < segments.length(); s++)
+                    file.write(segments.get(s));
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Couldn't store bytes to " + toString(), ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        super.close();
+        // no segment can be loaded concurrently because loadSegment is synchronized as well
+        cache.removeAll(this);
+        segments = new AtomicReferenceArray<>(0);
+        referenced = new boolean[0];
+        Helper.close(raFile);
+    }
+
+    @Override
+    public void setInt(long bytePos, int value) {
+        checkWritable();
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 4 > segmentSizeInBytes)
+            throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
+        bitUtil.fromInt(segments.get(bufferIndex), value, index);
+    }
+
+    @Override
+    public int getInt(long bytePos) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 4 > segmentSizeInBytes)
+            throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
+        return bitUtil.toInt(segment(bufferIndex), index);
+    }
+
+    @Override
+    public void setShort(long bytePos, short value) {
+        checkWritable();
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 2 > segmentSizeInBytes) {
+            // special case if short has to be written into two separate segments
+            segments.get(bufferIndex)[index] = (byte) (value);
+            segments.get(bufferIndex + 1)[0] = (byte) (value >>> 8);
+        } else {
+            bitUtil.fromShort(segments.get(bufferIndex), value, index);
+        }
+    }
+
+    @Override
+    public short getShort(long bytePos) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        if (index + 2 > segmentSizeInBytes)
+            return (short) ((segment(bufferIndex + 1)[0] & 0xFF) << 8 | (segment(bufferIndex)[index] & 0xFF));
+        else
+            return bitUtil.toShort(segment(bufferIndex), index);
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        checkWritable();
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0) {
+            length -= delta;
+            System.arraycopy(values, 0, segments.get(bufferIndex), index, length);
+            System.arraycopy(values, length, segments.get(bufferIndex + 1), 0, delta);
+        } else {
+            System.arraycopy(values, 0, segments.get(bufferIndex), index, length);
+        }
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0) {
+            length -= delta;
+            System.arraycopy(segment(bufferIndex), index, values, 0, length);
+            System.arraycopy(segment(bufferIndex + 1), 0, values, length, delta);
+        } else {
+            System.arraycopy(segment(bufferIndex), index, values, 0, length);
+        }
+    }
+
+    @Override
+    public void getInts(long bytePos, int[] values, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            int bufferIndex = (int) (bytePos >>> segmentSizePower);
+            int index = (int) (bytePos & indexDivisor);
+            if (index + 4 > segmentSizeInBytes)
+                throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
+            byte[] seg = segment(bufferIndex);
+            int count = Math.min(end - offset, (segmentSizeInBytes - index) >> 2);
+            for (int i = 0; i < count; i++, index += 4)
+                values[offset + i] = bitUtil.toInt(seg, index);
+            offset += count;
+            bytePos += 4L * count;
+        }
+    }
+
+    @Override
+    public void getLongs(long bytePos, long[] values, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            int bufferIndex = (int) (bytePos >>> segmentSizePower);
+            int index = (int) (bytePos & indexDivisor);
+            int count = Math.min(end - offset, (segmentSizeInBytes - index) >> 3);
+            if (count == 0) {
+                // special case if the long is distributed over two segments
+                values[offset++] = bitUtil.toLong(getInt(bytePos), getInt(bytePos + 4));
+                bytePos += 8;
+                continue;
+            }
+            byte[] seg = segment(bufferIndex);
+            for (int i = 0; i < count; i++, index += 8)
+                values[offset + i] = bitUtil.toLong(seg, index);
+            offset += count;
+            bytePos += 8L * count;
+        }
+    }
+
+    @Override
+    public void setByte(long bytePos, byte value) {
+        checkWritable();
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        segments.get(bufferIndex)[index] = value;
+    }
+
+    @Override
+    public byte getByte(long bytePos) {
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        return segment(bufferIndex)[index];
+    }
+
+    @Override
+    public long getCapacity() {
+        return (long) getSegments() * segmentSizeInBytes;
+    }
+
+    @Override
+    public int getSegments() {
+        return segments.length();
+    }
+
+    @Override
+    public DAType getType() {
+        return DAType.LAZY;
+    }
+}
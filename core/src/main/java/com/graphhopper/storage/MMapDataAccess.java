@@ -234,12 +234,43 @@ public final class MMapDataAccess extends AbstractDataAccess {
      * Load memory mapped files into physical memory.
      */
     public void load(int percentage) {
+        int max = getSegmentsToLoad(percentage);
+        for (int i = 0; i < max; i++) {
+            loadSegment(i);
+        }
+    }
+
+    /**
+     * @return the number of segments that {@link #load(int)} loads for the given percentage
+     */
+    int getSegmentsToLoad(int percentage) {
         if (percentage < 0 || percentage > 100)
             throw new IllegalArgumentException("Percentage for MMapDataAccess.load for " + getName() + " must be in [0,100] but was " + percentage);
-        int max = Math.round(segments.size() * percentage / 100f);
-        for (int i = 0; i < max; i++) {
-            segments.get(i).load();
+        return Math.round(segments.size() * percentage / 100f);
+    }
+
+    /**
+     * Loads a single segment into physical memory. Different segments can be loaded concurrently.
+     */
+    void loadSegment(int segment) {
+        segments.get(segment).load();
+    }
+
+    /**
+     * Estimates the fraction of this file that is currently resident in physical memory. The estimate has the
+     * granularity of a segment: a segment only counts as resident if all of its pages are resident, see
+     * {@link MappedByteBuffer#isLoaded()}, which requires a system call per segment.
+     */
+    public double getResidentFraction() {
+        int segmentCount = segments.size();
+        if (segmentCount == 0)
+            return 0;
+        int resident = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            if (segments.get(i).isLoaded())
+                resident++;
         }
+        return (double) resident / segmentCount;
     }
 
     @Override
@@ -334,6 +365,44 @@ public final class MMapDataAccess extends AbstractDataAccess {
         }
     }
 
+    @Override
+    public void getInts(long bytePos, int[] values, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            int bufferIndex = (int) (bytePos >>> segmentSizePower);
+            int index = (int) (bytePos & indexDivisor);
+            if (index + 4 > segmentSizeInBytes)
+                throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
+            ByteBuffer byteBuffer = segments.get(bufferIndex);
+            int count = Math.min(end - offset, (segmentSizeInBytes - index) >> 2);
+            for (int i = 0; i < count; i++, index += 4)
+                values[offset + i] = byteBuffer.getInt(index);
+            offset += count;
+            bytePos += 4L * count;
+        }
+    }
+
+    @Override
+    public void getLongs(long bytePos, long[] values, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            int bufferIndex = (int) (bytePos >>> segmentSizePower);
+            int index = (int) (bytePos & indexDivisor);
+            int count = Math.min(end - offset, (segmentSizeInBytes - index) >> 3);
+            if (count == 0) {
+                // special case if the long is distributed over two segments
+                values[offset++] = bitUtil.toLong(getInt(bytePos), getInt(bytePos + 4));
+                bytePos += 8;
+                continue;
+            }
+            ByteBuffer byteBuffer = segments.get(bufferIndex);
+            for (int i = 0; i < count; i++, index += 8)
+                values[offset + i] = byteBuffer.getLong(index);
+            offset += count;
+            bytePos += 8L * count;
+        }
+    }
+
     @Override
     public void setByte(long bytePos, byte value) {
         int bufferIndex = (int) (bytePos >>> segmentSizePower);
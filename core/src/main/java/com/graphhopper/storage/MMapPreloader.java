@@ -0,0 +1,182 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the segments of memory mapped files into physical memory using multiple threads, so the first queries after a
+ * restart do not have to wait for page faults. The files are loaded in the order of their importance for the queries:
+ * location index, base graph, CH, LM and finally the key-values.
+ */
+class MMapPreloader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MMapPreloader.class);
+    private static final String[][] PRIORITIES = {
+            {"location_index"},
+            {"nodes", "edges", "geometry", "turn_costs", "turn_cost_index", "edge_adjacency"},
+            {"nodes_ch_", "shortcuts_", "cch_"},
+            {"landmarks_"},
+            {"edgekv_", "nodekv_"}
+    };
+    private final List<MMapDataAccess> dataAccesses = new ArrayList<>();
+    private final List<Integer> segmentsToLoad = new ArrayList<>();
+    private final AtomicInteger loadedSegments = new AtomicInteger();
+    private final int totalSegments;
+    private final StopWatch sw = new StopWatch();
+    private ExecutorService executor;
+    private volatile Throwable error;
+
+    /**
+     * @param preloads the DataAccess objects and the percentage of their segments that should be loaded
+     */
+    MMapPreloader(Map<MMapDataAccess, Integer> preloads) {
+        List<MMapDataAccess> sorted = new ArrayList<>(preloads.keySet());
+        sorted.sort(Comparator.comparingInt((MMapDataAccess da) -> getPriority(da.getName())).thenComparing(DataAccess::getName));
+        int total = 0;
+        for (MMapDataAccess da : sorted) {
+            int segments = da.getSegmentsToLoad(preloads.get(da));
+            if (segments == 0)
+                continue;
+            dataAccesses.add(da);
+            segmentsToLoad.add(segments);
+            total += segments;
+        }
+        totalSegments = total;
+    }
+
+    /**
+     * @return the priority of the given DataAccess, files with a smaller value are loaded first
+     */
+    static int getPriority(String name) {
+        for (int priority = 0; priority < PRIORITIES.length; priority++)
+            for (String prefix : PRIORITIES[priority])
+                // the base graph files have no suffix, all others have one, e.g. the profile name
+                if (priority == 1 ? name.equals(prefix) : name.startsWith(prefix))
+                    return priority;
+        return PRIORITIES.length;
+    }
+
+    /**
+     * Starts loading the segments using the given number of threads and returns immediately.
+     */
+    synchronized void start(int threads) {
+        if (executor != null)
+            throw new IllegalStateException("Preloading was already started");
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one thread is required for preloading but was " + threads);
+        sw.start();
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mmap-preload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the tasks are executed in the order they are submitted, so the more important files are loaded first
+        for (int i = 0; i < dataAccesses.size(); i++) {
+            MMapDataAccess da = dataAccesses.get(i);
+            for (int segment = 0; segment < segmentsToLoad.get(i); segment++) {
+                final int s = segment;
+                executor.execute(() -> loadSegment(da, s));
+            }
+        }
+        executor.shutdown();
+    }
+
+    private void loadSegment(MMapDataAccess da, int segment) {
+        if (error != null || Thread.currentThread().isInterrupted())
+            return;
+        try {
+            da.loadSegment(segment);
+        } catch (Throwable t) {
+            LOGGER.error("Could not preload segment " + segment + " of " + da.getName(), t);
+            error = t;
+            return;
+        }
+        if (loadedSegments.incrementAndGet() == totalSegments)
+            LOGGER.info("Preloaded " + totalSegments + " segments of " + dataAccesses.size() + " memory mapped files in "
+                    + sw.stop().getSeconds() + "s");
+    }
+
+    /**
+     * Blocks until all segments are loaded.
+     *
+     * @throws IllegalStateException if loading one of the segments failed
+     */
+    void awaitCompletion() {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                LOGGER.info("Preloading memory mapped files, progress: " + Math.round(getProgress() * 100) + "%");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+        if (error != null)
+            throw new IllegalStateException("Preloading memory mapped files failed", error);
+    }
+
+    /**
+     * Stops the preloading and waits for the segments that are currently loaded. This must be called before the
+     * DataAccess objects are closed.
+     */
+    synchronized void stop() {
+        if (executor == null)
+            return;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the fraction of the segments that were loaded so far
+     */
+    double getProgress() {
+        return totalSegments == 0 ? 1 : (double) loadedSegments.get() / totalSegments;
+    }
+
+    boolean isDone() {
+        return loadedSegments.get() == totalSegments;
+    }
+
+    Throwable getError() {
+        return error;
+    }
+
+    int getTotalSegments() {
+        return totalSegments;
+    }
+
+    /**
+     * @return the names of the files that are loaded in the order they are loaded
+     */
+    List<String> getNames() {
+        List<String> names = new ArrayList<>(dataAccesses.size());
+        for (MMapDataAccess da : dataAccesses)
+            names.add(da.getName());
+        return names;
+    }
+}
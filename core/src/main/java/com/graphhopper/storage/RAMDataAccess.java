@@ -17,10 +17,18 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.util.GHUtility;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
  * This is an in-memory byte-based data structure with the possibility to be stored on flush().
@@ -32,6 +40,7 @@ import java.util.Arrays;
 public class RAMDataAccess extends AbstractDataAccess {
     private byte[][] segments = new byte[0][];
     private boolean store;
+    private boolean compress;
 
     RAMDataAccess(String name, String location, boolean store, int segmentSize) {
         super(name, location, segmentSize);
@@ -46,6 +55,20 @@ public class RAMDataAccess extends AbstractDataAccess {
         return this;
     }
 
+    /**
+     * @param compress true if every segment should be compressed separately when calling flush. Such a file is
+     *                 smaller and loadExisting decompresses the segments in parallel. Files with compressed segments
+     *                 are detected automatically on load.
+     */
+    public RAMDataAccess compress(boolean compress) {
+        this.compress = compress;
+        return this;
+    }
+
+    public boolean isCompressing() {
+        return compress;
+    }
+
     @Override
     public boolean isStoring() {
         return store;
@@ -105,6 +128,9 @@ public class RAMDataAccess extends AbstractDataAccess {
 
         try {
             try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "r")) {
+                if (COMPRESSED_MARKER.equals(raFile.readUTF()))
+                    return loadCompressed(raFile);
+
                 long byteCount = readHeader(raFile) - HEADER_OFFSET;
                 if (byteCount < 0)
                     return false;
@@ -131,6 +157,65 @@ public class RAMDataAccess extends AbstractDataAccess {
         }
     }
 
+    /**
+     * The compressed file starts with the compressed length of every segment followed by the compressed segments,
+     * so every segment can be read and decompressed independently.
+     */
+    private boolean loadCompressed(RandomAccessFile raFile) throws IOException {
+        long byteCount = readHeader(raFile, COMPRESSED_MARKER) - HEADER_OFFSET;
+        if (byteCount < 0)
+            return false;
+
+        int segmentCount = (int) (byteCount / segmentSizeInBytes);
+        if (byteCount % segmentSizeInBytes != 0)
+            segmentCount++;
+
+        raFile.seek(HEADER_OFFSET);
+        long[] offsets = new long[segmentCount + 1];
+        offsets[0] = HEADER_OFFSET + 4L * segmentCount;
+        for (int s = 0; s < segmentCount; s++) {
+            offsets[s + 1] = offsets[s] + raFile.readInt();
+        }
+
+        byte[][] newSegments = new byte[segmentCount][];
+        FileChannel channel = raFile.getChannel();
+        int threads = Math.max(1, Math.min(segmentCount, Runtime.getRuntime().availableProcessors()));
+        GHUtility.runConcurrently(IntStream.range(0, segmentCount).mapToObj(s -> () -> {
+            try {
+                newSegments[s] = decompress(channel, offsets[s], (int) (offsets[s + 1] - offsets[s]));
+            } catch (IOException | DataFormatException ex) {
+                throw new IllegalStateException("Problem while decompressing segment " + s + " of " + getFullName(), ex);
+            }
+        }), threads);
+        segments = newSegments;
+        return true;
+    }
+
+    private byte[] decompress(FileChannel channel, long offset, int length) throws IOException, DataFormatException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IllegalStateException("Unexpected end of file " + getFullName());
+        }
+        byte[] bytes = new byte[segmentSizeInBytes];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.array());
+            int read = 0;
+            while (read < bytes.length && !inflater.finished()) {
+                int n = inflater.inflate(bytes, read, bytes.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                read += n;
+            }
+            if (read != bytes.length)
+                throw new IllegalStateException("Segment has " + read + " bytes instead of " + bytes.length + ", " + getFullName());
+        } finally {
+            inflater.end();
+        }
+        return bytes;
+    }
+
     @Override
     public void flush() {
         if (closed)
@@ -139,6 +224,11 @@ public class RAMDataAccess extends AbstractDataAccess {
         if (!store)
             return;
 
+        if (compress) {
+            flushCompressed();
+            return;
+        }
+
         try {
             try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "rw")) {
                 long len = getCapacity();
@@ -155,6 +245,35 @@ public class RAMDataAccess extends AbstractDataAccess {
         }
     }
 
+    private void flushCompressed() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (RandomAccessFile raFile = new RandomAccessFile(getFullName(), "rw")) {
+            raFile.setLength(0);
+            writeHeader(raFile, COMPRESSED_MARKER, getCapacity(), segmentSizeInBytes);
+            int[] lengths = new int[segments.length];
+            byte[] buffer = new byte[64 * 1024];
+            raFile.seek(HEADER_OFFSET + 4L * segments.length);
+            for (int s = 0; s < segments.length; s++) {
+                deflater.reset();
+                deflater.setInput(segments[s]);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    raFile.write(buffer, 0, n);
+                    lengths[s] += n;
+                }
+            }
+            raFile.seek(HEADER_OFFSET);
+            for (int length : lengths) {
+                raFile.writeInt(length);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Couldn't store compressed bytes to " + toString(), ex);
+        } finally {
+            deflater.end();
+        }
+    }
+
     @Override
     public final void setInt(long bytePos, int value) {
         assert segmentSizePower > 0 : "call create or loadExisting before usage!";
@@ -236,6 +355,46 @@ public class RAMDataAccess extends AbstractDataAccess {
         }
     }
 
+    @Override
+    public void getInts(long bytePos, int[] values, int offset, int length) {
+        assert segments.length > 0 : "call create or loadExisting before usage!";
+        int end = offset + length;
+        while (offset < end) {
+            int bufferIndex = (int) (bytePos >>> segmentSizePower);
+            int index = (int) (bytePos & indexDivisor);
+            if (index + 4 > segmentSizeInBytes)
+                throw new IllegalStateException("Padding required. Currently an int cannot be distributed over two segments. " + bytePos);
+            byte[] seg = segments[bufferIndex];
+            int count = Math.min(end - offset, (segmentSizeInBytes - index) >> 2);
+            for (int i = 0; i < count; i++, index += 4)
+                values[offset + i] = bitUtil.toInt(seg, index);
+            offset += count;
+            bytePos += 4L * count;
+        }
+    }
+
+    @Override
+    public void getLongs(long bytePos, long[] values, int offset, int length) {
+        assert segments.length > 0 : "call create or loadExisting before usage!";
+        int end = offset + length;
+        while (offset < end) {
+            int bufferIndex = (int) (bytePos >>> segmentSizePower);
+            int index = (int) (bytePos & indexDivisor);
+            int count = Math.min(end - offset, (segmentSizeInBytes - index) >> 3);
+            if (count == 0) {
+                // special case if the long is distributed over two segments
+                values[offset++] = bitUtil.toLong(getInt(bytePos), getInt(bytePos + 4));
+                bytePos += 8;
+                continue;
+            }
+            byte[] seg = segments[bufferIndex];
+            for (int i = 0; i < count; i++, index += 8)
+                values[offset + i] = bitUtil.toLong(seg, index);
+            offset += count;
+            bytePos += 8L * count;
+        }
+    }
+
     @Override
     public final void setByte(long bytePos, byte value) {
         assert segments.length > 0 : "call create or loadExisting before usage!";
@@ -181,6 +181,29 @@ class RAMIntDataAccess extends AbstractDataAccess {
         return segments[bufferIndex][index];
     }
 
+    @Override
+    public void getInts(long bytePos, int[] values, int offset, int length) {
+        assert segments.length > 0 : "call create or loadExisting before usage!";
+        long intPos = bytePos >>> 2;
+        int segmentSizeInInts = 1 << segmentSizeIntsPower;
+        while (length > 0) {
+            int bufferIndex = (int) (intPos >>> segmentSizeIntsPower);
+            int index = (int) (intPos & indexDivisor);
+            int count = Math.min(length, segmentSizeInInts - index);
+            System.arraycopy(segments[bufferIndex], index, values, offset, count);
+            offset += count;
+            length -= count;
+            intPos += count;
+        }
+    }
+
+    @Override
+    public void getLongs(long bytePos, long[] values, int offset, int length) {
+        assert segments.length > 0 : "call create or loadExisting before usage!";
+        for (int i = 0; i < length; i++, bytePos += 8)
+            values[offset + i] = bitUtil.toLong(getInt(bytePos), getInt(bytePos + 4));
+    }
+
     @Override
     public final void setShort(long bytePos, short value) {
         assert segments.length > 0 : "call create or loadExisting before usage!";
@@ -43,6 +43,12 @@ public interface RoutingCHGraph {
 
     int getLevel(int node);
 
+    /**
+     * @return the number of nodes that were not contracted. They have the highest levels and must be searched without
+     * the level restriction, see {@link CHConfig#nodeBasedCore}
+     */
+    int getCoreNodes();
+
     double getTurnWeight(int inEdge, int viaNode, int outEdge);
 
     /**
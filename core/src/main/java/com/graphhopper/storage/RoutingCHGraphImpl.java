@@ -77,6 +77,20 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
         return chStorage.getLevel(chStorage.toNodePointer(node));
     }
 
+    @Override
+    public int getCoreNodes() {
+        return chStorage.getCoreNodes();
+    }
+
+    /**
+     * Creates a CH graph that uses the same shortcuts, but calculates the weights of the base edges using the given
+     * weighting. This is only valid if the given weighting yields the same weights as the one used for the preparation
+     * for all edges outside the core, see {@link CHConfig#nodeBasedCore}.
+     */
+    public RoutingCHGraphImpl withWeighting(Weighting weighting) {
+        return new RoutingCHGraphImpl(baseGraph, chStorage, weighting);
+    }
+
     @Override
     public Graph getBaseGraph() {
         return baseGraph;
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntArrayDeque;
+
+import java.util.ArrayDeque;
+
+/**
+ * Limits the memory used by the segments of all {@link LazyDataAccess} objects of a directory. If the limit is
+ * exceeded the least recently used segments are evicted. Instead of reordering a list on every access the
+ * approximation of the clock algorithm is used: every segment has a reference bit that is set when it is accessed,
+ * and the oldest segment is only evicted if its bit is not set, otherwise the bit is cleared and the segment gets a
+ * second chance.
+ */
+class SegmentCache {
+    private final ArrayDeque<LazyDataAccess> owners = new ArrayDeque<>();
+    private final IntArrayDeque segments = new IntArrayDeque();
+    private long maxBytes;
+    private long bytes;
+
+    SegmentCache(long maxBytes) {
+        setMaxBytes(maxBytes);
+    }
+
+    synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("The memory for lazily loaded segments must be positive but was " + maxBytes);
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * Adds a segment that was just loaded and evicts other segments if the memory limit is exceeded. The most
+     * recently added segment is never evicted.
+     */
+    synchronized void add(LazyDataAccess da, int segment) {
+        owners.addLast(da);
+        segments.addLast(segment);
+        bytes += da.getSegmentSize();
+        evict();
+    }
+
+    private void evict() {
+        // every segment gets at most one second chance per round
+        int secondChances = owners.size();
+        while (bytes > maxBytes && owners.size() > 1) {
+            LazyDataAccess da = owners.removeFirst();
+            int segment = segments.removeFirst();
+            if (da.clearReferenced(segment) && secondChances-- > 0) {
+                owners.addLast(da);
+                segments.addLast(segment);
+            } else {
+                da.evict(segment);
+                bytes -= da.getSegmentSize();
+            }
+        }
+    }
+
+    /**
+     * Removes all segments of the given DataAccess, e.g. because it is closed.
+     */
+    synchronized void removeAll(LazyDataAccess da) {
+        for (int i = owners.size(); i > 0; i--) {
+            LazyDataAccess owner = owners.removeFirst();
+            int segment = segments.removeFirst();
+            if (owner == da) {
+                bytes -= da.getSegmentSize();
+            } else {
+                owners.addLast(owner);
+                segments.addLast(segment);
+            }
+        }
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized int getSegments() {
+        return owners.size();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.BitMixer;
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * An open addressing hash table with linear probing that maps the keys (fromEdge, viaNode, toEdge) to the index of
+ * the corresponding entry of the {@link TurnCostStorage}. A lookup usually reads a single slot instead of following
+ * the linked list of turn cost entries of the via node.
+ * <p>
+ * Memory layout: |from edge|to edge|via node|entry index| for every slot, empty slots have an entry index of
+ * {@link TurnCostStorage#NO_TURN_ENTRY}. The number of slots is a power of two.
+ */
+class TurnCostIndex {
+    private static final int SLOT_FROM = 0;
+    private static final int SLOT_TO = 4;
+    private static final int SLOT_VIA = 8;
+    private static final int SLOT_ENTRY = 12;
+    private static final int BYTES_PER_SLOT = 16;
+    private static final int MIN_SLOTS = 16;
+    private final DataAccess da;
+    private int slots;
+    private int entries;
+
+    TurnCostIndex(Directory dir, int segmentSize) {
+        da = dir.create("turn_cost_index", segmentSize);
+    }
+
+    /**
+     * Removes all keys and prepares the table for the given number of entries. This must be called before any keys
+     * are inserted.
+     */
+    void init(int expectedEntries) {
+        slots = calcSlots(expectedEntries);
+        entries = 0;
+        long bytes = (long) slots * BYTES_PER_SLOT;
+        if (da.getCapacity() == 0)
+            da.create(bytes);
+        else
+            da.ensureCapacity(bytes);
+        for (int slot = 0; slot < slots; slot++)
+            da.setInt((long) slot * BYTES_PER_SLOT + SLOT_ENTRY, TurnCostStorage.NO_TURN_ENTRY);
+    }
+
+    static int calcSlots(int entries) {
+        // keep the load factor below 0.75
+        long minSlots = Math.max(MIN_SLOTS, 4L * entries / 3 + 1);
+        if (minSlots > 1 << 30)
+            throw new IllegalArgumentException("Too many turn cost entries: " + entries);
+        return Integer.highestOneBit((int) minSlots - 1) << 1;
+    }
+
+    /**
+     * @return false if the table is too full to insert another key and needs to be rebuilt with more slots
+     */
+    boolean canInsert() {
+        return 4L * (entries + 1) <= 3L * slots;
+    }
+
+    /**
+     * Inserts a key, which must not be contained yet.
+     */
+    void insert(int fromEdge, int viaNode, int toEdge, int entryIndex) {
+        if (!canInsert())
+            throw new IllegalStateException("Turn cost index is full, slots: " + slots + ", entries: " + entries);
+        int mask = slots - 1;
+        int slot = hash(fromEdge, viaNode, toEdge) & mask;
+        while (da.getInt((long) slot * BYTES_PER_SLOT + SLOT_ENTRY) != TurnCostStorage.NO_TURN_ENTRY)
+            slot = (slot + 1) & mask;
+        long pointer = (long) slot * BYTES_PER_SLOT;
+        da.setInt(pointer + SLOT_FROM, fromEdge);
+        da.setInt(pointer + SLOT_TO, toEdge);
+        da.setInt(pointer + SLOT_VIA, viaNode);
+        da.setInt(pointer + SLOT_ENTRY, entryIndex);
+        entries++;
+    }
+
+    /**
+     * @return the index of the turn cost entry or {@link TurnCostStorage#NO_TURN_ENTRY} if there is none
+     */
+    int find(int fromEdge, int viaNode, int toEdge) {
+        int mask = slots - 1;
+        int slot = hash(fromEdge, viaNode, toEdge) & mask;
+        while (true) {
+            long pointer = (long) slot * BYTES_PER_SLOT;
+            int entryIndex = da.getInt(pointer + SLOT_ENTRY);
+            if (entryIndex == TurnCostStorage.NO_TURN_ENTRY
+                    || da.getInt(pointer + SLOT_FROM) == fromEdge && da.getInt(pointer + SLOT_TO) == toEdge && da.getInt(pointer + SLOT_VIA) == viaNode)
+                return entryIndex;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    static int hash(int fromEdge, int viaNode, int toEdge) {
+        return BitMixer.mix32(BitMixer.mix32(fromEdge * 31 + toEdge) + viaNode);
+    }
+
+    int getEntries() {
+        return entries;
+    }
+
+    boolean loadExisting() {
+        if (!da.loadExisting())
+            return false;
+        GHUtility.checkDAVersion(da.getName(), Constants.VERSION_TURN_COST_INDEX, da.getHeader(0));
+        slots = da.getHeader(4);
+        entries = da.getHeader(8);
+        return true;
+    }
+
+    void flush() {
+        da.setHeader(0, Constants.VERSION_TURN_COST_INDEX);
+        da.setHeader(4, slots);
+        da.setHeader(8, entries);
+        da.flush();
+    }
+
+    void close() {
+        da.close();
+    }
+
+    boolean isClosed() {
+        return da.isClosed();
+    }
+
+    long getCapacity() {
+        return da.getCapacity();
+    }
+}
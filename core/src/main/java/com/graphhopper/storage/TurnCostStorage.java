@@ -45,6 +45,10 @@ public class TurnCostStorage {
     private final BaseGraph baseGraph;
     private final DataAccess turnCosts;
     private int turnCostsCount;
+    // can be null if the hashed index is not enabled
+    private TurnCostIndex turnCostIndex;
+    // the hashed index used for the lookups, only set once it was built or loaded
+    private TurnCostIndex activeIndex;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -56,19 +60,68 @@ public class TurnCostStorage {
         return this;
     }
 
+    /**
+     * Enables the hashed index that is used instead of the linked lists of the via nodes to look up the turn cost
+     * entries, see {@link #buildIndex()}.
+     */
+    void setIndex(TurnCostIndex turnCostIndex) {
+        this.turnCostIndex = turnCostIndex;
+    }
+
+    /**
+     * Builds the hashed index from all existing entries, if it is enabled. Entries that are created afterwards are
+     * added to the index as well.
+     */
+    void buildIndex() {
+        if (turnCostIndex == null)
+            return;
+        turnCostIndex.init(turnCostsCount);
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            int index = baseGraph.getNodeAccess().getTurnCostIndex(node);
+            while (index != NO_TURN_ENTRY) {
+                long pointer = (long) index * BYTES_PER_ENTRY;
+                turnCostIndex.insert(turnCosts.getInt(pointer + TC_FROM), node, turnCosts.getInt(pointer + TC_TO), index);
+                index = turnCosts.getInt(pointer + TC_NEXT);
+            }
+        }
+        if (turnCostIndex.getEntries() != turnCostsCount)
+            throw new IllegalStateException("Expected " + turnCostsCount + " turn cost entries, but found: " + turnCostIndex.getEntries());
+        activeIndex = turnCostIndex;
+    }
+
+    /**
+     * Loads the hashed index, if it is enabled, or builds it if it does not exist yet or does not match the entries.
+     */
+    void loadOrBuildIndex() {
+        if (turnCostIndex == null)
+            return;
+        if (turnCostIndex.loadExisting() && turnCostIndex.getEntries() == turnCostsCount)
+            activeIndex = turnCostIndex;
+        else
+            buildIndex();
+    }
+
+    public boolean hasIndex() {
+        return activeIndex != null;
+    }
+
     public void flush() {
         turnCosts.setHeader(0, Constants.VERSION_TURN_COSTS);
         turnCosts.setHeader(4, BYTES_PER_ENTRY);
         turnCosts.setHeader(2 * 4, turnCostsCount);
         turnCosts.flush();
+        if (activeIndex != null)
+            activeIndex.flush();
     }
 
     public void close() {
         turnCosts.close();
+        if (turnCostIndex != null && !turnCostIndex.isClosed())
+            turnCostIndex.close();
     }
 
     public long getCapacity() {
-        return turnCosts.getCapacity();
+        return turnCosts.getCapacity() + (activeIndex != null ? activeIndex.getCapacity() : 0);
     }
 
     public boolean loadExisting() {
@@ -112,6 +165,12 @@ public class TurnCostStorage {
             turnCosts.setInt(pointer + TC_TO, toEdge);
             turnCosts.setInt(pointer + TC_NEXT, prevIndex);
             turnCostsCount++;
+            if (activeIndex != null) {
+                if (activeIndex.canInsert())
+                    activeIndex.insert(fromEdge, viaNode, toEdge, turnCostsCount - 1);
+                else
+                    buildIndex();
+            }
         }
         return pointer;
     }
@@ -140,6 +199,20 @@ public class TurnCostStorage {
         };
     }
 
+    /**
+     * Replaces the from- and to-edges of all turn cost entries, i.e. edge e becomes edge newEdgeIds[e]. The entries
+     * belong to the via node, so renumbering the nodes does not require any changes here.
+     */
+    void relabelEdges(int[] newEdgeIds) {
+        for (int index = 0; index < turnCostsCount; index++) {
+            long pointer = (long) index * BYTES_PER_ENTRY;
+            turnCosts.setInt(pointer + TC_FROM, newEdgeIds[turnCosts.getInt(pointer + TC_FROM)]);
+            turnCosts.setInt(pointer + TC_TO, newEdgeIds[turnCosts.getInt(pointer + TC_TO)]);
+        }
+        if (activeIndex != null)
+            buildIndex();
+    }
+
     private void ensureTurnCostIndex(int nodeIndex) {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * BYTES_PER_ENTRY);
     }
@@ -150,6 +223,10 @@ public class TurnCostStorage {
         if (viaNode < 0)
             throw new IllegalArgumentException("via node cannot be negative");
 
+        if (activeIndex != null) {
+            int index = activeIndex.find(fromEdge, viaNode, toEdge);
+            return index == NO_TURN_ENTRY ? -1 : (long) index * BYTES_PER_ENTRY;
+        }
         final int maxEntries = 1000;
         int index = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
         for (int i = 0; i < maxEntries; ++i) {
@@ -64,8 +64,13 @@ public class Constants {
     public static final int VERSION_EM = 3;
     public static final int VERSION_SHORTCUT = 9;
     public static final int VERSION_NODE_CH = 0;
+    public static final int VERSION_CCH = 0;
+    public static final int VERSION_ADJACENCY = 0;
     public static final int VERSION_GEOMETRY = 6;
+    // the compressed geometry has its own version, so readers that only know the plain format reject it
+    public static final int VERSION_GEOMETRY_COMPRESSED = 7;
     public static final int VERSION_TURN_COSTS = 0;
+    public static final int VERSION_TURN_COST_INDEX = 0;
     public static final int VERSION_LOCATION_IDX = 5;
     public static final int VERSION_KV_STORAGE = 2;
     /**
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import com.graphhopper.util.exceptions.RequestTimeoutException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The time until which a request has to be finished. It is created once per request and shared by all of its phases,
+ * like snapping, the creation of the query graph, the path calculation and the instructions, which call
+ * {@link #check()} in between. The search loops use {@link #isExceeded()}. A request can also be cancelled, e.g. when
+ * the client disconnected.
+ */
+public class Deadline {
+    /**
+     * A deadline that is never exceeded and cannot be cancelled
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+    // the cancel check might be expensive, e.g. if it looks at the connection of the client
+    private static final long CANCEL_CHECK_INTERVAL_MILLIS = 20;
+    // requests that wait for the result of another one check their deadline at least this often
+    private static final long WAIT_SLICE_MILLIS = 20;
+
+    private final long timeoutMillis;
+    private final long finishTimeMillis;
+    private final BooleanSupplier cancelCheck;
+    private volatile boolean cancelled;
+    private volatile long nextCancelCheckMillis;
+
+    /**
+     * @param timeoutMillis the time the request may take from now on, Long.MAX_VALUE for no timeout. A negative
+     *                      timeout is exceeded immediately.
+     */
+    public Deadline(long timeoutMillis) {
+        this(timeoutMillis, null);
+    }
+
+    /**
+     * @param cancelCheck cancels the request once it returns true, it is called at most every 20ms. Can be null.
+     */
+    public Deadline(long timeoutMillis, BooleanSupplier cancelCheck) {
+        this.timeoutMillis = timeoutMillis;
+        long now = System.currentTimeMillis();
+        long finishTime;
+        try {
+            finishTime = Math.addExact(now, timeoutMillis);
+        } catch (ArithmeticException e) {
+            finishTime = Long.MAX_VALUE;
+        }
+        this.finishTimeMillis = finishTime;
+        this.cancelCheck = cancelCheck;
+    }
+
+    public void cancel() {
+        if (this == NONE)
+            throw new IllegalStateException("Deadline.NONE cannot be cancelled");
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return the time until the timeout is exceeded, Long.MAX_VALUE if there is no timeout
+     */
+    public long getRemainingMillis() {
+        if (finishTimeMillis == Long.MAX_VALUE)
+            return Long.MAX_VALUE;
+        return Math.max(0, finishTimeMillis - System.currentTimeMillis());
+    }
+
+    /**
+     * @return true if the request took too long or was cancelled
+     */
+    public boolean isExceeded() {
+        if (cancelled)
+            return true;
+        if (finishTimeMillis == Long.MAX_VALUE && cancelCheck == null)
+            return false;
+        long now = System.currentTimeMillis();
+        if (now > finishTimeMillis)
+            return true;
+        if (cancelCheck != null && now >= nextCancelCheckMillis) {
+            nextCancelCheckMillis = now + CANCEL_CHECK_INTERVAL_MILLIS;
+            if (cancelCheck.getAsBoolean())
+                cancelled = true;
+        }
+        return cancelled;
+    }
+
+    /**
+     * @throws RequestCancelledException if the request was cancelled
+     * @throws RequestTimeoutException   if the request took too long
+     */
+    public void check() {
+        if (!isExceeded())
+            return;
+        if (cancelled)
+            throw new RequestCancelledException("The request was cancelled");
+        throw new RequestTimeoutException("The request did not finish within its timeout of " + timeoutMillis + "ms", timeoutMillis);
+    }
+
+    /**
+     * Waits for the result of another request, e.g. a calculation that is shared by concurrent requests, but not
+     * longer than this deadline allows. If the future completed exceptionally its exception is thrown. So a
+     * {@link RequestCancelledException} or {@link RequestTimeoutException} might also come from the other request,
+     * call {@link #check()} to find out if this request is affected as well.
+     */
+    public <T> T await(Future<T> future) {
+        try {
+            while (true) {
+                check();
+                try {
+                    return future.get(Math.max(1, Math.min(WAIT_SLICE_MILLIS, getRemainingMillis())), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException ex) {
+                    // check this deadline again
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the result of another request", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+}
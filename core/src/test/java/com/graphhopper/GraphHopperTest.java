@@ -17,12 +17,15 @@
  */
 package com.graphhopper;
 
+import com.carrotsearch.hppc.IntFloatHashMap;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.LMProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
+import com.graphhopper.routing.RouteCache;
+import com.graphhopper.routing.WeightingFactory;
 import com.graphhopper.routing.ev.EdgeIntAccess;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.RoadEnvironment;
@@ -34,12 +37,17 @@ import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.DefaultTagParserFactory;
 import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.util.parsers.TagParser;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.search.KVStorage;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.LazyDataAccess;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
+import com.graphhopper.util.Parameters.CCH;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
@@ -47,6 +55,8 @@ import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import com.graphhopper.util.exceptions.MaximumNodesExceededException;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import com.graphhopper.util.exceptions.RequestTimeoutException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import com.graphhopper.util.shapes.GHPoint3D;
@@ -142,7 +152,7 @@ public class GraphHopperTest {
         req.putHint(TIMEOUT_MS, -1);
         rsp = hopper.route(req);
         assertTrue(rsp.hasErrors());
-        assertTrue(rsp.getErrors().toString().contains("ConnectionNotFoundException"), rsp.getErrors().toString());
+        assertTrue(rsp.getErrors().toString().contains("RequestTimeoutException"), rsp.getErrors().toString());
     }
 
     @Test
@@ -198,6 +208,336 @@ public class GraphHopperTest {
         assertEquals(115, res.getPoints().size());
     }
 
+    @Test
+    public void testSortedGraph() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("foot")).
+                setGraphSort("hilbert").
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+        assertEquals("hilbert", hopper.getProperties().get("graph.sort"));
+
+        // same route as in testMonacoWithInstructions
+        for (boolean ch : new boolean[]{true, false}) {
+            GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                    setProfile(profile).putHint(Parameters.CH.DISABLE, !ch));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(3535, rsp.getBest().getDistance(), 1);
+            assertEquals(115, rsp.getBest().getPoints().size());
+        }
+        hopper.close();
+
+        // the sorted graph can be loaded again
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("foot"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        assertTrue(hopper.load());
+        assertEquals(3535, hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setProfile(profile)).getBest().getDistance(), 1);
+        hopper.close();
+    }
+
+    @Test
+    public void testLazyDataAccess() {
+        final String profile = "profile";
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("datareader.file", MONACO).
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.sort", "hilbert").
+                putObject("graph.dataaccess.segment_size", 4096).
+                setProfiles(Collections.singletonList(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("foot"))).
+                setCHProfiles(Collections.singletonList(new CHProfile(profile)));
+        GraphHopper importer = new GraphHopper().init(config);
+        importer.importOrLoad();
+        importer.close();
+
+        config.putObject("graph.dataaccess.type.nodes", "LAZY").
+                putObject("graph.dataaccess.type.edges", "LAZY").
+                putObject("graph.dataaccess.lazy.max_memory", 1);
+        GraphHopper hopper = new GraphHopper().init(config);
+        assertTrue(hopper.load());
+        DataAccess edges = hopper.getBaseGraph().getDirectory().getDAs().get("edges");
+        assertEquals(DAType.LAZY, edges.getType());
+        assertEquals(0, ((LazyDataAccess) edges).getLoadedSegments());
+        // same route as in testSortedGraph, with CH only some of the segments are needed
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(3535, rsp.getBest().getDistance(), 1);
+        int loaded = ((LazyDataAccess) edges).getLoadedSegments();
+        assertTrue(loaded > 0 && loaded < edges.getSegments(), loaded + " of " + edges.getSegments());
+
+        rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setProfile(profile).putHint(Parameters.CH.DISABLE, true));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(3535, rsp.getBest().getDistance(), 1);
+        assertThrows(IllegalStateException.class, () -> hopper.getBaseGraph().getEdgeIteratorState(0, Integer.MIN_VALUE).setDistance(10));
+        hopper.close();
+    }
+
+    @Test
+    public void testFrozenAdjacency() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("foot")).
+                setFrozenAdjacency(true).
+                setStoreOnFlush(true);
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.importOrLoad();
+        assertTrue(hopper.getBaseGraph().isFrozen());
+
+        // the same route and number of visited nodes as in testMonacoWithInstructions
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setAlgorithm(ASTAR).setProfile(profile).putHint(Parameters.Landmark.DISABLE, true));
+        assertEquals(1022, rsp.getHints().getLong("visited_nodes.sum", 0));
+        assertEquals(3535, rsp.getBest().getDistance(), 1);
+        rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertEquals(3535, rsp.getBest().getDistance(), 1);
+        hopper.close();
+    }
+
+    @Test
+    public void testCompressedGeometry() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("foot")).
+                setCompressedGeometry(true).
+                setStoreOnFlush(true).
+                importOrLoad();
+
+        // the same route as in testMonacoWithInstructions
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setAlgorithm(ASTAR).setProfile(profile));
+        ResponsePath res = rsp.getBest();
+        assertEquals(3535, res.getDistance(), 1);
+        assertEquals(115, res.getPoints().size());
+        assertEquals(43.7276852, res.getWaypoints().getLat(0), 1e-7);
+        hopper.close();
+    }
+
+    @Test
+    public void testTrafficOverlayIsAppliedOnTopOfTheWeightingFactory() {
+        final String profile = "profile";
+        AtomicInteger trafficWeightings = new AtomicInteger();
+        GraphHopper hopper = new GraphHopper() {
+            @Override
+            protected WeightingFactory createWeightingFactory() {
+                WeightingFactory weightingFactory = super.createWeightingFactory();
+                return (p, hints, disableTurnCosts) -> {
+                    if (hints.has(TrafficOverlay.KEY))
+                        trafficWeightings.incrementAndGet();
+                    return weightingFactory.createWeighting(p, hints, disableTurnCosts);
+                };
+            }
+        }.
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("car")).
+                setStoreOnFlush(true).
+                importOrLoad();
+        // the preparations do not use the traffic overlay
+        assertEquals(0, trafficWeightings.get());
+
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setPathDetails(Collections.singletonList(Parameters.Details.EDGE_KEY));
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(1, trafficWeightings.get());
+
+        // closing an edge in the middle of the route in both directions forces another route
+        List<PathDetail> edgeKeys = rsp.getBest().getPathDetails().get(Parameters.Details.EDGE_KEY);
+        int edgeKey = ((Number) edgeKeys.get(edgeKeys.size() / 2).getValue()).intValue();
+        IntFloatHashMap factors = new IntFloatHashMap();
+        factors.put(edgeKey, 0);
+        factors.put(GHUtility.reverseEdgeKey(edgeKey), 0);
+        hopper.getTrafficOverlay().update(factors, true);
+        GHResponse blockedRsp = hopper.route(req);
+        assertEquals(2, trafficWeightings.get());
+        assertFalse(blockedRsp.hasErrors(), blockedRsp.getErrors().toString());
+        assertTrue(blockedRsp.getBest().getRouteWeight() > rsp.getBest().getRouteWeight());
+        hopper.close();
+    }
+
+    @Test
+    public void testRouteCache() {
+        final String profile = "profile";
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("datareader.file", MONACO).
+                putObject("import.osm.ignored_highways", "").
+                putObject(Routing.INIT_ROUTE_CACHE_SIZE, 10).
+                setProfiles(Collections.singletonList(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("foot")));
+        GraphHopper hopper = new GraphHopper().init(config).importOrLoad();
+        RouteCache cache = hopper.getRouteCache();
+
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertEquals(3535, rsp.getBest().getDistance(), 1);
+        assertEquals(1, cache.getMisses());
+        assertSame(rsp, hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile)));
+        assertEquals(1, cache.getHits());
+
+        // different hints or new traffic data require a new calculation
+        assertNotSame(rsp, hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                putHint(Routing.INSTRUCTIONS, false)));
+        hopper.getTrafficOverlay().clear();
+        GHResponse newRsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertNotSame(rsp, newRsp);
+        assertEquals(rsp.getBest().getDistance(), newRsp.getBest().getDistance(), 1.e-6);
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.getSize());
+
+        // custom models whose areas have the same id but different geometries must not share an entry
+        GHPoint middle = rsp.getBest().getPoints().get(rsp.getBest().getPoints().size() / 2);
+        GHResponse blockedRsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setCustomModel(createZoneModel(createRectangle("zone", middle.lat - 0.0005, middle.lon - 0.0005, middle.lat + 0.0005, middle.lon + 0.0005))));
+        GHResponse otherRsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                setCustomModel(createZoneModel(createRectangle("zone", 43.70, 7.39, 43.701, 7.391))));
+        assertFalse(blockedRsp.hasErrors(), blockedRsp.getErrors().toString());
+        assertFalse(otherRsp.hasErrors(), otherRsp.getErrors().toString());
+        assertNotSame(blockedRsp, otherRsp);
+        assertTrue(blockedRsp.getBest().getDistance() > rsp.getBest().getDistance() + 1, "the zone must change the route");
+        assertEquals(rsp.getBest().getDistance(), otherRsp.getBest().getDistance(), 1.e-6);
+        assertEquals(5, cache.getMisses());
+
+        hopper.close();
+        assertEquals(0, cache.getSize());
+    }
+
+    private static CustomModel createZoneModel(JsonFeature zone) {
+        CustomModel customModel = new CustomModel().addToPriority(If("in_zone", MULTIPLY, "0"));
+        customModel.getAreas().getFeatures().add(zone);
+        return customModel;
+    }
+
+    @Test
+    public void testRouteBatch() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        List<GHRequest> requests = new ArrayList<>();
+        for (boolean ch : new boolean[]{true, false}) {
+            requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).putHint(CH.DISABLE, !ch));
+            requests.add(new GHRequest(43.74958, 7.436566, 43.727687, 7.418737).setProfile(profile).putHint(CH.DISABLE, !ch));
+            requests.add(new GHRequest().setProfile(profile).putHint(CH.DISABLE, !ch).
+                    addPoint(new GHPoint(43.727687, 7.418737)).
+                    addPoint(new GHPoint(43.735942, 7.421163)).
+                    addPoint(new GHPoint(43.74958, 7.436566)));
+        }
+        // a point outside of the graph and an unknown profile only fail their own request
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.5).setProfile(profile));
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("unknown"));
+        // requests with headings are routed separately
+        requests.add(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).
+                putHint(CH.DISABLE, true).setHeadings(Arrays.asList(0d, Double.NaN)));
+
+        List<GHResponse> responses = hopper.routeBatch(requests);
+        assertEquals(requests.size(), responses.size());
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse expected = hopper.route(requests.get(i));
+            GHResponse rsp = responses.get(i);
+            assertEquals(expected.hasErrors(), rsp.hasErrors(), "request " + i + ": " + rsp.getErrors());
+            if (expected.hasErrors()) {
+                assertEquals(expected.getErrors().get(0).getClass(), rsp.getErrors().get(0).getClass());
+                continue;
+            }
+            // the shared query graph can split an edge at more points, which changes the rounding slightly
+            assertEquals(expected.getBest().getDistance(), rsp.getBest().getDistance(), 1.e-2, "request " + i);
+            assertEquals(expected.getBest().getTime(), rsp.getBest().getTime(), 1, "request " + i);
+            assertEquals(expected.getBest().getPoints().size(), rsp.getBest().getPoints().size(), "request " + i);
+        }
+        assertTrue(responses.get(6).hasErrors());
+        assertTrue(responses.get(7).hasErrors());
+        assertFalse(responses.get(8).hasErrors());
+
+        List<GHRequest> tooManyRequests = Collections.nCopies(1001, requests.get(0));
+        assertThrows(IllegalArgumentException.class, () -> hopper.routeBatch(tooManyRequests));
+        hopper.close();
+    }
+
+    @Test
+    public void testParallelLegs() {
+        final String profile = "profile";
+        GraphHopperConfig config = new GraphHopperConfig().
+                putObject("graph.location", GH_LOCATION).
+                putObject("datareader.file", MONACO).
+                putObject("import.osm.ignored_highways", "").
+                putObject(Routing.INIT_PARALLEL_LEGS_THREADS, 3).
+                putObject(Routing.INIT_PARALLEL_LEGS_MIN_LEGS, 4).
+                setProfiles(Collections.singletonList(new Profile(profile).setVehicle("car"))).
+                setCHProfiles(Collections.singletonList(new CHProfile(profile))).
+                setLMProfiles(Collections.singletonList(new LMProfile(profile)));
+        GraphHopper hopper = new GraphHopper().init(config).importOrLoad();
+
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 12; i++)
+            points.add(new GHPoint(43.7275 + (i % 4) * 0.007, 7.4185 + (i / 4) * 0.008));
+        for (String mode : new String[]{"ch", "lm", "flex"}) {
+            GHRequest request = new GHRequest(points).setProfile(profile).
+                    putHint(CH.DISABLE, !mode.equals("ch")).
+                    putHint(Landmark.DISABLE, !mode.equals("lm"));
+            GHResponse parallel = hopper.route(request);
+            GHResponse sequential = hopper.route(new GHRequest(points).setProfile(profile).
+                    putHint(CH.DISABLE, !mode.equals("ch")).
+                    putHint(Landmark.DISABLE, !mode.equals("lm")).
+                    putHint(Routing.PARALLEL_LEGS, false));
+            assertFalse(parallel.hasErrors(), mode + ": " + parallel.getErrors());
+            assertFalse(sequential.hasErrors(), mode + ": " + sequential.getErrors());
+            assertEquals(sequential.getBest().getDistance(), parallel.getBest().getDistance(), 1.e-6, mode);
+            assertEquals(sequential.getBest().getTime(), parallel.getBest().getTime(), mode);
+            assertEquals(sequential.getBest().getPoints(), parallel.getBest().getPoints(), mode);
+            assertEquals(sequential.getBest().getWaypoints(), parallel.getBest().getWaypoints(), mode);
+            assertEquals(sequential.getBest().getInstructions().size(), parallel.getBest().getInstructions().size(), mode);
+            assertEquals(sequential.getHints().getLong("visited_nodes.sum", -1), parallel.getHints().getLong("visited_nodes.sum", -2), mode);
+        }
+
+        // the error of a single leg fails the whole request
+        GHResponse rsp = hopper.route(new GHRequest(points).setProfile(profile).putHint(CH.DISABLE, true).
+                putHint(Landmark.DISABLE, true).putHint(Routing.MAX_VISITED_NODES, 10));
+        assertEquals(1, rsp.getErrors().size());
+        assertTrue(rsp.getErrors().get(0) instanceof MaximumNodesExceededException, rsp.getErrors().toString());
+        hopper.close();
+    }
+
+    @Test
+    public void testCancelRequest() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        for (boolean ch : new boolean[]{true, false}) {
+            GHRequest request = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).putHint(CH.DISABLE, !ch);
+            assertFalse(hopper.route(request, () -> false).hasErrors());
+            GHResponse rsp = hopper.route(request, () -> true);
+            assertEquals(1, rsp.getErrors().size());
+            assertTrue(rsp.getErrors().get(0) instanceof RequestCancelledException, rsp.getErrors().toString());
+
+            rsp = hopper.routeBatch(Arrays.asList(request, request), () -> true).get(1);
+            assertTrue(rsp.getErrors().get(0) instanceof RequestCancelledException, rsp.getErrors().toString());
+        }
+        // a timeout fires with its own error, see also testMonacoDifferentAlgorithms
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).putHint(TIMEOUT_MS, -1));
+        assertTrue(rsp.getErrors().get(0) instanceof RequestTimeoutException, rsp.getErrors().toString());
+        hopper.close();
+    }
+
     @Test
     public void withoutInstructions() {
         final String profile = "profile";
@@ -727,6 +1067,73 @@ public class GraphHopperTest {
         assertDistance(hopper, customCar, new CustomModel(customModelWithUnclassifiedRule).setDistanceInfluence(100d), 14475);
     }
 
+    @Test
+    public void testCustomModelCCH() {
+        final String vehicle = "car";
+        final String customCar = "custom_car";
+        final String emptyCar = "empty_car";
+        CustomModel customModel = new CustomModel();
+        customModel.addToSpeed(If("road_class == TERTIARY || road_class == TRACK", MULTIPLY, "0.1"));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(BAYREUTH).
+                setProfiles(
+                        new Profile(emptyCar).setCustomModel(new CustomModel()).setVehicle(vehicle),
+                        new Profile(customCar).setCustomModel(customModel).setVehicle(vehicle)
+                ).
+                setCCHEnabled(true).
+                importOrLoad();
+        assertNotNull(hopper.getCustomizableCH());
+
+        // the same routes as in testCustomModel, but the requests with a custom model use CCH
+        assertDistance(hopper, emptyCar, null, 8725);
+        assertDistance(hopper, customCar, null, 13223);
+        assertDistance(hopper, emptyCar, new CustomModel(customModel), 13223);
+        CustomModel strictCustomModel = new CustomModel().addToSpeed(
+                If("road_class == TERTIARY || road_class == TRACK || road_class == UNCLASSIFIED", MULTIPLY, "0.1"));
+        assertDistance(hopper, emptyCar, strictCustomModel, 19289);
+        CustomModel customModelWithUnclassifiedRule = new CustomModel().addToSpeed(
+                If("road_class == UNCLASSIFIED", MULTIPLY, "0.1")
+        );
+        assertDistance(hopper, customCar, customModelWithUnclassifiedRule, 19289);
+        assertDistance(hopper, customCar, new CustomModel(customModelWithUnclassifiedRule).setDistanceInfluence(200d), 8725);
+        assertDistance(hopper, customCar, new CustomModel(customModelWithUnclassifiedRule).setDistanceInfluence(100d), 14475);
+
+        // the same weights as without CCH
+        GHRequest req = new GHRequest(50.008732, 11.596413, 49.974361, 11.514509).setProfile(emptyCar).setCustomModel(strictCustomModel);
+        GHResponse cchRsp = hopper.route(req);
+        req.putHint(CCH.DISABLE, true);
+        GHResponse flexRsp = hopper.route(req);
+        assertFalse(cchRsp.hasErrors(), cchRsp.getErrors().toString());
+        assertFalse(flexRsp.hasErrors(), flexRsp.getErrors().toString());
+        assertEquals(flexRsp.getBest().getRouteWeight(), cchRsp.getBest().getRouteWeight(), 1);
+        assertEquals(flexRsp.getBest().getTime(), cchRsp.getBest().getTime(), 1000);
+        // CCH explores much fewer nodes
+        assertTrue(cchRsp.getHints().getInt("visited_nodes.sum", 0) < flexRsp.getHints().getInt("visited_nodes.sum", 0));
+
+        // custom models whose areas have the same id but different geometries must not share a customization
+        GHResponse rsp = hopper.route(new GHRequest(50.008732, 11.596413, 49.974361, 11.514509).setProfile(emptyCar));
+        GHPoint middle = rsp.getBest().getPoints().get(rsp.getBest().getPoints().size() / 2);
+        CustomModel blockingModel = createZoneModel(createRectangle("zone", middle.lat - 0.001, middle.lon - 0.001, middle.lat + 0.001, middle.lon + 0.001));
+        CustomModel otherModel = createZoneModel(createRectangle("zone", 49.90, 11.40, 49.901, 11.401));
+        assertTrue(hopper.route(new GHRequest(50.008732, 11.596413, 49.974361, 11.514509).setProfile(emptyCar).
+                setCustomModel(blockingModel)).getBest().getDistance() > 8725 + 1);
+        assertDistance(hopper, emptyCar, otherModel, 8725);
+
+        // the preparation is loaded from disk
+        hopper.close();
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(
+                        new Profile(emptyCar).setCustomModel(new CustomModel()).setVehicle(vehicle),
+                        new Profile(customCar).setCustomModel(customModel).setVehicle(vehicle)
+                ).
+                setCCHEnabled(true);
+        assertTrue(hopper.load());
+        assertDistance(hopper, emptyCar, strictCustomModel, 19289);
+        hopper.close();
+    }
+
     private void assertDistance(GraphHopper hopper, String profile, CustomModel customModel, double expectedDistance) {
         GHRequest req = new GHRequest(50.008732, 11.596413, 49.974361, 11.514509);
         req.setProfile(profile);
@@ -1707,6 +2114,103 @@ public class GraphHopperTest {
         assertEquals(3587, response.getBest().getDistance(), 1);
     }
 
+    @Test
+    public void testCoreCH() {
+        final String profile = "profile";
+        // the weightings for the custom models of the core requests are created without the speed factors of the traffic overlay
+        AtomicInteger customModelWeightings = new AtomicInteger();
+        GraphHopper hopper = new GraphHopper() {
+            @Override
+            protected WeightingFactory createWeightingFactory() {
+                WeightingFactory weightingFactory = super.createWeightingFactory();
+                return (p, hints, disableTurnCosts) -> {
+                    if (hints.has(CustomModel.KEY) && !hints.has(TrafficOverlay.KEY))
+                        customModelWeightings.incrementAndGet();
+                    return weightingFactory.createWeighting(p, hints, disableTurnCosts);
+                };
+            }
+        }.
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("toll").
+                setProfiles(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile).setCoreEncodedValues(Arrays.asList("road_access", "toll")));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        assertTrue(hopper.getCHGraphs().get(profile).getCoreNodes() > 0);
+        assertNull(hopper.getPHASTData(profile));
+
+        List<CustomModel> customModels = Arrays.asList(null,
+                new CustomModel().addToPriority(If("road_access == PRIVATE || road_access == DESTINATION", MULTIPLY, "0")),
+                new CustomModel().addToPriority(If("road_access != YES", MULTIPLY, "0.1")).addToSpeed(If("toll == ALL", MULTIPLY, "0.5")));
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        for (CustomModel customModel : customModels) {
+            for (int i = 0; i < 20; i++) {
+                GHRequest req = new GHRequest(
+                        43.727 + rnd.nextDouble() * 0.021, 7.413 + rnd.nextDouble() * 0.024,
+                        43.727 + rnd.nextDouble() * 0.021, 7.413 + rnd.nextDouble() * 0.024).
+                        setProfile(profile).setCustomModel(customModel);
+                GHResponse expected = hopper.route(new GHRequest(req.getPoints()).setProfile(profile).setCustomModel(customModel).
+                        putHint(CH.DISABLE, true).putHint(Landmark.DISABLE, true));
+                GHResponse response = hopper.route(req);
+                String msg = "seed: " + seed + ", " + customModel + ", " + req.getPoints();
+                assertEquals(expected.hasErrors(), response.hasErrors(), msg + ", " + expected.getErrors() + ", " + response.getErrors());
+                if (!expected.hasErrors()) {
+                    assertEquals(expected.getBest().getRouteWeight(), response.getBest().getRouteWeight(), 1.e-2, msg);
+                    assertEquals(expected.getBest().getDistance(), response.getBest().getDistance(), 1.e-1, msg);
+                }
+            }
+        }
+        assertEquals(40, customModelWeightings.get());
+
+        // custom models that change the weights outside of the core cannot be used with the core
+        for (CustomModel customModel : Arrays.asList(
+                new CustomModel().setDistanceInfluence(0d),
+                new CustomModel().addToPriority(If("road_class == PRIMARY", MULTIPLY, "0.5")),
+                new CustomModel().addToPriority(If("road_access == YES", MULTIPLY, "0.5")))) {
+            GHResponse response = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                    setProfile(profile).setCustomModel(customModel));
+            assertTrue(response.hasErrors(), customModel.toString());
+            assertEquals(IllegalArgumentException.class, response.getErrors().get(0).getClass());
+            response = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                    setProfile(profile).setCustomModel(customModel).putHint(CH.DISABLE, true).putHint(Landmark.DISABLE, true));
+            assertFalse(response.hasErrors(), response.getErrors().toString());
+        }
+        hopper.close();
+
+        // a different core does not match the stored preparation
+        GraphHopper hopper2 = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setEncodedValuesString("toll").
+                setProfiles(new Profile(profile).setCustomModel(new CustomModel().setDistanceInfluence(70d)).setVehicle("car"));
+        hopper2.getCHPreparationHandler().setCHProfiles(new CHProfile(profile).setCoreEncodedValues(Collections.singletonList("toll")));
+        hopper2.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper2.setMinNetworkSize(0);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, hopper2::importOrLoad);
+        assertTrue(e.getMessage().contains("core_encoded_values changed"), e.getMessage());
+    }
+
+    @Test
+    public void testCoreCHRequiresLM() {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car"));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile).setCoreEncodedValues(Collections.singletonList("road_access")));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, hopper::importOrLoad);
+        assertTrue(e.getMessage().contains("requires an LM profile"), e.getMessage());
+
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile).setCoreEncodedValues(Collections.singletonList("unknown")));
+        e = assertThrows(IllegalArgumentException.class, hopper::importOrLoad);
+        assertTrue(e.getMessage().contains("Unknown core encoded value 'unknown'"), e.getMessage());
+    }
+
     @Test
     public void testCreateWeightingHintsMerging() {
         final String profile = "profile";
@@ -1993,6 +2497,29 @@ public class GraphHopperTest {
         assertNotEquals(rsp1.getHints().getInt("visited_nodes.sum", -1), rsp2.getHints().getInt("visited_nodes.sum", -1));
     }
 
+    @Test
+    public void testTurnCostIndex() {
+        final String profile = "my_car";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MOSCOW).
+                setProfiles(new Profile(profile).setVehicle("car").setTurnCosts(true)).
+                setTurnCostIndex(true).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler()
+                .setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+        assertTrue(hopper.getBaseGraph().getTurnCostStorage().hasIndex());
+
+        // the same routes as in testCHOnOffWithTurnCosts
+        GHRequest req = new GHRequest(55.813357, 37.5958585, 55.811042, 37.594689).setProfile(profile);
+        req.putHint(CH.DISABLE, true);
+        assertEquals(1044, hopper.route(req).getBest().getDistance(), 1);
+        req.putHint(CH.DISABLE, false);
+        assertEquals(1044, hopper.route(req).getBest().getDistance(), 1);
+        hopper.close();
+    }
+
     @Test
     public void testNodeBasedCHOnlyButTurnCostForNonCH() {
         final String profile1 = "car_profile_tc";
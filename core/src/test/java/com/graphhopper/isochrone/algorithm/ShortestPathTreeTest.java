@@ -14,9 +14,11 @@ import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.Deadline;
 import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.exceptions.RequestCancelledException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -155,6 +157,20 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    public void testCancelled() {
+        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        ShortestPathTree instance = new ShortestPathTree(graph, CustomModelParser.createFastestWeighting(accessEnc, speedEnc, encodingManager), false, TraversalMode.NODE_BASED);
+        instance.setTimeLimit(Double.MAX_VALUE);
+        Deadline deadline = new Deadline(Long.MAX_VALUE);
+        instance.setDeadline(deadline);
+        assertThrows(RequestCancelledException.class, () -> instance.search(0, label -> {
+            result.add(label);
+            deadline.cancel();
+        }));
+        assertEquals(1, result.size());
+    }
+
     @Test
     public void testNoTimeLimit() {
         List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
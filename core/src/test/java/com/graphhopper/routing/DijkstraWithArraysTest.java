@@ -0,0 +1,103 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Run some tests specific for {@link DijkstraWithArrays}
+ *
+ * @see RoutingAlgorithmTest for test cases covering standard routing with this algorithm
+ */
+class DijkstraWithArraysTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+    private final EncodingManager encodingManager = new EncodingManager.Builder().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+
+    @ParameterizedTest
+    @CsvSource({"NODE_BASED,false", "NODE_BASED,true", "EDGE_BASED,false", "EDGE_BASED,true"})
+    void samePathsAsDijkstraAndAStarOnGrid(TraversalMode traversalMode, boolean astar) {
+        // all edges have the same weight, so there are many shortest paths between most nodes
+        int size = 15;
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                graph.getNodeAccess().setNode(row * size + col, 49.4 + row * 0.001, 9.7 + col * 0.001);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                if (col + 1 < size)
+                    graph.edge(node, node + 1).setDistance(100).set(speedEnc, 10, 10);
+                if (row + 1 < size)
+                    graph.edge(node, node + size).setDistance(100).set(speedEnc, 10, 10);
+            }
+        }
+        compareWithExistingAlgorithms(traversalMode, astar, 123);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"NODE_BASED,false", "NODE_BASED,true", "EDGE_BASED,false", "EDGE_BASED,true"})
+    void samePathsAsDijkstraAndAStarOnRandomGraph(TraversalMode traversalMode, boolean astar) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        // a single speed, so equal distances mean equal weights
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, true, speedEnc, 60.0, 0.8, 0.5);
+        GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 3, graph.getTurnCostStorage());
+        compareWithExistingAlgorithms(traversalMode, astar, seed);
+    }
+
+    private void compareWithExistingAlgorithms(TraversalMode traversalMode, boolean astar, long seed) {
+        Weighting weighting = traversalMode.isEdgeBased()
+                ? new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40)
+                : new SpeedWeighting(speedEnc);
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 200; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            AbstractRoutingAlgorithm expectedAlgo = astar ? new AStar(graph, weighting, traversalMode) : new Dijkstra(graph, weighting, traversalMode);
+            DijkstraWithArrays algo = new DijkstraWithArrays(graph, weighting, traversalMode);
+            if (astar)
+                algo.setApproximation(new BeelineWeightApproximator(graph.getNodeAccess(), weighting).setDistanceCalc(DistancePlaneProjection.DIST_PLANE));
+            Path expected = expectedAlgo.calcPath(from, to);
+            Path path = algo.calcPath(from, to);
+            String msg = "seed: " + seed + ", query: " + i + ", " + from + "->" + to;
+            assertEquals(expected.isFound(), path.isFound(), msg);
+            assertEquals(expected.getEdges(), path.getEdges(), msg);
+            assertEquals(expected.getWeight(), path.getWeight(), 1.e-6, msg);
+            assertEquals(expected.getDistance(), path.getDistance(), 1.e-6, msg);
+            assertEquals(expected.getTime(), path.getTime(), msg);
+            assertEquals(expectedAlgo.getVisitedNodes(), algo.getVisitedNodes(), msg);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
 import com.graphhopper.routing.weighting.SpeedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
@@ -75,6 +76,8 @@ public class RandomizedRoutingTest {
             return Stream.of(
                     FixtureSupplier.create(Algo.DIJKSTRA, false, false, NODE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_UNIDIR, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_WITH_ARRAYS, false, false, NODE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_WITH_ARRAYS, false, false, NODE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_BIDIR, false, false, NODE_BASED),
                     FixtureSupplier.create(Algo.CH_ASTAR, true, false, NODE_BASED),
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, NODE_BASED),
@@ -82,6 +85,8 @@ public class RandomizedRoutingTest {
                     FixtureSupplier.create(Algo.LM_BIDIR, false, true, NODE_BASED),
                     FixtureSupplier.create(Algo.DIJKSTRA, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_UNIDIR, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.DIJKSTRA_WITH_ARRAYS, false, false, EDGE_BASED),
+                    FixtureSupplier.create(Algo.ASTAR_WITH_ARRAYS, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.ASTAR_BIDIR, false, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.CH_ASTAR, true, false, EDGE_BASED),
                     FixtureSupplier.create(Algo.CH_DIJKSTRA, true, false, EDGE_BASED),
@@ -178,6 +183,11 @@ public class RandomizedRoutingTest {
                     return new Dijkstra(graph, graph.wrapWeighting(weighting), traversalMode);
                 case ASTAR_UNIDIR:
                     return new AStar(graph, graph.wrapWeighting(weighting), traversalMode);
+                case DIJKSTRA_WITH_ARRAYS:
+                    return new DijkstraWithArrays(graph, graph.wrapWeighting(weighting), traversalMode);
+                case ASTAR_WITH_ARRAYS:
+                    return new DijkstraWithArrays(graph, graph.wrapWeighting(weighting), traversalMode)
+                            .setApproximation(new BeelineWeightApproximator(graph.getNodeAccess(), weighting));
                 case ASTAR_BIDIR:
                     return new AStarBidirection(graph, graph.wrapWeighting(weighting), traversalMode);
                 case CH_DIJKSTRA: {
@@ -212,6 +222,8 @@ public class RandomizedRoutingTest {
         DIJKSTRA,
         ASTAR_BIDIR,
         ASTAR_UNIDIR,
+        DIJKSTRA_WITH_ARRAYS,
+        ASTAR_WITH_ARRAYS,
         CH_ASTAR,
         CH_DIJKSTRA,
         LM_BIDIR,
@@ -0,0 +1,190 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.util.Deadline;
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import com.graphhopper.util.exceptions.RequestTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteCacheTest {
+
+    @Test
+    public void testHitsAndEviction() {
+        AtomicLong time = new AtomicLong();
+        RouteCache cache = new RouteCache(2, 100, time::get);
+        GHResponse a = new GHResponse();
+        assertSame(a, cache.get("a", Deadline.NONE, () -> a));
+        assertSame(a, cache.get("a", Deadline.NONE, () -> fail("should be cached")));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // the least recently used entry is evicted
+        cache.get("b", Deadline.NONE, GHResponse::new);
+        cache.get("a", Deadline.NONE, () -> fail("should be cached"));
+        cache.get("c", Deadline.NONE, GHResponse::new);
+        assertEquals(2, cache.getSize());
+        assertSame(a, cache.get("a", Deadline.NONE, () -> fail("should be cached")));
+        GHResponse b = new GHResponse();
+        assertSame(b, cache.get("b", Deadline.NONE, () -> b));
+
+        // ... and entries that are too old
+        time.set(100);
+        GHResponse newA = new GHResponse();
+        assertSame(newA, cache.get("a", Deadline.NONE, () -> newA));
+        assertEquals(3, cache.getHits());
+        assertEquals(5, cache.getMisses());
+
+        cache.invalidate();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        RouteCache cache = new RouteCache(10, 1000);
+        GHResponse error = new GHResponse().addError(new IllegalArgumentException("no route"));
+        assertSame(error, cache.get("a", Deadline.NONE, () -> error));
+        assertThrows(IllegalStateException.class, () -> cache.get("a", Deadline.NONE, () -> {
+            throw new IllegalStateException("failed");
+        }));
+        GHResponse ok = new GHResponse();
+        assertSame(ok, cache.get("a", Deadline.NONE, () -> ok));
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        RouteCache cache = new RouteCache(10, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger calculations = new AtomicInteger();
+        GHResponse response = new GHResponse();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<GHResponse> first = executor.submit(() -> cache.get("a", Deadline.NONE, () -> {
+                calculations.incrementAndGet();
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                return response;
+            }));
+            started.await();
+            Future<GHResponse> second = executor.submit(() -> cache.get("a", Deadline.NONE, () -> {
+                calculations.incrementAndGet();
+                return new GHResponse();
+            }));
+            // wait until the second request is waiting for the first one
+            while (cache.getCoalesced() == 0)
+                Thread.sleep(1);
+            finish.countDown();
+            assertSame(response, first.get());
+            assertSame(response, second.get());
+            assertEquals(1, calculations.get());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getCoalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelledCalculationIsRepeatedForWaitingRequests() throws Exception {
+        RouteCache cache = new RouteCache(10, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        GHResponse response = new GHResponse();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<GHResponse> first = executor.submit(() -> cache.get("a", Deadline.NONE, () -> {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                throw new RequestCancelledException("cancelled");
+            }));
+            started.await();
+            Future<GHResponse> second = executor.submit(() -> cache.get("a", Deadline.NONE, () -> response));
+            while (cache.getCoalesced() == 0)
+                Thread.sleep(1);
+            finish.countDown();
+            ExecutionException ex = assertThrows(ExecutionException.class, first::get);
+            assertTrue(ex.getCause() instanceof RequestCancelledException);
+            assertSame(response, second.get());
+            assertEquals(2, cache.getMisses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testWaitingRequestsUseTheirOwnDeadline() throws Exception {
+        RouteCache cache = new RouteCache(10, 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        GHResponse response = new GHResponse();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<GHResponse> first = executor.submit(() -> cache.get("a", Deadline.NONE, () -> {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                throw new RequestTimeoutException("timeout", 10);
+            }));
+            started.await();
+            // the waiting request does not wait longer than its own timeout ...
+            assertThrows(RequestTimeoutException.class, () -> cache.get("a", new Deadline(50), () -> fail("should wait")));
+            // ... but calculates the route if the calculating request times out first
+            Future<GHResponse> third = executor.submit(() -> cache.get("a", Deadline.NONE, () -> response));
+            while (cache.getCoalesced() < 2)
+                Thread.sleep(1);
+            finish.countDown();
+            ExecutionException ex = assertThrows(ExecutionException.class, first::get);
+            assertTrue(ex.getCause() instanceof RequestTimeoutException);
+            assertSame(response, third.get());
+            assertEquals(2, cache.getMisses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidateDuringCalculation() {
+        RouteCache cache = new RouteCache(10, 1000);
+        cache.get("a", Deadline.NONE, () -> {
+            cache.invalidate();
+            return new GHResponse();
+        });
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -209,6 +209,10 @@ public class RoutingAlgorithmTest {
                     new Fixture(new BidirDijkstraCalculator(), EDGE_BASED),
                     new Fixture(new AStarCalculator(), NODE_BASED),
                     new Fixture(new AStarCalculator(), EDGE_BASED),
+                    new Fixture(new DijkstraWithArraysCalculator(), NODE_BASED),
+                    new Fixture(new DijkstraWithArraysCalculator(), EDGE_BASED),
+                    new Fixture(new AStarWithArraysCalculator(), NODE_BASED),
+                    new Fixture(new AStarWithArraysCalculator(), EDGE_BASED),
                     new Fixture(new BidirAStarCalculator(), NODE_BASED),
                     new Fixture(new BidirAStarCalculator(), EDGE_BASED),
                     // so far only supports node-based
@@ -1144,6 +1148,31 @@ public class RoutingAlgorithmTest {
         }
     }
 
+    private static class DijkstraWithArraysCalculator extends SimpleCalculator {
+        @Override
+        RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+            return new DijkstraWithArrays(graph, weighting, traversalMode);
+        }
+
+        @Override
+        public String toString() {
+            return "DIJKSTRA_WITH_ARRAYS";
+        }
+    }
+
+    private static class AStarWithArraysCalculator extends SimpleCalculator {
+        @Override
+        RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+            return new DijkstraWithArrays(graph, weighting, traversalMode)
+                    .setApproximation(new BeelineWeightApproximator(graph.getNodeAccess(), weighting));
+        }
+
+        @Override
+        public String toString() {
+            return "ASTAR_WITH_ARRAYS";
+        }
+    }
+
     private static class BidirDijkstraCalculator extends SimpleCalculator {
         @Override
         RoutingAlgorithm createAlgo(Graph graph, Weighting weighting, TraversalMode traversalMode) {
@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SPTArraysTest {
+
+    @Test
+    public void resetInvalidatesEntries() {
+        SPTArrays arrays = new SPTArrays(10);
+        assertEquals(SPTArrays.NO_ENTRY, arrays.getEntry(3));
+        int entry = arrays.addEntry(1.5, 7, 4, SPTArrays.NO_ENTRY);
+        arrays.setEntry(3, entry);
+        arrays.push(entry, 1.5);
+        assertEquals(entry, arrays.getEntry(3));
+        assertEquals(1.5, arrays.getWeight(entry));
+        assertEquals(7, arrays.getEdge(entry));
+        assertEquals(4, arrays.getAdjNode(entry));
+        assertEquals(SPTArrays.NO_ENTRY, arrays.getParent(entry));
+        assertFalse(arrays.isDeleted(entry));
+        arrays.setDeleted(entry);
+        assertTrue(arrays.isDeleted(entry));
+
+        arrays.reset();
+        assertEquals(SPTArrays.NO_ENTRY, arrays.getEntry(3));
+        assertEquals(0, arrays.getEntryCount());
+        assertTrue(arrays.isQueueEmpty());
+        // new entries are not deleted, even if they reuse the index
+        assertEquals(entry, arrays.addEntry(2, 7, 4, SPTArrays.NO_ENTRY));
+        assertFalse(arrays.isDeleted(entry));
+    }
+
+    @Test
+    public void entriesGrow() {
+        SPTArrays arrays = new SPTArrays(10);
+        for (int i = 0; i < 100; i++) {
+            int entry = arrays.addEntry(i, i, i, i - 1);
+            arrays.push(entry, 100 - i);
+        }
+        assertEquals(100, arrays.getEntryCount());
+        for (int i = 99; i >= 0; i--) {
+            int entry = arrays.poll();
+            assertEquals(i, entry);
+            assertEquals(i, arrays.getWeight(entry));
+            assertEquals(i - 1, arrays.getParent(entry));
+        }
+        assertTrue(arrays.isQueueEmpty());
+    }
+
+    @Test
+    public void queueIsPolledLikePriorityQueue() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        SPTArrays arrays = new SPTArrays(10);
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        List<SPTEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            if (queue.isEmpty() || rnd.nextInt(3) > 0) {
+                // many equal weights, so the order of ties matters
+                double weight = rnd.nextInt(20);
+                SPTEntry sptEntry = new SPTEntry(entries.size(), weight);
+                entries.add(sptEntry);
+                queue.add(sptEntry);
+                arrays.push(arrays.addEntry(weight, -1, entries.size() - 1, SPTArrays.NO_ENTRY), weight);
+            } else {
+                assertSame(queue.poll(), entries.get(arrays.poll()), "seed: " + seed);
+            }
+            assertEquals(queue.isEmpty(), arrays.isQueueEmpty());
+        }
+        while (!queue.isEmpty())
+            assertSame(queue.poll(), entries.get(arrays.poll()), "seed: " + seed);
+        assertTrue(arrays.isQueueEmpty());
+    }
+
+    @Test
+    public void forCurrentThread() {
+        SPTArrays arrays = SPTArrays.forCurrentThread(10);
+        arrays.setEntry(5, arrays.addEntry(1, 1, 1, SPTArrays.NO_ENTRY));
+        // the same instance is returned, but reset
+        assertSame(arrays, SPTArrays.forCurrentThread(8));
+        assertEquals(SPTArrays.NO_ENTRY, arrays.getEntry(5));
+        // a bigger instance is created if necessary
+        SPTArrays bigger = SPTArrays.forCurrentThread(100);
+        assertNotSame(arrays, bigger);
+        assertTrue(bigger.getCapacity() >= 100);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.IntEncodedValue;
+import com.graphhopper.routing.ev.IntEncodedValueImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.AbstractAdjustedWeighting;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoreCHTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final IntEncodedValue coreEnc = new IntEncodedValueImpl("core_ev", 2, false);
+    private final EncodingManager encodingManager = new EncodingManager.Builder().add(speedEnc).add(coreEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+
+    @Test
+    void coreEdgeFilter() {
+        assertThrows(IllegalArgumentException.class, () -> new CoreEdgeFilter(encodingManager, Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> new CoreEdgeFilter(encodingManager, Collections.singletonList("unknown")));
+
+        CoreEdgeFilter filter = new CoreEdgeFilter(encodingManager, Collections.singletonList("core_ev"));
+        EdgeIteratorState edge = graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        assertFalse(filter.accept(edge));
+        edge.set(coreEnc, 2);
+        assertTrue(filter.accept(edge));
+    }
+
+    @Test
+    void smallGraph() {
+        // 0-1-2-3-4
+        //     |   |
+        //     5---6
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(100).set(speedEnc, 10, 10).set(coreEnc, 1);
+        graph.edge(3, 4).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 5).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(5, 6).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(6, 4).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        RoutingCHGraphImpl chGraph = prepare(-1);
+        // only the nodes of the core edge 2-3 are in the core
+        assertEquals(2, chGraph.getCoreNodes());
+        assertEquals(chGraph.getNodes() - 2, Math.min(chGraph.getLevel(2), chGraph.getLevel(3)));
+
+        assertEquals(40, calcPath(chGraph, 0, 4).getWeight(), 1.e-6);
+        // the weight of the core edge can be changed at query time
+        RoutingCHGraph blocked = chGraph.withWeighting(new CorePenaltyWeighting(new SpeedWeighting(speedEnc), coreEnc, 1, Double.POSITIVE_INFINITY));
+        assertEquals(50, calcPath(blocked, 0, 4).getWeight(), 1.e-6);
+        assertEquals(50, calcPath(blocked, 4, 0).getWeight(), 1.e-6);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 1, 2})
+    void randomGraph(int contractionThreads) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, false, speedEnc, null, 0.8, 0.1);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next())
+            if (rnd.nextDouble() < 0.1)
+                iter.set(coreEnc, rnd.nextInt(3) + 1);
+        graph.freeze();
+        RoutingCHGraphImpl chGraph = prepare(contractionThreads);
+        assertTrue(chGraph.getCoreNodes() > 0);
+
+        Weighting baseWeighting = new SpeedWeighting(speedEnc);
+        for (Weighting weighting : Arrays.asList(baseWeighting,
+                new CorePenaltyWeighting(baseWeighting, coreEnc, 1, 3),
+                new CorePenaltyWeighting(baseWeighting, coreEnc, 2, Double.POSITIVE_INFINITY))) {
+            RoutingCHGraph queryCHGraph = chGraph.withWeighting(weighting);
+            for (int i = 0; i < 50; i++) {
+                int from = rnd.nextInt(graph.getNodes());
+                int to = rnd.nextInt(graph.getNodes());
+                Path expected = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                Path path = calcPath(queryCHGraph, from, to);
+                String msg = "seed: " + seed + ", " + weighting + ", from: " + from + ", to: " + to;
+                assertEquals(expected.isFound(), path.isFound(), msg);
+                if (expected.isFound()) {
+                    assertEquals(expected.getWeight(), path.getWeight(), 1.e-2, msg);
+                    assertEquals(expected.getDistance(), path.getDistance(), 1.e-2, msg);
+                }
+            }
+        }
+    }
+
+    private RoutingCHGraphImpl prepare(int contractionThreads) {
+        CHConfig chConfig = CHConfig.nodeBasedCore("core", new SpeedWeighting(speedEnc),
+                new CoreEdgeFilter(encodingManager, Collections.singletonList("core_ev")));
+        PrepareContractionHierarchies prepare = PrepareContractionHierarchies.fromGraph(graph, chConfig);
+        if (contractionThreads < 0)
+            prepare.useFixedNodeOrdering(NodeOrderingProvider.identity(graph.getNodes()));
+        else
+            prepare.setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, contractionThreads));
+        PrepareContractionHierarchies.Result res = prepare.doWork();
+        return (RoutingCHGraphImpl) RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+
+    private Path calcPath(RoutingCHGraph chGraph, int from, int to) {
+        return new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+    }
+
+    /**
+     * Multiplies the weight of all edges with the given core value by the given factor
+     */
+    private static class CorePenaltyWeighting extends AbstractAdjustedWeighting {
+        private final IntEncodedValue coreEnc;
+        private final int value;
+        private final double factor;
+
+        CorePenaltyWeighting(Weighting superWeighting, IntEncodedValue coreEnc, int value, double factor) {
+            super(superWeighting);
+            this.coreEnc = coreEnc;
+            this.value = value;
+            this.factor = factor;
+        }
+
+        @Override
+        public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+            double weight = superWeighting.calcEdgeWeight(edgeState, reverse);
+            return edgeState.get(coreEnc) == value ? weight * factor : weight;
+        }
+
+        @Override
+        public String getName() {
+            return "core_penalty_" + value + "_" + factor;
+        }
+    }
+}
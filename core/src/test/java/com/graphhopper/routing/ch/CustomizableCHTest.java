@@ -0,0 +1,228 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.Deadline;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import com.graphhopper.util.exceptions.RequestTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomizableCHTest {
+    private static final String DIR = "./target/cch-test";
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue otherSpeedEnc = new DecimalEncodedValueImpl("other_speed", 5, 5, true);
+    private final EncodingManager encodingManager = new EncodingManager.Builder().add(speedEnc).add(otherSpeedEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+
+    @AfterEach
+    void tearDown() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    void nestedDissectionIsPermutation() {
+        GHUtility.buildRandomGraph(graph, new Random(123), 500, 2.2, true, speedEnc, null, 0.8, 0);
+        NodeOrderingProvider order = new NestedDissection(graph).setMaxCellSize(4).calcOrder();
+        assertEquals(graph.getNodes(), order.getNumNodes());
+        int[] nodes = new int[order.getNumNodes()];
+        for (int i = 0; i < nodes.length; i++)
+            nodes[i] = order.getNodeIdForLevel(i);
+        Arrays.sort(nodes);
+        for (int i = 0; i < nodes.length; i++)
+            assertEquals(i, nodes[i]);
+    }
+
+    @Test
+    void smallGraph() {
+        // 0-1-2
+        //  \ /
+        //   3
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10).set(otherSpeedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10).set(otherSpeedEnc, 10, 10);
+        graph.edge(0, 3).setDistance(100).set(speedEnc, 20, 20).set(otherSpeedEnc, 5, 5);
+        graph.edge(3, 2).setDistance(100).set(speedEnc, 20, 0).set(otherSpeedEnc, 5, 0);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, new RAMDirectory());
+        // contract 3 first so there will be a shortcut 0-2
+        cch.create(NodeOrderingProvider.fromArray(3, 1, 0, 2));
+        assertEquals(5, cch.getEdges());
+
+        RoutingCHGraph chGraph = cch.customize(new SpeedWeighting(speedEnc));
+        assertEquals(10, calcWeight(chGraph, 0, 2), 1.e-6);
+        assertEquals(20, calcWeight(chGraph, 2, 0), 1.e-6);
+        chGraph = cch.customize(new SpeedWeighting(otherSpeedEnc));
+        assertEquals(20, calcWeight(chGraph, 0, 2), 1.e-6);
+        assertEquals(20, calcWeight(chGraph, 2, 0), 1.e-6);
+    }
+
+    @Test
+    void randomGraph() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, true, speedEnc, null, 0.8, 0.1);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next())
+            iter.set(otherSpeedEnc, rnd.nextInt(20) + 1, rnd.nextDouble() < 0.1 ? 0 : rnd.nextInt(20) + 1);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, new RAMDirectory(DIR, true).create());
+        cch.create(new NestedDissection(graph).setMaxCellSize(8).calcOrder());
+        cch.flush();
+        cch.close();
+        // the chordal graph can be loaded and used for different weightings
+        cch = new CustomizableCH(graph, new RAMDirectory(DIR, true));
+        assertTrue(cch.loadExisting());
+        for (Weighting weighting : Arrays.asList(new SpeedWeighting(speedEnc), new SpeedWeighting(otherSpeedEnc))) {
+            RoutingCHGraph chGraph = cch.customize(weighting);
+            for (int i = 0; i < 50; i++) {
+                int from = rnd.nextInt(graph.getNodes());
+                int to = rnd.nextInt(graph.getNodes());
+                Path expected = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+                Path path = createAlgo(chGraph).calcPath(from, to);
+                String msg = "seed: " + seed + ", " + weighting + ", from: " + from + ", to: " + to;
+                assertEquals(expected.isFound(), path.isFound(), msg);
+                if (expected.isFound()) {
+                    assertEquals(expected.getWeight(), path.getWeight(), 1.e-2, msg);
+                    assertEquals(expected.getDistance(), path.getDistance(), 1.e-2, msg);
+                }
+            }
+        }
+    }
+
+    @Test
+    void cache() {
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10).set(otherSpeedEnc, 10, 10);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, new RAMDirectory());
+        cch.create(NodeOrderingProvider.fromArray(0, 1));
+        RoutingCHGraph a = cch.getCustomization("a", new SpeedWeighting(speedEnc), Deadline.NONE);
+        assertSame(a, cch.getCustomization("a", new SpeedWeighting(speedEnc), Deadline.NONE));
+        long bytes = cch.getCacheBytes();
+        assertTrue(bytes > 0);
+
+        // there is only space for one customization
+        cch.setMaxCacheBytes(bytes);
+        assertEquals(0, cch.getCacheBytes());
+        a = cch.getCustomization("a", new SpeedWeighting(speedEnc), Deadline.NONE);
+        RoutingCHGraph b = cch.getCustomization("b", new SpeedWeighting(otherSpeedEnc), Deadline.NONE);
+        assertSame(b, cch.getCustomization("b", new SpeedWeighting(otherSpeedEnc), Deadline.NONE));
+        assertEquals(bytes, cch.getCacheBytes());
+        // a was evicted
+        assertNotSame(a, cch.getCustomization("a", new SpeedWeighting(speedEnc), Deadline.NONE));
+
+        // customizations that do not fit are not cached at all
+        cch.setMaxCacheBytes(bytes - 1);
+        a = cch.getCustomization("a", new SpeedWeighting(speedEnc), Deadline.NONE);
+        assertNotSame(a, cch.getCustomization("a", new SpeedWeighting(speedEnc), Deadline.NONE));
+        assertEquals(0, cch.getCacheBytes());
+    }
+
+    @Test
+    void deadline() {
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, new RAMDirectory());
+        cch.create(NodeOrderingProvider.fromArray(0, 1));
+        assertThrows(RequestTimeoutException.class, () -> cch.getCustomization("a", new SpeedWeighting(speedEnc), new Deadline(-1)));
+        Deadline cancelled = new Deadline(Long.MAX_VALUE);
+        cancelled.cancel();
+        assertThrows(RequestCancelledException.class, () -> cch.getCustomization("a", new SpeedWeighting(speedEnc), cancelled));
+        // the failed customizations are neither cached nor pending
+        assertEquals(0, cch.getCacheBytes());
+        assertEquals(10, calcWeight(cch.getCustomization("a", new SpeedWeighting(speedEnc), new Deadline(10_000)), 0, 1), 1.e-6);
+    }
+
+    @Test
+    void coalesce() throws Exception {
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        CustomizableCH cch = new CustomizableCH(graph, new RAMDirectory());
+        cch.create(NodeOrderingProvider.fromArray(0, 1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Weighting blockingWeighting = new SpeedWeighting(speedEnc) {
+            @Override
+            public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return super.calcEdgeWeight(edgeState, reverse);
+            }
+        };
+        AtomicInteger calls = new AtomicInteger();
+        Weighting countingWeighting = new SpeedWeighting(speedEnc) {
+            @Override
+            public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+                calls.incrementAndGet();
+                return super.calcEdgeWeight(edgeState, reverse);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<RoutingCHGraph> first = executor.submit(() -> cch.getCustomization("a", blockingWeighting, Deadline.NONE));
+            started.await();
+            Future<RoutingCHGraph> second = executor.submit(() -> cch.getCustomization("a", countingWeighting, Deadline.NONE));
+            Thread.sleep(50);
+            release.countDown();
+            // the second call waits for the first one (or uses its cached result), but never customizes itself
+            assertSame(first.get(), second.get());
+            assertEquals(0, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private double calcWeight(RoutingCHGraph chGraph, int from, int to) {
+        return createAlgo(chGraph).calcPath(from, to).getWeight();
+    }
+
+    private RoutingAlgorithm createAlgo(RoutingCHGraph chGraph) {
+        return new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap());
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.isochrone.algorithm.PHASTShortestPathTree;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PHASTTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager encodingManager = new EncodingManager.Builder().add(speedEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+
+    @Test
+    void sweepOrder() {
+        // 0-1-2-3
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(new SpeedWeighting(speedEnc));
+        int[] sweepOrder = PHAST.createSweepOrder(chGraph);
+        assertEquals(4, sweepOrder.length);
+        for (int i = 1; i < sweepOrder.length; i++)
+            assertTrue(chGraph.getLevel(sweepOrder[i - 1]) >= chGraph.getLevel(sweepOrder[i]), Arrays.toString(sweepOrder));
+        int[] sorted = sweepOrder.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, sorted);
+    }
+
+    @Test
+    void smallGraph() {
+        // 0-1-2-3   4-5
+        //   |   |
+        //   6---7
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 6).setDistance(50).set(speedEnc, 10, 10);
+        graph.edge(6, 7).setDistance(50).set(speedEnc, 20, 20);
+        graph.edge(7, 3).setDistance(50).set(speedEnc, 10, 0);
+        graph.edge(4, 5).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(new SpeedWeighting(speedEnc));
+        int[] sweepOrder = PHAST.createSweepOrder(chGraph);
+
+        PHAST phast = new PHAST(chGraph, sweepOrder);
+        phast.search(0, false);
+        assertEquals(0, phast.getWeight(0), 1.e-6);
+        assertEquals(22.5, phast.getWeight(3), 1.e-6);
+        assertFalse(phast.isReached(4));
+        assertFalse(phast.isReached(5));
+
+        phast = new PHAST(chGraph, sweepOrder);
+        phast.search(0, true);
+        assertEquals(30, phast.getWeight(3), 1.e-6);
+
+        phast = new PHAST(chGraph, sweepOrder).setWeightLimit(15);
+        phast.search(0, false);
+        assertEquals(10, phast.getWeight(1), 1.e-6);
+        assertFalse(phast.isReached(3));
+        assertThrows(IllegalStateException.class, () -> new PHAST(chGraph, sweepOrder).forEachReachedNode(n -> {
+        }));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"false,weight", "true,weight", "false,time", "true,time", "false,distance", "true,distance"})
+    void isochroneEdges(boolean reverse, String limitType) {
+        // 0-1-2-3-4
+        //   |     |
+        //   5-----6-7
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(3, 4).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 5).setDistance(50).set(speedEnc, 10, 10);
+        // no ties, because the Dijkstra tree depends on the order in which tied nodes are explored
+        graph.edge(5, 6).setDistance(310).set(speedEnc, 20, 20);
+        graph.edge(6, 4).setDistance(50).set(speedEnc, 10, 0);
+        graph.edge(6, 7).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        RoutingCHGraph chGraph = prepareCH(weighting);
+        PHASTData phastData = PHASTData.create(chGraph, 1);
+        PHASTShortestPathTree notSearched = new PHASTShortestPathTree(chGraph, phastData, reverse);
+        assertThrows(IllegalStateException.class, () -> notSearched.getIsochroneEdges(10));
+
+        // the weights are the times in seconds
+        double factor = limitType.equals("time") ? 1000 : limitType.equals("distance") ? 10 : 1;
+        for (double limit : new double[]{15 * factor, 25 * factor, 35 * factor}) {
+            ShortestPathTree spt = new ShortestPathTree(graph, weighting, reverse, TraversalMode.NODE_BASED);
+            setLimit(spt, limitType, limit);
+            spt.search(0, l -> {
+            });
+            PHASTShortestPathTree phastSpt = new PHASTShortestPathTree(chGraph, phastData, reverse);
+            setLimit(phastSpt, limitType, limit);
+            phastSpt.search(0, l -> {
+            });
+            for (double z : new double[]{limit / 2, limit}) {
+                assertEquals(toEdges(spt.getIsochroneEdges(z)), toEdges(phastSpt.getIsochroneEdges(z)), "limit: " + limit + ", z: " + z);
+                assertFalse(phastSpt.getIsochroneEdges(z).isEmpty());
+            }
+        }
+    }
+
+    private static void setLimit(ShortestPathTree spt, String limitType, double limit) {
+        if (limitType.equals("time"))
+            spt.setTimeLimit(limit);
+        else if (limitType.equals("distance"))
+            spt.setDistanceLimit(limit);
+        else
+            spt.setWeightLimit(limit);
+    }
+
+    @Test
+    void weightLimits() {
+        // 0-1-2
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 20, 5);
+        graph.freeze();
+        PHASTData phastData = PHASTData.create(prepareCH(new SpeedWeighting(speedEnc)), 1);
+        // the slowest edge takes 20s for 100m, so a weight of 20 is the most we can get for 20s or 100m
+        assertEquals(20 * 1.01, phastData.getWeightLimitForTime(20_000), 1.e-6);
+        assertEquals(20 * 1.01, phastData.getWeightLimitForDistance(100), 1.e-6);
+        assertEquals(3, phastData.getSweepOrder().length);
+        // the arrays of finished searches are reused, but only up to the given number
+        PHAST.Workspace workspace = phastData.acquire();
+        PHAST.Workspace other = phastData.acquire();
+        assertNotSame(workspace, other);
+        phastData.release(workspace);
+        phastData.release(other);
+        assertSame(workspace, phastData.acquire());
+        assertNotSame(other, phastData.acquire());
+    }
+
+    private static Set<String> toEdges(List<ShortestPathTree.IsoLabel> labels) {
+        Set<String> result = new HashSet<>();
+        for (ShortestPathTree.IsoLabel label : labels)
+            result.add(label.parent.node + "-" + label.node + ":" + label.weight);
+        return result;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void randomGraph(boolean reverse) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, speedEnc, null, 0.8, 0);
+        graph.freeze();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        RoutingCHGraph chGraph = prepareCH(weighting);
+        int[] sweepOrder = PHAST.createSweepOrder(chGraph);
+        // a single workspace that is reused by all searches
+        PHASTData phastData = PHASTData.create(chGraph, 1);
+        LocationIndexTree index = new LocationIndexTree(graph, graph.getDirectory());
+        index.prepareIndex();
+
+        for (int run = 0; run < 10; run++) {
+            Snap snap = createRandomSnaps(graph.getBounds(), index, rnd, 1, true, EdgeFilter.ALL_EDGES).get(0);
+            QueryGraph queryGraph = QueryGraph.create(graph, snap);
+            int source = snap.getClosestNode();
+            Map<Integer, ShortestPathTree.IsoLabel> expected = new HashMap<>();
+            ShortestPathTree spt = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverse, TraversalMode.NODE_BASED);
+            spt.setWeightLimit(Double.MAX_VALUE);
+            spt.search(source, l -> expected.put(l.node, l));
+
+            PHAST phast = new PHAST(new QueryRoutingCHGraph(chGraph, queryGraph), sweepOrder);
+            phast.search(source, reverse);
+            String msg = "seed: " + seed + ", source: " + source;
+            for (int node = 0; node < graph.getNodes(); node++) {
+                ShortestPathTree.IsoLabel label = expected.get(node);
+                if (label == null)
+                    assertFalse(phast.isReached(node), msg + ", node: " + node);
+                else
+                    assertEquals(label.weight, phast.getWeight(node), 1.e-2, msg + ", node: " + node);
+            }
+
+            // the unpacked tree has to match the Dijkstra tree up to the rounding of the shortcut weights
+            Map<Integer, ShortestPathTree.IsoLabel> actual = new HashMap<>();
+            PHASTShortestPathTree phastSpt = new PHASTShortestPathTree(new QueryRoutingCHGraph(chGraph, queryGraph), phastData, reverse);
+            phastSpt.setWeightLimit(Double.MAX_VALUE);
+            phastSpt.search(source, l -> {
+                assertNull(actual.put(l.node, l), "every node must be passed only once");
+                if (l.parent != null) {
+                    EdgeIteratorState edge = queryGraph.getEdgeIteratorState(l.edge, l.node);
+                    assertEquals(l.parent.node, edge.getBaseNode());
+                    assertEquals(l.parent.distance + edge.getDistance(), l.distance, 1.e-6);
+                }
+            });
+            assertEquals(expected.keySet(), actual.keySet(), msg);
+            for (ShortestPathTree.IsoLabel label : expected.values()) {
+                ShortestPathTree.IsoLabel actualLabel = actual.get(label.node);
+                assertEquals(label.weight, actualLabel.weight, 1.e-2, msg);
+                assertEquals(label.time, actualLabel.time, 1, msg);
+            }
+        }
+    }
+
+    private RoutingCHGraph prepareCH(Weighting weighting) {
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("p", weighting)).doWork();
+        return RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+}
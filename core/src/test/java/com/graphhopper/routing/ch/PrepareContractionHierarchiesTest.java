@@ -33,6 +33,8 @@ import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Random;
 
@@ -578,6 +580,90 @@ public class PrepareContractionHierarchiesTest {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testParallelContraction(boolean edgeBased) {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("car_speed", 5, 5, true);
+        DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+        EncodingManager em = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 500, 2.2, true, speedEnc, null, 0.8, 0.1);
+        if (edgeBased)
+            GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        graph.freeze();
+        Weighting weighting = edgeBased
+                ? new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40)
+                : new SpeedWeighting(speedEnc);
+        CHConfig config = new CHConfig("c", weighting, edgeBased);
+
+        CHStorage chStore = prepareInParallel(graph, config, 3).getCHStorage();
+        // the hierarchy is deterministic and does not even depend on the number of threads
+        for (int threads : new int[]{3, 2}) {
+            CHConfig otherConfig = new CHConfig("c" + threads, weighting, edgeBased);
+            CHStorage other = prepareInParallel(graph, otherConfig, threads).getCHStorage();
+            assertEquals(chStore.getShortcuts(), other.getShortcuts(), "seed: " + seed);
+            for (int node = 0; node < graph.getNodes(); node++)
+                assertEquals(chStore.getLevel(chStore.toNodePointer(node)), other.getLevel(other.toNodePointer(node)), "seed: " + seed);
+        }
+
+        RoutingCHGraph routingCHGraph = RoutingCHGraphImpl.fromGraph(graph, chStore, config);
+        TraversalMode traversalMode = edgeBased ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            double expected = new Dijkstra(graph, config.getWeighting(), traversalMode).calcPath(from, to).getWeight();
+            double weight = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap()).calcPath(from, to).getWeight();
+            assertEquals(expected, weight, 1.e-1, "seed: " + seed + ", from: " + from + ", to: " + to);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testSplitShortcuts(boolean edgeBased) {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("car_speed", 5, 5, true);
+        DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+        EncodingManager em = EncodingManager.start().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, true, speedEnc, null, 0.8, 0.1);
+        if (edgeBased)
+            GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        graph.freeze();
+        Weighting weighting = edgeBased
+                ? new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40)
+                : new SpeedWeighting(speedEnc);
+        CHConfig config = new CHConfig("c", weighting, edgeBased);
+        CHConfig splitConfig = new CHConfig("split", weighting, edgeBased);
+        CHStorage chStore = PrepareContractionHierarchies.fromGraph(graph, config).doWork().getCHStorage();
+        CHStorage splitStore = PrepareContractionHierarchies.fromGraph(graph, splitConfig)
+                .setParams(new PMap().putObject(CHParameters.SPLIT_SHORTCUTS, true))
+                .doWork().getCHStorage();
+        assertFalse(chStore.isSplitLayout());
+        assertTrue(splitStore.isSplitLayout());
+        assertEquals(chStore.getShortcuts(), splitStore.getShortcuts(), "seed: " + seed);
+
+        // the unpacked paths are the same
+        RoutingCHGraph routingCHGraph = RoutingCHGraphImpl.fromGraph(graph, chStore, config);
+        RoutingCHGraph splitRoutingCHGraph = RoutingCHGraphImpl.fromGraph(graph, splitStore, splitConfig);
+        for (int i = 0; i < 100; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path path = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap()).calcPath(from, to);
+            Path splitPath = new CHRoutingAlgorithmFactory(splitRoutingCHGraph).createAlgo(new PMap()).calcPath(from, to);
+            assertEquals(path.getWeight(), splitPath.getWeight(), 1.e-6, "seed: " + seed);
+            assertEquals(path.calcNodes(), splitPath.calcNodes(), "seed: " + seed);
+        }
+    }
+
+    private PrepareContractionHierarchies.Result prepareInParallel(BaseGraph graph, CHConfig config, int threads) {
+        return PrepareContractionHierarchies.fromGraph(graph, config)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, threads))
+                .doWork();
+    }
+
     private void checkPath(BaseGraph g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
         useNodeOrdering(prepare, nodeOrdering);
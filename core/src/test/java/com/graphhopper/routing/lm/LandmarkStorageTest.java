@@ -30,6 +30,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,6 +38,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static java.util.Collections.emptyList;
 import static org.junit.jupiter.api.Assertions.*;
@@ -217,6 +219,29 @@ public class LandmarkStorageTest {
         assertEquals("[3, 2]", Arrays.toString(storage.getLandmarks(2)));
     }
 
+    @Test
+    public void testParallelExplorations() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 500, 2.2, true, speedEnc, null, 0.8, 0.1);
+        LMConfig lmConfig = new LMConfig("car", new SpeedWeighting(speedEnc));
+        LandmarkStorage sequential = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, 8);
+        sequential.setMinimumNodes(2);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(graph, encodingManager, new RAMDirectory(), lmConfig, 8).setExplorationThreads(4);
+        parallel.setMinimumNodes(2);
+        parallel.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks(), "seed: " + seed);
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++)
+            assertArrayEquals(sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork), "seed: " + seed);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lm = 0; lm < 8; lm++) {
+                assertEquals(sequential.getFromWeight(lm, node), parallel.getFromWeight(lm, node), "seed: " + seed);
+                assertEquals(sequential.getToWeight(lm, node), parallel.getToWeight(lm, node), "seed: " + seed);
+            }
+        }
+    }
+
     @Test
     public void testWithBorderBlocking() {
         RoutingAlgorithmTest.initBiGraph(graph, speedEnc);
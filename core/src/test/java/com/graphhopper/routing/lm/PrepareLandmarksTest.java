@@ -127,6 +127,16 @@ public class PrepareLandmarksTest {
         assertEquals(weight1_224, store.getToWeight(1, 224));
         assertEquals(weight1_47, store.getToWeight(1, 47));
 
+        // reading the whole row yields the same weights
+        int[] weights = new int[lm];
+        for (int node : new int[]{27, 47, 224}) {
+            store.readWeights(node, weights);
+            for (int lmIndex = 0; lmIndex < lm; lmIndex++) {
+                assertEquals(store.getFromWeight(lmIndex, node), LandmarkStorage.getFromWeight(weights[lmIndex]));
+                assertEquals(store.getToWeight(lmIndex, node), LandmarkStorage.getToWeight(weights[lmIndex]));
+            }
+        }
+
         // prefer the landmarks before and behind the goal
         int[] activeLandmarkIndices = new int[activeLM];
         Arrays.fill(activeLandmarkIndices, -1);
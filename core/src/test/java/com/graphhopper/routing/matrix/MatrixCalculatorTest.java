@@ -0,0 +1,159 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.matrix;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.CHConfig;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.RoutingCHGraphImpl;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatrixCalculatorTest {
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+    private final EncodingManager encodingManager = new EncodingManager.Builder().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+    private final BaseGraph graph = new BaseGraph.Builder(encodingManager).withTurnCosts(true).create();
+
+    @Test
+    void smallGraph() {
+        // 0-1-2-3   4-5
+        //   |   |
+        //   6---7
+        graph.edge(0, 1).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(2, 3).setDistance(100).set(speedEnc, 10, 10);
+        graph.edge(1, 6).setDistance(50).set(speedEnc, 10, 10);
+        graph.edge(6, 7).setDistance(50).set(speedEnc, 20, 20);
+        graph.edge(7, 3).setDistance(50).set(speedEnc, 10, 0);
+        graph.edge(4, 5).setDistance(100).set(speedEnc, 10, 10);
+        graph.freeze();
+        Weighting weighting = new SpeedWeighting(speedEnc);
+        RoutingCHGraph chGraph = prepareCH(weighting);
+
+        int[] from = {0, 3, 4, -1};
+        int[] to = {3, 0, 5, 0};
+        for (MatrixCalculator calculator : new MatrixCalculator[]{
+                new CHMatrixCalculator(chGraph),
+                new OneToManyMatrixCalculator(graph, weighting, TraversalMode.NODE_BASED)}) {
+            DistanceMatrix matrix = calculator.calcMatrix(from, to);
+            assertEquals(4, matrix.getFromCount());
+            assertEquals(4, matrix.getToCount());
+            // 0->3 uses the faster one-way detour via 6 and 7, but 3->0 has to use the direct edges
+            assertEquals(22.5, matrix.getWeight(0, 0), 1.e-6, calculator.getName());
+            assertEquals(250, matrix.getDistance(0, 0), 1.e-6, calculator.getName());
+            assertEquals(10_000 + 5_000 + 2_500 + 5_000, matrix.getTime(0, 0), calculator.getName());
+            assertEquals(0, matrix.getDistance(0, 1), 1.e-6);
+            assertEquals(0, matrix.getTime(0, 1));
+            assertEquals(300, matrix.getDistance(1, 1), 1.e-6, calculator.getName());
+            assertEquals(30_000, matrix.getTime(1, 1), calculator.getName());
+            assertEquals(100, matrix.getDistance(2, 2), 1.e-6);
+            assertFalse(matrix.isConnected(0, 2));
+            assertFalse(matrix.isConnected(2, 0));
+            assertEquals(Long.MAX_VALUE, matrix.getTime(2, 0));
+            for (int i = 0; i < to.length; i++)
+                assertFalse(matrix.isConnected(3, i));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ch", "one_to_many_node_based", "one_to_many_edge_based"})
+    void randomGraph(String calculatorName) {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, speedEnc, null, 0.8, 0);
+        GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        graph.freeze();
+        boolean edgeBased = calculatorName.endsWith("edge_based");
+        Weighting weighting = edgeBased
+                ? new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), Double.POSITIVE_INFINITY)
+                : new SpeedWeighting(speedEnc);
+        TraversalMode traversalMode = edgeBased ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED;
+        RoutingCHGraph chGraph = calculatorName.equals("ch") ? prepareCH(weighting) : null;
+        LocationIndexTree index = new LocationIndexTree(graph, graph.getDirectory());
+        index.prepareIndex();
+
+        int numQueries = 0;
+        List<String> strictViolations = new ArrayList<>();
+        for (int run = 0; run < 5; run++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), index, rnd, 12, true, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int[] from = new int[5];
+            int[] to = new int[7];
+            for (int i = 0; i < from.length; i++)
+                from[i] = snaps.get(i).getClosestNode();
+            for (int i = 0; i < to.length; i++)
+                to[i] = snaps.get(from.length + i).getClosestNode();
+
+            MatrixCalculator calculator = chGraph == null
+                    ? new OneToManyMatrixCalculator(queryGraph, queryGraph.wrapWeighting(weighting), traversalMode)
+                    : new CHMatrixCalculator(new QueryRoutingCHGraph(chGraph, queryGraph));
+            DistanceMatrix matrix = calculator.calcMatrix(from, to);
+            for (int i = 0; i < from.length; i++) {
+                for (int j = 0; j < to.length; j++) {
+                    Path refPath = new Dijkstra(queryGraph, queryGraph.wrapWeighting(weighting), traversalMode).calcPath(from[i], to[j]);
+                    String msg = "from: " + from[i] + ", to: " + to[j] + ", seed: " + seed;
+                    numQueries++;
+                    if (!refPath.isFound()) {
+                        assertFalse(matrix.isConnected(i, j), msg);
+                        continue;
+                    }
+                    assertEquals(refPath.getWeight(), matrix.getWeight(i, j), 1.e-2, msg);
+                    // paths with equal weights (after the shortcut weights are rounded) are tied and we might find
+                    // another path than the reference path, with a different distance and time
+                    if (Math.abs(refPath.getDistance() - matrix.getDistance(i, j)) > 1.e-1)
+                        strictViolations.add("wrong distance " + msg + ", expected: " + refPath.getDistance() + ", given: " + matrix.getDistance(i, j));
+                    if (Math.abs(refPath.getTime() - matrix.getTime(i, j)) > 50)
+                        strictViolations.add("wrong time " + msg + ", expected: " + refPath.getTime() + ", given: " + matrix.getTime(i, j));
+                }
+            }
+        }
+        if (strictViolations.size() > 0.05 * numQueries)
+            fail("Too many strict violations: " + strictViolations.size() + "/" + numQueries + "\n" +
+                    String.join("\n", strictViolations));
+    }
+
+    private RoutingCHGraph prepareCH(Weighting weighting) {
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("p", weighting)).doWork();
+        return RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.VehicleAccess;
+import com.graphhopper.routing.ev.VehicleSpeed;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficOverlayTest {
+
+    @Test
+    void load() throws IOException {
+        TrafficOverlay overlay = new TrafficOverlay();
+        TrafficOverlay.Snapshot empty = overlay.getSnapshot();
+        assertEquals(0, empty.getVersion());
+        assertTrue(empty.isEmpty());
+
+        TrafficOverlay.Snapshot snapshot = overlay.load(new StringReader("# edge_key,factor\n4,0.5\n\n 7 , 0.25\n"), true);
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(2, snapshot.size());
+        assertEquals(0.5, snapshot.getSpeedFactor(4), 1.e-6);
+        assertEquals(0.25, snapshot.getSpeedFactor(7), 1.e-6);
+        assertEquals(1, snapshot.getSpeedFactor(5), 1.e-6);
+        // snapshots are immutable
+        assertTrue(empty.isEmpty());
+
+        // merge, a factor of one removes the entry
+        snapshot = overlay.load(new StringReader("4,1\n9,0"), false);
+        assertEquals(2, snapshot.getVersion());
+        assertEquals(1, snapshot.getSpeedFactor(4), 1.e-6);
+        assertEquals(0.25, snapshot.getSpeedFactor(7), 1.e-6);
+        assertEquals(0, snapshot.getSpeedFactor(9), 1.e-6);
+
+        snapshot = overlay.load(new StringReader("3,0.8"), true);
+        assertEquals(1, snapshot.size());
+        assertEquals(0.8, snapshot.getSpeedFactor(3), 1.e-6);
+        assertSame(snapshot, overlay.getSnapshot());
+        assertTrue(overlay.clear().isEmpty());
+    }
+
+    @Test
+    void updateWithSnapshotOfOtherOverlay() throws IOException {
+        TrafficOverlay other = new TrafficOverlay();
+        other.load(new StringReader("4,0.5"), true);
+        TrafficOverlay.Snapshot otherSnapshot = other.load(new StringReader("7,0"), false);
+        TrafficOverlay overlay = new TrafficOverlay();
+        overlay.load(new StringReader("3,0.8"), true);
+
+        TrafficOverlay.Snapshot snapshot = overlay.update(otherSnapshot);
+        assertSame(snapshot, overlay.getSnapshot());
+        assertEquals(2, snapshot.getVersion());
+        assertEquals(2, snapshot.size());
+        assertEquals(0.5, snapshot.getSpeedFactor(4), 1.e-6);
+        assertEquals(0, snapshot.getSpeedFactor(7), 1.e-6);
+        assertEquals(1, snapshot.getSpeedFactor(3), 1.e-6);
+        // further updates do not change the other overlay
+        overlay.load(new StringReader("4,1"), false);
+        assertEquals(0.5, other.getSnapshot().getSpeedFactor(4), 1.e-6);
+    }
+
+    @Test
+    void invalidInput() {
+        TrafficOverlay overlay = new TrafficOverlay();
+        // speed factors larger than one would break the lower bounds of the weightings and the landmarks
+        assertThrows(IllegalArgumentException.class, () -> overlay.load(new StringReader("1,1.5"), true));
+        assertThrows(IllegalArgumentException.class, () -> overlay.load(new StringReader("1,-0.5"), true));
+        assertThrows(IllegalArgumentException.class, () -> overlay.load(new StringReader("1;0.5"), true));
+        assertThrows(IllegalArgumentException.class, () -> overlay.load(new StringReader("a,0.5"), true));
+        // nothing was applied
+        assertEquals(0, overlay.getSnapshot().getVersion());
+    }
+
+    @Test
+    void customWeighting() throws IOException {
+        BooleanEncodedValue accessEnc = VehicleAccess.create("car");
+        DecimalEncodedValue speedEnc = VehicleSpeed.create("car", 5, 5, true);
+        EncodingManager em = new EncodingManager.Builder().add(accessEnc).add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        graph.getNodeAccess().setNode(0, 50.00, 10.00);
+        graph.getNodeAccess().setNode(1, 50.01, 10.00);
+        EdgeIteratorState edge = graph.edge(0, 1).setDistance(1000);
+        GHUtility.setSpeed(60, 60, accessEnc, speedEnc, edge);
+
+        TrafficOverlay overlay = new TrafficOverlay();
+        overlay.load(new StringReader(edge.getEdgeKey() + ",0.5\n" + edge.getReverseEdgeKey() + ",0"), true);
+        CustomModel customModel = new CustomModel().setDistanceInfluence(0d);
+        Weighting weighting = CustomModelParser.createWeighting(accessEnc, speedEnc, null, em, NO_TURN_COST_PROVIDER, customModel, overlay.getSnapshot());
+        Weighting withoutTraffic = CustomModelParser.createWeighting(accessEnc, speedEnc, null, em, NO_TURN_COST_PROVIDER, customModel);
+        assertEquals(60, withoutTraffic.calcEdgeWeight(edge, false), 1.e-6);
+        assertEquals(120, weighting.calcEdgeWeight(edge, false), 1.e-6);
+        assertEquals(120_000, weighting.calcEdgeMillis(edge, false));
+        assertEquals(Double.POSITIVE_INFINITY, weighting.calcEdgeWeight(edge, true));
+        // the lower bound does not change
+        assertEquals(withoutTraffic.calcMinWeightPerDistance(), weighting.calcMinWeightPerDistance(), 1.e-6);
+
+        // virtual edges use the factors of the original edge
+        Snap snap = new Snap(50.005, 10.00);
+        snap.setClosestEdge(edge);
+        snap.setWayIndex(0);
+        snap.setSnappedPosition(Snap.Position.EDGE);
+        snap.calcSnappedPoint(DistanceCalcEarth.DIST_EARTH);
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(0);
+        assertTrue(iter.next());
+        assertEquals(2, iter.getAdjNode());
+        assertEquals(2 * withoutTraffic.calcEdgeWeight(iter, false), weighting.calcEdgeWeight(iter, false), 1.e-6);
+        assertEquals(Double.POSITIVE_INFINITY, weighting.calcEdgeWeight(iter, true));
+    }
+}
@@ -375,6 +375,58 @@ public class KVStorageTest {
         return list;
     }
 
+    @Test
+    public void testDeduplication() {
+        Helper.removeDir(new File(location));
+        KVStorage index = new KVStorage(new RAMDirectory(location, true).create(), true).setDeduplication(true).create(1000);
+        long aPointer = index.add(createList("name", "Main Street", "ref", "B 1"));
+        long bPointer = index.add(createList("name", "Side Street"));
+        // only consecutive duplicates are detected without the dictionary
+        assertEquals(aPointer, index.add(createList("name", "Main Street", "ref", "B 1")));
+        assertEquals(bPointer, index.add(createList("name", "Side Street")));
+        // a different order, value or direction is a different entry
+        long cPointer = index.add(createList("ref", "B 1", "name", "Main Street"));
+        assertNotEquals(aPointer, cPointer);
+        long dPointer = index.add(Collections.singletonList(new KeyValue("name", "Side Street", true, false)));
+        assertNotEquals(bPointer, dPointer);
+        long ePointer = index.add(createList("name", "Side Street", "maxspeed", 50));
+        assertNotEquals(bPointer, ePointer);
+        assertEquals(dPointer, index.add(Collections.singletonList(new KeyValue("name", "Side Street", true, false))));
+
+        index.flush();
+        index.close();
+        index = new KVStorage(new RAMDirectory(location, true), true);
+        assertTrue(index.loadExisting());
+        assertEquals(createList("name", "Main Street", "ref", "B 1"), index.getAll(aPointer));
+        assertEquals(createList("name", "Side Street"), index.getAll(bPointer));
+        assertEquals(createList("ref", "B 1", "name", "Main Street"), index.getAll(cPointer));
+        assertEquals(Collections.singletonList(new KeyValue("name", "Side Street", true, false)), index.getAll(dPointer));
+        Map<String, Object> map = index.getMap(ePointer);
+        assertEquals(2, map.size());
+        assertEquals("Side Street", map.get("name"));
+        assertEquals(50, map.get("maxspeed"));
+        index.close();
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testDeduplicationSize() {
+        KVStorage plain = create();
+        KVStorage deduplicated = new KVStorage(new RAMDirectory(), true).setDeduplication(true).create(1000);
+        Random rand = new Random(42);
+        long maxPlainPointer = 0, maxDeduplicatedPointer = 0;
+        for (int i = 0; i < 10_000; i++) {
+            List<KeyValue> list = createList("name", "street " + rand.nextInt(100), "ref", "ref " + rand.nextInt(5));
+            long plainPointer = plain.add(list);
+            long pointer = deduplicated.add(list);
+            assertEquals(plain.getAll(plainPointer), deduplicated.getAll(pointer));
+            maxPlainPointer = Math.max(maxPlainPointer, plainPointer);
+            maxDeduplicatedPointer = Math.max(maxDeduplicatedPointer, pointer);
+        }
+        // at most 500 different lists are stored
+        assertTrue(maxDeduplicatedPointer < maxPlainPointer / 10, maxDeduplicatedPointer + " vs. " + maxPlainPointer);
+    }
+
     // @RepeatedTest(1000)
     public void ignoreRandomString() {
         String s = "";
@@ -0,0 +1,183 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BaseGraphWithCompressedGeometryTest extends BaseGraphTest {
+
+    @Override
+    protected BaseGraph newGHStorage(Directory dir, boolean enabled3D, int segmentSize) {
+        return new BaseGraph.Builder(encodingManager).setDir(dir).set3D(enabled3D).withCompressedGeometry(true).setSegmentSize(segmentSize).build();
+    }
+
+    @Override
+    @Test
+    public void testDontGrowOnUpdate() {
+        graph = createGHStorage(defaultGraphLoc, true);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 10, 10, 0);
+        na.setNode(1, 11, 20, 1);
+        EdgeIteratorState edge = graph.edge(0, 1);
+        BaseGraph baseGraph = (BaseGraph) graph;
+        edge.setWayGeometry(Helper.createPointList3D(10.1, 11, 3, 10.2, 12, 5, 10.3, 13, 7, 10.4, 14, 9));
+        long maxGeoRef = baseGraph.getMaxGeoRef();
+        // the plain format would need 1 + 12 ints
+        assertTrue(maxGeoRef - 4 < 1 + 12, "max geo ref: " + maxGeoRef);
+        edge.setWayGeometry(Helper.createPointList3D(10.1, 11, 3, 10.2, 12, 5, 10.3, 13, 7));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        edge.setWayGeometry(Helper.createPointList3D(10.1, 11, 3));
+        assertEquals(maxGeoRef, baseGraph.getMaxGeoRef());
+        assertEquals(Helper.createPointList3D(10.1, 11, 3), edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+    }
+
+    @Test
+    public void testZigZagVarInt() {
+        for (int value : new int[]{0, 1, -1, 63, -64, 64, 1000, -1000, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            int zigZag = BaseGraph.zigZag(value);
+            assertEquals(value, BaseGraph.unZigZag(zigZag));
+        }
+        assertEquals(1, BaseGraph.varIntLength(BaseGraph.zigZag(-64)));
+        assertEquals(2, BaseGraph.varIntLength(BaseGraph.zigZag(64)));
+        assertEquals(5, BaseGraph.varIntLength(BaseGraph.zigZag(Integer.MIN_VALUE)));
+    }
+
+    @Test
+    public void testRandomGeometries() {
+        for (boolean is3D : new boolean[]{false, true}) {
+            long seed = System.nanoTime();
+            Random rnd = new Random(seed);
+            BaseGraph compressed = newGHStorage(new RAMDirectory(), is3D).create(defaultSize);
+            BaseGraph plain = new BaseGraph.Builder(encodingManager).set3D(is3D).create();
+            for (BaseGraph g : new BaseGraph[]{compressed, plain}) {
+                g.getNodeAccess().setNode(0, 50, 10, 100);
+                // coordinates far apart so the deltas overflow
+                g.getNodeAccess().setNode(1, -50, -179.9, 2000);
+            }
+            for (int i = 0; i < 500; i++) {
+                PointList pillars = new PointList(10, is3D);
+                int len = 1 + rnd.nextInt(10);
+                double lat = 50, lon = 10;
+                for (int j = 0; j < len; j++) {
+                    lat += (rnd.nextDouble() - 0.5) * (rnd.nextInt(10) == 0 ? 100 : 0.01);
+                    lon += (rnd.nextDouble() - 0.5) * (rnd.nextInt(10) == 0 ? 300 : 0.01);
+                    lat = Math.max(-90, Math.min(90, lat));
+                    lon = Math.max(-180, Math.min(180, lon));
+                    if (is3D)
+                        pillars.add(lat, lon, rnd.nextDouble() * 3000 - 500);
+                    else
+                        pillars.add(lat, lon);
+                }
+                boolean reverse = rnd.nextBoolean();
+                EdgeIteratorState compressedEdge = reverse ? compressed.edge(1, 0) : compressed.edge(0, 1);
+                EdgeIteratorState plainEdge = reverse ? plain.edge(1, 0) : plain.edge(0, 1);
+                compressedEdge.setWayGeometry(pillars.clone(false));
+                plainEdge.setWayGeometry(pillars.clone(false));
+                for (FetchMode mode : FetchMode.values()) {
+                    String msg = "seed: " + seed + ", edge: " + i + ", mode: " + mode;
+                    assertEquals(plainEdge.fetchWayGeometry(mode), compressedEdge.fetchWayGeometry(mode), msg);
+                    assertEquals(plainEdge.detach(true).fetchWayGeometry(mode), compressedEdge.detach(true).fetchWayGeometry(mode), msg);
+                }
+            }
+            compressed.close();
+            plain.close();
+        }
+    }
+
+    @Test
+    public void testSize() {
+        Random rnd = new Random(123);
+        BaseGraph compressed = newGHStorage(new RAMDirectory(), false).create(defaultSize);
+        BaseGraph plain = new BaseGraph.Builder(encodingManager).create();
+        for (int i = 0; i < 1000; i++) {
+            // typical road geometry with pillar nodes every 10-50m
+            double lat = 50 + rnd.nextDouble(), lon = 10 + rnd.nextDouble();
+            PointList pillars = new PointList(5, false);
+            for (int j = 0; j < 5; j++)
+                pillars.add(lat + (j + 1) * 0.0003 * rnd.nextDouble(), lon + (j + 1) * 0.0005 * rnd.nextDouble());
+            for (BaseGraph g : new BaseGraph[]{compressed, plain}) {
+                g.getNodeAccess().setNode(2 * i, lat, lon);
+                g.getNodeAccess().setNode(2 * i + 1, lat + 0.003, lon + 0.003);
+                g.edge(2 * i, 2 * i + 1).setWayGeometry(pillars);
+            }
+        }
+        assertTrue(compressed.getMaxGeoRef() < 0.6 * plain.getMaxGeoRef(), compressed.getMaxGeoRef() + " vs. " + plain.getMaxGeoRef());
+        compressed.close();
+        plain.close();
+    }
+
+    @Test
+    public void testOverwriteGeometry() {
+        BaseGraph graph = newGHStorage(new RAMDirectory(), false).create(defaultSize);
+        graph.getNodeAccess().setNode(0, 50, 10);
+        graph.getNodeAccess().setNode(1, 50.01, 10.01);
+        EdgeIteratorState edge = graph.edge(0, 1);
+        edge.setWayGeometry(createPoints(50.003, 10.003, 50.006, 10.006));
+        long maxGeoRef = graph.getMaxGeoRef();
+        // fewer points reuse the existing space
+        edge.setWayGeometry(createPoints(50.005, 10.005));
+        assertEquals(maxGeoRef, graph.getMaxGeoRef());
+        assertEquals(createPoints(50.005, 10.005), edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        // more points need new space
+        edge.setWayGeometry(createPoints(50.002, 10.002, 50.004, 10.004, 50.007, 10.007));
+        assertTrue(graph.getMaxGeoRef() > maxGeoRef);
+        assertEquals(createPoints(50.002, 10.002, 50.004, 10.004, 50.007, 10.007), edge.fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        edge.setWayGeometry(new PointList());
+        assertTrue(edge.fetchWayGeometry(FetchMode.PILLAR_ONLY).isEmpty());
+        graph.close();
+    }
+
+    @Test
+    public void testLoadUsesStoredFormat() {
+        BaseGraph graph = newGHStorage(new RAMDirectory(defaultGraphLoc, true), false).create(defaultSize);
+        graph.getNodeAccess().setNode(0, 50, 10);
+        graph.getNodeAccess().setNode(1, 50.01, 10.01);
+        graph.edge(0, 1).setWayGeometry(createPoints(50.003, 10.003, 50.006, 10.006));
+        graph.flush();
+        graph.close();
+
+        graph = new BaseGraph.Builder(encodingManager).setDir(new RAMDirectory(defaultGraphLoc, true)).build();
+        assertTrue(graph.loadExisting());
+        assertEquals(createPoints(50.003, 10.003, 50.006, 10.006), graph.getEdgeIteratorState(0, 1).fetchWayGeometry(FetchMode.PILLAR_ONLY));
+        graph.close();
+
+        // readers that only know the plain format reject the compressed one
+        DataAccess geometry = new RAMDirectory(defaultGraphLoc, true).create("geometry");
+        assertTrue(geometry.loadExisting());
+        assertEquals(Constants.VERSION_GEOMETRY_COMPRESSED, geometry.getHeader(0));
+        assertThrows(IllegalStateException.class, () -> GHUtility.checkDAVersion(geometry.getName(), Constants.VERSION_GEOMETRY, geometry.getHeader(0)));
+        geometry.close();
+    }
+
+    private static PointList createPoints(double... coords) {
+        PointList list = new PointList(coords.length / 2, false);
+        for (int i = 0; i < coords.length; i += 2)
+            list.add(coords[i], coords[i + 1]);
+        return list;
+    }
+}
@@ -6,8 +6,7 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.nio.file.Path;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class CHStorageTest {
 
@@ -56,6 +55,46 @@ class CHStorageTest {
         }
     }
 
+    @Test
+    void splitLayout(@TempDir Path path) {
+        {
+            GHDirectory dir = new GHDirectory(path.toAbsolutePath().toString(), DAType.RAM_INT_STORE);
+            CHStorage chStorage = new CHStorage(dir, "car", -1, true);
+            chStorage.create(5, 1);
+            chStorage.setSplitLayout(true);
+            assertTrue(chStorage.isSplitLayout());
+            for (int i = 0; i < 100; i++)
+                assertEquals(i, chStorage.shortcutEdgeBased(i % 5, (i + 1) % 5, PrepareEncoder.getScFwdDir(), 10 + i, 3 * i, 3 * i + 1, 4 * i, 4 * i + 1));
+            assertThrows(IllegalStateException.class, () -> chStorage.setSplitLayout(false));
+            chStorage.setSkippedEdges(chStorage.toShortcutPointer(42), 7, 8);
+            assertTrue(dir.getDAs().containsKey("shortcuts_skip_car"));
+            chStorage.flush();
+            chStorage.close();
+        }
+        {
+            GHDirectory dir = new GHDirectory(path.toAbsolutePath().toString(), DAType.RAM_INT_STORE);
+            // the stored layout is used even though the split layout was not requested
+            CHStorage chStorage = new CHStorage(dir, "car", -1, true);
+            assertTrue(chStorage.loadExisting());
+            assertTrue(chStorage.isSplitLayout());
+            assertEquals(100, chStorage.getShortcuts());
+            for (int i = 0; i < 100; i++) {
+                long ptr = chStorage.toShortcutPointer(i);
+                assertEquals(i % 5, chStorage.getNodeA(ptr));
+                assertEquals((i + 1) % 5, chStorage.getNodeB(ptr));
+                assertTrue(chStorage.getFwdAccess(ptr));
+                assertFalse(chStorage.getBwdAccess(ptr));
+                assertEquals(10 + i, chStorage.getWeight(ptr));
+                assertEquals(i == 42 ? 7 : 3 * i, chStorage.getSkippedEdge1(ptr));
+                assertEquals(i == 42 ? 8 : 3 * i + 1, chStorage.getSkippedEdge2(ptr));
+                assertEquals(4 * i, chStorage.getOrigEdgeKeyFirst(ptr));
+                assertEquals(4 * i + 1, chStorage.getOrigEdgeKeyLast(ptr));
+            }
+            // the shortcuts only contain nodeA, nodeB, weight and the orig edge keys
+            assertEquals(20, chStorage.toShortcutPointer(1));
+        }
+    }
+
     @Test
     public void testBigWeight() {
         CHStorage g = new CHStorage(new RAMDirectory(), "abc", 1024, false);
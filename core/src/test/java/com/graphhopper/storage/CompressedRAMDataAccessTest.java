@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedRAMDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name, int segmentSize) {
+        return new RAMDataAccess(name, directory, true, segmentSize).compress(true);
+    }
+
+    @Test
+    public void testCompressedFile() {
+        DataAccess da = createDataAccess(name, 128);
+        da.create(128 * 100);
+        da.setHeader(0, 42);
+        for (int i = 0; i < 32 * 100; i += 7)
+            da.setInt(4L * i, i);
+        da.flush();
+        da.close();
+        // mostly zeros
+        assertTrue(new File(directory + name).length() < 128 * 100 / 2);
+
+        // the format is detected even if compression is disabled
+        da = new RAMDataAccess(name, directory, true, 128);
+        assertTrue(da.loadExisting());
+        assertEquals(100, da.getSegments());
+        assertEquals(42, da.getHeader(0));
+        for (int i = 0; i < 32 * 100; i++)
+            assertEquals(i % 7 == 0 ? i : 0, da.getInt(4L * i));
+        // ... and written uncompressed again
+        da.flush();
+        da.close();
+        da = new MMapDataAccess(name, directory, false, 128);
+        assertTrue(da.loadExisting());
+        assertEquals(7, da.getInt(4 * 7));
+        da.close();
+    }
+
+    @Test
+    public void testMMapCannotLoadCompressedFile() {
+        DataAccess da = createDataAccess(name, 128);
+        da.create(300);
+        da.setInt(4, 123);
+        da.flush();
+        da.close();
+
+        DataAccess mmap = new MMapDataAccess(name, directory, false, 128);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, mmap::loadExisting);
+        assertTrue(ex.getMessage().contains("compressed"), ex.getMessage());
+        mmap.close();
+    }
+}
@@ -216,6 +216,33 @@ public abstract class DataAccessTest {
         assertEquals(11111, index);
     }
 
+    @Test
+    public void testGetInts_GetLongs() {
+        DataAccess da = createDataAccess(name);
+        da.create(400);
+        assertEquals(128, da.getSegmentSize());
+        for (int i = 0; i < 100; i++)
+            da.setInt(4L * i, i * 1_000_003);
+
+        // the range spans three segments
+        int[] ints = new int[80];
+        da.getInts(12, ints, 2, 70);
+        for (int i = 0; i < 70; i++)
+            assertEquals((i + 3) * 1_000_003, ints[i + 2]);
+        assertEquals(0, ints[0]);
+        assertEquals(0, ints[72]);
+
+        // the long at byte position 124 is distributed over two segments
+        long[] longs = new long[40];
+        da.getLongs(4, longs, 0, 40);
+        for (int i = 0; i < 40; i++)
+            assertEquals(BitUtil.LITTLE.toLong(da.getInt(4 + 8L * i), da.getInt(8 + 8L * i)), longs[i]);
+        da.getLongs(8, longs, 1, 20);
+        for (int i = 0; i < 20; i++)
+            assertEquals(BitUtil.LITTLE.toLong((2 * i + 2) * 1_000_003, (2 * i + 3) * 1_000_003), longs[i + 1]);
+        da.close();
+    }
+
     @Test
     public void testSet_GetByte() {
         DataAccess da = createDataAccess(name);
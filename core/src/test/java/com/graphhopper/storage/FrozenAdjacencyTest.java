@@ -0,0 +1,134 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrozenAdjacencyTest {
+    private static final String DIR = "./target/frozen-adjacency-test";
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+    private final EncodingManager em = new EncodingManager.Builder().add(speedEnc).build();
+
+    @AfterEach
+    void tearDown() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    void sameIterationOrder() {
+        long seed = System.nanoTime();
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(DIR, true)).withFrozenAdjacency(true).create();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 200, 2.5, true, speedEnc, null, 0.7, 0);
+        // isolated node without edges
+        graph.getNodeAccess().setNode(200, 49.4, 9.7);
+        List<String> expected = explore(graph);
+        assertNull(graph.adjacency);
+
+        graph.freeze();
+        assertNotNull(graph.adjacency);
+        assertEquals(expected, explore(graph), "seed: " + seed);
+        graph.flush();
+        graph.close();
+
+        graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(DIR, true)).withFrozenAdjacency(true).build();
+        assertTrue(graph.loadExisting());
+        assertNotNull(graph.adjacency);
+        assertEquals(expected, explore(graph), "seed: " + seed);
+        graph.close();
+
+        // without the frozen adjacency the stored adjacency lists are ignored
+        graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(DIR, true)).build();
+        assertTrue(graph.loadExisting());
+        assertNull(graph.adjacency);
+        assertEquals(expected, explore(graph), "seed: " + seed);
+        graph.close();
+    }
+
+    @Test
+    void buildWhenLoadingFrozenGraph() {
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(DIR, true)).create();
+        graph.edge(0, 1).setDistance(10).set(speedEnc, 10, 10);
+        graph.edge(1, 2).setDistance(10).set(speedEnc, 10, 0);
+        graph.freeze();
+        List<String> expected = explore(graph);
+        graph.flush();
+        graph.close();
+
+        graph = new BaseGraph.Builder(em).setDir(new RAMDirectory(DIR, true)).withFrozenAdjacency(true).build();
+        assertTrue(graph.loadExisting());
+        assertNotNull(graph.adjacency);
+        assertEquals(expected, explore(graph));
+        graph.close();
+    }
+
+    @Test
+    void detachAndEdgeModifications() {
+        BaseGraph graph = new BaseGraph.Builder(em).withFrozenAdjacency(true).create();
+        graph.edge(0, 1).setDistance(10).set(speedEnc, 10, 10);
+        graph.edge(2, 0).setDistance(20).set(speedEnc, 10, 0);
+        graph.freeze();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        EdgeIterator iter = explorer.setBaseNode(0);
+        assertThrows(IllegalStateException.class, () -> iter.detach(false));
+        assertTrue(iter.next());
+        assertEquals(1, iter.getEdge());
+        assertEquals(2, iter.getAdjNode());
+        EdgeIteratorState detached = iter.detach(false);
+        assertEquals(0, detached.getBaseNode());
+        assertEquals(2, detached.getAdjNode());
+        // the edge is only accessible from 2 to 0
+        assertEquals(0, detached.get(speedEnc));
+        assertEquals(10, detached.getReverse(speedEnc));
+        // edges can still be modified, only the topology is fixed
+        iter.setDistance(30);
+        assertEquals(30, graph.getEdgeIteratorState(1, 0).getDistance());
+        assertTrue(iter.next());
+        assertEquals(1, iter.getAdjNode());
+        assertFalse(iter.next());
+        assertThrows(IllegalArgumentException.class, () -> explorer.setBaseNode(3));
+        assertThrows(IllegalStateException.class, () -> graph.edge(0, 2));
+    }
+
+    private List<String> explore(BaseGraph graph) {
+        List<String> result = new ArrayList<>();
+        for (EdgeFilter filter : new EdgeFilter[]{EdgeFilter.ALL_EDGES, edge -> edge.get(speedEnc) > 0, edge -> edge.getReverse(speedEnc) > 0}) {
+            EdgeExplorer explorer = graph.createEdgeExplorer(filter);
+            for (int node = 0; node < graph.getNodes(); node++) {
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next())
+                    result.add(iter.getBaseNode() + "-" + iter.getAdjNode() + " " + iter.getEdge() + " " + iter.getEdgeKey()
+                            + " " + iter.getDistance() + " " + iter.get(speedEnc) + " " + iter.getReverse(speedEnc)
+                            + " " + iter.fetchWayGeometry(FetchMode.ALL));
+            }
+        }
+        return result;
+    }
+}
@@ -1,10 +1,14 @@
 package com.graphhopper.storage;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.Map;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 class GHDirectoryTest {
 
@@ -33,4 +37,89 @@ class GHDirectoryTest {
         assertEquals(DAType.MMAP, dir.getDefaultType("nodes_ch_car", false));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testOffHeap() {
+        GHDirectory dir = new GHDirectory("", DAType.RAM_STORE);
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        map.put("nodes_ch.*", "OFF_HEAP");
+        map.put("edges", "OFF_HEAP_STORE");
+        dir.configure(map);
+        assertEquals(DAType.OFF_HEAP, dir.getDefaultType("nodes_ch_car", true));
+        assertEquals(DAType.OFF_HEAP_STORE, dir.getDefaultType("edges", false));
+        assertEquals("OFF_HEAP_STORE", DAType.OFF_HEAP_STORE.toString());
+    }
+
+    @Test
+    public void testCompress() {
+        GHDirectory dir = new GHDirectory("", DAType.RAM_STORE);
+        LinkedHashMap<String, String> map = new LinkedHashMap<>();
+        map.put("compress.shortcuts_.*", "true");
+        map.put("compress.edges", "true");
+        dir.configure(map);
+        assertTrue(((RAMDataAccess) dir.create("edges")).isCompressing());
+        assertTrue(((RAMDataAccess) dir.create("shortcuts_car")).isCompressing());
+        assertFalse(((RAMDataAccess) dir.create("geometry")).isCompressing());
+        dir.close();
+    }
+
+    @Test
+    public void testPreloadPriority() {
+        assertEquals(0, MMapPreloader.getPriority("location_index"));
+        assertEquals(1, MMapPreloader.getPriority("nodes"));
+        assertEquals(1, MMapPreloader.getPriority("edges"));
+        assertEquals(2, MMapPreloader.getPriority("nodes_ch_car"));
+        assertEquals(2, MMapPreloader.getPriority("shortcuts_car"));
+        assertEquals(3, MMapPreloader.getPriority("landmarks_car"));
+        assertEquals(4, MMapPreloader.getPriority("edgekv_vals"));
+        assertEquals(5, MMapPreloader.getPriority("properties"));
+    }
+
+    @Test
+    public void testPreload(@TempDir Path path) {
+        String location = path.toAbsolutePath().toString();
+        GHDirectory dir = new GHDirectory(location, DAType.MMAP);
+        for (String name : new String[]{"edgekv_vals", "shortcuts_car", "nodes", "location_index", "properties"}) {
+            DataAccess da = dir.create(name, 128);
+            da.create(1000);
+            da.setInt(996, 42);
+            da.flush();
+        }
+        dir.close();
+
+        dir = new GHDirectory(location, DAType.MMAP);
+        LinkedHashMap<String, String> config = new LinkedHashMap<>();
+        config.put("preload.properties", "0");
+        config.put("preload.nodes", "50");
+        config.put("preload..*", "100");
+        dir.configure(config);
+        Map<String, MMapDataAccess> das = new LinkedHashMap<>();
+        for (String name : new String[]{"edgekv_vals", "shortcuts_car", "nodes", "location_index", "properties"}) {
+            MMapDataAccess da = (MMapDataAccess) dir.create(name, 128);
+            assertTrue(da.loadExisting());
+            das.put(name, da);
+        }
+        assertEquals(8, das.get("nodes").getSegments());
+        Map<MMapDataAccess, Integer> preloads = new LinkedHashMap<>();
+        for (MMapDataAccess da : das.values())
+            preloads.put(da, dir.getPreload(da.getName()));
+        MMapPreloader preloader = new MMapPreloader(preloads);
+        assertEquals(Arrays.asList("location_index", "nodes", "shortcuts_car", "edgekv_vals"), preloader.getNames());
+        assertEquals(3 * 8 + 4, preloader.getTotalSegments());
+
+        assertEquals(1, dir.getPreloadProgress());
+        dir.loadMMap(3, true);
+        // closing the directory while preloading must not fail
+        dir.close();
+
+        dir = new GHDirectory(location, DAType.MMAP);
+        dir.configure(config);
+        for (String name : das.keySet())
+            assertTrue(dir.create(name, 128).loadExisting());
+        dir.loadMMap(3, false);
+        assertTrue(dir.isPreloaded());
+        assertEquals(1, dir.getPreloadProgress());
+        assertNull(dir.getPreloadError());
+        assertEquals(42, dir.getDAs().get("nodes").getInt(996));
+        dir.close();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.SpeedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.search.KVStorage;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphSorterTest {
+
+    @Test
+    void hilbertIndex() {
+        // the first cells of the curve go around the lower left 2x2 block
+        assertEquals(0, GraphSorter.hilbertIndex(0, 0));
+        assertEquals(1, GraphSorter.hilbertIndex(1, 0));
+        assertEquals(2, GraphSorter.hilbertIndex(1, 1));
+        assertEquals(3, GraphSorter.hilbertIndex(0, 1));
+        int max = (1 << 16) - 1;
+        // the curve ends in the lower right corner
+        assertEquals((1L << 32) - 1, GraphSorter.hilbertIndex(max, 0));
+    }
+
+    @Test
+    void hilbertNodeIdsForAllQuadrants() {
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        NodeAccess na = graph.getNodeAccess();
+        // upper right, lower right, upper left, lower left
+        na.setNode(0, 50, 10);
+        na.setNode(1, 49, 10);
+        na.setNode(2, 50, 9);
+        na.setNode(3, 49, 9);
+        // the indices of the right quadrants exceed 2^31 and must still be sorted after the left ones
+        assertArrayEquals(new int[]{2, 3, 1, 0}, GraphSorter.calcHilbertNodeIds(graph));
+    }
+
+    @Test
+    void relabelKeepsGraph() {
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, true);
+        DecimalEncodedValue turnCostEnc = TurnCost.create("car", 10);
+        EncodingManager em = new EncodingManager.Builder().add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 300, 2.2, true, speedEnc, null, 0.8, 0.1);
+        GHUtility.addRandomTurnCosts(graph, seed, null, turnCostEnc, 10, graph.getTurnCostStorage());
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            iter.setKeyValues(KVStorage.KeyValue.createKV(KVStorage.KeyValue.STREET_NAME, "road " + iter.getEdge()));
+            iter.setWayGeometry(Helper.createPointList(49.4 + rnd.nextDouble() * 0.01, 9.7));
+        }
+
+        List<String> edgesBefore = new ArrayList<>();
+        iter = graph.getAllEdges();
+        while (iter.next())
+            edgesBefore.add(edgeString(iter, graph.getNodeAccess()));
+        Weighting weighting = new SpeedWeighting(speedEnc, turnCostEnc, graph.getTurnCostStorage(), 40);
+        int[][] queries = new int[50][];
+        double[] weightsBefore = new double[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new int[]{rnd.nextInt(graph.getNodes()), rnd.nextInt(graph.getNodes())};
+            weightsBefore[i] = new Dijkstra(graph, weighting, TraversalMode.EDGE_BASED).calcPath(queries[i][0], queries[i][1]).getWeight();
+        }
+        double consecutiveDistBefore = calcConsecutiveNodeDistance(graph);
+
+        int[] newNodeIds = GraphSorter.calcHilbertNodeIds(graph);
+        int[] newEdgeIds = GraphSorter.calcEdgeIds(graph, newNodeIds);
+        graph.relabel(newNodeIds, newEdgeIds);
+
+        String msg = "seed: " + seed;
+        assertEquals(edgesBefore.size(), graph.getEdges(), msg);
+        for (int edge = 0; edge < edgesBefore.size(); edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(newEdgeIds[edge], Integer.MIN_VALUE);
+            assertEquals(edgesBefore.get(edge), edgeString(state, graph.getNodeAccess()), msg);
+        }
+        // the adjacency lists contain the same edges as before
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        int numAdjEdges = 0;
+        for (int node = 0; node < graph.getNodes(); node++) {
+            Set<Integer> edges = new HashSet<>();
+            EdgeIterator edgeIter = explorer.setBaseNode(node);
+            while (edgeIter.next()) {
+                assertEquals(node, edgeIter.getBaseNode(), msg);
+                assertTrue(edges.add(edgeIter.getEdge()), msg);
+                numAdjEdges++;
+            }
+        }
+        assertEquals(2 * graph.getEdges(), numAdjEdges, msg);
+        // the edges are ordered by their smaller node
+        int prevNode = -1;
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState state = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            int node = Math.min(state.getBaseNode(), state.getAdjNode());
+            assertTrue(node >= prevNode, msg);
+            prevNode = node;
+        }
+        // turn costs and routes did not change
+        for (int i = 0; i < queries.length; i++) {
+            double weight = new Dijkstra(graph, weighting, TraversalMode.EDGE_BASED).calcPath(newNodeIds[queries[i][0]], newNodeIds[queries[i][1]]).getWeight();
+            assertEquals(weightsBefore[i], weight, 1.e-6, msg);
+        }
+        // consecutive nodes are much closer to each other
+        assertTrue(calcConsecutiveNodeDistance(graph) < 0.5 * consecutiveDistBefore, msg);
+    }
+
+    @Test
+    void invalidPermutation() {
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        graph.edge(0, 1);
+        graph.edge(1, 2);
+        assertThrows(IllegalArgumentException.class, () -> graph.relabel(new int[]{0, 0, 1}, new int[]{0, 1}));
+        assertThrows(IllegalArgumentException.class, () -> graph.relabel(new int[]{0, 1, 2}, new int[]{1}));
+        graph.freeze();
+        assertThrows(IllegalStateException.class, () -> graph.relabel(new int[]{0, 1, 2}, new int[]{0, 1}));
+    }
+
+    private static String edgeString(EdgeIteratorState edge, NodeAccess na) {
+        return na.getLat(edge.getBaseNode()) + "," + na.getLon(edge.getBaseNode()) + " -> "
+                + na.getLat(edge.getAdjNode()) + "," + na.getLon(edge.getAdjNode()) + ", " + edge.getDistance()
+                + ", " + edge.getFlags() + ", " + edge.getName() + ", " + edge.fetchWayGeometry(FetchMode.ALL);
+    }
+
+    private static double calcConsecutiveNodeDistance(BaseGraph graph) {
+        double dist = 0;
+        for (int node = 1; node < graph.getNodes(); node++)
+            dist += GHUtility.getDistance(node - 1, node, graph.getNodeAccess());
+        return dist;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyDataAccessTest extends DataAccessTest {
+    private SegmentCache cache = new SegmentCache(1 << 20);
+
+    @Override
+    public DataAccess createDataAccess(String name, int segmentSize) {
+        return new LazyDataAccess(name, directory, segmentSize, cache);
+    }
+
+    @Test
+    public void testEviction() {
+        DataAccess da = createDataAccess(name);
+        da.create(128 * 10);
+        for (int i = 0; i < 32 * 10; i++)
+            da.setInt(4L * i, i);
+        da.flush();
+        da.close();
+
+        cache = new SegmentCache(3 * 128);
+        LazyDataAccess lazy = (LazyDataAccess) createDataAccess(name);
+        assertTrue(lazy.loadExisting());
+        assertEquals(10, lazy.getSegments());
+        assertEquals(0, lazy.getLoadedSegments());
+        assertEquals(5, lazy.getInt(5 * 4));
+        assertEquals(1, lazy.getLoadedSegments());
+        for (int i = 0; i < 32 * 10; i++)
+            assertEquals(i, lazy.getInt(4L * i));
+        // only the most recently used segments are kept
+        assertEquals(3, lazy.getLoadedSegments());
+        assertEquals(3 * 128, cache.getBytes());
+
+        // segment 0 is used all the time, so it is not evicted
+        for (int s = 1; s < 10; s++) {
+            assertEquals(s * 32, lazy.getInt(s * 128L));
+            assertEquals(0, lazy.getInt(0));
+        }
+        assertTrue(lazy.isLoaded(0));
+        assertTrue(lazy.isLoaded(9));
+        assertEquals(3, lazy.getLoadedSegments());
+
+        // the loaded data is read-only
+        assertThrows(IllegalStateException.class, () -> lazy.setInt(0, 1));
+        assertThrows(IllegalStateException.class, () -> lazy.ensureCapacity(128 * 20));
+        lazy.close();
+        assertEquals(0, cache.getSegments());
+    }
+
+    @Test
+    public void testMixRAM2Lazy() {
+        DataAccess da = new RAMDataAccess(name, directory, true, 128);
+        da.create(300);
+        da.setInt(7 * 4, 123);
+        da.setInt(300 - 4, 321);
+        da.flush();
+        da.close();
+        da = createDataAccess(name);
+        assertTrue(da.loadExisting());
+        assertEquals(123, da.getInt(7 * 4));
+        assertEquals(321, da.getInt(300 - 4));
+        da.close();
+    }
+}
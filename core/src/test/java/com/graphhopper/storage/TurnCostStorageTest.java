@@ -20,18 +20,23 @@ package com.graphhopper.storage;
 
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import static com.graphhopper.util.GHUtility.getEdge;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TurnCostStorageTest {
 
@@ -182,4 +187,69 @@ public class TurnCostStorageTest {
         assertFalse(iterator.next());
     }
 
+    @Test
+    public void testIndex() {
+        String dir = "./target/turn-cost-index-test";
+        Helper.removeDir(new File(dir));
+        BaseGraph g = new BaseGraph.Builder(manager).setDir(new RAMDirectory(dir, true)).withTurnCosts(true).withTurnCostIndex(true).create();
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(g, rnd, 100, 2.5, true, speedEnc, null, 0.7, 0);
+        GHUtility.addRandomTurnCosts(g, seed, null, carTurnCostEnc, 3, g.getTurnCostStorage());
+        List<String> expected = allTurnCosts(g);
+        assertFalse(g.getTurnCostStorage().hasIndex());
+        g.freeze();
+        assertTrue(g.getTurnCostStorage().hasIndex());
+        assertEquals(expected, allTurnCosts(g), "seed: " + seed);
+
+        // entries that are created after the index was built are added to it
+        for (int i = 0; i < 1000; i++) {
+            EdgeIteratorState from = g.getEdgeIteratorState(rnd.nextInt(g.getEdges()), Integer.MIN_VALUE);
+            EdgeIteratorState to = g.getEdgeIteratorState(rnd.nextInt(g.getEdges()), Integer.MIN_VALUE);
+            g.getTurnCostStorage().set(bikeTurnCostEnc, from.getEdge(), from.getBaseNode(), to.getEdge(), rnd.nextInt(8));
+        }
+        expected = allTurnCosts(g);
+        g.flush();
+        g.close();
+
+        g = new BaseGraph.Builder(manager).setDir(new RAMDirectory(dir, true)).withTurnCosts(true).withTurnCostIndex(true).build();
+        assertTrue(g.loadExisting());
+        assertTrue(g.getTurnCostStorage().hasIndex());
+        assertEquals(expected, allTurnCosts(g), "seed: " + seed);
+        g.close();
+
+        // without the index the linked lists are used
+        g = new BaseGraph.Builder(manager).setDir(new RAMDirectory(dir, true)).withTurnCosts(true).build();
+        assertTrue(g.loadExisting());
+        assertFalse(g.getTurnCostStorage().hasIndex());
+        assertEquals(expected, allTurnCosts(g), "seed: " + seed);
+        g.close();
+        Helper.removeDir(new File(dir));
+    }
+
+    @Test
+    public void testIndexSlots() {
+        assertEquals(16, TurnCostIndex.calcSlots(0));
+        assertEquals(16, TurnCostIndex.calcSlots(11));
+        assertEquals(32, TurnCostIndex.calcSlots(12));
+        assertEquals(1 << 20, TurnCostIndex.calcSlots(600_000));
+    }
+
+    /**
+     * @return the turn costs of all possible turns including the ones without an entry
+     */
+    private List<String> allTurnCosts(BaseGraph g) {
+        List<String> result = new ArrayList<>();
+        TurnCostStorage storage = g.getTurnCostStorage();
+        for (int node = 0; node < g.getNodes(); node++) {
+            List<Integer> edges = new ArrayList<>();
+            EdgeIterator iter = g.createEdgeExplorer().setBaseNode(node);
+            while (iter.next())
+                edges.add(iter.getEdge());
+            for (int from : edges)
+                for (int to : edges)
+                    result.add(from + "-" + node + "-" + to + ": " + storage.get(carTurnCostEnc, from, node, to) + " " + storage.get(bikeTurnCostEnc, from, node, to));
+        }
+        return result;
+    }
 }
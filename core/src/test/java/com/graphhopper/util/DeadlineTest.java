@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.util;
+
+import com.graphhopper.util.exceptions.RequestCancelledException;
+import com.graphhopper.util.exceptions.RequestTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        Deadline deadline = new Deadline(Long.MAX_VALUE);
+        assertFalse(deadline.isExceeded());
+        deadline.check();
+        assertEquals(Long.MAX_VALUE, deadline.getRemainingMillis());
+        long remaining = new Deadline(1000).getRemainingMillis();
+        assertTrue(remaining > 900 && remaining <= 1000, "remaining: " + remaining);
+
+        deadline = new Deadline(0);
+        Thread.sleep(2);
+        assertTrue(deadline.isExceeded());
+        RequestTimeoutException ex = assertThrows(RequestTimeoutException.class, deadline::check);
+        assertEquals(0L, ex.getDetails().get(RequestTimeoutException.TIMEOUT_KEY));
+        assertEquals(0, deadline.getRemainingMillis());
+
+        assertThrows(RequestTimeoutException.class, new Deadline(-1)::check);
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        AtomicBoolean disconnected = new AtomicBoolean();
+        AtomicInteger calls = new AtomicInteger();
+        Deadline deadline = new Deadline(Long.MAX_VALUE, () -> {
+            calls.incrementAndGet();
+            return disconnected.get();
+        });
+        assertFalse(deadline.isExceeded());
+        disconnected.set(true);
+        // the cancel check is not called again immediately
+        assertFalse(deadline.isExceeded());
+        assertEquals(1, calls.get());
+        Thread.sleep(30);
+        assertTrue(deadline.isExceeded());
+        assertTrue(deadline.isCancelled());
+        assertThrows(RequestCancelledException.class, deadline::check);
+
+        Deadline other = new Deadline(1000);
+        other.cancel();
+        assertThrows(RequestCancelledException.class, other::check);
+        assertThrows(IllegalStateException.class, Deadline.NONE::cancel);
+    }
+
+    @Test
+    public void testAwait() {
+        assertEquals("a", new Deadline(1000).await(CompletableFuture.completedFuture("a")));
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalArgumentException("failed"));
+        assertEquals("failed", assertThrows(IllegalArgumentException.class, () -> Deadline.NONE.await(failed)).getMessage());
+        // the timeout of the other request is thrown as well, but this one still has time left
+        CompletableFuture<String> timedOut = new CompletableFuture<>();
+        timedOut.completeExceptionally(new RequestTimeoutException("other", 10));
+        Deadline deadline = new Deadline(1000);
+        assertThrows(RequestTimeoutException.class, () -> deadline.await(timedOut));
+        deadline.check();
+
+        // the future is never completed
+        assertThrows(RequestTimeoutException.class, () -> new Deadline(30).await(new CompletableFuture<>()));
+        Deadline cancelled = new Deadline(Long.MAX_VALUE);
+        cancelled.cancel();
+        assertThrows(RequestCancelledException.class, () -> cancelled.await(new CompletableFuture<>()));
+    }
+}
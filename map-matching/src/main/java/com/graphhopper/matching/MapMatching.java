@@ -73,6 +73,7 @@ public class MapMatching {
     private double transitionProbabilityBeta = 2.0;
     private final DistanceCalc distanceCalc = new DistancePlaneProjection();
     private QueryGraph queryGraph;
+    private Deadline deadline = Deadline.NONE;
 
     private Map<String, Object> statistics = new HashMap<>();
 
@@ -195,13 +196,24 @@ public class MapMatching {
         this.measurementErrorSigma = measurementErrorSigma;
     }
 
+    /**
+     * The matching fails with a {@link com.graphhopper.util.exceptions.RequestTimeoutException} or a
+     * {@link com.graphhopper.util.exceptions.RequestCancelledException} once the given deadline is exceeded.
+     */
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
     public MatchResult match(List<Observation> observations) {
         List<Observation> filteredObservations = filterObservations(observations);
         statistics.put("filteredObservations", filteredObservations.size());
 
         // Snap observations to links. Generates multiple candidate snaps per observation.
         List<List<Snap>> snapsPerObservation = filteredObservations.stream()
-                .map(o -> findCandidateSnaps(o.getPoint().lat, o.getPoint().lon))
+                .map(o -> {
+                    deadline.check();
+                    return findCandidateSnaps(o.getPoint().lat, o.getPoint().lon);
+                })
                 .collect(Collectors.toList());
         statistics.put("snapsPerObservation", snapsPerObservation.stream().mapToInt(Collection::size).toArray());
 
@@ -211,6 +223,7 @@ public class MapMatching {
 
         // Creates candidates from the Snaps of all observations (a candidate is basically a
         // Snap + direction).
+        deadline.check();
         List<ObservationWithCandidateStates> timeSteps = createTimeSteps(filteredObservations, snapsPerObservation);
 
         // Compute the most likely sequence of map matching candidates:
@@ -403,6 +416,7 @@ public class MapMatching {
             qe = q.poll();
             if (qe.isDeleted)
                 continue;
+            deadline.check();
             if (qe.timeStep == timeSteps.size() - 1)
                 break;
             State from = qe.state;
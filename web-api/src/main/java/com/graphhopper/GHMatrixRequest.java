@@ -0,0 +1,194 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request object to calculate a matrix of the weights, times and distances between all from and all to points.
+ * Either specify the points (then every point is used as from and as to point) or the from and to points separately.
+ * The JSON format is the same as the one used by the matrix client (GHMRequest).
+ */
+public class GHMatrixRequest {
+    private List<GHPoint> points = new ArrayList<>();
+    private List<GHPoint> fromPoints = new ArrayList<>();
+    private List<GHPoint> toPoints = new ArrayList<>();
+    private List<String> pointHints = new ArrayList<>();
+    private List<String> fromPointHints = new ArrayList<>();
+    private List<String> toPointHints = new ArrayList<>();
+    private List<String> curbsides = new ArrayList<>();
+    private List<String> fromCurbsides = new ArrayList<>();
+    private List<String> toCurbsides = new ArrayList<>();
+    private List<String> snapPreventions = new ArrayList<>();
+    private List<String> outArrays = new ArrayList<>();
+    private boolean failFast = true;
+    private String profile = "";
+    private final PMap hints = new PMap();
+
+    public GHMatrixRequest setPoints(List<GHPoint> points) {
+        this.points = points;
+        return this;
+    }
+
+    public List<GHPoint> getPoints() {
+        return points;
+    }
+
+    public GHMatrixRequest setFromPoints(List<GHPoint> fromPoints) {
+        this.fromPoints = fromPoints;
+        return this;
+    }
+
+    /**
+     * @return the from points or the points if no separate from points were specified
+     */
+    public List<GHPoint> getFromPoints() {
+        return points.isEmpty() ? fromPoints : points;
+    }
+
+    public GHMatrixRequest setToPoints(List<GHPoint> toPoints) {
+        this.toPoints = toPoints;
+        return this;
+    }
+
+    /**
+     * @return the to points or the points if no separate to points were specified
+     */
+    public List<GHPoint> getToPoints() {
+        return points.isEmpty() ? toPoints : points;
+    }
+
+    public GHMatrixRequest setPointHints(List<String> pointHints) {
+        this.pointHints = pointHints;
+        return this;
+    }
+
+    public List<String> getPointHints() {
+        return pointHints;
+    }
+
+    public GHMatrixRequest setFromPointHints(List<String> fromPointHints) {
+        this.fromPointHints = fromPointHints;
+        return this;
+    }
+
+    public List<String> getFromPointHints() {
+        return points.isEmpty() ? fromPointHints : pointHints;
+    }
+
+    public GHMatrixRequest setToPointHints(List<String> toPointHints) {
+        this.toPointHints = toPointHints;
+        return this;
+    }
+
+    public List<String> getToPointHints() {
+        return points.isEmpty() ? toPointHints : pointHints;
+    }
+
+    public GHMatrixRequest setCurbsides(List<String> curbsides) {
+        this.curbsides = curbsides;
+        return this;
+    }
+
+    public List<String> getCurbsides() {
+        return curbsides;
+    }
+
+    public GHMatrixRequest setFromCurbsides(List<String> fromCurbsides) {
+        this.fromCurbsides = fromCurbsides;
+        return this;
+    }
+
+    public List<String> getFromCurbsides() {
+        return points.isEmpty() ? fromCurbsides : curbsides;
+    }
+
+    public GHMatrixRequest setToCurbsides(List<String> toCurbsides) {
+        this.toCurbsides = toCurbsides;
+        return this;
+    }
+
+    public List<String> getToCurbsides() {
+        return points.isEmpty() ? toCurbsides : curbsides;
+    }
+
+    public GHMatrixRequest setSnapPreventions(List<String> snapPreventions) {
+        this.snapPreventions = snapPreventions;
+        return this;
+    }
+
+    public List<String> getSnapPreventions() {
+        return snapPreventions;
+    }
+
+    /**
+     * @param outArrays the arrays that should be included in the response: weights, times and/or distances
+     */
+    public GHMatrixRequest setOutArrays(List<String> outArrays) {
+        this.outArrays = outArrays;
+        return this;
+    }
+
+    public List<String> getOutArrays() {
+        return outArrays;
+    }
+
+    /**
+     * @param failFast if false, points that cannot be found and pairs of points that are not connected do not yield
+     *                 an error. Instead, the corresponding entries of the matrix are left empty.
+     */
+    public GHMatrixRequest setFailFast(boolean failFast) {
+        this.failFast = failFast;
+        return this;
+    }
+
+    public boolean getFailFast() {
+        return failFast;
+    }
+
+    public GHMatrixRequest setProfile(String profile) {
+        this.profile = profile;
+        return this;
+    }
+
+    public String getProfile() {
+        return profile;
+    }
+
+    public PMap getHints() {
+        return hints;
+    }
+
+    // unknown properties end up in the hints, just like for GHRequest
+    @JsonAnySetter
+    public GHMatrixRequest putHint(String fieldName, Object value) {
+        this.hints.putObject(fieldName, value);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return getFromPoints().size() + "x" + getToPoints().size() + " (" + profile + ")"
+                + (hints.isEmpty() ? "" : " (Hints:" + hints + ")");
+    }
+}
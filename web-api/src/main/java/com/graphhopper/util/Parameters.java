@@ -99,6 +99,42 @@ public class Parameters {
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + "max_visited_nodes";
         public static final String TIMEOUT_MS = "timeout_ms";
         public static final String INIT_TIMEOUT_MS = ROUTING_INIT_PREFIX + "timeout_ms";
+        /**
+         * if true the unidirectional Dijkstra and A* use a search core based on reusable primitive arrays that
+         * avoids allocating objects per visited node and finds the same paths (not for CH, the bidirectional
+         * algorithms and the shortest path tree)
+         */
+        public static final String PRIMITIVE_SEARCH = "primitive_search";
+        public static final String INIT_PRIMITIVE_SEARCH = ROUTING_INIT_PREFIX + "primitive_search";
+        /**
+         * the maximum number of route responses that are cached, 0 disables the cache
+         */
+        public static final String INIT_ROUTE_CACHE_SIZE = ROUTING_INIT_PREFIX + "route_cache.size";
+        /**
+         * the time in milliseconds after which a cached route response is no longer used
+         */
+        public static final String INIT_ROUTE_CACHE_TTL_MS = ROUTING_INIT_PREFIX + "route_cache.ttl_ms";
+        /**
+         * the number of threads that calculate the routes of batch requests
+         */
+        public static final String INIT_BATCH_THREADS = ROUTING_INIT_PREFIX + "batch.threads";
+        /**
+         * the maximum number of requests of a single batch
+         */
+        public static final String INIT_BATCH_MAX_REQUESTS = ROUTING_INIT_PREFIX + "batch.max_requests";
+        /**
+         * the number of threads that calculate the legs of via routes concurrently, 0 disables this
+         */
+        public static final String INIT_PARALLEL_LEGS_THREADS = ROUTING_INIT_PREFIX + "parallel_legs.threads";
+        /**
+         * the minimum number of legs of a via route to calculate them concurrently
+         */
+        public static final String INIT_PARALLEL_LEGS_MIN_LEGS = ROUTING_INIT_PREFIX + "parallel_legs.min_legs";
+        /**
+         * if false the legs of a via route are calculated one after another, even if the server is configured to
+         * calculate them concurrently
+         */
+        public static final String PARALLEL_LEGS = "parallel_legs";
         /**
          * if true the response will contain turn instructions
          */
@@ -149,6 +185,30 @@ public class Parameters {
          * This property name in HintsMap configures at runtime if CH routing should be ignored.
          */
         public static final String DISABLE = "ch.disable";
+        /**
+         * Enables PHAST for /isochrone and /spt requests. It scans all nodes of the graph, so it only pays off for
+         * limits that cover a large part of the graph.
+         */
+        public static final String PHAST = "ch.phast";
+    }
+
+    /**
+     * Properties for routing with customizable contraction hierarchies, i.e. for requests with a custom model
+     */
+    public static final class CCH {
+        public static final String PREPARE = "prepare.cch.";
+        /**
+         * Enables the metric-independent preparation that is needed to route requests with a custom model like CH
+         */
+        public static final String ENABLED = PREPARE + "enabled";
+        /**
+         * This property name in HintsMap configures at runtime if CCH routing should be ignored.
+         */
+        public static final String DISABLE = "cch.disable";
+        /**
+         * The maximum memory in MB of the customizations (one per profile and custom model) that are kept in memory
+         */
+        public static final String CACHE_SIZE_MB = ROUTING_INIT_PREFIX + "cch.cache_size_mb";
     }
 
     /**
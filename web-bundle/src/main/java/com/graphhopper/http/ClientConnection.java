@@ -0,0 +1,44 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.Request;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Detects if the client of a request is gone, so that its calculation can be cancelled, see
+ * {@link com.graphhopper.util.Deadline}.
+ */
+public class ClientConnection {
+
+    /**
+     * @return a check that returns true once Jetty closed the connection of the given request, e.g. because the
+     * client disconnected. Jetty notices a disconnect only while it reads from or writes to the connection or when
+     * its idle timeout fires, so a request is not always cancelled immediately.
+     */
+    public static BooleanSupplier disconnected(HttpServletRequest httpReq) {
+        Request baseRequest = Request.getBaseRequest(httpReq);
+        if (baseRequest == null || baseRequest.getHttpChannel() == null)
+            return () -> false;
+        EndPoint endPoint = baseRequest.getHttpChannel().getEndPoint();
+        return () -> !endPoint.isOpen();
+    }
+}
@@ -21,27 +21,46 @@ package com.graphhopper.http;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.gtfs.GraphHopperGtfs;
+import com.graphhopper.routing.weighting.TrafficOverlay;
 import io.dropwizard.lifecycle.Managed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages the lifecycle of the {@link GraphHopper} instance that serves the requests. The instance can be replaced
+ * with one that uses a different graph folder while the server is running, see {@link #swap(String)}.
+ */
 public class GraphHopperManaged implements Managed {
 
     private final static Logger logger = LoggerFactory.getLogger(GraphHopperManaged.class);
-    private final GraphHopper graphHopper;
+    private final GraphHopperConfig configuration;
+    private volatile GraphHopper graphHopper;
+    // the number of requests that currently use an instance, see acquire and release
+    private final Map<GraphHopper, AtomicInteger> usersByInstance = new ConcurrentHashMap<>();
 
     public GraphHopperManaged(GraphHopperConfig configuration) {
-        if (configuration.has("gtfs.file")) {
-            graphHopper = new GraphHopperGtfs(configuration);
-        } else {
-            graphHopper = new GraphHopper();
-        }
+        this.configuration = configuration;
+        graphHopper = createGraphHopper(configuration);
+        usersByInstance.put(graphHopper, new AtomicInteger());
+    }
+
+    private static GraphHopper createGraphHopper(GraphHopperConfig configuration) {
+        GraphHopper graphHopper = configuration.has("gtfs.file") ? new GraphHopperGtfs(configuration) : new GraphHopper();
         graphHopper.init(configuration);
+        return graphHopper;
     }
 
     @Override
     public void start() {
         graphHopper.importOrLoad();
+        logLoaded(graphHopper);
+    }
+
+    private static void logLoaded(GraphHopper graphHopper) {
         logger.info("loaded graph at:{}, data_reader_file:{}, encoded values:{}, {} ints for edge flags, {}",
                 graphHopper.getGraphHopperLocation(), graphHopper.getOSMFile(),
                 graphHopper.getEncodingManager().toEncodedValuesAsString(),
@@ -49,14 +68,94 @@ public class GraphHopperManaged implements Managed {
                 graphHopper.getBaseGraph().toDetailsString());
     }
 
+    /**
+     * @return the instance that is currently used for new requests. To make sure the instance is not closed while it
+     * is used call {@link #acquire()} instead.
+     */
     public GraphHopper getGraphHopper() {
         return graphHopper;
     }
 
+    /**
+     * Returns the current instance and makes sure it is not closed by {@link #swap(String)} before
+     * {@link #release(GraphHopper)} is called.
+     */
+    public GraphHopper acquire() {
+        while (true) {
+            GraphHopper current = graphHopper;
+            AtomicInteger users = usersByInstance.get(current);
+            if (users == null)
+                // the instance was already swapped and closed
+                continue;
+            users.incrementAndGet();
+            // if the instance was swapped in the meantime it might be closed without waiting for us, so we try again
+            if (current == graphHopper)
+                return current;
+            users.decrementAndGet();
+        }
+    }
+
+    public void release(GraphHopper instance) {
+        AtomicInteger users = usersByInstance.get(instance);
+        if (users == null || users.decrementAndGet() < 0)
+            throw new IllegalStateException("GraphHopper instance was released more often than it was acquired");
+    }
+
+    /**
+     * Loads the already imported graph from the given folder with the same configuration as the current instance and
+     * replaces the current instance once it is fully loaded, including the CH and LM preparations and the location
+     * index. New requests use the new instance immediately, while the current instance is closed once all requests
+     * that acquired it are finished. This method blocks until the old instance is closed and only one swap can run
+     * at a time. The speed factors of the traffic overlay are carried over to the new instance, so the new graph
+     * needs to have the same edge keys or the factors have to be loaded again.
+     *
+     * @throws IllegalArgumentException if there is no graph in the given folder. The current instance stays in use.
+     */
+    public synchronized void swap(String graphLocation) {
+        if (configuration.has("gtfs.file"))
+            throw new IllegalStateException("Swapping the graph is not supported for public transit");
+        GraphHopperConfig newConfiguration = new GraphHopperConfig(configuration).putObject("graph.location", graphLocation);
+        GraphHopper newGraphHopper = createGraphHopper(newConfiguration);
+        // we never import here, the import must be done before, e.g. by a separate import process
+        if (!newGraphHopper.load()) {
+            newGraphHopper.close();
+            throw new IllegalArgumentException("There is no graph to load in " + graphLocation);
+        }
+        logLoaded(newGraphHopper);
+        TrafficOverlay.Snapshot traffic = graphHopper.getTrafficOverlay().getSnapshot();
+        if (!traffic.isEmpty()) {
+            newGraphHopper.getTrafficOverlay().update(traffic);
+            logger.info("carried over {} speed factors of the traffic overlay (version {}) to the graph at {}, reload them if its edge keys differ",
+                    traffic.size(), traffic.getVersion(), graphLocation);
+        }
+        usersByInstance.put(newGraphHopper, new AtomicInteger());
+        GraphHopper oldGraphHopper = graphHopper;
+        graphHopper = newGraphHopper;
+
+        AtomicInteger users = usersByInstance.get(oldGraphHopper);
+        long start = System.currentTimeMillis();
+        long lastLog = start;
+        while (users.get() > 0) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the requests to the old graph, it was not closed", ex);
+            }
+            if (System.currentTimeMillis() - lastLog > 60_000) {
+                lastLog = System.currentTimeMillis();
+                logger.info("waiting for {} requests to the old graph at {}", users.get(), oldGraphHopper.getGraphHopperLocation());
+            }
+        }
+        usersByInstance.remove(oldGraphHopper);
+        oldGraphHopper.close();
+        logger.info("swapped graph from {} to {}, waited {}ms for the requests to the old graph",
+                oldGraphHopper.getGraphHopperLocation(), graphLocation, System.currentTimeMillis() - start);
+    }
+
     @Override
     public void stop() {
         graphHopper.close();
     }
 
-
 }
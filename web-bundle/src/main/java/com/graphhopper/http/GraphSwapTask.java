@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import io.dropwizard.servlets.tasks.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Replaces the graph that is used to serve the requests with an already imported graph from another folder without
+ * restarting the server, see {@link GraphHopperManaged#swap(String)}, e.g.
+ * <pre>
+ * curl -X POST "http://localhost:8990/tasks/swap-graph?location=/data/graph-cache-2024-05-13"
+ * </pre>
+ * The new graph is loaded in the background and the task returns immediately. Requests are served by the old graph
+ * until the new one is fully loaded.
+ */
+public class GraphSwapTask extends Task {
+    private static final Logger logger = LoggerFactory.getLogger(GraphSwapTask.class);
+    private final GraphHopperManaged graphHopperManaged;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public GraphSwapTask(GraphHopperManaged graphHopperManaged) {
+        super("swap-graph");
+        this.graphHopperManaged = graphHopperManaged;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, PrintWriter output) {
+        if (!parameters.containsKey("location"))
+            throw new IllegalArgumentException("Specify the graph folder via the location parameter");
+        String location = parameters.get("location").get(0);
+        if (!running.compareAndSet(false, true))
+            throw new IllegalStateException("Another graph is currently being loaded");
+        Thread thread = new Thread(() -> {
+            try {
+                graphHopperManaged.swap(location);
+            } catch (Exception ex) {
+                logger.error("Could not swap the graph to " + location, ex);
+            } finally {
+                running.set(false);
+            }
+        }, "swap-graph");
+        thread.setDaemon(true);
+        thread.start();
+        output.println("loading graph from " + location);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.graphhopper.routing.RouteCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Exports the hits, misses and the size of the {@link RouteCache} of the current graph as gauges. The counters
+ * start from zero when the graph is swapped, because every graph has its own cache.
+ */
+public class RouteCacheMetrics implements MetricSet {
+
+    static final String PREFIX = "graphhopper.route_cache";
+    private final GraphHopperManaged graphHopperManaged;
+
+    public RouteCacheMetrics(GraphHopperManaged graphHopperManaged) {
+        this.graphHopperManaged = graphHopperManaged;
+    }
+
+    @Override
+    public Map<String, Metric> getMetrics() {
+        Map<String, Metric> metrics = new HashMap<>();
+        metrics.put(name(PREFIX, "hits"), gauge(RouteCache::getHits));
+        metrics.put(name(PREFIX, "misses"), gauge(RouteCache::getMisses));
+        metrics.put(name(PREFIX, "coalesced"), gauge(RouteCache::getCoalesced));
+        metrics.put(name(PREFIX, "size"), gauge(RouteCache::getSize));
+        return metrics;
+    }
+
+    private Gauge<Long> gauge(ToLongFunction<RouteCache> function) {
+        return () -> {
+            RouteCache cache = graphHopperManaged.getGraphHopper().getRouteCache();
+            return cache == null ? 0 : function.applyAsLong(cache);
+        };
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.MMapDataAccess;
+import io.dropwizard.lifecycle.Managed;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Registers gauges for the storage of the served graph: the capacity in bytes, the number of segments and the type
+ * of every DataAccess and, for memory mapped files, the fraction that is resident in physical memory. The capacity,
+ * segments and resident fraction are also aggregated for the CH and LM preparation of every profile and for the
+ * location index:
+ * <pre>
+ * graphhopper.storage.dataaccess.&lt;name&gt;.(capacity|segments|type|resident_fraction)
+ * graphhopper.storage.ch.&lt;profile&gt;.(capacity|segments|resident_fraction)
+ * graphhopper.storage.lm.&lt;profile&gt;.(capacity|segments|resident_fraction)
+ * graphhopper.storage.location_index.(capacity|segments|resident_fraction)
+ * </pre>
+ * The gauges are registered once the graph is loaded and always read the current graph, so they still work after the
+ * graph was swapped as long as the new graph has the same profiles.
+ */
+public class StorageMetrics implements Managed {
+
+    static final String PREFIX = "graphhopper.storage";
+    private final GraphHopperManaged graphHopperManaged;
+    private final MetricRegistry registry;
+
+    public StorageMetrics(GraphHopperManaged graphHopperManaged, MetricRegistry registry) {
+        this.graphHopperManaged = graphHopperManaged;
+        this.registry = registry;
+    }
+
+    /**
+     * Registers the gauges, this must be called after the graph was loaded.
+     */
+    @Override
+    public void start() {
+        GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        Map<String, DataAccess> das = new TreeMap<>(graphHopper.getBaseGraph().getDirectory().getDAs());
+        for (Map.Entry<String, DataAccess> entry : das.entrySet()) {
+            String name = entry.getKey();
+            register(name(PREFIX, "dataaccess", name), Collections.singletonList(name), das);
+            registry.register(name(PREFIX, "dataaccess", name, "type"),
+                    (Gauge<String>) () -> read(dataAccesses -> dataAccesses.containsKey(name) ? dataAccesses.get(name).getType().toString() : null));
+        }
+        for (String profile : graphHopper.getCHGraphs().keySet())
+            register(name(PREFIX, "ch", profile), Arrays.asList("nodes_ch_" + profile, "shortcuts_" + profile, "shortcuts_skip_" + profile), das);
+        for (String profile : graphHopper.getLandmarks().keySet())
+            register(name(PREFIX, "lm", profile), Arrays.asList("landmarks_" + profile, "landmarks_subnetwork_" + profile), das);
+        register(name(PREFIX, "location_index"), Collections.singletonList("location_index"), das);
+    }
+
+    @Override
+    public void stop() {
+        registry.removeMatching((name, metric) -> name.startsWith(PREFIX + "."));
+    }
+
+    private void register(String prefix, List<String> names, Map<String, DataAccess> das) {
+        registry.register(name(prefix, "capacity"), (Gauge<Long>) () -> read(dataAccesses -> {
+            long capacity = 0;
+            for (DataAccess da : find(dataAccesses, names))
+                capacity += da.getCapacity();
+            return capacity;
+        }));
+        registry.register(name(prefix, "segments"), (Gauge<Integer>) () -> read(dataAccesses -> {
+            int segments = 0;
+            for (DataAccess da : find(dataAccesses, names))
+                segments += da.getSegments();
+            return segments;
+        }));
+        // the resident fraction is only meaningful if there is at least one memory mapped file
+        if (find(das, names).stream().anyMatch(da -> da instanceof MMapDataAccess))
+            registry.register(name(prefix, "resident_fraction"), (Gauge<Double>) () -> read(dataAccesses -> calcResidentFraction(find(dataAccesses, names))));
+    }
+
+    /**
+     * @return the resident fraction of the memory mapped files weighted by their capacity
+     */
+    static double calcResidentFraction(List<DataAccess> das) {
+        double residentBytes = 0;
+        long capacity = 0;
+        for (DataAccess da : das) {
+            if (da instanceof MMapDataAccess) {
+                residentBytes += ((MMapDataAccess) da).getResidentFraction() * da.getCapacity();
+                capacity += da.getCapacity();
+            }
+        }
+        return capacity == 0 ? 0 : residentBytes / capacity;
+    }
+
+    private static List<DataAccess> find(Map<String, DataAccess> das, List<String> names) {
+        List<DataAccess> result = new ArrayList<>(names.size());
+        for (String name : names) {
+            DataAccess da = das.get(name);
+            if (da != null && !da.isClosed())
+                result.add(da);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the DataAccess objects of the current graph, which is not closed in the meantime even if it is swapped.
+     */
+    private <T> T read(Function<Map<String, DataAccess>, T> function) {
+        GraphHopper graphHopper = graphHopperManaged.acquire();
+        try {
+            return function.apply(graphHopper.getBaseGraph().getDirectory().getDAs());
+        } finally {
+            graphHopperManaged.release(graphHopper);
+        }
+    }
+}
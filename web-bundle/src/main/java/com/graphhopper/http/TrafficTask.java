@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.graphhopper.routing.weighting.TrafficOverlay;
+import io.dropwizard.servlets.tasks.PostBodyTask;
+
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Loads the speed factors of the {@link TrafficOverlay} on the admin port, e.g.
+ * <pre>
+ * curl -X POST --data-binary @traffic.csv http://localhost:8990/tasks/traffic
+ * curl -X POST "http://localhost:8990/tasks/traffic?file=/data/traffic.csv&amp;replace=false"
+ * </pre>
+ * The speed factors are either read from the request body or from the given local file, see
+ * {@link TrafficOverlay#load(Reader, boolean)} for the format. By default all existing factors are replaced.
+ */
+public class TrafficTask extends PostBodyTask {
+    private final Supplier<TrafficOverlay> trafficOverlay;
+
+    public TrafficTask(TrafficOverlay trafficOverlay) {
+        this(() -> trafficOverlay);
+    }
+
+    /**
+     * @param trafficOverlay provides the overlay of the current graph, which can change if the graph is swapped
+     */
+    public TrafficTask(Supplier<TrafficOverlay> trafficOverlay) {
+        super("traffic");
+        this.trafficOverlay = trafficOverlay;
+    }
+
+    @Override
+    public void execute(Map<String, List<String>> parameters, String body, PrintWriter output) throws Exception {
+        boolean replace = !parameters.containsKey("replace") || Boolean.parseBoolean(parameters.get("replace").get(0));
+        TrafficOverlay trafficOverlay = this.trafficOverlay.get();
+        TrafficOverlay.Snapshot snapshot;
+        if (parameters.containsKey("file")) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(parameters.get("file").get(0)), StandardCharsets.UTF_8)) {
+                snapshot = trafficOverlay.load(reader, replace);
+            }
+        } else {
+            snapshot = trafficOverlay.load(new StringReader(body), replace);
+        }
+        output.println("version: " + snapshot.getVersion() + ", speed factors: " + snapshot.size());
+    }
+}
@@ -20,23 +20,43 @@ package com.graphhopper.http.health;
 
 import com.codahale.metrics.health.HealthCheck;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GHDirectory;
+
+import java.util.function.Supplier;
 
 public class GraphHopperHealthCheck extends HealthCheck {
 
-    private final GraphHopper graphHopper;
+    private final Supplier<GraphHopper> graphHopperSupplier;
 
     public GraphHopperHealthCheck(GraphHopper graphHopper) {
-        this.graphHopper = graphHopper;
+        this(() -> graphHopper);
+    }
+
+    /**
+     * @param graphHopperSupplier provides the current instance, which can change if the graph is swapped
+     */
+    public GraphHopperHealthCheck(Supplier<GraphHopper> graphHopperSupplier) {
+        this.graphHopperSupplier = graphHopperSupplier;
     }
 
     @Override
     protected Result check() {
+        GraphHopper graphHopper = graphHopperSupplier.get();
         if (!graphHopper.getBaseGraph().getBounds().isValid()) {
             return Result.unhealthy("BaseGraph has invalid bounds.");
         }
         if (!graphHopper.getFullyLoaded()) {
             return Result.unhealthy("GraphHopper is not fully loaded.");
         }
+        Directory directory = graphHopper.getBaseGraph().getDirectory();
+        if (directory instanceof GHDirectory) {
+            GHDirectory ghDirectory = (GHDirectory) directory;
+            if (ghDirectory.getPreloadError() != null)
+                return Result.unhealthy("Preloading memory mapped files failed: " + ghDirectory.getPreloadError().getMessage());
+            if (!ghDirectory.isPreloaded())
+                return Result.unhealthy("Preloading memory mapped files: " + Math.round(ghDirectory.getPreloadProgress() * 100) + "%");
+        }
         return Result.healthy();
     }
 }
@@ -4,15 +4,19 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
+import com.graphhopper.http.ClientConnection;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.PHASTShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.ch.PHASTData;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
 import com.graphhopper.routing.util.DefaultSnapFilter;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.Weighting;
@@ -26,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -66,6 +71,7 @@ public class IsochroneResource {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response doGet(
+            @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
             @QueryParam("profile") String profileName,
             @QueryParam("buckets") @Range(min = 1, max = 20) @DefaultValue("1") OptionalInt nBuckets,
@@ -80,6 +86,8 @@ public class IsochroneResource {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+        Deadline deadline = new Deadline(graphHopper.getRouterConfig().getTimeoutMillis(hintsMap), ClientConnection.disconnected(httpReq));
+        boolean usePHAST = hintsMap.getBool(Parameters.CH.PHAST, false) && !hintsMap.getBool(Parameters.CH.DISABLE, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
 
@@ -98,9 +106,10 @@ public class IsochroneResource {
         Snap snap = locationIndex.findClosest(point.get().lat, point.get().lon, new DefaultSnapFilter(weighting, inSubnetworkEnc));
         if (!snap.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
+        deadline.check();
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
-        TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        ShortestPathTree shortestPathTree = createShortestPathTree(graphHopper, profile, queryGraph, weighting, reverseFlow, usePHAST);
+        shortestPathTree.setDeadline(deadline);
 
         double limit;
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
@@ -128,6 +137,7 @@ public class IsochroneResource {
         ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
         ArrayList<Geometry> isochrones = new ArrayList<>();
         for (Double z : zs) {
+            deadline.check();
             logger.info("Building contour z={}", z);
             MultiPolygon isochrone = contourBuilder.computeIsoline(z, result.seedEdges);
             if (fullGeometry) {
@@ -171,6 +181,19 @@ public class IsochroneResource {
                 build();
     }
 
+    /**
+     * Uses PHAST if it was requested and there is a node-based CH preparation for the given profile and a plain
+     * Dijkstra search otherwise.
+     */
+    static ShortestPathTree createShortestPathTree(GraphHopper graphHopper, Profile profile, QueryGraph queryGraph,
+                                                   Weighting weighting, boolean reverseFlow, boolean usePHAST) {
+        PHASTData phastData = usePHAST ? graphHopper.getPHASTData(profile.getName()) : null;
+        if (phastData != null)
+            return new PHASTShortestPathTree(new QueryRoutingCHGraph(graphHopper.getCHGraphs().get(profile.getName()), queryGraph), phastData, reverseFlow);
+        TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
+        return new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+    }
+
     private Polygon heuristicallyFindMainConnectedComponent(MultiPolygon multiPolygon, Point point) {
         int maxPoints = 0;
         Polygon maxPolygon = null;
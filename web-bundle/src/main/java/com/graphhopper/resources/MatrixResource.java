@@ -0,0 +1,146 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GHMatrixRequest;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.matrix.DistanceMatrix;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.resources.RouteResource.removeLegacyParameters;
+
+/**
+ * Resource to calculate the weights, times and distances between many points at once. The request and response
+ * format is the same as the one of the GraphHopper Matrix API, so it can be used with GraphHopperMatrixWeb. Times are
+ * returned in seconds and distances in meters. If fail_fast=false pairs that are not connected and points that cannot
+ * be found are returned as null and listed in the hints.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+    private final ProfileResolver profileResolver;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper, ProfileResolver profileResolver) {
+        this.graphHopper = graphHopper;
+        this.profileResolver = profileResolver;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull GHMatrixRequest request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        PMap profileResolverHints = new PMap(request.getHints());
+        profileResolverHints.putObject("profile", request.getProfile());
+        request.setProfile(profileResolver.resolveProfile(profileResolverHints));
+        removeLegacyParameters(request.getHints());
+
+        DistanceMatrix matrix = graphHopper.matrix(request);
+        List<String> outArrays = request.getOutArrays().isEmpty() ? Collections.singletonList("weights") : request.getOutArrays();
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights"))
+            putArray(json, "weights", matrix, (from, to) -> json.numberNode(Math.round(matrix.getWeight(from, to) * 1000) / 1000d));
+        if (outArrays.contains("times"))
+            putArray(json, "times", matrix, (from, to) -> json.numberNode(Math.round(matrix.getTime(from, to) / 1000d)));
+        if (outArrays.contains("distances"))
+            putArray(json, "distances", matrix, (from, to) -> json.numberNode(Math.round(matrix.getDistance(from, to))));
+        if (!request.getFailFast())
+            putHints(json, matrix);
+
+        double took = sw.stop().getMillisDouble();
+        final ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        info.put("took", Math.round(took));
+        logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent") + " "
+                + matrix.getFromCount() + "x" + matrix.getToCount() + ", took: " + String.format("%.1f", took)
+                + " ms, profile: " + request.getProfile() + ", debugInfo: " + matrix.getDebugInfo());
+        return Response.ok(json).
+                header("X-GH-Took", "" + Math.round(took)).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    private interface EntryWriter {
+        JsonNode write(int from, int to);
+    }
+
+    private static void putArray(ObjectNode json, String name, DistanceMatrix matrix, EntryWriter writer) {
+        ArrayNode rows = json.putArray(name);
+        for (int from = 0; from < matrix.getFromCount(); from++) {
+            ArrayNode row = rows.addArray();
+            for (int to = 0; to < matrix.getToCount(); to++) {
+                if (matrix.isConnected(from, to))
+                    row.add(writer.write(from, to));
+                else
+                    row.addNull();
+            }
+        }
+    }
+
+    private static void putHints(ObjectNode json, DistanceMatrix matrix) {
+        ArrayNode hints = json.putArray("hints");
+        ArrayNode pointPairs = JsonNodeFactory.instance.arrayNode();
+        for (int from = 0; from < matrix.getFromCount(); from++) {
+            if (matrix.getInvalidFromPoints().contains(from))
+                continue;
+            for (int to = 0; to < matrix.getToCount(); to++) {
+                if (!matrix.isConnected(from, to) && !matrix.getInvalidToPoints().contains(to))
+                    pointPairs.addArray().add(from).add(to);
+            }
+        }
+        if (!pointPairs.isEmpty()) {
+            ObjectNode hint = hints.addObject();
+            hint.put("message", "There are pairs of points that are not connected");
+            hint.set("point_pairs", pointPairs);
+        }
+        if (!matrix.getInvalidFromPoints().isEmpty() || !matrix.getInvalidToPoints().isEmpty()) {
+            ObjectNode hint = hints.addObject();
+            hint.put("message", "Cannot find some of the points");
+            ArrayNode invalidFromPoints = hint.putArray("invalid_from_points");
+            matrix.getInvalidFromPoints().forEach(invalidFromPoints::add);
+            ArrayNode invalidToPoints = hint.putArray("invalid_to_points");
+            matrix.getInvalidToPoints().forEach(invalidToPoints::add);
+        }
+    }
+}
@@ -17,13 +17,17 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.http.ClientConnection;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.GHRequestTransformer;
 import com.graphhopper.http.ProfileResolver;
+import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.MultiException;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.util.*;
@@ -38,6 +42,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +70,7 @@ public class RouteResource {
     private final GHRequestTransformer ghRequestTransformer;
     private final Boolean hasElevation;
     private final String osmDate;
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
 
     @Inject
     public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, GHRequestTransformer ghRequestTransformer, @Named("hasElevation") Boolean hasElevation) {
@@ -134,7 +143,7 @@ public class RouteResource {
         removeLegacyParameters(request.getHints());
         request.setProfile(profileName);
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse = graphHopper.route(request, ClientConnection.disconnected(httpReq));
 
         double took = sw.stop().getMillisDouble();
         String logStr = (httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")) + " " + points + ", took: " + String.format("%.1f", took) + "ms, algo: " + algoStr + ", profile: " + profileName;
@@ -169,19 +178,9 @@ public class RouteResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
         StopWatch sw = new StopWatch().start();
-        request = ghRequestTransformer.transformRequest(request);
-
-        if (Helper.isEmpty(request.getProfile()) && request.getCustomModel() != null)
-            // throw a dedicated exception here, otherwise a missing profile is still caught in Router
-            throw new IllegalArgumentException("The 'profile' parameter is required when you use the `custom_model` parameter");
-
-        PMap profileResolverHints = new PMap(request.getHints());
-        profileResolverHints.putObject("profile", request.getProfile());
-        profileResolverHints.putObject("has_curbsides", !request.getCurbsides().isEmpty());
-        request.setProfile(profileResolver.resolveProfile(profileResolverHints));
-        removeLegacyParameters(request.getHints());
+        request = prepareRequest(request);
 
-        GHResponse ghResponse = graphHopper.route(request);
+        GHResponse ghResponse = graphHopper.route(request, ClientConnection.disconnected(httpReq));
         boolean instructions = request.getHints().getBool(INSTRUCTIONS, true);
         boolean enableElevation = request.getHints().getBool("elevation", false);
         boolean calcPoints = request.getHints().getBool(CALC_POINTS, true);
@@ -209,6 +208,121 @@ public class RouteResource {
         }
     }
 
+    /**
+     * Calculates the routes of many requests at once, see {@link GraphHopper#routeBatch(List)}. The responses are
+     * streamed in the order of the requests as soon as they are available. An invalid request does not fail the whole
+     * batch, instead its response contains the message and hints of the errors.
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPostBatch(@NotNull List<GHRequest> requests, @Context HttpServletRequest httpReq) {
+        // once the streaming started we can no longer respond with an error, so we have to check this here
+        if (requests.size() > graphHopper.getBatchMaxRequests())
+            throw new IllegalArgumentException("Too many requests in the batch: " + requests.size() + ", the maximum is " + graphHopper.getBatchMaxRequests());
+        StopWatch sw = new StopWatch().start();
+        List<Throwable> prepareErrors = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<GHRequest> preparedRequests = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                preparedRequests.add(prepareRequest(requests.get(i)));
+            } catch (IllegalArgumentException ex) {
+                prepareErrors.set(i, ex);
+            }
+        }
+
+        StreamingOutput out = output -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                BatchWriter writer = new BatchWriter(generator, prepareErrors, preparedRequests, sw);
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("responses");
+                try {
+                    graphHopper.routeBatch(preparedRequests, ClientConnection.disconnected(httpReq), ghResponse -> {
+                        try {
+                            writer.write(ghResponse);
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                } catch (UncheckedIOException ex) {
+                    throw ex.getCause();
+                }
+                writer.finish();
+                generator.writeEndArray();
+                generator.writeEndObject();
+                logger.info(httpReq.getRemoteAddr() + " " + httpReq.getLocale() + " " + httpReq.getHeader("User-Agent")
+                        + " batch of " + requests.size() + " requests, errors: " + writer.errors + ", took: "
+                        + String.format("%.1f", sw.stop().getMillisDouble()) + " ms");
+            }
+        };
+        return Response.ok(out).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Writes the responses of a batch in the order of the requests, including the errors of the requests that could
+     * not be prepared and were therefore not routed.
+     */
+    private class BatchWriter {
+        private final JsonGenerator generator;
+        private final List<Throwable> prepareErrors;
+        private final List<GHRequest> preparedRequests;
+        private final StopWatch sw;
+        private int index;
+        private int routed;
+        private int errors;
+
+        BatchWriter(JsonGenerator generator, List<Throwable> prepareErrors, List<GHRequest> preparedRequests, StopWatch sw) {
+            this.generator = generator;
+            this.prepareErrors = prepareErrors;
+            this.preparedRequests = preparedRequests;
+            this.sw = sw;
+        }
+
+        void write(GHResponse ghResponse) throws IOException {
+            writePrepareErrors();
+            GHRequest request = preparedRequests.get(routed++);
+            index++;
+            if (ghResponse.hasErrors()) {
+                errors++;
+                objectMapper.writeValue(generator, new MultiException(ghResponse.getErrors()));
+            } else {
+                objectMapper.writeTree(generator, ResponsePathSerializer.jsonObject(ghResponse, osmDate,
+                        request.getHints().getBool(INSTRUCTIONS, true), request.getHints().getBool(CALC_POINTS, true),
+                        request.getHints().getBool("elevation", false), request.getHints().getBool("points_encoded", true),
+                        sw.getCurrentSeconds() * 1000));
+            }
+            // send every response as soon as it is available
+            generator.flush();
+        }
+
+        void finish() throws IOException {
+            writePrepareErrors();
+        }
+
+        private void writePrepareErrors() throws IOException {
+            while (index < prepareErrors.size() && prepareErrors.get(index) != null) {
+                errors++;
+                objectMapper.writeValue(generator, new MultiException(prepareErrors.get(index++)));
+            }
+        }
+    }
+
+    private GHRequest prepareRequest(GHRequest request) {
+        request = ghRequestTransformer.transformRequest(request);
+
+        if (Helper.isEmpty(request.getProfile()) && request.getCustomModel() != null)
+            // throw a dedicated exception here, otherwise a missing profile is still caught in Router
+            throw new IllegalArgumentException("The 'profile' parameter is required when you use the `custom_model` parameter");
+
+        PMap profileResolverHints = new PMap(request.getHints());
+        profileResolverHints.putObject("profile", request.getProfile());
+        profileResolverHints.putObject("has_curbsides", !request.getCurbsides().isEmpty());
+        request.setProfile(profileResolver.resolveProfile(profileResolverHints));
+        removeLegacyParameters(request.getHints());
+        return request;
+    }
+
     public static void removeLegacyParameters(PMap hints) {
         // these parameters should only be used to resolve the profile, but should not be passed to GraphHopper
         hints.remove("weighting");
@@ -0,0 +1,107 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Collections;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class GraphSwapTest {
+    private static final String DIR = "./target/graph-swap-andorra-gh/";
+    private static final String NEW_DIR = "./target/graph-swap-monaco-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.vehicles", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("import.osm.ignored_highways", "").
+                setProfiles(Collections.singletonList(new Profile("my_car").setVehicle("car"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+        Helper.removeDir(new File(NEW_DIR));
+    }
+
+    @Test
+    public void testSwap() throws InterruptedException {
+        String andorraQuery = "route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128";
+        String monacoQuery = "route?profile=my_car&point=43.727687,7.418737&point=43.74958,7.436566";
+        assertEquals(200, clientTarget(app, andorraQuery).request().get().getStatus());
+        assertEquals(400, clientTarget(app, monacoQuery).request().get().getStatus());
+
+        // the new graph is imported separately with the same configuration
+        GraphHopperConfig newConfig = new GraphHopperConfig(app.getConfiguration().getGraphHopperConfiguration()).
+                putObject("datareader.file", "../core/files/monaco.osm.gz").
+                putObject("graph.location", NEW_DIR);
+        new GraphHopper().init(newConfig).importAndClose();
+
+        Response response = app.client().target("http://localhost:" + app.getAdminPort() + "/tasks/swap-graph?location=" + NEW_DIR)
+                .request().post(Entity.text(""));
+        assertEquals(200, response.getStatus());
+        // requests are served by the old graph until the new one is loaded
+        int status = 400;
+        for (int i = 0; i < 600 && status != 200; i++) {
+            status = clientTarget(app, monacoQuery).request().get().getStatus();
+            if (status != 200)
+                Thread.sleep(100);
+        }
+        assertEquals(200, status);
+        JsonNode json = clientTarget(app, monacoQuery).request().get(JsonNode.class);
+        assertEquals(3587, json.get("paths").get(0).get("distance").asDouble(), 10);
+        assertEquals(400, clientTarget(app, andorraQuery).request().get().getStatus());
+
+        // swapping to a folder without a graph keeps the current graph
+        response = app.client().target("http://localhost:" + app.getAdminPort() + "/tasks/swap-graph?location=./target/graph-swap-missing")
+                .request().post(Entity.text(""));
+        assertEquals(200, response.getStatus());
+        Thread.sleep(500);
+        assertEquals(200, clientTarget(app, monacoQuery).request().get().getStatus());
+        JsonNode health = app.client().target("http://localhost:" + app.getAdminPort() + "/healthcheck").request().get(JsonNode.class);
+        assertTrue(health.get("graphhopper").get("healthy").asBoolean(), health.toString());
+    }
+}
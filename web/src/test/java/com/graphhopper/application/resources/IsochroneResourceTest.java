@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.application.GraphHopperApplication;
 import com.graphhopper.application.GraphHopperServerConfiguration;
 import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.Profile;
 import com.graphhopper.util.CustomModel;
 import com.graphhopper.util.Helper;
@@ -33,6 +34,8 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -42,6 +45,7 @@ import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import java.io.File;
 import java.util.Arrays;
+import java.util.Collections;
 
 import static com.graphhopper.application.util.TestUtils.clientTarget;
 import static org.junit.jupiter.api.Assertions.*;
@@ -62,7 +66,9 @@ public class IsochroneResourceTest {
                         new Profile("fast_car").setVehicle("car").setTurnCosts(true),
                         new Profile("short_car").setCustomModel(new CustomModel().setDistanceInfluence(1_000d)).setVehicle("car").setTurnCosts(true),
                         new Profile("fast_car_no_turn_restrictions").setVehicle("car").setTurnCosts(false)
-                ));
+                )).
+                // for this profile isochrones can be calculated with PHAST
+                setCHProfiles(Collections.singletonList(new CHProfile("fast_car_no_turn_restrictions")));
         return config;
     }
 
@@ -96,10 +102,12 @@ public class IsochroneResourceTest {
         assertFalse(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.635246, 42.53841))));
     }
 
-    @Test
-    public void requestByTimeLimitNoTurnRestrictions() {
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void requestByTimeLimitNoTurnRestrictions(boolean phast) {
         Response rsp = clientTarget(app, "/isochrone")
                 .queryParam("profile", "fast_car_no_turn_restrictions")
+                .queryParam("ch.phast", phast)
                 .queryParam("point", "42.531073,1.573792")
                 .queryParam("time_limit", 5 * 60)
                 .queryParam("buckets", 2)
@@ -0,0 +1,193 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.GraphHopperWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static com.graphhopper.application.util.TestUtils.clientUrl;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+    private static final List<GHPoint> POINTS = Arrays.asList(
+            new GHPoint(42.5155, 1.5305), new GHPoint(42.5064, 1.5224), new GHPoint(42.5331, 1.5726),
+            new GHPoint(42.5436, 1.5106), new GHPoint(42.4871, 1.5015));
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.vehicles", "car,foot").
+                putObject("prepare.min_network_size", 0).
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("import.osm.ignored_highways", "").
+                putObject("graph.location", DIR)
+                .setProfiles(Arrays.asList(
+                        new Profile("car").setVehicle("car"),
+                        new Profile("foot").setVehicle("foot")
+                ))
+                .setCHProfiles(Arrays.asList(new CHProfile("car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"car", "foot"})
+    public void testSameAsRoute(String profile) {
+        GHMRequest request = new GHMRequest();
+        request.setProfile(profile);
+        request.setPoints(POINTS);
+        request.setOutArrays(Arrays.asList("weights", "times", "distances"));
+        // there is no CH preparation for foot, so the matrix is calculated with one Dijkstra search per point
+        boolean disableCH = !profile.equals("car");
+        request.putHint("ch.disable", disableCH);
+        MatrixResponse rsp = new GraphHopperMatrixWeb(clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+
+        GraphHopperWeb routeClient = new GraphHopperWeb(clientUrl(app, "/route"));
+        for (int from = 0; from < POINTS.size(); from++) {
+            for (int to = 0; to < POINTS.size(); to++) {
+                if (from == to) {
+                    assertEquals(0, rsp.getDistance(from, to), 1.e-6);
+                    continue;
+                }
+                GHResponse routeRsp = routeClient.route(new GHRequest(POINTS.get(from), POINTS.get(to)).setProfile(profile).
+                        putHint("instructions", false).putHint("calc_points", false).putHint("ch.disable", disableCH));
+                assertFalse(routeRsp.hasErrors(), routeRsp.getErrors().toString());
+                ResponsePath path = routeRsp.getBest();
+                String msg = "from: " + from + ", to: " + to;
+                assertEquals(path.getRouteWeight(), rsp.getWeight(from, to), 1.e-2, msg);
+                assertEquals(path.getDistance(), rsp.getDistance(from, to), 1, msg);
+                // the client multiplies the seconds with 1000
+                assertEquals(path.getTime(), rsp.getTime(from, to), 1000, msg);
+            }
+        }
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setFromPoints(POINTS.subList(0, 2));
+        request.setToPoints(POINTS.subList(2, 5));
+        request.setOutArrays(Arrays.asList("distances", "times"));
+        MatrixResponse rsp = new GraphHopperMatrixWeb(clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        for (int from = 0; from < 2; from++) {
+            for (int to = 0; to < 3; to++) {
+                assertTrue(rsp.getDistance(from, to) > 1000, "from: " + from + ", to: " + to);
+                assertTrue(rsp.getTime(from, to) > 60_000, "from: " + from + ", to: " + to);
+            }
+        }
+    }
+
+    @Test
+    public void testManyPointsWithGzip() {
+        // requests with more than maxUnzippedLength characters are sent gzipped
+        List<GHPoint> points = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            points.add(POINTS.get(i % POINTS.size()));
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setPoints(points);
+        request.setOutArrays(Arrays.asList("weights"));
+        MatrixResponse rsp = new GraphHopperMatrixWeb(clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(rsp.getWeight(0, 1), rsp.getWeight(5, 6), 1.e-6);
+        assertEquals(0, rsp.getWeight(3, 8), 1.e-6);
+    }
+
+    @Test
+    public void testPointNotFound() {
+        List<GHPoint> points = Arrays.asList(POINTS.get(0), new GHPoint(52.5, 13.4), POINTS.get(1));
+        GHMRequest request = new GHMRequest();
+        request.setProfile("car");
+        request.setPoints(points);
+        request.setOutArrays(Arrays.asList("weights", "distances"));
+        MatrixResponse rsp = new GraphHopperMatrixWeb(clientUrl(app, "/matrix")).route(request);
+        assertTrue(rsp.hasErrors());
+        assertTrue(rsp.getErrors().toString().contains("Cannot find from_points: 1"), rsp.getErrors().toString());
+
+        request.setFailFast(false);
+        rsp = new GraphHopperMatrixWeb(clientUrl(app, "/matrix")).route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertTrue(rsp.hasProblems());
+        assertEquals(Arrays.asList(1), rsp.getInvalidFromPoints());
+        assertEquals(Arrays.asList(1), rsp.getInvalidToPoints());
+        assertTrue(rsp.getDisconnectedPoints().isEmpty());
+        assertEquals(Double.MAX_VALUE, rsp.getWeight(0, 1));
+        assertEquals(Double.MAX_VALUE, rsp.getDistance(1, 2));
+        assertTrue(rsp.getDistance(0, 2) > 1000);
+    }
+
+    @Test
+    public void testJson() {
+        String body = "{\"profile\": \"car\", \"points\": [[1.5305, 42.5155], [1.5224, 42.5064]], \"out_arrays\": [\"times\"]}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertFalse(json.has("weights"));
+        assertFalse(json.has("distances"));
+        assertEquals(2, json.get("times").size());
+        assertEquals(0, json.get("times").get(0).get(0).asLong());
+        assertTrue(json.get("times").get(0).get(1).asLong() > 60);
+        assertTrue(json.get("info").has("took"));
+
+        body = "{\"profile\": \"car\", \"from_points\": [[1.5305, 42.5155]]}";
+        response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("at least one from and one to point"), json.toString());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.graphhopper.application.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class RouteBatchResourceTest {
+    private static final String DIR = "./target/route-batch-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.vehicles", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("import.osm.ignored_highways", "").
+                setProfiles(Arrays.asList(
+                        new Profile("my_car").setVehicle("car"),
+                        new Profile("my_other_car").setVehicle("car"))).
+                setCHProfiles(Arrays.asList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testBatch() {
+        String body = "[" +
+                "{\"points\": [[1.536198,42.554851],[1.548128,42.510071]], \"profile\": \"my_car\"}," +
+                "{\"points\": [[1.548128,42.510071],[1.536198,42.554851]], \"profile\": \"my_other_car\", \"ch.disable\": true, \"points_encoded\": false, \"instructions\": false}," +
+                "{\"points\": [[1.536198,42.554851]], \"profile\": \"my_car\"}," +
+                "{\"points\": [[1.536198,42.554851],[1.548128,42.510071]], \"profile\": \"unknown\"}" +
+                "]";
+        Response response = clientTarget(app, "/route/batch").request().post(Entity.json(body));
+        assertEquals(200, response.getStatus());
+        JsonNode responses = response.readEntity(JsonNode.class).get("responses");
+        assertEquals(4, responses.size());
+
+        JsonNode path = responses.get(0).get("paths").get(0);
+        assertEquals(9000, path.get("distance").asDouble(), 1000);
+        assertTrue(path.get("points_encoded").asBoolean());
+        assertTrue(path.has("instructions"));
+
+        assertTrue(responses.get(1).has("paths"), responses.get(1).toString());
+        path = responses.get(1).get("paths").get(0);
+        assertEquals(9000, path.get("distance").asDouble(), 1000);
+        assertFalse(path.get("points_encoded").asBoolean());
+        assertFalse(path.has("instructions"));
+
+        assertTrue(responses.get(2).get("message").asText().startsWith("At least 2 points have to be specified"),
+                responses.get(2).toString());
+        assertTrue(responses.get(3).get("message").asText().startsWith("The requested profile 'unknown' does not exist"),
+                responses.get(3).toString());
+    }
+
+    @Test
+    public void testTooManyRequests() {
+        String request = "{\"points\": [[1.536198,42.554851],[1.548128,42.510071]], \"profile\": \"my_car\"}";
+        String body = "[" + String.join(",", Collections.nCopies(1001, request)) + "]";
+        Response response = clientTarget(app, "/route/batch").request().post(Entity.json(body));
+        // the size is checked before the responses are streamed, so we still get a proper error
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().startsWith("Too many requests in the batch: 1001"), json.toString());
+    }
+}
@@ -104,7 +104,7 @@ public class RouteResourceLeipzigTest {
             Response response = clientTarget(app, "/route?timeout_ms=" + timeout + "&profile=my_car&point=51.319685,12.335525&point=51.367294,12.434745&" + args).request().buildGet().invoke();
             assertEquals(400, response.getStatus());
             JsonNode jsonNode = response.readEntity(JsonNode.class);
-            assertTrue(jsonNode.get("message").asText().contains("Connection between locations not found"), jsonNode.get("message").asText());
+            assertTrue(jsonNode.get("message").asText().contains("The request did not finish within its timeout"), jsonNode.get("message").asText());
         }
     }
 
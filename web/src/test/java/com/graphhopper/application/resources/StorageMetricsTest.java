@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.application.GraphHopperApplication;
+import com.graphhopper.application.GraphHopperServerConfiguration;
+import com.graphhopper.application.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class StorageMetricsTest {
+    private static final String DIR = "./target/storage-metrics-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.vehicles", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("graph.dataaccess.type.location_index", "MMAP").
+                putObject("import.osm.ignored_highways", "").
+                setProfiles(Collections.singletonList(new Profile("my_car").setVehicle("car"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("my_car"))).
+                setLMProfiles(Collections.singletonList(new LMProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testMetrics() {
+        JsonNode gauges = app.client().target("http://localhost:" + app.getAdminPort() + "/metrics").request().get(JsonNode.class).get("gauges");
+        assertEquals("RAM_INT_STORE", gauges.get("graphhopper.storage.dataaccess.nodes.type").get("value").asText());
+        assertTrue(gauges.get("graphhopper.storage.dataaccess.nodes.capacity").get("value").asLong() > 0);
+        assertTrue(gauges.get("graphhopper.storage.dataaccess.edges.segments").get("value").asInt() > 0);
+        // the resident fraction is only reported for memory mapped files
+        assertFalse(gauges.has("graphhopper.storage.dataaccess.nodes.resident_fraction"));
+        assertEquals("MMAP_STORE", gauges.get("graphhopper.storage.dataaccess.location_index.type").get("value").asText());
+        double residentFraction = gauges.get("graphhopper.storage.location_index.resident_fraction").get("value").asDouble();
+        assertTrue(residentFraction >= 0 && residentFraction <= 1, "resident fraction: " + residentFraction);
+
+        // the aggregates are the sums over the files of the CH and LM preparations
+        long chCapacity = gauges.get("graphhopper.storage.dataaccess.nodes_ch_my_car.capacity").get("value").asLong()
+                + gauges.get("graphhopper.storage.dataaccess.shortcuts_my_car.capacity").get("value").asLong();
+        assertEquals(chCapacity, gauges.get("graphhopper.storage.ch.my_car.capacity").get("value").asLong());
+        long lmCapacity = gauges.get("graphhopper.storage.dataaccess.landmarks_my_car.capacity").get("value").asLong()
+                + gauges.get("graphhopper.storage.dataaccess.landmarks_subnetwork_my_car.capacity").get("value").asLong();
+        assertEquals(lmCapacity, gauges.get("graphhopper.storage.lm.my_car.capacity").get("value").asLong());
+        assertEquals(gauges.get("graphhopper.storage.dataaccess.location_index.capacity").get("value").asLong(),
+                gauges.get("graphhopper.storage.location_index.capacity").get("value").asLong());
+    }
+}